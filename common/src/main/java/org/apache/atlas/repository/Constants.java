@@ -104,6 +104,20 @@ public final class Constants {
     public static final String PATCH_ACTION_PROPERTY_KEY      = encodePropertyKey(INTERNAL_PROPERTY_KEY_PREFIX + "patch.action");
     public static final String PATCH_STATE_PROPERTY_KEY       = encodePropertyKey(INTERNAL_PROPERTY_KEY_PREFIX + "patch.state");
 
+    /**
+     * Task vertices property keys.
+     */
+    public static final String TASK_GUID_PROPERTY_KEY            = encodePropertyKey(INTERNAL_PROPERTY_KEY_PREFIX + "task.guid");
+    public static final String TASK_TYPE_PROPERTY_KEY            = encodePropertyKey(INTERNAL_PROPERTY_KEY_PREFIX + "task.type");
+    public static final String TASK_PARAMETERS_PROPERTY_KEY      = encodePropertyKey(INTERNAL_PROPERTY_KEY_PREFIX + "task.parameters");
+    public static final String TASK_STATUS_PROPERTY_KEY          = encodePropertyKey(INTERNAL_PROPERTY_KEY_PREFIX + "task.status");
+    public static final String TASK_START_TIME_PROPERTY_KEY      = encodePropertyKey(INTERNAL_PROPERTY_KEY_PREFIX + "task.startTime");
+    public static final String TASK_END_TIME_PROPERTY_KEY        = encodePropertyKey(INTERNAL_PROPERTY_KEY_PREFIX + "task.endTime");
+    public static final String TASK_ATTEMPT_COUNT_PROPERTY_KEY   = encodePropertyKey(INTERNAL_PROPERTY_KEY_PREFIX + "task.attemptCount");
+    public static final String TASK_PROCESSED_COUNT_PROPERTY_KEY = encodePropertyKey(INTERNAL_PROPERTY_KEY_PREFIX + "task.processedCount");
+    public static final String TASK_ERROR_MESSAGE_PROPERTY_KEY   = encodePropertyKey(INTERNAL_PROPERTY_KEY_PREFIX + "task.errorMessage");
+    public static final String TASK_CURSOR_PROPERTY_KEY          = encodePropertyKey(INTERNAL_PROPERTY_KEY_PREFIX + "task.cursor");
+
     /**
      * The homeId field is used when saving into Atlas a copy of an object that is being imported from another
      * repository. The homeId will be set to a String that identifies the other repository. The specific format
@@ -138,6 +152,16 @@ public final class Constants {
 
     public static final String IS_INCOMPLETE_PROPERTY_KEY = encodePropertyKey(INTERNAL_PROPERTY_KEY_PREFIX + "isIncomplete");
 
+    /**
+     * Hash of the entity content last written by create/update, along with the modification timestamp at that time.
+     */
+    public static final String CONTENT_HASH_PROPERTY_KEY = encodePropertyKey(INTERNAL_PROPERTY_KEY_PREFIX + "contentHash");
+
+    /**
+     * Marks entities whose full text is yet to be updated by the background full text mapper.
+     */
+    public static final String FULLTEXT_PENDING_PROPERTY_KEY = encodePropertyKey(INTERNAL_PROPERTY_KEY_PREFIX + "fullTextPending");
+
     /**
      * search backing index name.
      */
@@ -36,19 +36,20 @@ public class AtlasPerfMetrics {
             final String name      = recorder.name;
             final long   timeTaken = recorder.getElapsedTime();
 
-            Metric metric = metrics.get(name);
-
-            if (metric == null) {
-                metric = new Metric(name);
-
-                metrics.put(name, metric);
-            }
+            Metric metric = getOrCreateMetric(name);
 
             metric.invocations++;
             metric.totalTimeMSecs += timeTaken;
         }
     }
 
+    /**
+     * Adds count to the metric, for occurrences that are counted rather than timed.
+     */
+    public void recordCount(String name, long count) {
+        getOrCreateMetric(name).invocations += count;
+    }
+
     public void clear() {
         metrics.clear();
     }
@@ -65,6 +66,18 @@ public class AtlasPerfMetrics {
         return metrics.get(name);
     }
 
+    private Metric getOrCreateMetric(String name) {
+        Metric ret = metrics.get(name);
+
+        if (ret == null) {
+            ret = new Metric(name);
+
+            metrics.put(name, ret);
+        }
+
+        return ret;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -99,7 +112,7 @@ public class AtlasPerfMetrics {
 
     public static class Metric {
         private final String name;
-        private       short  invocations    = 0;
+        private       long   invocations    = 0;
         private       long   totalTimeMSecs = 0;
 
         public Metric(String name) {
@@ -110,7 +123,7 @@ public class AtlasPerfMetrics {
             return name;
         }
 
-        public short getInvocations() {
+        public long getInvocations() {
             return invocations;
         }
 
@@ -26,6 +26,8 @@ import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -145,6 +147,42 @@ public interface AtlasGraph<V, E> {
      */
     Iterable<AtlasVertex<V, E>> getVertices(String key, Object value);
 
+    /**
+     * Finds the vertices having the given guids, with a single query.
+     *
+     * @param guids
+     * @return guid to vertex map; guids that are not found are not in the map
+     */
+    Map<String, AtlasVertex<V, E>> findByGuids(Collection<String> guids);
+
+    /**
+     * Gets the edges of multiple vertices, with a single query where supported by the graph database.
+     *
+     * @param vertices
+     * @param direction
+     * @param edgeLabels
+     * @return vertex to its edges; vertices that have no edges with the given labels may not be in the map
+     */
+    Map<AtlasVertex<V, E>, List<AtlasEdge<V, E>>> getEdges(Collection<AtlasVertex<V, E>> vertices, AtlasEdgeDirection direction, String... edgeLabels);
+
+    /**
+     * Gets the value of a property of multiple vertices, with a single query where supported by the graph database.
+     *
+     * @param vertices
+     * @param propertyName
+     * @param clazz
+     * @return vertex to property value; vertices that don't have the property are not in the map
+     */
+    <T> Map<AtlasVertex<V, E>, T> getPropertyValues(Collection<AtlasVertex<V, E>> vertices, String propertyName, Class<T> clazz);
+
+    /**
+     * Loads all properties of multiple vertices, with a single query where supported by the graph database. Reads of
+     * these properties later in the current transaction are served from the loaded values.
+     *
+     * @param vertices
+     */
+    void loadProperties(Collection<AtlasVertex<V, E>> vertices);
+
     /**
      * Creates a graph query.
      *
@@ -28,6 +28,7 @@ import org.apache.atlas.exception.AtlasBaseException;
 import org.apache.atlas.groovy.GroovyExpression;
 import org.apache.atlas.model.instance.AtlasEntity;
 import org.apache.atlas.repository.graphdb.AtlasEdge;
+import org.apache.atlas.repository.graphdb.AtlasEdgeDirection;
 import org.apache.atlas.repository.graphdb.AtlasGraph;
 import org.apache.atlas.repository.graphdb.AtlasGraphIndexClient;
 import org.apache.atlas.repository.graphdb.AtlasGraphManagement;
@@ -59,8 +60,11 @@ import org.apache.tinkerpop.gremlin.structure.io.graphson.GraphSONMapper;
 import org.apache.tinkerpop.gremlin.structure.io.graphson.GraphSONWriter;
 import org.janusgraph.core.Cardinality;
 import org.janusgraph.core.JanusGraph;
+import org.janusgraph.core.JanusGraphEdge;
 import org.janusgraph.core.JanusGraphFactory;
 import org.janusgraph.core.JanusGraphIndexQuery;
+import org.janusgraph.core.JanusGraphVertex;
+import org.janusgraph.core.JanusGraphVertexProperty;
 import org.janusgraph.core.PropertyKey;
 import org.janusgraph.core.SchemaViolationException;
 import org.janusgraph.core.schema.JanusGraphIndex;
@@ -76,7 +80,9 @@ import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -86,6 +92,7 @@ import java.util.Set;
 import static org.apache.atlas.repository.Constants.INDEX_SEARCH_VERTEX_PREFIX_DEFAULT;
 import static org.apache.atlas.repository.Constants.INDEX_SEARCH_VERTEX_PREFIX_PROPERTY;
 import static org.apache.atlas.repository.graphdb.janus.AtlasJanusGraphDatabase.getGraphInstance;
+import static org.apache.atlas.type.Constants.GUID_PROPERTY_KEY;
 import static org.apache.atlas.type.Constants.STATE_PROPERTY_KEY;
 
 /**
@@ -327,6 +334,94 @@ public class AtlasJanusGraph implements AtlasGraph<AtlasJanusVertex, AtlasJanusE
         return query.vertices();
     }
 
+    @Override
+    public Map<String, AtlasVertex<AtlasJanusVertex, AtlasJanusEdge>> findByGuids(Collection<String> guids) {
+        Map<String, AtlasVertex<AtlasJanusVertex, AtlasJanusEdge>> ret = new HashMap<>();
+
+        if (guids != null && !guids.isEmpty()) {
+            AtlasGraphQuery<AtlasJanusVertex, AtlasJanusEdge> query = query();
+
+            query.in(GUID_PROPERTY_KEY, guids);
+
+            for (AtlasVertex<AtlasJanusVertex, AtlasJanusEdge> vertex : query.vertices()) {
+                String guid = vertex.getProperty(GUID_PROPERTY_KEY, String.class);
+
+                if (guid != null) {
+                    ret.put(guid, vertex);
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    @Override
+    public Map<AtlasVertex<AtlasJanusVertex, AtlasJanusEdge>, List<AtlasEdge<AtlasJanusVertex, AtlasJanusEdge>>> getEdges(Collection<AtlasVertex<AtlasJanusVertex, AtlasJanusEdge>> vertices, AtlasEdgeDirection direction, String... edgeLabels) {
+        Map<AtlasVertex<AtlasJanusVertex, AtlasJanusEdge>, List<AtlasEdge<AtlasJanusVertex, AtlasJanusEdge>>> ret = new HashMap<>();
+
+        if (vertices != null && !vertices.isEmpty()) {
+            Map<JanusGraphVertex, AtlasVertex<AtlasJanusVertex, AtlasJanusEdge>> janusVertices = toJanusVertices(vertices);
+            Map<JanusGraphVertex, Iterable<JanusGraphEdge>>                        vertexEdges   = getGraph().multiQuery(janusVertices.keySet())
+                                                                                                             .direction(AtlasJanusObjectFactory.createDirection(direction))
+                                                                                                             .labels(edgeLabels)
+                                                                                                             .edges();
+
+            for (Map.Entry<JanusGraphVertex, Iterable<JanusGraphEdge>> entry : vertexEdges.entrySet()) {
+                List<AtlasEdge<AtlasJanusVertex, AtlasJanusEdge>> edges = new ArrayList<>();
+
+                for (JanusGraphEdge edge : entry.getValue()) {
+                    edges.add(GraphDbObjectFactory.createEdge(this, edge));
+                }
+
+                ret.put(janusVertices.get(entry.getKey()), edges);
+            }
+        }
+
+        return ret;
+    }
+
+    @Override
+    public <T> Map<AtlasVertex<AtlasJanusVertex, AtlasJanusEdge>, T> getPropertyValues(Collection<AtlasVertex<AtlasJanusVertex, AtlasJanusEdge>> vertices, String propertyName, Class<T> clazz) {
+        Map<AtlasVertex<AtlasJanusVertex, AtlasJanusEdge>, T> ret = new HashMap<>();
+
+        if (vertices != null && !vertices.isEmpty()) {
+            Map<JanusGraphVertex, AtlasVertex<AtlasJanusVertex, AtlasJanusEdge>> janusVertices    = toJanusVertices(vertices);
+            Map<JanusGraphVertex, Iterable<JanusGraphVertexProperty>>              vertexProperties = getGraph().multiQuery(janusVertices.keySet()).keys(propertyName).properties();
+
+            for (Map.Entry<JanusGraphVertex, Iterable<JanusGraphVertexProperty>> entry : vertexProperties.entrySet()) {
+                Iterator<JanusGraphVertexProperty> iter = entry.getValue().iterator();
+
+                if (iter.hasNext()) {
+                    Object value = iter.next().value();
+
+                    if (value != null) {
+                        ret.put(janusVertices.get(entry.getKey()), clazz.cast(value));
+                    }
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    @Override
+    public void loadProperties(Collection<AtlasVertex<AtlasJanusVertex, AtlasJanusEdge>> vertices) {
+        if (vertices != null && !vertices.isEmpty()) {
+            // multiQuery adds the properties read to the transaction's cache of each vertex
+            getGraph().multiQuery(toJanusVertices(vertices).keySet()).properties();
+        }
+    }
+
+    private static Map<JanusGraphVertex, AtlasVertex<AtlasJanusVertex, AtlasJanusEdge>> toJanusVertices(Collection<AtlasVertex<AtlasJanusVertex, AtlasJanusEdge>> vertices) {
+        Map<JanusGraphVertex, AtlasVertex<AtlasJanusVertex, AtlasJanusEdge>> ret = new HashMap<>(vertices.size());
+
+        for (AtlasVertex<AtlasJanusVertex, AtlasJanusEdge> vertex : vertices) {
+            ret.put((JanusGraphVertex) vertex.getV().getWrappedElement(), vertex);
+        }
+
+        return ret;
+    }
+
     @Override
     public GremlinVersion getSupportedGremlinVersion() {
         return GremlinVersion.THREE;
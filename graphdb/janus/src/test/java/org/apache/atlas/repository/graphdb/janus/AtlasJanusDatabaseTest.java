@@ -38,6 +38,7 @@ import org.testng.annotations.Test;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -248,6 +249,24 @@ public class AtlasJanusDatabaseTest {
         assertNull(graph.getVertex(v1.getId().toString()));
     }
 
+    @Test
+    public <V, E> void testFindByGuids() {
+
+        AtlasGraph<V, E> graph = (AtlasGraph<V, E>) getGraph();
+        AtlasVertex<V, E> v1 = graph.addVertex();
+        AtlasVertex<V, E> v2 = graph.addVertex();
+
+        v1.setProperty(Constants.GUID_PROPERTY_KEY, "findByGuids-guid1");
+        v2.setProperty(Constants.GUID_PROPERTY_KEY, "findByGuids-guid2");
+
+        Map<String, AtlasVertex<V, E>> vertices = graph.findByGuids(Arrays.asList("findByGuids-guid1", "findByGuids-guid2", "findByGuids-guid3"));
+
+        assertEquals(vertices.size(), 2);
+        assertEquals(vertices.get("findByGuids-guid1"), v1);
+        assertEquals(vertices.get("findByGuids-guid2"), v2);
+        assertTrue(graph.findByGuids(Collections.<String>emptyList()).isEmpty());
+    }
+
     @Test
     public <V, E> void testGetEdges() {
 
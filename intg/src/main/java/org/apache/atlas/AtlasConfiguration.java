@@ -45,8 +45,12 @@ public enum AtlasConfiguration {
 
     NOTIFICATION_MESSAGE_MAX_LENGTH_BYTES("atlas.notification.message.max.length.bytes", (1000 * 1000)),
     NOTIFICATION_MESSAGE_COMPRESSION_ENABLED("atlas.notification.message.compression.enabled", true),
+    NOTIFICATION_MESSAGE_COMPRESSION_KIND("atlas.notification.message.compression.kind", "GZIP"), // GZIP or LZ4; consumers must be upgraded before enabling LZ4 in producers
+    NOTIFICATION_MESSAGE_MAX_UNCOMPRESSED_BYTES("atlas.notification.message.max.uncompressed.bytes", 512 * 1024 * 1024), // LZ4 compressed messages whose length prefix exceeds this are rejected, before allocating the buffer
     NOTIFICATION_SPLIT_MESSAGE_SEGMENTS_WAIT_TIME_SECONDS("atlas.notification.split.message.segments.wait.time.seconds", 15 * 60),
     NOTIFICATION_SPLIT_MESSAGE_BUFFER_PURGE_INTERVAL_SECONDS("atlas.notification.split.message.buffer.purge.interval.seconds", 5 * 60),
+    NOTIFICATION_SPLIT_MESSAGE_BUFFER_MAX_MEMORY_BYTES("atlas.notification.split.message.buffer.max.memory.bytes", 64 * 1024 * 1024), // segments received beyond this are spilled to disk
+    NOTIFICATION_SPLIT_MESSAGE_SPILL_DIR("atlas.notification.split.message.spill.dir", System.getProperty("java.io.tmpdir")),
 
     NOTIFICATION_CREATE_SHELL_ENTITY_FOR_NON_EXISTING_REF("atlas.notification.consumer.create.shell.entity.for.non-existing.ref", true),
     REST_API_CREATE_SHELL_ENTITY_FOR_NON_EXISTING_REF("atlas.rest.create.shell.entity.for.non-existing.ref", false),
@@ -55,8 +59,33 @@ public enum AtlasConfiguration {
 
     RELATIONSHIP_WARN_NO_RELATIONSHIPS("atlas.relationships.warnOnNoRelationships", false),
     ENTITY_CHANGE_NOTIFY_IGNORE_RELATIONSHIP_ATTRIBUTES("atlas.entity.change.notify.ignore.relationship.attributes", true),
+    ENTITY_CONTENT_HASH_ENABLED("atlas.entity.content.hash.enabled", false), // skip updates of entities whose content is same as in their last update
+    ENTITY_RESOLVER_UNIQUE_ATTRIBUTE_BATCH_SIZE("atlas.entity.resolver.unique.attribute.batch.size", 100), // number of references looked up in one query; 0 to look up one at a time
+    GRAPH_GUID_VERTEX_ID_CACHE_SIZE("atlas.graph.guid.vertex.id.cache.size", 10000), // guid to vertex-id entries cached across transactions; 0 to disable
+    ENTITY_HEADER_CACHE_SIZE("atlas.entity.header.cache.size", 10000), // entity headers cached across requests; 0 to disable
+    GRAPH_TRAVERSAL_BATCH_SIZE("atlas.graph.traversal.batch.size", 1000), // number of vertices whose edges are fetched in one query, when traversing propagation edges
+    ENTITY_RETRIEVE_PREFETCH_ENABLED("atlas.entity.retrieve.prefetch.enabled", true), // load properties and edges read by entity retrieval with batched queries, before mapping
+    ENTITY_RETRIEVE_STREAM_CHUNK_SIZE("atlas.entity.retrieve.stream.chunk.size", 100), // number of entities read in one transaction, and written as one line, by streaming bulk retrieval
+    ENTITY_LOCK_WAIT_TIMEOUT_MS("atlas.entity.lock.wait.timeout.ms", 5 * 60 * 1000), // 0 to wait without limit
+    ENTITY_GROUP_COMMIT_ENABLED("atlas.entity.group.commit.enabled", false), // mutate concurrent REST create/update requests in one transaction
+    ENTITY_GROUP_COMMIT_WINDOW_MS("atlas.entity.group.commit.window.ms", 5), // time to wait for more requests to join a group
+    ENTITY_GROUP_COMMIT_MAX_ENTITIES("atlas.entity.group.commit.max.entities", 500), // requests with more entities are not grouped
+    ENTITY_GROUP_COMMIT_THREADS("atlas.entity.group.commit.threads", 4),
+    FULLTEXT_MAPPING_ASYNC_ENABLED("atlas.search.fulltext.async.enabled", false), // update full text of entities in background, instead of in the mutation transaction
+    FULLTEXT_MAPPING_ASYNC_BATCH_SIZE("atlas.search.fulltext.async.batch.size", 100), // number of entities updated in one transaction
+    FULLTEXT_MAPPING_ASYNC_THREADS("atlas.search.fulltext.async.threads", 1),
 
     CLASSIFICATION_PROPAGATION_DEFAULT("atlas.classification.propagation.default", true),
+    CLASSIFICATION_BULK_CHUNK_SIZE("atlas.classification.bulk.chunk.size", 100), // number of entities classified in one transaction, by chunked bulk classification
+    CLASSIFICATION_BULK_THREADS("atlas.classification.bulk.threads", 2), // number of chunks classified concurrently
+    CLASSIFICATION_BULK_MAX_LOCKED_ENTITIES("atlas.classification.bulk.max.locked.entities", 256), // chunk size x threads is capped to this
+    TASKS_ENABLED("atlas.tasks.enabled", false), // propagate classifications in background tasks, instead of in the request transaction
+    TASKS_CHUNK_SIZE("atlas.tasks.chunk.size", 1000), // number of entities updated by a task in one transaction
+    TASKS_WORKER_THREADS("atlas.tasks.worker.threads", 1),
+    TASKS_MAX_ATTEMPTS("atlas.tasks.max.attempts", 3), // a failed task is executed again, after a delay, until it has failed this many times
+    TASKS_RETRY_DELAY_MS("atlas.tasks.retry.delay.ms", 60 * 1000), // delay before the first retry; doubled for each further retry
+    TASKS_COMPLETED_RETENTION_MS("atlas.tasks.completed.retention.ms", 7 * 24 * 60 * 60 * 1000L), // completed tasks are deleted after this time; 0 to keep them
+    TASKS_PURGE_INTERVAL_MS("atlas.tasks.purge.interval.ms", 60 * 60 * 1000), // interval between deletions of expired completed tasks
 
     //search configuration
     SEARCH_MAX_LIMIT("atlas.search.maxlimit", 10000),
@@ -91,6 +120,10 @@ public enum AtlasConfiguration {
         this.defaultValue = defaultValue;
     }
 
+    public String getPropertyName() {
+        return propertyName;
+    }
+
     public int getInt() {
         return APPLICATION_PROPERTIES.getInt(propertyName, Integer.valueOf(defaultValue.toString()).intValue());
     }
@@ -206,6 +206,7 @@ public enum AtlasErrorCode {
     GLOSSARY_ALREADY_EXISTS(409, "ATLAS-409-00-007", "Glossary with qualifiedName {0} already exists"),
     GLOSSARY_TERM_ALREADY_EXISTS(409, "ATLAS-409-00-009", "Glossary term with qualifiedName {0} already exists"),
     GLOSSARY_CATEGORY_ALREADY_EXISTS(409, "ATLAS-409-00-00A", "Glossary category with qualifiedName {0} already exists"),
+    FAILED_TO_OBTAIN_ENTITY_LOCK(409, "ATLAS-409-00-00B", "Failed to get the lock on entity {0} in {1} ms; another update of the entity might be in progress. Please try again"),
 
     // All internal errors go here
     INTERNAL_ERROR(500, "ATLAS-500-00-001", "Internal server error {0}"),
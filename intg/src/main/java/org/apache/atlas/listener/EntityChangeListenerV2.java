@@ -83,6 +83,18 @@ public interface EntityChangeListenerV2 {
      */
     void onClassificationsAdded(List<AtlasEntity> entities, List<AtlasClassification> classifications) throws AtlasBaseException;
 
+    /**
+     * This is upon adding classifications to entities, where the classifications added differ by entity.
+     *
+     * @param entityClassifications entities and the classifications added to each
+     * @throws AtlasBaseException if the listener notification fails
+     */
+    default void onClassificationsAdded(Map<AtlasEntity, List<AtlasClassification>> entityClassifications) throws AtlasBaseException {
+        for (Map.Entry<AtlasEntity, List<AtlasClassification>> entry : entityClassifications.entrySet()) {
+            onClassificationsAdded(entry.getKey(), entry.getValue());
+        }
+    }
+
     /**
      * This is upon updating classifications to an entity.
      *
@@ -0,0 +1,215 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.model.instance;
+
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import org.apache.atlas.model.typedef.AtlasBaseTypeDef;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import static com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility.NONE;
+import static com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility.PUBLIC_ONLY;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Result of associating a classification to entities in chunks: each chunk of entities is classified in its own
+ * transaction, hence chunks succeed or fail independently.
+ */
+@JsonAutoDetect(getterVisibility=PUBLIC_ONLY, setterVisibility=PUBLIC_ONLY, fieldVisibility=NONE)
+@JsonSerialize(include=JsonSerialize.Inclusion.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown=true)
+@XmlRootElement
+@XmlAccessorType(XmlAccessType.PROPERTY)
+public class ClassificationAssociateResponse {
+    private int               entityCount;
+    private int               classifiedCount;
+    private int               failedCount;
+    private List<ChunkResult> chunks;
+
+    public ClassificationAssociateResponse() {
+        this(new ArrayList<>());
+    }
+
+    public ClassificationAssociateResponse(List<ChunkResult> chunks) {
+        setChunks(chunks);
+    }
+
+    public int getEntityCount() { return entityCount; }
+
+    public void setEntityCount(int entityCount) { this.entityCount = entityCount; }
+
+    public int getClassifiedCount() { return classifiedCount; }
+
+    public void setClassifiedCount(int classifiedCount) { this.classifiedCount = classifiedCount; }
+
+    public int getFailedCount() { return failedCount; }
+
+    public void setFailedCount(int failedCount) { this.failedCount = failedCount; }
+
+    public List<ChunkResult> getChunks() { return chunks; }
+
+    public void setChunks(List<ChunkResult> chunks) { this.chunks = chunks; }
+
+    public void addChunk(ChunkResult chunk) {
+        if (chunks == null) {
+            chunks = new ArrayList<>();
+        }
+
+        chunks.add(chunk);
+
+        entityCount += chunk.getEntityCount();
+
+        if (chunk.getStatus() == ChunkStatus.SUCCEEDED) {
+            classifiedCount += chunk.getEntityCount();
+        } else {
+            failedCount += chunk.getEntityCount();
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) { return true; }
+
+        if (o == null || getClass() != o.getClass()) { return false; }
+
+        ClassificationAssociateResponse that = (ClassificationAssociateResponse) o;
+
+        return entityCount == that.entityCount && classifiedCount == that.classifiedCount && failedCount == that.failedCount &&
+               Objects.equals(chunks, that.chunks);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(entityCount, classifiedCount, failedCount, chunks);
+    }
+
+    public StringBuilder toString(StringBuilder sb) {
+        if (sb == null) {
+            sb = new StringBuilder();
+        }
+
+        sb.append("ClassificationAssociateResponse{");
+        sb.append("entityCount=").append(entityCount);
+        sb.append(", classifiedCount=").append(classifiedCount);
+        sb.append(", failedCount=").append(failedCount);
+        sb.append(", chunks=[");
+        AtlasBaseTypeDef.dumpObjects(chunks, sb);
+        sb.append("]");
+        sb.append('}');
+
+        return sb;
+    }
+
+    @Override
+    public String toString() {
+        return toString(new StringBuilder()).toString();
+    }
+
+
+    public enum ChunkStatus { SUCCEEDED, FAILED }
+
+    @JsonAutoDetect(getterVisibility=PUBLIC_ONLY, setterVisibility=PUBLIC_ONLY, fieldVisibility=NONE)
+    @JsonSerialize(include=JsonSerialize.Inclusion.NON_NULL)
+    @JsonIgnoreProperties(ignoreUnknown=true)
+    @XmlRootElement
+    @XmlAccessorType(XmlAccessType.PROPERTY)
+    public static class ChunkResult {
+        private int          chunkIndex;
+        private int          entityCount;
+        private ChunkStatus  status;
+        private String       errorMessage;
+        private List<String> failedEntityGuids;
+        private long         timeTakenMs;
+
+        public ChunkResult() { }
+
+        public ChunkResult(int chunkIndex, int entityCount, ChunkStatus status) {
+            setChunkIndex(chunkIndex);
+            setEntityCount(entityCount);
+            setStatus(status);
+        }
+
+        public int getChunkIndex() { return chunkIndex; }
+
+        public void setChunkIndex(int chunkIndex) { this.chunkIndex = chunkIndex; }
+
+        public int getEntityCount() { return entityCount; }
+
+        public void setEntityCount(int entityCount) { this.entityCount = entityCount; }
+
+        public ChunkStatus getStatus() { return status; }
+
+        public void setStatus(ChunkStatus status) { this.status = status; }
+
+        public String getErrorMessage() { return errorMessage; }
+
+        public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+
+        public List<String> getFailedEntityGuids() { return failedEntityGuids; }
+
+        public void setFailedEntityGuids(List<String> failedEntityGuids) { this.failedEntityGuids = failedEntityGuids; }
+
+        public long getTimeTakenMs() { return timeTakenMs; }
+
+        public void setTimeTakenMs(long timeTakenMs) { this.timeTakenMs = timeTakenMs; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) { return true; }
+
+            if (o == null || getClass() != o.getClass()) { return false; }
+
+            ChunkResult that = (ChunkResult) o;
+
+            return chunkIndex == that.chunkIndex && entityCount == that.entityCount && timeTakenMs == that.timeTakenMs &&
+                   status == that.status && Objects.equals(errorMessage, that.errorMessage) && Objects.equals(failedEntityGuids, that.failedEntityGuids);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(chunkIndex, entityCount, status, errorMessage, failedEntityGuids, timeTakenMs);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+
+            sb.append("ChunkResult{");
+            sb.append("chunkIndex=").append(chunkIndex);
+            sb.append(", entityCount=").append(entityCount);
+            sb.append(", status=").append(status);
+            sb.append(", errorMessage=").append(errorMessage);
+            sb.append(", failedEntityGuids=[");
+            AtlasBaseTypeDef.dumpObjects(failedEntityGuids, sb);
+            sb.append("]");
+            sb.append(", timeTakenMs=").append(timeTakenMs);
+            sb.append('}');
+
+            return sb.toString();
+        }
+    }
+}
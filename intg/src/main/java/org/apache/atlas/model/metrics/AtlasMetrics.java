@@ -74,11 +74,31 @@ public class AtlasMetrics {
     public static final String STAT_NOTIFY_UPDATES_COUNT_TOTAL         = PREFIX_NOTIFICATION + "totalUpdates";
     public static final String STAT_NOTIFY_DELETES_COUNT_TOTAL         = PREFIX_NOTIFICATION + "totalDeletes";
     public static final String STAT_NOTIFY_FAILED_COUNT_TOTAL          = PREFIX_NOTIFICATION + "totalFailed";
+    public static final String STAT_NOTIFY_CONSUMER_THREADS            = PREFIX_NOTIFICATION + "consumerThreads";
+    public static final String STAT_NOTIFY_CONSUMER_LAG                = PREFIX_NOTIFICATION + "consumerLag";
+    public static final String STAT_NOTIFY_CONSUMER_SCALE_UPS          = PREFIX_NOTIFICATION + "consumerScaleUps";
+    public static final String STAT_NOTIFY_CONSUMER_SCALE_DOWNS        = PREFIX_NOTIFICATION + "consumerScaleDowns";
+    public static final String STAT_NOTIFY_CONSUMER_LAST_SCALE_TIME    = PREFIX_NOTIFICATION + "consumerLastScaleTime";
     public static final String STAT_SERVER_ACTIVE_TIMESTAMP            = PREFIX_SERVER + "activeTimeStamp";
     public static final String STAT_SERVER_START_TIMESTAMP             = PREFIX_SERVER + "startTimeStamp";
     public static final String STAT_SERVER_STATUS_BACKEND_STORE        = PREFIX_SERVER + "statusBackendStore";
     public static final String STAT_SERVER_STATUS_INDEX_STORE          = PREFIX_SERVER + "statusIndexStore";
     public static final String STAT_SERVER_UP_TIME                     = PREFIX_SERVER + "upTime";
+    public static final String STAT_SERVER_GUID_CACHE_SIZE             = PREFIX_SERVER + "guidVertexIdCacheSize";
+    public static final String STAT_SERVER_GUID_CACHE_HITS             = PREFIX_SERVER + "guidVertexIdCacheHits";
+    public static final String STAT_SERVER_GUID_CACHE_MISSES           = PREFIX_SERVER + "guidVertexIdCacheMisses";
+    public static final String STAT_SERVER_GUID_CACHE_EVICTIONS        = PREFIX_SERVER + "guidVertexIdCacheEvictions";
+    public static final String STAT_SERVER_HEADER_CACHE_SIZE           = PREFIX_SERVER + "entityHeaderCacheSize";
+    public static final String STAT_SERVER_HEADER_CACHE_HITS           = PREFIX_SERVER + "entityHeaderCacheHits";
+    public static final String STAT_SERVER_HEADER_CACHE_MISSES         = PREFIX_SERVER + "entityHeaderCacheMisses";
+    public static final String STAT_SERVER_HEADER_CACHE_EVICTIONS      = PREFIX_SERVER + "entityHeaderCacheEvictions";
+    public static final String STAT_SERVER_HEADER_CACHE_DROPPED_PUTS   = PREFIX_SERVER + "entityHeaderCacheDroppedPuts";
+    public static final String STAT_SERVER_ENTITY_LOCK_WAITS           = PREFIX_SERVER + "entityLockWaits";
+    public static final String STAT_SERVER_ENTITY_LOCK_TIMEOUTS        = PREFIX_SERVER + "entityLockTimeouts";
+    public static final String STAT_SERVER_ENTITY_LOCK_OUT_OF_ORDER    = PREFIX_SERVER + "entityLockOutOfOrderFailures";
+    public static final String STAT_SERVER_ENTITY_LOCK_CONTENDED_GUIDS = PREFIX_SERVER + "entityLockContendedGuids";
+    public static final String STAT_SERVER_FULLTEXT_QUEUE_SIZE         = PREFIX_SERVER + "fullTextQueueSize";
+    public static final String STAT_SERVER_FULLTEXT_LAG_MS             = PREFIX_SERVER + "fullTextLagMs";
 
     private Map<String, Map<String, Object>> data;
 
@@ -171,6 +171,20 @@ public class AtlasJson {
         return ret;
     }
 
+    public static <T> T fromJson(InputStream inputStream, TypeReference<T> type) throws IOException {
+        T ret = null;
+
+        if (inputStream != null) {
+            ret = mapper.readValue(inputStream, type);
+
+            if (ret instanceof Struct) {
+                ((Struct) ret).normalize();
+            }
+        }
+
+        return ret;
+    }
+
     public static String toV1Json(Object obj) {
         return toJson(obj);
     }
@@ -183,6 +197,10 @@ public class AtlasJson {
         return fromJson(jsonStr, type);
     }
 
+    public static <T> T fromV1Json(InputStream inputStream, TypeReference<T> type) throws IOException {
+        return fromJson(inputStream, type);
+    }
+
     public static String toV1SearchJson(Object obj) {
         String ret;
         try {
@@ -34,6 +34,7 @@ import org.apache.hadoop.util.ShutdownHookManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.security.PrivilegedExceptionAction;
 import java.util.List;
@@ -54,6 +55,17 @@ public abstract class AtlasHook {
     public static final String ATLAS_NOTIFICATION_ASYNCHRONOUS_MAX_THREADS        = "atlas.notification.hook.asynchronous.maxThreads";
     public static final String ATLAS_NOTIFICATION_ASYNCHRONOUS_KEEP_ALIVE_TIME_MS = "atlas.notification.hook.asynchronous.keepAliveTimeMs";
     public static final String ATLAS_NOTIFICATION_ASYNCHRONOUS_QUEUE_SIZE         = "atlas.notification.hook.asynchronous.queueSize";
+    public static final String ATLAS_NOTIFICATION_BATCH_ENABLED                   = "atlas.notification.hook.batch.enabled";
+    public static final String ATLAS_NOTIFICATION_BATCH_LINGER_MS                 = "atlas.notification.hook.batch.lingerMs";
+    public static final String ATLAS_NOTIFICATION_BATCH_MAX_MESSAGES              = "atlas.notification.hook.batch.maxMessages";
+    public static final String ATLAS_NOTIFICATION_BATCH_MAX_PENDING_MESSAGES      = "atlas.notification.hook.batch.maxPendingMessages";
+    public static final String ATLAS_NOTIFICATION_BATCH_BLOCK_WHEN_FULL           = "atlas.notification.hook.batch.blockWhenFull";
+    public static final String ATLAS_NOTIFICATION_BATCH_MAX_BLOCK_MS              = "atlas.notification.hook.batch.maxBlockMs";
+    public static final String ATLAS_NOTIFICATION_SPOOL_ENABLED                   = "atlas.notification.hook.spool.enabled";
+    public static final String ATLAS_NOTIFICATION_SPOOL_DIR                       = "atlas.notification.hook.spool.dir";
+    public static final String ATLAS_NOTIFICATION_SPOOL_MAX_SEGMENT_BYTES         = "atlas.notification.hook.spool.maxSegmentBytes";
+    public static final String ATLAS_NOTIFICATION_SPOOL_MAX_BYTES                 = "atlas.notification.hook.spool.maxBytes";
+    public static final String ATLAS_NOTIFICATION_SPOOL_DRAIN_INTERVAL_MS         = "atlas.notification.hook.spool.drainIntervalMs";
     public static final String ATLAS_NOTIFICATION_MAX_RETRIES                     = "atlas.notification.hook.retry.maxRetries";
     public static final String ATLAS_NOTIFICATION_RETRY_INTERVAL                  = "atlas.notification.hook.retry.interval";
     public static final String ATLAS_NOTIFICATION_FAILED_MESSAGES_FILENAME_KEY    = "atlas.notification.failed.messages.filename";
@@ -66,13 +78,15 @@ public abstract class AtlasHook {
     protected static Configuration         atlasProperties;
     protected static NotificationInterface notificationInterface;
 
-    private static final String               metadataNamespace;
-    private static final int                  SHUTDOWN_HOOK_WAIT_TIME_MS = 3000;
-    private static final boolean              logFailedMessages;
-    private static final FailedMessagesLogger failedMessagesLogger;
-    private static final int                  notificationMaxRetries;
-    private static final int                  notificationRetryInterval;
-    private static       ExecutorService      executor = null;
+    private static final String                  metadataNamespace;
+    private static final int                     SHUTDOWN_HOOK_WAIT_TIME_MS = 3000;
+    private static final boolean                 logFailedMessages;
+    private static final FailedMessagesLogger    failedMessagesLogger;
+    private static final int                     notificationMaxRetries;
+    private static final int                     notificationRetryInterval;
+    private static       ExecutorService         executor = null;
+    private static       HookNotificationBatcher batcher  = null;
+    private static       HookNotificationSpool   spool    = null;
 
 
     static {
@@ -108,9 +122,41 @@ public abstract class AtlasHook {
 
         notificationInterface.setCurrentUser(currentUser);
 
-        boolean isAsync = atlasProperties.getBoolean(ATLAS_NOTIFICATION_ASYNCHRONOUS, Boolean.TRUE);
+        if (atlasProperties.getBoolean(ATLAS_NOTIFICATION_SPOOL_ENABLED, Boolean.FALSE)) {
+            spool = createSpool(atlasProperties);
+        }
+
+        boolean isAsync   = atlasProperties.getBoolean(ATLAS_NOTIFICATION_ASYNCHRONOUS, Boolean.TRUE);
+        boolean isBatched = atlasProperties.getBoolean(ATLAS_NOTIFICATION_BATCH_ENABLED, Boolean.FALSE);
+
+        if (isBatched) {
+            long    lingerMs           = atlasProperties.getLong(ATLAS_NOTIFICATION_BATCH_LINGER_MS, 1000);
+            int     maxMessages        = atlasProperties.getInt(ATLAS_NOTIFICATION_BATCH_MAX_MESSAGES, 100);
+            int     maxPendingMessages = atlasProperties.getInt(ATLAS_NOTIFICATION_BATCH_MAX_PENDING_MESSAGES, atlasProperties.getInt(ATLAS_NOTIFICATION_ASYNCHRONOUS_QUEUE_SIZE, 10000));
+            boolean blockWhenFull      = atlasProperties.getBoolean(ATLAS_NOTIFICATION_BATCH_BLOCK_WHEN_FULL, false);
+            long    maxBlockMs         = atlasProperties.getLong(ATLAS_NOTIFICATION_BATCH_MAX_BLOCK_MS, 1000);
+
+            batcher = new HookNotificationBatcher(notificationInterface, logFailedMessages, failedMessagesLogger, lingerMs, maxMessages, maxPendingMessages, blockWhenFull, maxBlockMs);
+
+            LOG.info("Atlas Hook: batching notifications: {}={}, {}={}, {}={}, {}={}", ATLAS_NOTIFICATION_BATCH_LINGER_MS, lingerMs, ATLAS_NOTIFICATION_BATCH_MAX_MESSAGES, maxMessages,
+                     ATLAS_NOTIFICATION_BATCH_MAX_PENDING_MESSAGES, maxPendingMessages, ATLAS_NOTIFICATION_BATCH_BLOCK_WHEN_FULL, blockWhenFull);
 
-        if (isAsync) {
+            ShutdownHookManager.get().addShutdownHook(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        LOG.info("==> Shutdown of Atlas Hook");
+
+                        batcher.shutdown(SHUTDOWN_HOOK_WAIT_TIME_MS);
+                        batcher = null;
+                    } catch (InterruptedException excp) {
+                        LOG.info("Interrupt received in shutdown.", excp);
+                    } finally {
+                        LOG.info("<== Shutdown of Atlas Hook");
+                    }
+                }
+            }, AtlasConstants.ATLAS_SHUTDOWN_HOOK_PRIORITY);
+        } else if (isAsync) {
             int  minThreads      = atlasProperties.getInt(ATLAS_NOTIFICATION_ASYNCHRONOUS_MIN_THREADS, 1);
             int  maxThreads      = atlasProperties.getInt(ATLAS_NOTIFICATION_ASYNCHRONOUS_MAX_THREADS, 1);
             long keepAliveTimeMs = atlasProperties.getLong(ATLAS_NOTIFICATION_ASYNCHRONOUS_KEEP_ALIVE_TIME_MS, 10000);
@@ -151,7 +197,9 @@ public abstract class AtlasHook {
      * @param maxRetries maximum number of retries while sending message to messaging system
      */
     public static void notifyEntities(List<HookNotification> messages, UserGroupInformation ugi, int maxRetries) {
-        if (executor == null) { // send synchronously
+        if (batcher != null) { // sent with other notifications, after a short delay
+            batcher.add(messages, ugi, maxRetries);
+        } else if (executor == null) { // send synchronously
             notifyEntitiesInternal(messages, maxRetries, ugi, notificationInterface, logFailedMessages, failedMessagesLogger);
         } else {
             executor.submit(new Runnable() {
@@ -167,10 +215,26 @@ public abstract class AtlasHook {
     static void notifyEntitiesInternal(List<HookNotification> messages, int maxRetries, UserGroupInformation ugi,
                                        NotificationInterface notificationInterface,
                                        boolean shouldLogFailedMessages, FailedMessagesLogger logger) {
+        notifyEntitiesInternal(messages, maxRetries, ugi, notificationInterface, shouldLogFailedMessages, logger, spool);
+    }
+
+    @VisibleForTesting
+    static void notifyEntitiesInternal(List<HookNotification> messages, int maxRetries, UserGroupInformation ugi,
+                                       NotificationInterface notificationInterface,
+                                       boolean shouldLogFailedMessages, FailedMessagesLogger logger,
+                                       HookNotificationSpool spool) {
         if (messages == null || messages.isEmpty()) {
             return;
         }
 
+        if (spool != null && spool.append(messages)) { // spooled notifications are sent, in order, by the spool thread
+            LOG.debug("Spooled {} notifications", messages.size());
+
+            spool.drainAsync();
+
+            return;
+        }
+
         final int maxAttempts         = maxRetries < 1 ? 1 : maxRetries;
         Exception notificationFailure = null;
 
@@ -281,6 +345,40 @@ public abstract class AtlasHook {
         }
     }
 
+    private static HookNotificationSpool createSpool(Configuration config) {
+        HookNotificationSpool ret      = null;
+        String                spoolDir = config.getString(ATLAS_NOTIFICATION_SPOOL_DIR);
+
+        if (StringUtils.isEmpty(spoolDir)) {
+            LOG.error("{} is not set. Notifications will not be spooled", ATLAS_NOTIFICATION_SPOOL_DIR);
+        } else {
+            try {
+                ret = new HookNotificationSpool(new File(spoolDir), notificationInterface,
+                                                config.getLong(ATLAS_NOTIFICATION_SPOOL_MAX_SEGMENT_BYTES, 64L * 1024 * 1024),
+                                                config.getLong(ATLAS_NOTIFICATION_SPOOL_MAX_BYTES, 1024L * 1024 * 1024),
+                                                config.getInt(ATLAS_NOTIFICATION_BATCH_MAX_MESSAGES, 100),
+                                                config.getLong(ATLAS_NOTIFICATION_SPOOL_DRAIN_INTERVAL_MS, 5000));
+
+                final HookNotificationSpool spoolToClose = ret;
+
+                ShutdownHookManager.get().addShutdownHook(new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            spoolToClose.shutdown(SHUTDOWN_HOOK_WAIT_TIME_MS);
+                        } catch (InterruptedException excp) {
+                            LOG.info("Interrupt received in shutdown.", excp);
+                        }
+                    }
+                }, AtlasConstants.ATLAS_SHUTDOWN_HOOK_PRIORITY - 1); // after the notifier threads
+            } catch (IOException excp) {
+                LOG.error("Failed to initialize notification spool in {}. Notifications will not be spooled", spoolDir, excp);
+            }
+        }
+
+        return ret;
+    }
+
     private static String getMetadataNamespace(Configuration config) {
         return config.getString(CONF_METADATA_NAMESPACE, getClusterName(config));
     }
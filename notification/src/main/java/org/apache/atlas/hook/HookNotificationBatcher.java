@@ -0,0 +1,195 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.hook;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.atlas.model.notification.HookNotification;
+import org.apache.atlas.notification.NotificationInterface;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accumulates hook notifications across calls and sends them in batches: when a batch reaches the configured number
+ * of messages, or when the linger time elapses. Notifications are batched per UGI, as they are sent as that user.
+ * Batches are sent in a background thread, with the retries and failed-message logging of unbatched notifications.
+ *
+ * Number of notifications pending to be sent, including batches queued for the sender, is bounded. When the bound is
+ * reached, for example when Kafka is slow, new notifications are dropped - as with the bounded queue of the async
+ * notifier; or, if configured, the caller is blocked for up to the given time for pending notifications to be sent.
+ */
+class HookNotificationBatcher {
+    private static final Logger LOG = LoggerFactory.getLogger(HookNotificationBatcher.class);
+
+    private final NotificationInterface                   notificationInterface;
+    private final boolean                                 logFailedMessages;
+    private final FailedMessagesLogger                    failedMessagesLogger;
+    private final int                                     maxBatchMessages;
+    private final int                                     maxPendingMessages;
+    private final boolean                                 blockWhenFull;
+    private final long                                    maxBlockMs;
+    private final ScheduledExecutorService                sender;
+    private final Map<UserGroupInformation, PendingBatch> pendingBatches = new LinkedHashMap<>();
+    private       int                                     pendingMessageCount = 0; // messages added, but not yet sent; guarded by pendingBatches
+
+    HookNotificationBatcher(NotificationInterface notificationInterface, boolean logFailedMessages, FailedMessagesLogger failedMessagesLogger,
+                            long lingerMs, int maxBatchMessages, int maxPendingMessages, boolean blockWhenFull, long maxBlockMs) {
+        this.notificationInterface = notificationInterface;
+        this.logFailedMessages     = logFailedMessages;
+        this.failedMessagesLogger  = failedMessagesLogger;
+        this.maxBatchMessages      = maxBatchMessages;
+        this.maxPendingMessages    = maxPendingMessages;
+        this.blockWhenFull         = blockWhenFull;
+        this.maxBlockMs            = maxBlockMs;
+        this.sender                = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("Atlas Notifier Batch %d").setDaemon(true).build());
+
+        sender.scheduleWithFixedDelay(this::flush, lingerMs, lingerMs, TimeUnit.MILLISECONDS);
+    }
+
+    void add(List<HookNotification> messages, UserGroupInformation ugi, int maxRetries) {
+        if (messages == null || messages.isEmpty()) {
+            return;
+        }
+
+        PendingBatch fullBatch = null;
+
+        synchronized (pendingBatches) {
+            if (!reserve(messages.size())) {
+                LOG.error("HookNotificationBatcher: {} notifications pending to be sent. Dropping {} notifications: {}", pendingMessageCount, messages.size(), messages);
+
+                return;
+            }
+
+            PendingBatch batch = pendingBatches.computeIfAbsent(ugi, u -> new PendingBatch(u));
+
+            batch.add(messages, maxRetries);
+
+            if (batch.messages.size() >= maxBatchMessages) {
+                fullBatch = pendingBatches.remove(ugi);
+            }
+        }
+
+        if (fullBatch != null) {
+            final PendingBatch batch = fullBatch;
+
+            sender.submit(() -> send(batch));
+        }
+    }
+
+    /**
+     * Send all pending notifications.
+     */
+    void flush() {
+        final List<PendingBatch> batches;
+
+        synchronized (pendingBatches) {
+            batches = new ArrayList<>(pendingBatches.values());
+
+            pendingBatches.clear();
+        }
+
+        for (PendingBatch batch : batches) {
+            send(batch);
+        }
+    }
+
+    /**
+     * Send pending notifications and stop the sender thread.
+     */
+    void shutdown(long waitTimeMs) throws InterruptedException {
+        sender.submit(this::flush);
+        sender.shutdown();
+
+        if (!sender.awaitTermination(waitTimeMs, TimeUnit.MILLISECONDS)) {
+            LOG.warn("HookNotificationBatcher: pending notifications not sent in {} ms", waitTimeMs);
+        }
+    }
+
+    private void send(PendingBatch batch) {
+        try {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("HookNotificationBatcher: sending {} notifications", batch.messages.size());
+            }
+
+            AtlasHook.notifyEntitiesInternal(batch.messages, batch.maxRetries, batch.ugi, notificationInterface, logFailedMessages, failedMessagesLogger);
+        } catch (Throwable t) {
+            LOG.error("HookNotificationBatcher: failed to send {} notifications", batch.messages.size(), t);
+        } finally {
+            synchronized (pendingBatches) {
+                pendingMessageCount -= batch.messages.size();
+
+                pendingBatches.notifyAll();
+            }
+        }
+    }
+
+    int getPendingMessageCount() {
+        synchronized (pendingBatches) {
+            return pendingMessageCount;
+        }
+    }
+
+    // caller should hold the lock on pendingBatches. A message list larger than the bound is accepted when nothing is pending
+    private boolean reserve(int messageCount) {
+        long waitUntil = System.currentTimeMillis() + maxBlockMs;
+
+        while (pendingMessageCount > 0 && pendingMessageCount + messageCount > maxPendingMessages) {
+            long waitMs = waitUntil - System.currentTimeMillis();
+
+            if (!blockWhenFull || waitMs <= 0) {
+                return false;
+            }
+
+            try {
+                pendingBatches.wait(waitMs);
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+
+                return false;
+            }
+        }
+
+        pendingMessageCount += messageCount;
+
+        return true;
+    }
+
+    private static class PendingBatch {
+        final UserGroupInformation   ugi;
+        final List<HookNotification> messages   = new ArrayList<>();
+        int                          maxRetries = 0;
+
+        PendingBatch(UserGroupInformation ugi) {
+            this.ugi = ugi;
+        }
+
+        void add(List<HookNotification> messages, int maxRetries) {
+            this.messages.addAll(messages);
+
+            this.maxRetries = Math.max(this.maxRetries, maxRetries);
+        }
+    }
+}
@@ -0,0 +1,428 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.hook;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.atlas.model.notification.AtlasNotificationBaseMessage;
+import org.apache.atlas.model.notification.HookNotification;
+import org.apache.atlas.notification.NotificationInterface;
+import org.apache.atlas.type.AtlasType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Local spool for hook notifications. Notifications are appended to segment files in the spool directory, so that the
+ * caller is not blocked on the messaging system; a background thread sends them, in order, and keeps retrying while
+ * the messaging system is unreachable. Drained segments are deleted, and the read position is checkpointed so that a
+ * restarted process resumes where it stopped. Spooled notifications are sent as the user of the hook process.
+ *
+ * Each record in a segment is the length of the notification JSON, as a 4-byte big-endian integer, followed by the
+ * UTF-8 bytes of the JSON.
+ */
+class HookNotificationSpool {
+    private static final Logger LOG = LoggerFactory.getLogger(HookNotificationSpool.class);
+
+    private static final String SEGMENT_FILE_PREFIX = "atlas-hook-spool-";
+    private static final String SEGMENT_FILE_SUFFIX = ".dat";
+    private static final String CHECKPOINT_FILE     = "atlas-hook-spool.checkpoint";
+    private static final String LOCK_FILE           = "atlas-hook-spool.lock";
+    private static final int    RECORD_HEADER_BYTES = 4;
+
+    private final File                     spoolDir;
+    private final NotificationInterface    notificationInterface;
+    private final long                     maxSegmentBytes;
+    private final long                     maxSpoolBytes;
+    private final int                      drainBatchSize;
+    private final FileChannel              lockChannel;
+    private final FileLock                 lock;
+    private final TreeMap<Long, Long>      segmentSizes = new TreeMap<>(); // segment sequence -> bytes written
+    private final ScheduledExecutorService drainer;
+    private final Object                   drainLock    = new Object();
+    private final AtomicBoolean            drainPending = new AtomicBoolean(false);
+    private       FileChannel              writeChannel = null;
+    private       long                     writeSeq;
+    private       long                     readSeq;
+    private       long                     readPosition;
+    private       long                     spooledBytes = 0; // bytes yet to be sent
+
+    HookNotificationSpool(File spoolDir, NotificationInterface notificationInterface, long maxSegmentBytes, long maxSpoolBytes,
+                          int drainBatchSize, long drainIntervalMs) throws IOException {
+        this.spoolDir              = spoolDir;
+        this.notificationInterface = notificationInterface;
+        this.maxSegmentBytes       = maxSegmentBytes;
+        this.maxSpoolBytes         = maxSpoolBytes;
+        this.drainBatchSize        = drainBatchSize;
+
+        if (!spoolDir.isDirectory() && !spoolDir.mkdirs()) {
+            throw new IOException("failed to create spool directory " + spoolDir);
+        }
+
+        lockChannel = FileChannel.open(new File(spoolDir, LOCK_FILE).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        lock        = lockChannel.tryLock();
+
+        if (lock == null) {
+            lockChannel.close();
+
+            throw new IOException("spool directory " + spoolDir + " is in use by another process");
+        }
+
+        recover();
+
+        drainer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("Atlas Notifier Spool %d").setDaemon(true).build());
+
+        drainer.scheduleWithFixedDelay(this::drain, drainIntervalMs, drainIntervalMs, TimeUnit.MILLISECONDS);
+
+        LOG.info("HookNotificationSpool: dir={}, segments={}, spooledBytes={}", spoolDir, segmentSizes.size(), spooledBytes);
+    }
+
+    /**
+     * @return true if all spooled notifications have been sent
+     */
+    synchronized boolean isEmpty() {
+        if (segmentSizes.isEmpty()) {
+            return true;
+        }
+
+        return segmentSizes.size() == 1 && segmentSizes.firstKey() == readSeq && readPosition >= segmentSizes.get(readSeq);
+    }
+
+    /**
+     * Append the given notifications to the spool.
+     *
+     * @return false if the notifications could not be spooled, for example when the spool is full
+     */
+    synchronized boolean append(List<HookNotification> messages) {
+        List<byte[]> records = new ArrayList<>(messages.size());
+        int          length  = 0;
+
+        for (HookNotification message : messages) {
+            byte[] record = AtlasNotificationBaseMessage.getBytesUtf8(AtlasType.toV1Json(message));
+
+            records.add(record);
+
+            length += RECORD_HEADER_BYTES + record.length;
+        }
+
+        if (spooledBytes + length > maxSpoolBytes) {
+            LOG.warn("HookNotificationSpool: spool is full (spooledBytes={}, maxBytes={}). {} notifications not spooled", spooledBytes, maxSpoolBytes, messages.size());
+
+            return false;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+
+        for (byte[] record : records) {
+            buffer.putInt(record.length).put(record);
+        }
+
+        buffer.flip();
+
+        try {
+            if (writeChannel == null || segmentSizes.get(writeSeq) >= maxSegmentBytes) {
+                rollSegment();
+            }
+
+            while (buffer.hasRemaining()) {
+                writeChannel.write(buffer);
+            }
+
+            segmentSizes.put(writeSeq, segmentSizes.get(writeSeq) + length);
+
+            spooledBytes += length;
+        } catch (IOException excp) {
+            LOG.error("HookNotificationSpool: failed to write to {}", getSegmentFile(writeSeq), excp);
+
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Schedule the spool thread to send spooled notifications now, instead of at the next drain interval.
+     */
+    void drainAsync() {
+        if (drainPending.compareAndSet(false, true)) {
+            try {
+                drainer.execute(() -> {
+                    drainPending.set(false);
+
+                    drain();
+                });
+            } catch (RejectedExecutionException excp) { // after shutdown
+                drainPending.set(false);
+            }
+        }
+    }
+
+    void shutdown(long waitTimeMs) throws InterruptedException {
+        drainer.shutdown();
+        drainer.awaitTermination(waitTimeMs, TimeUnit.MILLISECONDS);
+
+        synchronized (this) {
+            try {
+                if (writeChannel != null) {
+                    writeChannel.close();
+
+                    writeChannel = null;
+                }
+
+                lock.release();
+                lockChannel.close();
+            } catch (IOException excp) {
+                LOG.warn("HookNotificationSpool: error while closing files", excp);
+            }
+        }
+    }
+
+    /**
+     * Send spooled notifications, in order, until the spool is drained or a send fails.
+     */
+    @VisibleForTesting
+    void drain() {
+        synchronized (drainLock) { // only one thread sends, to preserve the order
+            drainSegments();
+        }
+    }
+
+    private void drainSegments() {
+        try {
+            while (true) {
+                List<HookNotification> batch       = new ArrayList<>();
+                final long             batchSeq;
+                final long             batchEndPosition;
+
+                synchronized (this) {
+                    if (segmentSizes.isEmpty()) {
+                        break;
+                    }
+
+                    if (!segmentSizes.containsKey(readSeq)) {
+                        readSeq      = segmentSizes.firstKey();
+                        readPosition = 0;
+                    }
+
+                    long segmentSize = segmentSizes.get(readSeq);
+
+                    if (readPosition >= segmentSize) {
+                        if (readSeq == segmentSizes.lastKey() && writeChannel != null) { // caught up with the writer: the next append starts a new segment
+                            writeChannel.close();
+
+                            writeChannel = null;
+                        }
+
+                        removeSegment(readSeq);
+
+                        continue;
+                    }
+
+                    batchSeq         = readSeq;
+                    batchEndPosition = readRecords(readSeq, readPosition, segmentSize, batch);
+                }
+
+                if (!batch.isEmpty()) {
+                    notificationInterface.send(NotificationInterface.NotificationType.HOOK, batch);
+
+                    LOG.info("HookNotificationSpool: sent {} spooled notifications", batch.size());
+                }
+
+                synchronized (this) {
+                    if (readSeq == batchSeq) {
+                        spooledBytes -= (batchEndPosition - readPosition);
+                        readPosition  = batchEndPosition;
+
+                        writeCheckpoint();
+                    }
+                }
+            }
+        } catch (Exception excp) {
+            LOG.warn("HookNotificationSpool: failed to send spooled notifications. Will be retried", excp);
+        }
+    }
+
+    private long readRecords(long seq, long position, long segmentSize, List<HookNotification> batch) throws IOException {
+        long ret = position;
+
+        try (FileChannel channel = FileChannel.open(getSegmentFile(seq).toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+
+            while (batch.size() < drainBatchSize && ret + RECORD_HEADER_BYTES <= segmentSize) {
+                header.clear();
+
+                readFully(channel, header, ret);
+
+                int length = header.getInt(0);
+
+                if (length < 0 || ret + RECORD_HEADER_BYTES + length > segmentSize) {
+                    LOG.error("HookNotificationSpool: {}: invalid record at position {}. Skipping rest of the segment", getSegmentFile(seq), ret);
+
+                    ret = segmentSize;
+
+                    break;
+                }
+
+                ByteBuffer record = ByteBuffer.allocate(length);
+
+                readFully(channel, record, ret + RECORD_HEADER_BYTES);
+
+                HookNotification message = AtlasType.fromV1Json(new String(record.array(), StandardCharsets.UTF_8), HookNotification.class);
+
+                if (message != null) {
+                    batch.add(message);
+                } else {
+                    LOG.error("HookNotificationSpool: {}: failed to read record at position {}. Skipping", getSegmentFile(seq), ret);
+                }
+
+                ret += RECORD_HEADER_BYTES + length;
+            }
+
+            if (ret < segmentSize && ret + RECORD_HEADER_BYTES > segmentSize) { // incomplete header at the end
+                ret = segmentSize;
+            }
+        }
+
+        return ret;
+    }
+
+    private void recover() throws IOException {
+        File[] files = spoolDir.listFiles((dir, name) -> name.startsWith(SEGMENT_FILE_PREFIX) && name.endsWith(SEGMENT_FILE_SUFFIX));
+
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+
+                try {
+                    long seq = Long.parseLong(name.substring(SEGMENT_FILE_PREFIX.length(), name.length() - SEGMENT_FILE_SUFFIX.length()));
+
+                    segmentSizes.put(seq, file.length());
+
+                    spooledBytes += file.length();
+                } catch (NumberFormatException excp) {
+                    LOG.warn("HookNotificationSpool: ignoring unexpected file {}", file);
+                }
+            }
+        }
+
+        readSeq      = segmentSizes.isEmpty() ? 0 : segmentSizes.firstKey();
+        readPosition = 0;
+
+        File checkpointFile = new File(spoolDir, CHECKPOINT_FILE);
+
+        if (checkpointFile.exists()) {
+            String[] checkpoint = new String(Files.readAllBytes(checkpointFile.toPath()), StandardCharsets.UTF_8).trim().split(":");
+
+            try {
+                long seq      = Long.parseLong(checkpoint[0]);
+                long position = Long.parseLong(checkpoint[1]);
+
+                while (!segmentSizes.isEmpty() && segmentSizes.firstKey() < seq) {
+                    removeSegment(segmentSizes.firstKey());
+                }
+
+                if (segmentSizes.containsKey(seq)) {
+                    readSeq      = seq;
+                    readPosition = Math.min(Math.max(position, 0), segmentSizes.get(seq));
+
+                    spooledBytes -= readPosition;
+                }
+            } catch (RuntimeException excp) {
+                LOG.warn("HookNotificationSpool: invalid checkpoint {}. Spooled notifications will be sent from the beginning", checkpointFile, excp);
+            }
+        }
+
+        writeSeq = segmentSizes.isEmpty() ? 0 : segmentSizes.lastKey(); // appends always start a new segment
+    }
+
+    private void rollSegment() throws IOException {
+        if (writeChannel != null) {
+            writeChannel.close();
+
+            writeChannel = null;
+        }
+
+        writeSeq++;
+
+        writeChannel = FileChannel.open(getSegmentFile(writeSeq).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        segmentSizes.put(writeSeq, writeChannel.size());
+    }
+
+    private void removeSegment(long seq) {
+        Long size = segmentSizes.remove(seq);
+        File file = getSegmentFile(seq);
+
+        if (size != null) {
+            spooledBytes -= (seq == readSeq) ? Math.max(size - readPosition, 0) : size; // bytes already sent were accounted for when sent
+        }
+
+        if (seq == readSeq) {
+            readSeq      = segmentSizes.isEmpty() ? seq : segmentSizes.firstKey();
+            readPosition = 0;
+        }
+
+        if (file.exists() && !file.delete()) {
+            LOG.warn("HookNotificationSpool: failed to delete {}", file);
+        }
+    }
+
+    private void writeCheckpoint() {
+        File checkpointFile = new File(spoolDir, CHECKPOINT_FILE);
+        File tmpFile        = new File(spoolDir, CHECKPOINT_FILE + ".tmp");
+
+        try {
+            Files.write(tmpFile.toPath(), (readSeq + ":" + readPosition).getBytes(StandardCharsets.UTF_8));
+            Files.move(tmpFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            LOG.warn("HookNotificationSpool: failed to update checkpoint {}", checkpointFile, excp);
+        }
+    }
+
+    private File getSegmentFile(long seq) {
+        return new File(spoolDir, String.format("%s%020d%s", SEGMENT_FILE_PREFIX, seq, SEGMENT_FILE_SUFFIX));
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, position + buffer.position());
+
+            if (count < 0) {
+                throw new IOException("unexpected end of file");
+            }
+        }
+    }
+}
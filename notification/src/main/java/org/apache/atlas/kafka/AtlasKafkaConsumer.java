@@ -25,7 +25,10 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
@@ -88,7 +91,7 @@ public class AtlasKafkaConsumer<T> extends AbstractNotificationConsumer<T> {
                     continue;
                 }
 
-                messages.add(new AtlasKafkaMessage(message, record.offset(), record.topic(), record.partition()));
+                messages.add(new AtlasKafkaMessage(message, record.offset(), record.topic(), record.partition(), record.serializedValueSize()));
             }
         }
 
@@ -107,6 +110,62 @@ public class AtlasKafkaConsumer<T> extends AbstractNotificationConsumer<T> {
         }
     }
 
+    @Override
+    public void commitAsync(Map<TopicPartition, Long> offsets, CommitCallback callback) {
+        if (autoCommitEnabled) {
+            if (callback != null) {
+                callback.onComplete(offsets, null);
+            }
+        } else {
+            Map<TopicPartition, OffsetAndMetadata> kafkaOffsets = new HashMap<>();
+
+            for (Map.Entry<TopicPartition, Long> entry : offsets.entrySet()) {
+                kafkaOffsets.put(entry.getKey(), new OffsetAndMetadata(entry.getValue()));
+            }
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("commiting offsets asynchronously ==>> {}", offsets);
+            }
+
+            kafkaConsumer.commitAsync(kafkaOffsets, (committedOffsets, exception) -> {
+                if (callback != null) {
+                    callback.onComplete(offsets, exception);
+                }
+            });
+        }
+    }
+
+    @Override
+    public long getLag() {
+        long ret = -1;
+
+        if (kafkaConsumer != null) {
+            try {
+                Set<TopicPartition> partitions = kafkaConsumer.assignment();
+
+                if (!partitions.isEmpty()) {
+                    Map<TopicPartition, Long> endOffsets = kafkaConsumer.endOffsets(partitions);
+
+                    ret = 0;
+
+                    for (TopicPartition partition : partitions) {
+                        Long endOffset = endOffsets.get(partition);
+
+                        if (endOffset != null) {
+                            ret += Math.max(0, endOffset - kafkaConsumer.position(partition));
+                        }
+                    }
+                }
+            } catch (Exception excp) {
+                LOG.warn("failed to get consumer lag", excp);
+
+                ret = -1;
+            }
+        }
+
+        return ret;
+    }
+
     @Override
     public void close() {
         if (kafkaConsumer != null) {
@@ -120,4 +179,11 @@ public class AtlasKafkaConsumer<T> extends AbstractNotificationConsumer<T> {
             kafkaConsumer.wakeup();
         }
     }
+
+    @Override
+    public void seek(TopicPartition partition, long offset) {
+        if (kafkaConsumer != null) {
+            kafkaConsumer.seek(partition, offset);
+        }
+    }
 }
@@ -24,11 +24,17 @@ public class AtlasKafkaMessage<T> {
     private final T              message;
     private final long           offset;
     private final TopicPartition topicPartition;
+    private final int            msgSize;
 
     public AtlasKafkaMessage(T message, long offset, String topic, int partition) {
+        this(message, offset, topic, partition, -1);
+    }
+
+    public AtlasKafkaMessage(T message, long offset, String topic, int partition, int msgSize) {
         this.message        = message;
         this.offset         = offset;
         this.topicPartition = new TopicPartition(topic, partition);
+        this.msgSize        = msgSize;
     }
 
     public T getMessage() {
@@ -51,4 +57,11 @@ public class AtlasKafkaMessage<T> {
         return topicPartition.partition();
     }
 
+    /**
+     * @return size, in bytes, of the message as received; -1 if not known
+     */
+    public int getMsgSize() {
+        return msgSize;
+    }
+
 }
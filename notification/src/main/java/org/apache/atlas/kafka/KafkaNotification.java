@@ -236,6 +236,23 @@ public class KafkaNotification extends AbstractNotification implements Service {
         return consumers;
     }
 
+    @Override
+    public <T> NotificationConsumer<T> createAdditionalConsumer(NotificationType notificationType, int idxConsumer) {
+        LOG.info("==> KafkaNotification.createAdditionalConsumer(notificationType={}, idxConsumer={})", notificationType, idxConsumer);
+
+        boolean    autoCommitEnabled  = Boolean.valueOf(properties.getProperty("enable.auto.commit", properties.getProperty("auto.commit.enable","false")));
+        Properties consumerProperties = getConsumerProperties(notificationType);
+
+        consumerProperties.put("enable.auto.commit", autoCommitEnabled);
+
+        KafkaConsumer           kafkaConsumer = getOrCreateKafkaConsumer(null, consumerProperties, notificationType, idxConsumer);
+        NotificationConsumer<T> ret           = kafkaConsumer != null ? new AtlasKafkaConsumer(notificationType, kafkaConsumer, autoCommitEnabled, pollTimeOutMs) : null;
+
+        LOG.info("<== KafkaNotification.createAdditionalConsumer(notificationType={}, idxConsumer={})", notificationType, idxConsumer);
+
+        return ret;
+    }
+
     @Override
     public void close() {
         LOG.info("==> KafkaNotification.close()");
@@ -57,6 +57,8 @@ public abstract class AbstractNotification implements NotificationInterface {
 
     public static final int MAX_BYTES_PER_CHAR = 4;  // each char can encode upto 4 bytes in UTF-8
 
+    private static final CompressionKind MESSAGE_COMPRESSION_KIND = MessageCompressor.getConfiguredCompressionKind();
+
     /**
      * IP address of the host in which this process has started
      */
@@ -145,6 +147,11 @@ public abstract class AbstractNotification implements NotificationInterface {
      * @return the message as a JSON string
      */
     public static void createNotificationMessages(Object message, List<String> msgJsonList) {
+        createNotificationMessages(message, msgJsonList, MESSAGE_COMPRESSION_KIND);
+    }
+
+    @VisibleForTesting
+    public static void createNotificationMessages(Object message, List<String> msgJsonList, CompressionKind msgCompressionKind) {
         AtlasNotificationMessage<?> notificationMsg = new AtlasNotificationMessage<>(CURRENT_MESSAGE_VERSION, message, getHostAddress(), getCurrentUser());
         String                      msgJson         = AtlasType.toV1Json(notificationMsg);
 
@@ -160,11 +167,11 @@ public abstract class AbstractNotification implements NotificationInterface {
                 CompressionKind compressionKind = CompressionKind.NONE;
 
                 if (MESSAGE_COMPRESSION_ENABLED) {
-                    byte[] encodedBytes = AtlasNotificationBaseMessage.gzipCompressAndEncodeBase64(msgBytes);
+                    byte[] encodedBytes = MessageCompressor.compressAndEncodeBase64(msgCompressionKind, msgBytes);
 
-                    compressionKind = CompressionKind.GZIP;
+                    compressionKind = msgCompressionKind;
 
-                    LOG.info("Compressed large message: msgID={}, uncompressed={} bytes, compressed={} bytes", msgId, msgBytes.length, encodedBytes.length);
+                    LOG.info("Compressed large message: msgID={}, compression={}, uncompressed={} bytes, compressed={} bytes", msgId, compressionKind, msgBytes.length, encodedBytes.length);
 
                     msgLengthExceedsLimit = encodedBytes.length > MESSAGE_MAX_LENGTH_BYTES;
 
@@ -30,14 +30,19 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
+import static org.apache.atlas.AtlasConfiguration.NOTIFICATION_SPLIT_MESSAGE_BUFFER_MAX_MEMORY_BYTES;
 import static org.apache.atlas.AtlasConfiguration.NOTIFICATION_SPLIT_MESSAGE_BUFFER_PURGE_INTERVAL_SECONDS;
 import static org.apache.atlas.AtlasConfiguration.NOTIFICATION_SPLIT_MESSAGE_SEGMENTS_WAIT_TIME_SECONDS;
+import static org.apache.atlas.AtlasConfiguration.NOTIFICATION_SPLIT_MESSAGE_SPILL_DIR;
 
 /**
  * Deserializer that works with notification messages.  The version of each deserialized message is checked against an
@@ -59,6 +64,8 @@ public abstract class AtlasNotificationMessageDeserializer<T> implements Message
     private final Map<String, SplitMessageAggregator> splitMsgBuffer = new HashMap<>();
     private final long                                splitMessageBufferPurgeIntervalMs;
     private final long                                splitMessageSegmentsWaitTimeMs;
+    private final long                                splitMessageBufferMaxMemoryBytes;
+    private final File                                splitMessageSpillDir;
     private long                                      splitMessagesLastPurgeTime    = System.currentTimeMillis();
     private final AtomicLong                          messageCountTotal             = new AtomicLong(0);
     private final AtomicLong                          messageCountSinceLastInterval = new AtomicLong(0);
@@ -84,12 +91,28 @@ public abstract class AtlasNotificationMessageDeserializer<T> implements Message
                                                 Logger notificationLogger,
                                                 long splitMessageSegmentsWaitTimeMs,
                                                 long splitMessageBufferPurgeIntervalMs) {
+        this(messageType, notificationMessageType, expectedVersion, notificationLogger,
+             splitMessageSegmentsWaitTimeMs, splitMessageBufferPurgeIntervalMs,
+             NOTIFICATION_SPLIT_MESSAGE_BUFFER_MAX_MEMORY_BYTES.getLong(),
+             new File(NOTIFICATION_SPLIT_MESSAGE_SPILL_DIR.getString()));
+    }
+
+    public AtlasNotificationMessageDeserializer(TypeReference<T> messageType,
+                                                TypeReference<AtlasNotificationMessage<T>> notificationMessageType,
+                                                MessageVersion expectedVersion,
+                                                Logger notificationLogger,
+                                                long splitMessageSegmentsWaitTimeMs,
+                                                long splitMessageBufferPurgeIntervalMs,
+                                                long splitMessageBufferMaxMemoryBytes,
+                                                File splitMessageSpillDir) {
         this.messageType                       = messageType;
         this.notificationMessageType           = notificationMessageType;
         this.expectedVersion                   = expectedVersion;
         this.notificationLogger                = notificationLogger;
         this.splitMessageSegmentsWaitTimeMs    = splitMessageSegmentsWaitTimeMs;
         this.splitMessageBufferPurgeIntervalMs = splitMessageBufferPurgeIntervalMs;
+        this.splitMessageBufferMaxMemoryBytes  = splitMessageBufferMaxMemoryBytes;
+        this.splitMessageSpillDir              = splitMessageSpillDir;
     }
 
     public TypeReference<T> getMessageType() {
@@ -113,7 +136,8 @@ public abstract class AtlasNotificationMessageDeserializer<T> implements Message
         if (msg == null || msg.getVersion() == null) { // older style messages not wrapped with AtlasNotificationMessage
             ret = AtlasType.fromV1Json(messageJson, messageType);
         } else  {
-            String msgJson = messageJson;
+            String                      msgJson        = messageJson;
+            AtlasNotificationMessage<T> reassembledMsg = null;
 
             if (msg.getMsgSplitCount() > 1) { // multi-part message
                 AtlasNotificationStringMessage splitMsg = AtlasType.fromV1Json(msgJson, AtlasNotificationStringMessage.class);
@@ -133,7 +157,13 @@ public abstract class AtlasNotificationMessageDeserializer<T> implements Message
                     final SplitMessageAggregator splitMsgs;
 
                     if (splitIdx == 0) {
-                        splitMsgs = new SplitMessageAggregator(splitMsg);
+                        SplitMessageAggregator prevSplitMsgs = splitMsgBuffer.remove(msgId);
+
+                        if (prevSplitMsgs != null) {
+                            prevSplitMsgs.discard();
+                        }
+
+                        splitMsgs = new SplitMessageAggregator(splitMsg, getSpillDir(splitMsg));
 
                         splitMsgBuffer.put(splitMsgs.getMsgId(), splitMsgs);
                     } else {
@@ -151,52 +181,25 @@ public abstract class AtlasNotificationMessageDeserializer<T> implements Message
                     } else {
                         LOG.info("Received msgID={}: {} of {}", msgId, splitIdx + 1, splitCount);
 
-                        boolean isReady = splitMsgs.add(splitMsg);
+                        boolean isReady = splitIdx != 0 && splitMsgs.add(splitMsg, getSpillDir(splitMsg)); // first segment was added on creation
 
                         if (isReady) { // last message
                             splitMsgBuffer.remove(msgId);
 
-                            boolean isValidMessage = true;
-
-                            StringBuilder sb = new StringBuilder();
-
-                            for (int i = 0; i < splitMsgs.getTotalSplitCount(); i++) {
-                                splitMsg = splitMsgs.get(i);
-
-                                if (splitMsg == null) {
-                                    LOG.warn("MsgID={}: message {} of {} is missing. Ignoring message", msgId, i + 1, splitCount);
-
-                                    isValidMessage = false;
-
-                                    break;
-                                }
-
-                                sb.append(splitMsg.getMessage());
-                            }
-
-                            if (isValidMessage) {
-                                msgJson = sb.toString();
-
-                                if (CompressionKind.GZIP.equals(splitMsg.getMsgCompressionKind())) {
-                                    byte[] encodedBytes = AtlasNotificationBaseMessage.getBytesUtf8(msgJson);
-                                    byte[] bytes        = AtlasNotificationBaseMessage.decodeBase64AndGzipUncompress(encodedBytes);
-
-                                    msgJson = AtlasNotificationBaseMessage.getStringUtf8(bytes);
+                            try {
+                                int missingSplitIdx = splitMsgs.getFirstMissingSplitIdx();
 
-                                    LOG.info("Received msgID={}: splitCount={}, compressed={} bytes, uncompressed={} bytes", msgId, splitCount, encodedBytes.length, bytes.length);
+                                if (missingSplitIdx != -1) {
+                                    LOG.warn("MsgID={}: message {} of {} is missing. Ignoring message", msgId, missingSplitIdx + 1, splitCount);
                                 } else {
-                                    byte[] encodedBytes = AtlasNotificationBaseMessage.getBytesUtf8(msgJson);
-                                    byte[] bytes        = AtlasNotificationBaseMessage.decodeBase64(encodedBytes);
-
-                                    msgJson = AtlasNotificationBaseMessage.getStringUtf8(bytes);
-
-                                    LOG.info("Received msgID={}: splitCount={}, length={} bytes", msgId, splitCount, bytes.length);
+                                    reassembledMsg = readSplitMessage(splitMsgs);
+                                    msgJson        = "msgID=" + msgId;
                                 }
-
-                                msg = AtlasType.fromV1Json(msgJson, AtlasNotificationBaseMessage.class);
-                            } else {
-                                msg = null;
+                            } finally {
+                                splitMsgs.discard();
                             }
+
+                            msg = reassembledMsg;
                         } else { // more messages to arrive
                             msg = null;
                         }
@@ -204,16 +207,20 @@ public abstract class AtlasNotificationMessageDeserializer<T> implements Message
                 }
             }
 
-            if (msg != null) {
-                if (CompressionKind.GZIP.equals(msg.getMsgCompressionKind())) {
+            if (reassembledMsg != null) {
+                checkVersion(reassembledMsg, msgJson);
+
+                ret = reassembledMsg.getMessage();
+            } else if (msg != null) {
+                if (isCompressed(msg.getMsgCompressionKind())) {
                     AtlasNotificationStringMessage compressedMsg = AtlasType.fromV1Json(msgJson, AtlasNotificationStringMessage.class);
 
                     byte[] encodedBytes = AtlasNotificationBaseMessage.getBytesUtf8(compressedMsg.getMessage());
-                    byte[] bytes        = AtlasNotificationBaseMessage.decodeBase64AndGzipUncompress(encodedBytes);
+                    byte[] bytes        = MessageCompressor.decodeBase64AndUncompress(msg.getMsgCompressionKind(), encodedBytes);
 
                     msgJson = AtlasNotificationBaseMessage.getStringUtf8(bytes);
 
-                    LOG.info("Received msgID={}: compressed={} bytes, uncompressed={} bytes", compressedMsg.getMsgId(), encodedBytes.length, bytes.length);
+                    LOG.info("Received msgID={}: compression={}, compressed={} bytes, uncompressed={} bytes", compressedMsg.getMsgId(), msg.getMsgCompressionKind(), encodedBytes.length, bytes.length);
                 }
 
                 AtlasNotificationMessage<T> atlasNotificationMessage = AtlasType.fromV1Json(msgJson, notificationMessageType);
@@ -267,6 +274,8 @@ public abstract class AtlasNotificationMessageDeserializer<T> implements Message
             for (SplitMessageAggregator aggregrator : evictionList) {
                 LOG.error("evicting notification msgID={}, totalSplitCount={}, receivedSplitCount={}", aggregrator.getMsgId(), aggregrator.getTotalSplitCount(), aggregrator.getReceivedSplitCount());
                 splitMsgBuffer.remove(aggregrator.getMsgId());
+
+                aggregrator.discard();
             }
         }
 
@@ -277,6 +286,39 @@ public abstract class AtlasNotificationMessageDeserializer<T> implements Message
 
     // ----- helper methods --------------------------------------------------
 
+    /**
+     * @return directory to spill the given segment to, if holding it in memory would exceed the memory budget for
+     * split messages; null otherwise
+     */
+    private File getSpillDir(AtlasNotificationStringMessage splitMsg) {
+        long inMemoryLength = splitMsg.getMessage() != null ? splitMsg.getMessage().length() : 0;
+
+        for (SplitMessageAggregator splitMsgs : splitMsgBuffer.values()) {
+            inMemoryLength += splitMsgs.getInMemoryLength();
+        }
+
+        return inMemoryLength > splitMessageBufferMaxMemoryBytes ? splitMessageSpillDir : null;
+    }
+
+    private AtlasNotificationMessage<T> readSplitMessage(SplitMessageAggregator splitMsgs) {
+        AtlasNotificationMessage<T> ret             = null;
+        CompressionKind             compressionKind = splitMsgs.getCompressionKind() != null ? splitMsgs.getCompressionKind() : CompressionKind.NONE;
+
+        try (InputStream msgStream = MessageCompressor.decodeBase64AndUncompress(compressionKind, splitMsgs.getInputStream())) {
+            ret = AtlasType.fromV1Json(msgStream, notificationMessageType);
+
+            LOG.info("Received msgID={}: splitCount={}, compression={}, spilledSplitCount={}", splitMsgs.getMsgId(), splitMsgs.getTotalSplitCount(), compressionKind, splitMsgs.getSpilledSplitCount());
+        } catch (IOException excp) {
+            LOG.error("msgID={}: failed to read split message. Ignoring message", splitMsgs.getMsgId(), excp);
+        }
+
+        return ret;
+    }
+
+    private static boolean isCompressed(CompressionKind compressionKind) {
+        return compressionKind != null && compressionKind != CompressionKind.NONE;
+    }
+
     /**
      * Check the message version against the expected version.
      *
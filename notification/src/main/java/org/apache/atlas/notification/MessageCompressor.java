@@ -0,0 +1,182 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.notification;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import org.apache.atlas.model.notification.AtlasNotificationBaseMessage;
+import org.apache.atlas.model.notification.AtlasNotificationBaseMessage.CompressionKind;
+import org.apache.commons.codec.binary.Base64InputStream;
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static org.apache.atlas.AtlasConfiguration.NOTIFICATION_MESSAGE_COMPRESSION_KIND;
+import static org.apache.atlas.AtlasConfiguration.NOTIFICATION_MESSAGE_MAX_UNCOMPRESSED_BYTES;
+
+/**
+ * Compression of notification messages. Compressed bytes are base64-encoded, as notifications are sent as strings.
+ *
+ * LZ4 compressed content is prefixed with the length of the uncompressed content, as a 4-byte big-endian integer.
+ */
+final class MessageCompressor {
+    private static final Logger LOG = LoggerFactory.getLogger(MessageCompressor.class);
+
+    private static final int LZ4_LENGTH_PREFIX_BYTES = 4;
+    private static final int MAX_UNCOMPRESSED_LENGTH = NOTIFICATION_MESSAGE_MAX_UNCOMPRESSED_BYTES.getInt();
+
+    private MessageCompressor() {
+    }
+
+    /**
+     * @return compression kind configured for notification producers; GZIP when the configured kind is invalid or
+     * is not supported in this process
+     */
+    static CompressionKind getConfiguredCompressionKind() {
+        String          kind = NOTIFICATION_MESSAGE_COMPRESSION_KIND.getString();
+        CompressionKind ret  = CompressionKind.GZIP;
+
+        if (StringUtils.isNotBlank(kind)) {
+            try {
+                ret = CompressionKind.valueOf(kind.trim().toUpperCase());
+            } catch (IllegalArgumentException excp) {
+                LOG.warn("{}: invalid value {}. Using {}", NOTIFICATION_MESSAGE_COMPRESSION_KIND.getPropertyName(), kind, CompressionKind.GZIP);
+            }
+        }
+
+        if (ret == CompressionKind.NONE) {
+            ret = CompressionKind.GZIP;
+        } else if (ret == CompressionKind.LZ4 && !isLz4Available()) {
+            LOG.warn("{}={}: LZ4 library is not available. Using {}", NOTIFICATION_MESSAGE_COMPRESSION_KIND.getPropertyName(), kind, CompressionKind.GZIP);
+
+            ret = CompressionKind.GZIP;
+        }
+
+        return ret;
+    }
+
+    static byte[] compressAndEncodeBase64(CompressionKind compressionKind, byte[] bytes) {
+        switch (compressionKind) {
+            case GZIP:
+                return AtlasNotificationBaseMessage.gzipCompressAndEncodeBase64(bytes);
+
+            case LZ4:
+                return AtlasNotificationBaseMessage.encodeBase64(lz4Compress(bytes));
+
+            default:
+                return AtlasNotificationBaseMessage.encodeBase64(bytes);
+        }
+    }
+
+    static byte[] decodeBase64AndUncompress(CompressionKind compressionKind, byte[] encodedBytes) {
+        switch (compressionKind) {
+            case GZIP:
+                return AtlasNotificationBaseMessage.decodeBase64AndGzipUncompress(encodedBytes);
+
+            case LZ4:
+                return lz4Uncompress(AtlasNotificationBaseMessage.decodeBase64(encodedBytes));
+
+            default:
+                return AtlasNotificationBaseMessage.decodeBase64(encodedBytes);
+        }
+    }
+
+    /**
+     * @return stream of uncompressed content, read from the given stream of base64-encoded compressed content
+     */
+    static InputStream decodeBase64AndUncompress(CompressionKind compressionKind, InputStream encodedStream) throws IOException {
+        InputStream decodedStream = new Base64InputStream(encodedStream);
+
+        switch (compressionKind) {
+            case GZIP:
+                return new GZIPInputStream(decodedStream);
+
+            case LZ4: // LZ4 block format needs the complete compressed content
+                try {
+                    ByteArrayOutputStream compressedBytes = new ByteArrayOutputStream();
+
+                    IOUtils.copy(decodedStream, compressedBytes);
+
+                    return new ByteArrayInputStream(lz4Uncompress(compressedBytes.toByteArray()));
+                } catch (IllegalArgumentException excp) {
+                    throw new IOException(excp.getMessage(), excp);
+                } finally {
+                    decodedStream.close();
+                }
+
+            default:
+                return decodedStream;
+        }
+    }
+
+    static byte[] lz4Compress(byte[] content) {
+        LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+        int           maxLength  = compressor.maxCompressedLength(content.length);
+        byte[]        ret        = new byte[LZ4_LENGTH_PREFIX_BYTES + maxLength];
+
+        ByteBuffer.wrap(ret).putInt(content.length);
+
+        int compressedLength = compressor.compress(content, 0, content.length, ret, LZ4_LENGTH_PREFIX_BYTES, maxLength);
+
+        return Arrays.copyOf(ret, LZ4_LENGTH_PREFIX_BYTES + compressedLength);
+    }
+
+    static byte[] lz4Uncompress(byte[] content) {
+        return lz4Uncompress(content, MAX_UNCOMPRESSED_LENGTH);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the length prefix is invalid, or exceeds maxLength
+     */
+    static byte[] lz4Uncompress(byte[] content, int maxLength) {
+        if (content == null || content.length < LZ4_LENGTH_PREFIX_BYTES) {
+            throw new IllegalArgumentException("invalid LZ4 content: length prefix missing");
+        }
+
+        int length = ByteBuffer.wrap(content).getInt();
+
+        if (length < 0 || length > maxLength) {
+            throw new IllegalArgumentException("invalid LZ4 content: uncompressed length " + length + " is not in range [0, " + maxLength + "]");
+        }
+
+        byte[] ret = new byte[length];
+
+        LZ4Factory.fastestInstance().fastDecompressor().decompress(content, LZ4_LENGTH_PREFIX_BYTES, ret, 0, length);
+
+        return ret;
+    }
+
+    private static boolean isLz4Available() {
+        try {
+            Class.forName("net.jpountz.lz4.LZ4Factory");
+
+            return true;
+        } catch (ClassNotFoundException | LinkageError excp) {
+            return false;
+        }
+    }
+}
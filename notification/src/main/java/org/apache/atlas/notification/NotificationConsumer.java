@@ -18,6 +18,7 @@
 package org.apache.atlas.notification;
 
 import java.util.List;
+import java.util.Map;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.atlas.kafka.AtlasKafkaMessage;
 
@@ -37,10 +38,54 @@ public interface NotificationConsumer<T> {
      */
     void commit(TopicPartition partition, long offset);
 
+    /**
+     * Commit the offsets of messages that have been successfully processed, without waiting for the commit to complete.
+     *
+     * The callback is invoked once the commit completes, with the exception if the commit failed. Implementations that
+     * don't support asynchronous commits commit the offsets synchronously.
+     *
+     * @param offsets  offset to commit, for each partition
+     * @param callback callback to be invoked on completion of the commit
+     */
+    default void commitAsync(Map<TopicPartition, Long> offsets, CommitCallback callback) {
+        Exception exception = null;
+
+        try {
+            for (Map.Entry<TopicPartition, Long> entry : offsets.entrySet()) {
+                commit(entry.getKey(), entry.getValue());
+            }
+        } catch (Exception excp) {
+            exception = excp;
+        }
+
+        if (callback != null) {
+            callback.onComplete(offsets, exception);
+        }
+    }
+
     void close();
 
     void wakeup();
 
+    /**
+     * Reposition the consumer, so that the next receive() returns messages from the given offset of the partition.
+     * Should be called from the thread that reads messages from this consumer.
+     *
+     * @param partition partition to reposition
+     * @param offset    offset of the next message to receive from the partition
+     */
+    void seek(TopicPartition partition, long offset);
+
+    /**
+     * Get the number of messages yet to be consumed, across partitions assigned to this consumer. Should be called from
+     * the thread that reads messages from this consumer.
+     *
+     * @return number of messages yet to be consumed; -1 if not available
+     */
+    default long getLag() {
+        return -1;
+    }
+
     /**
      * Fetch data for the topics from Kafka
      * @return List containing kafka message and partionId and offset.
@@ -54,6 +99,14 @@ public interface NotificationConsumer<T> {
      */
     List<AtlasKafkaMessage<T>> receive(long timeoutMilliSeconds);
 
+    interface CommitCallback {
+        /**
+         * @param offsets   offsets that were committed
+         * @param exception null if the commit succeeded; otherwise the exception that caused the commit to fail
+         */
+        void onComplete(Map<TopicPartition, Long> offsets, Exception exception);
+    }
+
 
 
 }
@@ -76,6 +76,20 @@ public interface NotificationInterface {
      */
     <T> List<NotificationConsumer<T>> createConsumers(NotificationType notificationType, int numConsumers);
 
+    /**
+     * Create a consumer in addition to the ones created by {@link #createConsumers(NotificationType, int)}. The consumer
+     * joins the same consumer group, so that partitions of the topic are rebalanced across all consumers.
+     *
+     * @param notificationType  the notification type (i.e. HOOK, ENTITIES)
+     * @param idxConsumer       index of the consumer, used to pick the topic to subscribe to
+     * @param <T>               the type of the notifications
+     *
+     * @return the created consumer; null if the implementation doesn't support additional consumers
+     */
+    default <T> NotificationConsumer<T> createAdditionalConsumer(NotificationType notificationType, int idxConsumer) {
+        return null;
+    }
+
     /**
      * Send the given messages.
      *
@@ -18,34 +18,83 @@
 package org.apache.atlas.notification;
 
 
+import org.apache.atlas.model.notification.AtlasNotificationBaseMessage;
+import org.apache.atlas.model.notification.AtlasNotificationBaseMessage.CompressionKind;
 import org.apache.atlas.model.notification.AtlasNotificationStringMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Collects segments of a split message. Segments are held in memory, or in files when added with a spill directory;
+ * the reassembled message is read as a stream over the segments, in order.
+ */
 public class SplitMessageAggregator {
-    private final String                           msgId;
-    private final AtlasNotificationStringMessage[] splitMessagesBuffer;
-    private final long                             firstSplitTimestamp;
+    private static final Logger LOG = LoggerFactory.getLogger(SplitMessageAggregator.class);
+
+    private static final String SPILL_FILE_PREFIX = "atlas-split-msg-";
+
+    private final String          msgId;
+    private final CompressionKind compressionKind;
+    private final String[]        splitMessages;
+    private final File[]          spilledSplitMessages;
+    private final long            firstSplitTimestamp;
+    private       long            inMemoryLength = 0;
 
     public SplitMessageAggregator(AtlasNotificationStringMessage message) {
-        msgId               = message.getMsgId();
-        splitMessagesBuffer = new AtlasNotificationStringMessage[message.getMsgSplitCount()];
-        firstSplitTimestamp = System.currentTimeMillis();
+        this(message, null);
+    }
 
-        add(message);
+    public SplitMessageAggregator(AtlasNotificationStringMessage message, File spillDir) {
+        msgId                = message.getMsgId();
+        compressionKind      = message.getMsgCompressionKind();
+        splitMessages        = new String[message.getMsgSplitCount()];
+        spilledSplitMessages = new File[message.getMsgSplitCount()];
+        firstSplitTimestamp  = System.currentTimeMillis();
+
+        add(message, spillDir);
     }
 
     public String getMsgId() {
         return msgId;
     }
 
+    public CompressionKind getCompressionKind() {
+        return compressionKind;
+    }
+
     public long getTotalSplitCount() {
-        return splitMessagesBuffer.length;
+        return splitMessages.length;
     }
 
     public long getReceivedSplitCount() {
         long ret = 0;
 
-        for (AtlasNotificationStringMessage split : splitMessagesBuffer) {
-            if (split != null) {
+        for (int i = 0; i < splitMessages.length; i++) {
+            if (isReceived(i)) {
+                ret++;
+            }
+        }
+
+        return ret;
+    }
+
+    public long getSpilledSplitCount() {
+        long ret = 0;
+
+        for (File file : spilledSplitMessages) {
+            if (file != null) {
                 ret++;
             }
         }
@@ -53,19 +102,137 @@ public class SplitMessageAggregator {
         return ret;
     }
 
+    /**
+     * @return total length of segments held in memory
+     */
+    public long getInMemoryLength() {
+        return inMemoryLength;
+    }
+
     public long getFirstSplitTimestamp() {
         return firstSplitTimestamp;
     }
 
     public boolean add(AtlasNotificationStringMessage message) {
-        if (message.getMsgSplitIdx() < splitMessagesBuffer.length) {
-            splitMessagesBuffer[message.getMsgSplitIdx()] = message;
+        return add(message, null);
+    }
+
+    /**
+     * Add a segment of the message.
+     *
+     * @param message   the segment
+     * @param spillDir  directory to write the segment to; segment is kept in memory if null, or if the write fails
+     *
+     * @return true if this is the last segment
+     */
+    public boolean add(AtlasNotificationStringMessage message, File spillDir) {
+        int splitIdx = message.getMsgSplitIdx();
+
+        if (splitIdx < splitMessages.length) {
+            discard(splitIdx);
+
+            String payload = message.getMessage();
+
+            if (spillDir != null && payload != null) {
+                spilledSplitMessages[splitIdx] = spill(payload, spillDir);
+            }
+
+            if (spilledSplitMessages[splitIdx] == null) {
+                splitMessages[splitIdx] = payload;
+
+                inMemoryLength += payload != null ? payload.length() : 0;
+            }
+        }
+
+        return splitIdx == (message.getMsgSplitCount() - 1);
+    }
+
+    /**
+     * @return index of the first segment yet to be received; -1 if all segments are received
+     */
+    public int getFirstMissingSplitIdx() {
+        for (int i = 0; i < splitMessages.length; i++) {
+            if (!isReceived(i)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return stream of the message content, i.e. concatenation of all segments; caller should close the stream
+     */
+    public InputStream getInputStream() throws IOException {
+        List<InputStream> streams = new ArrayList<>(splitMessages.length);
+
+        try {
+            for (int i = 0; i < splitMessages.length; i++) {
+                if (spilledSplitMessages[i] != null) {
+                    streams.add(new FileInputStream(spilledSplitMessages[i]));
+                } else if (splitMessages[i] != null) {
+                    streams.add(new ByteArrayInputStream(AtlasNotificationBaseMessage.getBytesUtf8(splitMessages[i])));
+                }
+            }
+        } catch (IOException excp) {
+            for (InputStream stream : streams) {
+                stream.close();
+            }
+
+            throw excp;
+        }
+
+        return new SequenceInputStream(Collections.enumeration(streams));
+    }
+
+    /**
+     * Release the segments, including files of spilled segments.
+     */
+    public void discard() {
+        for (int i = 0; i < splitMessages.length; i++) {
+            discard(i);
+        }
+    }
+
+    private boolean isReceived(int splitIdx) {
+        return splitMessages[splitIdx] != null || spilledSplitMessages[splitIdx] != null;
+    }
+
+    private void discard(int splitIdx) {
+        if (splitMessages[splitIdx] != null) {
+            inMemoryLength -= splitMessages[splitIdx].length();
+
+            splitMessages[splitIdx] = null;
         }
 
-        return message.getMsgSplitIdx() == (message.getMsgSplitCount() - 1);
+        if (spilledSplitMessages[splitIdx] != null) {
+            if (!spilledSplitMessages[splitIdx].delete()) {
+                LOG.warn("msgID={}: failed to delete file {}", msgId, spilledSplitMessages[splitIdx]);
+            }
+
+            spilledSplitMessages[splitIdx] = null;
+        }
     }
 
-    public AtlasNotificationStringMessage get(int i) {
-        return splitMessagesBuffer[i];
+    private File spill(String payload, File spillDir) {
+        File ret = null;
+
+        try {
+            ret = File.createTempFile(SPILL_FILE_PREFIX, ".tmp", spillDir);
+
+            try (OutputStream out = new FileOutputStream(ret)) {
+                out.write(AtlasNotificationBaseMessage.getBytesUtf8(payload));
+            }
+        } catch (IOException excp) {
+            LOG.warn("msgID={}: failed to write message segment to directory {}. Will be kept in memory", msgId, spillDir, excp);
+
+            if (ret != null && !ret.delete()) {
+                LOG.warn("msgID={}: failed to delete file {}", msgId, ret);
+            }
+
+            ret = null;
+        }
+
+        return ret;
     }
 }
@@ -0,0 +1,167 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.hook;
+
+import org.apache.atlas.model.notification.HookNotification;
+import org.apache.atlas.notification.NotificationException;
+import org.apache.atlas.notification.NotificationInterface;
+import org.apache.atlas.v1.model.notification.HookNotificationV1.EntityCreateRequest;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class HookNotificationBatcherTest {
+    @Mock
+    private NotificationInterface notificationInterface;
+
+    @Mock
+    private FailedMessagesLogger failedMessagesLogger;
+
+    @BeforeMethod
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void testNotificationsAreSentTogetherWhenBatchIsFull() throws Exception {
+        HookNotificationBatcher batcher = new HookNotificationBatcher(notificationInterface, false, failedMessagesLogger, 60 * 1000, 3, 1000, false, 0);
+        HookNotification        msg1    = new EntityCreateRequest("user1");
+        HookNotification        msg2    = new EntityCreateRequest("user2");
+        HookNotification        msg3    = new EntityCreateRequest("user3");
+
+        batcher.add(Collections.singletonList(msg1), null, 1);
+        batcher.add(Collections.singletonList(msg2), null, 1);
+
+        verifyZeroInteractions(notificationInterface);
+
+        batcher.add(Collections.singletonList(msg3), null, 1);
+
+        verify(notificationInterface, timeout(5000)).send(NotificationInterface.NotificationType.HOOK, Arrays.asList(msg1, msg2, msg3));
+
+        batcher.shutdown(5000);
+    }
+
+    @Test
+    public void testPendingNotificationsAreSentAfterLingerTime() throws Exception {
+        HookNotificationBatcher batcher = new HookNotificationBatcher(notificationInterface, false, failedMessagesLogger, 100, 1000, 1000, false, 0);
+        HookNotification        msg1    = new EntityCreateRequest("user1");
+        HookNotification        msg2    = new EntityCreateRequest("user2");
+
+        batcher.add(Arrays.asList(msg1, msg2), null, 1);
+
+        verify(notificationInterface, timeout(5000)).send(NotificationInterface.NotificationType.HOOK, Arrays.asList(msg1, msg2));
+
+        batcher.shutdown(5000);
+    }
+
+    @Test
+    public void testNotificationsAreDroppedWhenPendingLimitIsReached() throws Exception {
+        CountDownLatch          sendStarted = new CountDownLatch(1);
+        CountDownLatch          releaseSend = new CountDownLatch(1);
+        HookNotificationBatcher batcher     = new HookNotificationBatcher(notificationInterface, false, failedMessagesLogger, 60 * 1000, 2, 3, false, 0);
+        HookNotification        msg1        = new EntityCreateRequest("user1");
+        HookNotification        msg2        = new EntityCreateRequest("user2");
+        HookNotification        msg3        = new EntityCreateRequest("user3");
+        HookNotification        msg4        = new EntityCreateRequest("user4");
+
+        doAnswer(invocation -> { sendStarted.countDown(); releaseSend.await(); return null; }).when(notificationInterface)
+                .send(eq(NotificationInterface.NotificationType.HOOK), anyList());
+
+        batcher.add(Arrays.asList(msg1, msg2), null, 1); // full batch, blocked in send
+
+        assertTrue(sendStarted.await(5, TimeUnit.SECONDS));
+
+        batcher.add(Collections.singletonList(msg3), null, 1);
+        batcher.add(Collections.singletonList(msg4), null, 1); // beyond the limit of 3 pending messages
+
+        assertEquals(batcher.getPendingMessageCount(), 3);
+
+        releaseSend.countDown();
+        batcher.shutdown(5000);
+
+        verify(notificationInterface).send(NotificationInterface.NotificationType.HOOK, Arrays.asList(msg1, msg2));
+        verify(notificationInterface).send(NotificationInterface.NotificationType.HOOK, Collections.singletonList(msg3));
+        verify(notificationInterface, never()).send(NotificationInterface.NotificationType.HOOK, Collections.singletonList(msg4));
+        assertEquals(batcher.getPendingMessageCount(), 0);
+    }
+
+    @Test
+    public void testCallerIsBlockedWhenPendingLimitIsReached() throws Exception {
+        CountDownLatch          releaseSend = new CountDownLatch(1);
+        HookNotificationBatcher batcher     = new HookNotificationBatcher(notificationInterface, false, failedMessagesLogger, 60 * 1000, 2, 2, true, 10 * 1000);
+        HookNotification        msg1        = new EntityCreateRequest("user1");
+        HookNotification        msg2        = new EntityCreateRequest("user2");
+        HookNotification        msg3        = new EntityCreateRequest("user3");
+
+        doAnswer(invocation -> { releaseSend.await(); return null; }).when(notificationInterface)
+                .send(eq(NotificationInterface.NotificationType.HOOK), anyList());
+
+        batcher.add(Arrays.asList(msg1, msg2), null, 1);
+
+        Thread caller = new Thread(() -> batcher.add(Collections.singletonList(msg3), null, 1));
+
+        caller.start();
+        caller.join(200);
+
+        assertTrue(caller.isAlive()); // blocked until msg1, msg2 are sent
+
+        releaseSend.countDown();
+        caller.join(5000);
+
+        assertFalse(caller.isAlive());
+
+        batcher.shutdown(5000);
+
+        verify(notificationInterface).send(NotificationInterface.NotificationType.HOOK, Collections.singletonList(msg3));
+    }
+
+    @Test
+    public void testFailedBatchIsRetriedAndLogged() throws Exception {
+        HookNotificationBatcher batcher = new HookNotificationBatcher(notificationInterface, true, failedMessagesLogger, 60 * 1000, 1000, 1000, false, 0);
+        List<HookNotification>  batch   = Collections.singletonList(new EntityCreateRequest("user1"));
+
+        doThrow(new NotificationException(new Exception(), Arrays.asList("test message"))).when(notificationInterface)
+                .send(eq(NotificationInterface.NotificationType.HOOK), anyList());
+
+        batcher.add(batch, null, 2);
+        batcher.shutdown(5000);
+
+        verify(notificationInterface, times(2)).send(NotificationInterface.NotificationType.HOOK, batch);
+        verify(failedMessagesLogger, times(1)).log("test message");
+    }
+}
@@ -0,0 +1,240 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.hook;
+
+import org.apache.atlas.model.notification.HookNotification;
+import org.apache.atlas.notification.NotificationException;
+import org.apache.atlas.notification.NotificationInterface;
+import org.apache.atlas.type.AtlasType;
+import org.apache.atlas.v1.model.notification.HookNotificationV1.EntityCreateRequest;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class HookNotificationSpoolTest {
+    private static final long DRAIN_INTERVAL_MS = 60 * 60 * 1000; // drain() is called explicitly by tests
+
+    @Mock
+    private NotificationInterface notificationInterface;
+
+    @Mock
+    private FailedMessagesLogger failedMessagesLogger;
+
+    private File spoolDir;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        MockitoAnnotations.initMocks(this);
+
+        spoolDir = Files.createTempDirectory("atlas-hook-spool-test").toFile();
+    }
+
+    @AfterMethod
+    public void cleanup() {
+        File[] files = spoolDir.listFiles();
+
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+
+        spoolDir.delete();
+    }
+
+    @Test
+    public void testNotificationsAreSpooledAndSentAsynchronously() throws Exception {
+        HookNotificationSpool  spool       = new HookNotificationSpool(spoolDir, notificationInterface, 1024, 1024 * 1024, 100, DRAIN_INTERVAL_MS);
+        List<HookNotification> messages    = Arrays.asList(new EntityCreateRequest("user1"), new EntityCreateRequest("user2"));
+        CountDownLatch         releaseSend = new CountDownLatch(1);
+
+        doAnswer(invocation -> { releaseSend.await(); return null; }).when(notificationInterface).send(eq(NotificationInterface.NotificationType.HOOK), anyList());
+
+        // returns while the send is blocked in the spool thread
+        AtlasHook.notifyEntitiesInternal(messages, 3, null, notificationInterface, true, failedMessagesLogger, spool);
+
+        assertFalse(spool.isEmpty());
+
+        releaseSend.countDown();
+
+        waitUntilEmpty(spool);
+
+        assertEquals(getSentUsers(1), Arrays.asList("user1", "user2"));
+        verifyZeroInteractions(failedMessagesLogger);
+
+        spool.shutdown(1000);
+    }
+
+    @Test
+    public void testFailedNotificationsAreRetriedInOrder() throws Exception {
+        HookNotificationSpool  spool     = new HookNotificationSpool(spoolDir, notificationInterface, 1024, 1024 * 1024, 100, DRAIN_INTERVAL_MS);
+        List<HookNotification> messages1 = Arrays.asList(new EntityCreateRequest("user1"), new EntityCreateRequest("user2"));
+        List<HookNotification> messages2 = Collections.singletonList(new EntityCreateRequest("user3"));
+        List<String>           sent      = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean          available = new AtomicBoolean(false);
+
+        doAnswer(invocation -> {
+            if (!available.get()) {
+                throw new NotificationException(new Exception());
+            }
+
+            for (Object message : (List<?>) invocation.getArguments()[1]) {
+                sent.add(((HookNotification) message).getUser());
+            }
+
+            return null;
+        }).when(notificationInterface).send(eq(NotificationInterface.NotificationType.HOOK), anyList());
+
+        AtlasHook.notifyEntitiesInternal(messages1, 3, null, notificationInterface, true, failedMessagesLogger, spool);
+        AtlasHook.notifyEntitiesInternal(messages2, 3, null, notificationInterface, true, failedMessagesLogger, spool);
+
+        spool.drain();
+
+        assertFalse(spool.isEmpty());
+        assertTrue(sent.isEmpty());
+
+        available.set(true);
+
+        spool.drain();
+
+        assertTrue(spool.isEmpty());
+        assertEquals(sent, Arrays.asList("user1", "user2", "user3"));
+        verifyZeroInteractions(failedMessagesLogger);
+
+        spool.shutdown(1000);
+    }
+
+    @Test
+    public void testSpooledBytesAreReleasedWhenSent() throws Exception {
+        // spool can hold only one notification at a time, in a segment that is larger than the spool
+        List<HookNotification> messages    = Collections.singletonList(new EntityCreateRequest("user1"));
+        int                    recordBytes = 4 + AtlasType.toV1Json(messages.get(0)).getBytes(StandardCharsets.UTF_8).length;
+        HookNotificationSpool  spool       = new HookNotificationSpool(spoolDir, notificationInterface, 1024 * 1024, recordBytes + recordBytes / 2, 100, DRAIN_INTERVAL_MS);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(spool.append(messages));
+            assertFalse(spool.append(messages));
+
+            spool.drain();
+
+            assertTrue(spool.isEmpty());
+        }
+
+        verify(notificationInterface, times(5)).send(eq(NotificationInterface.NotificationType.HOOK), anyList());
+
+        spool.shutdown(1000);
+    }
+
+    @Test
+    public void testSpoolIsResumedFromCheckpointAfterRestart() throws Exception {
+        HookNotificationSpool spool = new HookNotificationSpool(spoolDir, notificationInterface, 1, 1024 * 1024, 1, DRAIN_INTERVAL_MS);
+
+        assertTrue(spool.append(Collections.singletonList(new EntityCreateRequest("user1"))));
+        assertTrue(spool.append(Collections.singletonList(new EntityCreateRequest("user2"))));
+        assertTrue(spool.append(Collections.singletonList(new EntityCreateRequest("user3"))));
+
+        // send the first notification, then fail
+        doNothing().doThrow(new NotificationException(new Exception())).when(notificationInterface).send(eq(NotificationInterface.NotificationType.HOOK), anyList());
+
+        spool.drain();
+        spool.shutdown(1000);
+
+        NotificationInterface notificationInterface2 = mock(NotificationInterface.class);
+        HookNotificationSpool spool2                 = new HookNotificationSpool(spoolDir, notificationInterface2, 1, 1024 * 1024, 1, DRAIN_INTERVAL_MS);
+
+        assertFalse(spool2.isEmpty());
+
+        spool2.drain();
+
+        assertTrue(spool2.isEmpty());
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+
+        verify(notificationInterface2, times(2)).send(eq(NotificationInterface.NotificationType.HOOK), captor.capture());
+
+        assertEquals(((HookNotification) captor.getAllValues().get(0).get(0)).getUser(), "user2");
+        assertEquals(((HookNotification) captor.getAllValues().get(1).get(0)).getUser(), "user3");
+
+        spool2.shutdown(1000);
+    }
+
+    @Test
+    public void testNotificationsAreNotSpooledWhenSpoolIsFull() throws Exception {
+        HookNotificationSpool  spool    = new HookNotificationSpool(spoolDir, notificationInterface, 1024, 10, 100, DRAIN_INTERVAL_MS);
+        List<HookNotification> messages = Collections.singletonList(new EntityCreateRequest("user1"));
+
+        doThrow(new NotificationException(new Exception(), Arrays.asList("test message"))).when(notificationInterface).send(eq(NotificationInterface.NotificationType.HOOK), anyList());
+
+        AtlasHook.notifyEntitiesInternal(messages, 1, null, notificationInterface, true, failedMessagesLogger, spool);
+
+        assertTrue(spool.isEmpty());
+        verify(failedMessagesLogger, times(1)).log("test message");
+
+        spool.shutdown(1000);
+    }
+
+    private List<String> getSentUsers(int sendCount) throws Exception {
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        List<String>         ret    = new ArrayList<>();
+
+        verify(notificationInterface, times(sendCount)).send(eq(NotificationInterface.NotificationType.HOOK), captor.capture());
+
+        for (List<?> messages : captor.getAllValues()) {
+            for (Object message : messages) {
+                ret.add(((HookNotification) message).getUser());
+            }
+        }
+
+        return ret;
+    }
+
+    private static void waitUntilEmpty(HookNotificationSpool spool) throws InterruptedException {
+        for (int i = 0; i < 500 && !spool.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(spool.isEmpty());
+    }
+}
@@ -210,6 +210,11 @@ public class AbstractNotificationConsumerTest {
 
         }
 
+        @Override
+        public void seek(TopicPartition partition, long offset) {
+            // do nothing: receive() returns all messages every time
+        }
+
         @Override
         public List<AtlasKafkaMessage<TestMessage>> receive() {
             return receive(1000L);
@@ -0,0 +1,50 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.notification;
+
+import org.apache.atlas.model.notification.AtlasNotificationBaseMessage;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.testng.Assert.assertEquals;
+
+public class MessageCompressorTest {
+    @Test
+    public void testLz4RoundTrip() {
+        byte[] content = AtlasNotificationBaseMessage.getBytesUtf8("{\"msg\": \"test message test message test message\"}");
+
+        assertEquals(MessageCompressor.lz4Uncompress(MessageCompressor.lz4Compress(content), content.length), content);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testLz4LengthPrefixBeyondMaxIsRejected() {
+        byte[] compressed = MessageCompressor.lz4Compress(new byte[100]);
+
+        MessageCompressor.lz4Uncompress(compressed, 99);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testLz4NegativeLengthPrefixIsRejected() {
+        byte[] compressed = MessageCompressor.lz4Compress(new byte[100]);
+
+        ByteBuffer.wrap(compressed).putInt(-1);
+
+        MessageCompressor.lz4Uncompress(compressed, Integer.MAX_VALUE);
+    }
+}
@@ -17,12 +17,27 @@
  */
 package org.apache.atlas.notification;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import org.apache.atlas.model.notification.AtlasNotificationBaseMessage.CompressionKind;
+import org.apache.atlas.model.notification.AtlasNotificationMessage;
 import org.apache.atlas.model.notification.AtlasNotificationStringMessage;
+import org.apache.atlas.model.notification.HookNotification;
+import org.apache.atlas.v1.model.instance.Referenceable;
+import org.apache.atlas.v1.model.notification.HookNotificationV1.EntityUpdateRequest;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.slf4j.LoggerFactory;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class SplitMessageAggregatorTest {
@@ -51,6 +66,91 @@ public class SplitMessageAggregatorTest {
         Assert.assertEquals(map.size(), expectedSize);
     }
 
+    @Test
+    public void verifySpilledSegmentsAreReassembled() throws Exception {
+        File                                                   spillDir     = Files.createTempDirectory("atlas-split-msg-test").toFile();
+        AtlasNotificationMessageDeserializer<HookNotification> deserializer = new AtlasNotificationMessageDeserializer<HookNotification>(new TypeReference<HookNotification>() {},
+                                                                                                   new TypeReference<AtlasNotificationMessage<HookNotification>>() {},
+                                                                                                   AbstractNotification.CURRENT_MESSAGE_VERSION,
+                                                                                                   LoggerFactory.getLogger(SplitMessageAggregatorTest.class),
+                                                                                                   Long.MAX_VALUE, Long.MAX_VALUE, 0, spillDir) {};
+        Referenceable       entity      = new Referenceable("test_table");
+        EntityUpdateRequest message     = new EntityUpdateRequest("user1", entity);
+        List<String>        msgJsonList = new ArrayList<>();
+
+        for (int i = 0; i < 300; i++) {
+            entity.set("attr_" + i, RandomStringUtils.randomAlphanumeric(10 * 1024));
+        }
+
+        AbstractNotification.createNotificationMessages(message, msgJsonList);
+
+        Assert.assertTrue(msgJsonList.size() > 1);
+
+        for (int i = 0; i < msgJsonList.size() - 1; i++) {
+            Assert.assertNull(deserializer.deserialize(msgJsonList.get(i)));
+        }
+
+        Assert.assertEquals(spillDir.list().length, msgJsonList.size() - 1);
+
+        HookNotification deserializedMessage = deserializer.deserialize(msgJsonList.get(msgJsonList.size() - 1));
+
+        Assert.assertNotNull(deserializedMessage);
+        Assert.assertEquals(deserializedMessage.getUser(), "user1");
+        Assert.assertEquals(((EntityUpdateRequest) deserializedMessage).getEntities().get(0).get("attr_0"), entity.get("attr_0"));
+        Assert.assertEquals(spillDir.list().length, 0);
+
+        spillDir.delete();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void verifySpilledSegmentsAreDeletedWhenReadFails() throws Exception {
+        File                                 spillDir     = Files.createTempDirectory("atlas-split-msg-test").toFile();
+        AtlasNotificationMessageDeserializer deserializer = new AtlasNotificationMessageDeserializer(new TypeReference<HookNotification>() {},
+                                                                                                   new TypeReference<UnreadableMessage>() {},
+                                                                                                   AbstractNotification.CURRENT_MESSAGE_VERSION,
+                                                                                                   LoggerFactory.getLogger(SplitMessageAggregatorTest.class),
+                                                                                                   Long.MAX_VALUE, Long.MAX_VALUE, 0, spillDir) {};
+        Referenceable       entity      = new Referenceable("test_table");
+        EntityUpdateRequest message     = new EntityUpdateRequest("user1", entity);
+        List<String>        msgJsonList = new ArrayList<>();
+
+        for (int i = 0; i < 300; i++) {
+            entity.set("attr_" + i, RandomStringUtils.randomAlphanumeric(10 * 1024));
+        }
+
+        AbstractNotification.createNotificationMessages(message, msgJsonList);
+
+        for (int i = 0; i < msgJsonList.size() - 1; i++) {
+            deserializer.deserialize(msgJsonList.get(i));
+        }
+
+        Assert.assertTrue(spillDir.list().length > 0);
+
+        try {
+            deserializer.deserialize(msgJsonList.get(msgJsonList.size() - 1));
+
+            Assert.fail("expected IllegalStateException");
+        } catch (IllegalStateException excp) {
+            // expected
+        }
+
+        Assert.assertEquals(spillDir.list().length, 0);
+
+        spillDir.delete();
+    }
+
+    @JsonDeserialize(using = UnreadableMessageDeserializer.class)
+    public static class UnreadableMessage {
+    }
+
+    public static class UnreadableMessageDeserializer extends JsonDeserializer<UnreadableMessage> {
+        @Override
+        public UnreadableMessage deserialize(JsonParser parser, DeserializationContext context) {
+            throw new IllegalStateException("unreadable message");
+        }
+    }
+
     private Map<String, SplitMessageAggregator> getStringSplitMessageAggregatorMap() {
         Map<String, SplitMessageAggregator> map = new HashMap<>();
 
@@ -18,6 +18,8 @@
 
 package org.apache.atlas.notification.hook;
 
+import org.apache.atlas.model.notification.AtlasNotificationBaseMessage;
+import org.apache.atlas.model.notification.AtlasNotificationBaseMessage.CompressionKind;
 import org.apache.atlas.model.notification.HookNotification;
 import org.apache.atlas.notification.entity.EntityNotificationTest;
 import org.apache.atlas.v1.model.instance.Referenceable;
@@ -101,6 +103,40 @@ public class HookNotificationDeserializerTest {
         assertEqualMessage(deserializedMessage, message);
     }
 
+    @Test
+    public void testDeserializeLz4CompressedMessage() throws Exception {
+        Referenceable       entity      = generateLargeEntityWithTrait();
+        EntityUpdateRequest message     = new EntityUpdateRequest("user1", entity);
+        List<String>        jsonMsgList = new ArrayList<>();
+
+        AbstractNotification.createNotificationMessages(message, jsonMsgList, CompressionKind.LZ4);
+
+        assertTrue(jsonMsgList.size() == 1);
+
+        AtlasNotificationBaseMessage compressedMsg = AtlasType.fromV1Json(jsonMsgList.get(0), AtlasNotificationBaseMessage.class);
+
+        assertEquals(compressedMsg.getMsgCompressionKind(), CompressionKind.LZ4);
+
+        HookNotification deserializedMessage = deserialize(jsonMsgList);
+
+        assertEqualMessage(deserializedMessage, message);
+    }
+
+    @Test
+    public void testDeserializeLz4SplitMessage() throws Exception {
+        Referenceable       entity      = generateVeryLargeEntityWithTrait();
+        EntityUpdateRequest message     = new EntityUpdateRequest("user1", entity);
+        List<String>        jsonMsgList = new ArrayList<>();
+
+        AbstractNotification.createNotificationMessages(message, jsonMsgList, CompressionKind.LZ4);
+
+        assertTrue(jsonMsgList.size() > 1);
+
+        HookNotification deserializedMessage = deserialize(jsonMsgList);
+
+        assertEqualMessage(deserializedMessage, message);
+    }
+
     private Referenceable generateEntityWithTrait() {
         Referenceable ret = EntityNotificationTest.getEntity("id", new Struct("MyTrait", Collections.<String, Object>emptyMap()));
 
@@ -26,6 +26,7 @@ import org.apache.atlas.exception.NotFoundException;
 import org.apache.atlas.repository.graphdb.AtlasGraph;
 import org.apache.atlas.repository.graphdb.AtlasVertex;
 import org.apache.atlas.utils.AtlasPerfMetrics.MetricRecorder;
+import org.apache.atlas.utils.LruCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -34,11 +35,16 @@ import javax.inject.Inject;
 import javax.ws.rs.core.Response;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.locks.ReentrantLock;
 
 @Component
@@ -173,14 +179,18 @@ public class GraphTransactionInterceptor implements MethodInterceptor {
         graph.rollback();
     }
 
-    public static void lockObjectAndReleasePostCommit(final String guid) {
+    public static void lockObjectAndReleasePostCommit(final String guid) throws AtlasBaseException {
         OBJECT_UPDATE_SYNCHRONIZER.lockObject(guid);
     }
 
-    public static void lockObjectAndReleasePostCommit(final List<String> guids) {
+    public static void lockObjectAndReleasePostCommit(final List<String> guids) throws AtlasBaseException {
         OBJECT_UPDATE_SYNCHRONIZER.lockObject(guids);
     }
 
+    public static ObjectUpdateSynchronizer getObjectUpdateSynchronizer() {
+        return OBJECT_UPDATE_SYNCHRONIZER;
+    }
+
     public static void addToVertexCache(String guid, AtlasVertex vertex) {
         Map<String, AtlasVertex> cache = guidVertexCache.get();
 
@@ -243,91 +253,210 @@ public class GraphTransactionInterceptor implements MethodInterceptor {
         public int decrement() {
             return --refCount;
         }
-
-        public int getRefCount() { return refCount; }
     }
 
-
+    /**
+     * Locks on objects (guids) held until the end of the transaction. Each object has its own lock, created on first
+     * use and removed when no thread holds or waits for it, so that unrelated objects never contend.
+     *
+     * To avoid deadlock between threads locking overlapping sets of objects, locks are acquired in guid order across
+     * the whole transaction: a thread waits only for a lock that sorts after every lock it already holds. A lock that
+     * sorts before one already held - i.e. locked by a later lockObject() call of the transaction - is only tried;
+     * if it is held by another thread, FAILED_TO_OBTAIN_ENTITY_LOCK is thrown right away, for the caller to retry.
+     * Wait for a lock is bounded by a timeout.
+     */
     public static class ObjectUpdateSynchronizer {
-        private final Map<String, RefCountedReentrantLock> guidLockMap = new ConcurrentHashMap<>();
-        private final ThreadLocal<List<String>>  lockedGuids = new ThreadLocal<List<String>>() {
-            @Override
-            protected List<String> initialValue() {
-                return new ArrayList<>();
-            }
-        };
+        private static final long[]   WAIT_TIME_BUCKETS_MS   = { 1, 10, 100, 1000, 10000 };
+        private static final String[] WAIT_TIME_BUCKET_NAMES = { "<1ms", "<10ms", "<100ms", "<1s", "<10s", ">=10s" };
+        private static final int      MAX_CONTENDED_GUIDS    = 1000;
+
+        private final Map<String, RefCountedReentrantLock>                  guidLocks          = new ConcurrentHashMap<>();
+        private final long                                                  waitTimeoutMs;
+        private final ThreadLocal<TreeMap<String, RefCountedReentrantLock>> lockedObjects      = ThreadLocal.withInitial(TreeMap::new);
+        private final AtomicLongArray                                       waitTimeCounts     = new AtomicLongArray(WAIT_TIME_BUCKET_NAMES.length);
+        private final AtomicLong                                            waitTimeouts       = new AtomicLong();
+        private final AtomicLong                                            outOfOrderFailures = new AtomicLong();
+        private final Map<String, Long>                                     contendedGuids     = new LruCache<>(MAX_CONTENDED_GUIDS, 0);
+
+        public ObjectUpdateSynchronizer() {
+            this(AtlasConfiguration.ENTITY_LOCK_WAIT_TIMEOUT_MS.getLong());
+        }
+
+        /**
+         * @param waitTimeoutMs  maximum time to wait for a lock; no limit if 0
+         */
+        public ObjectUpdateSynchronizer(long waitTimeoutMs) {
+            this.waitTimeoutMs = waitTimeoutMs;
+        }
 
-        public void lockObject(final List<String> guids) {
+        public void lockObject(final List<String> guids) throws AtlasBaseException {
             if (LOG.isDebugEnabled()) {
                 LOG.debug("==> lockObject(): guids: {}", guids);
             }
 
-            Collections.sort(guids);
-            for (String g : guids) {
-                lockObject(g);
+            for (String guid : new TreeSet<>(guids)) {
+                lock(guid);
             }
         }
 
-        private void lockObject(final String guid) {
+        private void lockObject(final String guid) throws AtlasBaseException {
             if (LOG.isDebugEnabled()) {
-                LOG.debug("==> lockObject(): guid: {}, guidLockMap.size: {}", guid, guidLockMap.size());
+                LOG.debug("==> lockObject(): guid: {}", guid);
             }
 
-            ReentrantLock lock = getOrCreateObjectLock(guid);
-            lock.lock();
+            lock(guid);
+        }
 
-            lockedGuids.get().add(guid);
+        public void releaseLockedObjects() {
+            TreeMap<String, RefCountedReentrantLock> locked = lockedObjects.get();
 
             if (LOG.isDebugEnabled()) {
-                LOG.debug("<== lockObject(): guid: {}, guidLockMap.size: {}", guid, guidLockMap.size());
+                LOG.debug("==> releaseLockedObjects(): lockedObjects.size: {}", locked.size());
             }
+
+            for (Map.Entry<String, RefCountedReentrantLock> entry : locked.entrySet()) {
+                RefCountedReentrantLock lock = entry.getValue();
+
+                if (lock.isHeldByCurrentThread()) {
+                    lock.unlock();
+                } else {
+                    LOG.warn("releaseLockedObjects: {} attempting to release a lock not held by current thread", entry.getKey());
+                }
+
+                releaseReference(entry.getKey());
+            }
+
+            locked.clear();
         }
 
-        public void releaseLockedObjects() {
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("==> releaseLockedObjects(): lockedGuids.size: {}", lockedGuids.get().size());
+        /**
+         * @return number of locks currently held or waited for
+         */
+        public int getLockCount() {
+            return guidLocks.size();
+        }
+
+        /**
+         * @return number of waits for locks, by wait time
+         */
+        public Map<String, Long> getWaitTimeCounts() {
+            Map<String, Long> ret = new LinkedHashMap<>();
+
+            for (int i = 0; i < WAIT_TIME_BUCKET_NAMES.length; i++) {
+                ret.put(WAIT_TIME_BUCKET_NAMES[i], waitTimeCounts.get(i));
             }
 
-            for (String guid : lockedGuids.get()) {
-                releaseObjectLock(guid);
+            return ret;
+        }
+
+        public long getWaitTimeoutCount() {
+            return waitTimeouts.get();
+        }
+
+        /**
+         * @return number of locks that were not obtained because they were needed out of guid order, and were held by another thread
+         */
+        public long getOutOfOrderFailureCount() {
+            return outOfOrderFailures.get();
+        }
+
+        /**
+         * @return guids that had to wait for locks most often, with the number of waits
+         */
+        public Map<String, Long> getContendedGuids(int maxCount) {
+            final List<Map.Entry<String, Long>> entries;
+
+            synchronized (contendedGuids) {
+                entries = new ArrayList<>(contendedGuids.entrySet());
             }
 
-            lockedGuids.get().clear();
+            entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
 
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("<== releaseLockedObjects(): lockedGuids.size: {}", lockedGuids.get().size());
+            Map<String, Long> ret = new LinkedHashMap<>();
+
+            for (Map.Entry<String, Long> entry : entries.subList(0, Math.min(maxCount, entries.size()))) {
+                ret.put(entry.getKey(), entry.getValue());
             }
+
+            return ret;
         }
 
-        private RefCountedReentrantLock getOrCreateObjectLock(String guid) {
-            synchronized (guidLockMap) {
-                RefCountedReentrantLock ret = guidLockMap.get(guid);
-                if (ret == null) {
-                    ret = new RefCountedReentrantLock();
-                    guidLockMap.put(guid, ret);
+        private void lock(String guid) throws AtlasBaseException {
+            TreeMap<String, RefCountedReentrantLock> locked = lockedObjects.get();
+
+            if (guid == null || locked.containsKey(guid)) {
+                return;
+            }
+
+            boolean                 isInOrder = locked.isEmpty() || guid.compareTo(locked.lastKey()) > 0;
+            RefCountedReentrantLock lock      = addReference(guid);
+
+            if (!lock.tryLock()) {
+                long    startTime = System.currentTimeMillis();
+                boolean isLocked  = false;
+
+                try {
+                    if (!isInOrder) {
+                        // waiting could deadlock with a thread that holds this lock and waits for one held by this thread
+                        outOfOrderFailures.incrementAndGet();
+                    } else if (waitTimeoutMs > 0) {
+                        isLocked = lock.tryLock(waitTimeoutMs, TimeUnit.MILLISECONDS);
+                    } else {
+                        lock.lockInterruptibly();
+
+                        isLocked = true;
+                    }
+                } catch (InterruptedException excp) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    recordWait(guid, System.currentTimeMillis() - startTime, isLocked, isInOrder);
+                }
+
+                if (!isLocked) {
+                    releaseReference(guid);
+
+                    throw new AtlasBaseException(AtlasErrorCode.FAILED_TO_OBTAIN_ENTITY_LOCK, guid, Long.toString(isInOrder ? waitTimeoutMs : 0));
                 }
+            }
+
+            locked.put(guid, lock);
+        }
+
+        private RefCountedReentrantLock addReference(String guid) {
+            return guidLocks.compute(guid, (key, lock) -> {
+                RefCountedReentrantLock ret = lock != null ? lock : new RefCountedReentrantLock();
 
                 ret.increment();
+
                 return ret;
-            }
+            });
+        }
+
+        private void releaseReference(String guid) {
+            guidLocks.computeIfPresent(guid, (key, lock) -> lock.decrement() > 0 ? lock : null);
         }
 
-        private RefCountedReentrantLock releaseObjectLock(String guid) {
-            synchronized (guidLockMap) {
-                RefCountedReentrantLock lock = guidLockMap.get(guid);
-                if (lock != null && lock.isHeldByCurrentThread()) {
-                    int refCount = lock.decrement();
+        private void recordWait(String guid, long waitTimeMs, boolean isLocked, boolean isInOrder) {
+            int bucket = 0;
 
-                    if (refCount == 0) {
-                        guidLockMap.remove(guid);
-                    }
+            while (bucket < WAIT_TIME_BUCKETS_MS.length && waitTimeMs >= WAIT_TIME_BUCKETS_MS[bucket]) {
+                bucket++;
+            }
 
-                    lock.unlock();
+            waitTimeCounts.incrementAndGet(bucket);
+
+            if (!isLocked) {
+                if (isInOrder) {
+                    waitTimeouts.incrementAndGet();
+
+                    LOG.warn("lockObject(): failed to get lock for guid {} in {} ms", guid, waitTimeMs);
                 } else {
-                    LOG.warn("releaseLockedObjects: {} Attempting to release a lock not held by current thread.", guid);
+                    LOG.warn("lockObject(): lock for guid {} is held by another thread, and can't be waited for as it is needed out of guid order", guid);
                 }
+            }
 
-                return lock;
+            synchronized (contendedGuids) {
+                contendedGuids.merge(guid, 1L, Long::sum);
             }
         }
     }
@@ -509,6 +509,10 @@ public class EntityDiscoveryService implements AtlasDiscoveryService {
                 }
             }
 
+            entityRetriever.prefetchEntityHeaders(resultList, resultAttributes, searchParameters.getIncludeClassificationAttributes());
+
+            Set<String> referredGuids = new LinkedHashSet<>();
+
             for (AtlasVertex atlasVertex : resultList) {
                 AtlasEntityHeader entity = entityRetriever.toAtlasEntityHeader(atlasVertex, resultAttributes);
 
@@ -518,39 +522,25 @@ public class EntityDiscoveryService implements AtlasDiscoveryService {
 
                 ret.addEntity(entity);
 
-                // populate ret.referredEntities
                 for (String entityAttribute : entityAttributes) {
                     Object attrValue = entity.getAttribute(entityAttribute);
 
                     if (attrValue instanceof AtlasObjectId) {
-                        AtlasObjectId objId = (AtlasObjectId) attrValue;
-
-                        if (ret.getReferredEntities() == null) {
-                            ret.setReferredEntities(new HashMap<>());
-                        }
-
-                        if (!ret.getReferredEntities().containsKey(objId.getGuid())) {
-                            ret.getReferredEntities().put(objId.getGuid(), entityRetriever.toAtlasEntityHeader(objId.getGuid()));
-                        }
+                        referredGuids.add(((AtlasObjectId) attrValue).getGuid());
                     } else if (attrValue instanceof Collection) {
-                        Collection objIds = (Collection) attrValue;
-
-                        for (Object obj : objIds) {
+                        for (Object obj : (Collection) attrValue) {
                             if (obj instanceof AtlasObjectId) {
-                                AtlasObjectId objId = (AtlasObjectId) obj;
-
-                                if (ret.getReferredEntities() == null) {
-                                    ret.setReferredEntities(new HashMap<>());
-                                }
-
-                                if (!ret.getReferredEntities().containsKey(objId.getGuid())) {
-                                    ret.getReferredEntities().put(objId.getGuid(), entityRetriever.toAtlasEntityHeader(objId.getGuid()));
-                                }
+                                referredGuids.add(((AtlasObjectId) obj).getGuid());
                             }
                         }
                     }
                 }
             }
+
+            // populate ret.referredEntities, reading entities referred by multiple results only once
+            if (!referredGuids.isEmpty()) {
+                ret.setReferredEntities(entityRetriever.toAtlasEntityHeaders(referredGuids));
+            }
         } finally {
             searchTracker.remove(searchID);
         }
@@ -196,6 +196,30 @@ public class EntityAuditListenerV2 implements EntityChangeListenerV2 {
         }
     }
 
+    @Override
+    public void onClassificationsAdded(Map<AtlasEntity, List<AtlasClassification>> entityClassifications) throws AtlasBaseException {
+        if (MapUtils.isNotEmpty(entityClassifications)) {
+            MetricRecorder           metric = RequestContext.get().startMetricRecord("entityAudit");
+            List<EntityAuditEventV2> events = new ArrayList<>();
+
+            for (Map.Entry<AtlasEntity, List<AtlasClassification>> entry : entityClassifications.entrySet()) {
+                AtlasEntity entity = entry.getKey();
+
+                for (AtlasClassification classification : entry.getValue()) {
+                    if (entity.getGuid().equals(classification.getEntityGuid())) {
+                        events.add(createEvent(entity, CLASSIFICATION_ADD, "Added classification: " + AtlasType.toJson(classification)));
+                    } else {
+                        events.add(createEvent(entity, PROPAGATED_CLASSIFICATION_ADD, "Added propagated classification: " + AtlasType.toJson(classification)));
+                    }
+                }
+            }
+
+            auditRepository.putEventsV2(events);
+
+            RequestContext.get().endMetricRecord(metric);
+        }
+    }
+
     @Override
     public void onClassificationsUpdated(AtlasEntity entity, List<AtlasClassification> classifications) throws AtlasBaseException {
         if (CollectionUtils.isNotEmpty(classifications)) {
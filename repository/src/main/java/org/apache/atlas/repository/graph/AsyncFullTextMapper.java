@@ -0,0 +1,399 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.graph;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.atlas.AtlasConfiguration;
+import org.apache.atlas.GraphTransactionInterceptor;
+import org.apache.atlas.RequestContext;
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.ha.HAConfiguration;
+import org.apache.atlas.listener.ActiveStateChangeHandler;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.graphdb.AtlasGraphQuery.ComparisionOperator;
+import org.apache.atlas.repository.graphdb.AtlasGraphQuery.SortOrder;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.repository.store.graph.v2.AtlasGraphUtilsV2;
+import org.apache.atlas.service.Service;
+import org.apache.atlas.util.AtlasRepositoryConfiguration;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.apache.atlas.repository.Constants.ENTITY_TEXT_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.FULLTEXT_PENDING_PROPERTY_KEY;
+
+/**
+ * Updates the full text of entities in background, instead of in the transaction that updates the entities.
+ *
+ * Entity mutations only mark the entity vertices as pending; the guids are queued once the transaction commits.
+ * Worker threads take guids from the queue in batches and update the full text of each batch in a transaction.
+ * A guid is queued only once until it is processed, so that entities updated often are mapped once per batch.
+ * The pending mark persists in the graph, hence entities not processed before a restart are queued at startup.
+ * Workers run only in the active instance.
+ *
+ * The pending mark is a token unique to each update, increasing with time. After updating the full text, a worker
+ * removes the mark - in a separate transaction, to read the current value - only if it still has the token read
+ * before the update; the mark of an entity updated again meanwhile is retained, for the entity to be mapped again.
+ * Recovery at startup reads marked entities in pages, in the order of tokens.
+ */
+@Component
+@Order(6)
+public class AsyncFullTextMapper implements Service, ActiveStateChangeHandler {
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncFullTextMapper.class);
+
+    private static final long       WORKER_INTERVAL_MS         = 100;
+    private static final long       RECOVERY_RETRY_INTERVAL_MS = 60 * 1000;
+    private static final AtomicLong LAST_PENDING_TOKEN         = new AtomicLong();
+
+    private final AtlasGraph                graph;
+    private final FullTextMapperV2          fullTextMapper;
+    private final Configuration             configuration;
+    private final boolean                   isEnabled;
+    private final int                       batchSize;
+    private final int                       workerThreads;
+    private final Map<String, Long>         queue = new LinkedHashMap<>(); // guid -> time queued
+    private       ScheduledExecutorService  workers;
+    private volatile boolean                isRecoveryDone   = false;
+    private volatile long                   lastRecoveryTime = 0;
+
+    @Inject
+    public AsyncFullTextMapper(AtlasGraph graph, FullTextMapperV2 fullTextMapper, Configuration configuration) {
+        this(graph, fullTextMapper, configuration,
+             AtlasConfiguration.FULLTEXT_MAPPING_ASYNC_ENABLED.getBoolean() && AtlasRepositoryConfiguration.isFullTextSearchEnabled() && !AtlasRepositoryConfiguration.isFreeTextSearchEnabled(),
+             AtlasConfiguration.FULLTEXT_MAPPING_ASYNC_BATCH_SIZE.getInt(), AtlasConfiguration.FULLTEXT_MAPPING_ASYNC_THREADS.getInt());
+    }
+
+    AsyncFullTextMapper(AtlasGraph graph, FullTextMapperV2 fullTextMapper, Configuration configuration, boolean isEnabled, int batchSize, int workerThreads) {
+        this.graph          = graph;
+        this.fullTextMapper = fullTextMapper;
+        this.configuration  = configuration;
+        this.isEnabled      = isEnabled && workerThreads > 0;
+        this.batchSize      = Math.max(batchSize, 1);
+        this.workerThreads  = workerThreads;
+    }
+
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    @Override
+    public void start() {
+        if (!isEnabled) {
+            LOG.info("AsyncFullTextMapper: disabled");
+        } else if (!HAConfiguration.isHAEnabled(configuration)) {
+            startWorkers();
+        } else {
+            LOG.info("AsyncFullTextMapper.start(): deferring until instance activation");
+        }
+    }
+
+    @Override
+    public void stop() {
+        stopWorkers();
+    }
+
+    @Override
+    public void instanceIsActive() {
+        if (isEnabled) {
+            startWorkers();
+        }
+    }
+
+    @Override
+    public void instanceIsPassive() {
+        stopWorkers();
+
+        synchronized (queue) {
+            queue.clear();
+        }
+    }
+
+    @Override
+    public int getHandlerOrder() {
+        return HandlerOrder.ASYNC_FULLTEXT_MAPPER.getOrder();
+    }
+
+    /**
+     * Mark the given entities for full text update, in the current transaction. Entities are queued for update once
+     * the transaction commits successfully.
+     */
+    public void enqueue(Collection<String> guids) {
+        if (!isEnabled || CollectionUtils.isEmpty(guids)) {
+            return;
+        }
+
+        final List<String> toQueue = new ArrayList<>(guids.size());
+
+        for (String guid : guids) {
+            AtlasVertex vertex = findVertex(guid);
+
+            if (vertex != null) {
+                AtlasGraphUtilsV2.setEncodedProperty(vertex, FULLTEXT_PENDING_PROPERTY_KEY, nextPendingToken());
+
+                toQueue.add(guid);
+            }
+        }
+
+        if (!toQueue.isEmpty()) {
+            new GraphTransactionInterceptor.PostTransactionHook() {
+                @Override
+                public void onComplete(boolean isSuccess) {
+                    if (isSuccess) {
+                        addToQueue(toQueue);
+                    }
+                }
+            };
+        }
+    }
+
+    public int getQueueSize() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * @return time since the oldest entry in the queue was queued; 0 if the queue is empty
+     */
+    public long getLagMs() {
+        synchronized (queue) {
+            return queue.isEmpty() ? 0 : System.currentTimeMillis() - queue.values().iterator().next();
+        }
+    }
+
+    private synchronized void startWorkers() {
+        if (workers == null) {
+            isRecoveryDone   = false;
+            lastRecoveryTime = 0;
+            workers          = Executors.newScheduledThreadPool(workerThreads, new ThreadFactoryBuilder().setNameFormat("atlas-fulltext-mapper-%d").setDaemon(true).build());
+
+            for (int i = 0; i < workerThreads; i++) {
+                workers.scheduleWithFixedDelay(this::processPending, WORKER_INTERVAL_MS, WORKER_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            }
+
+            LOG.info("AsyncFullTextMapper: started; batchSize={}, workerThreads={}", batchSize, workerThreads);
+        }
+    }
+
+    private synchronized void stopWorkers() {
+        if (workers != null) {
+            workers.shutdownNow();
+
+            workers = null;
+
+            LOG.info("AsyncFullTextMapper: stopped");
+        }
+    }
+
+    void addToQueue(Collection<String> guids) {
+        long now = System.currentTimeMillis();
+
+        synchronized (queue) {
+            for (String guid : guids) {
+                queue.putIfAbsent(guid, now);
+            }
+        }
+    }
+
+    void processPending() {
+        try {
+            if (!isRecoveryDone && System.currentTimeMillis() - lastRecoveryTime > RECOVERY_RETRY_INTERVAL_MS) {
+                recoverPending();
+            }
+
+            for (List<String> batch = takeBatch(); !batch.isEmpty(); batch = takeBatch()) {
+                processBatch(batch);
+            }
+        } catch (Throwable t) {
+            LOG.error("AsyncFullTextMapper: unexpected error", t);
+        }
+    }
+
+    private List<String> takeBatch() {
+        List<String> ret = new ArrayList<>();
+
+        synchronized (queue) {
+            for (Iterator<String> iter = queue.keySet().iterator(); iter.hasNext() && ret.size() < batchSize; ) {
+                ret.add(iter.next());
+
+                iter.remove();
+            }
+        }
+
+        return ret;
+    }
+
+    private void processBatch(List<String> guids) {
+        Map<String, Long> pendingTokens = new LinkedHashMap<>();
+
+        try {
+            for (String guid : guids) {
+                AtlasVertex vertex = findVertex(guid);
+
+                if (vertex == null) {
+                    continue;
+                }
+
+                pendingTokens.put(guid, vertex.getProperty(FULLTEXT_PENDING_PROPERTY_KEY, Long.class));
+
+                try {
+                    String fullText = fullTextMapper.getIndexTextForEntity(guid);
+
+                    AtlasGraphUtilsV2.setEncodedProperty(vertex, ENTITY_TEXT_PROPERTY_KEY, fullText);
+                } catch (AtlasBaseException e) {
+                    LOG.error("FullText mapping failed for Vertex[ guid = {} ]", guid, e);
+                }
+            }
+
+            graph.commit();
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("AsyncFullTextMapper: updated full text of {} entities", guids.size());
+            }
+        } catch (Throwable t) {
+            // entities remain marked as pending in the graph, to be processed after restart
+            LOG.error("AsyncFullTextMapper: failed to update full text of {} entities", guids.size(), t);
+
+            graph.rollback();
+
+            pendingTokens.clear();
+        } finally {
+            GraphTransactionInterceptor.clearCache();
+            RequestContext.clear();
+        }
+
+        if (!pendingTokens.isEmpty()) {
+            clearPendingMarks(pendingTokens);
+        }
+    }
+
+    // remove the pending mark of entities not updated since their full text was read
+    private void clearPendingMarks(Map<String, Long> pendingTokens) {
+        try {
+            for (Map.Entry<String, Long> entry : pendingTokens.entrySet()) {
+                if (entry.getValue() == null) {
+                    continue;
+                }
+
+                AtlasVertex vertex = findVertex(entry.getKey());
+
+                if (vertex != null && Objects.equals(vertex.getProperty(FULLTEXT_PENDING_PROPERTY_KEY, Long.class), entry.getValue())) {
+                    vertex.removeProperty(FULLTEXT_PENDING_PROPERTY_KEY);
+                }
+            }
+
+            graph.commit();
+        } catch (Throwable t) {
+            // full text is updated; entities remaining marked will be mapped again after restart
+            LOG.warn("AsyncFullTextMapper: failed to clear pending mark of {} entities", pendingTokens.size(), t);
+
+            graph.rollback();
+        } finally {
+            GraphTransactionInterceptor.clearCache();
+            RequestContext.clear();
+        }
+    }
+
+    // queue entities marked pending, but not processed before the server stopped
+    private synchronized void recoverPending() {
+        if (isRecoveryDone) {
+            return;
+        }
+
+        lastRecoveryTime = System.currentTimeMillis();
+
+        try {
+            long lastToken = 0;
+            int  count     = 0;
+
+            // page by token, as marks are removed meanwhile by workers processing entities queued since startup
+            while (true) {
+                List<AtlasVertex> vertices = findPendingVertices(lastToken, batchSize);
+                List<String>      guids    = new ArrayList<>(vertices.size());
+
+                for (AtlasVertex vertex : vertices) {
+                    String guid  = GraphHelper.getGuid(vertex);
+                    Long   token = vertex.getProperty(FULLTEXT_PENDING_PROPERTY_KEY, Long.class);
+
+                    if (guid != null) {
+                        guids.add(guid);
+                    }
+
+                    if (token != null) {
+                        lastToken = Math.max(lastToken, token);
+                    }
+                }
+
+                graph.commit();
+
+                addToQueue(guids);
+
+                count += guids.size();
+
+                if (vertices.size() < batchSize) {
+                    break;
+                }
+            }
+
+            isRecoveryDone = true;
+
+            LOG.info("AsyncFullTextMapper: queued {} entities pending full text update", count);
+        } catch (Throwable t) {
+            LOG.warn("AsyncFullTextMapper: failed to find entities pending full text update. Will retry", t);
+
+            graph.rollback();
+        }
+    }
+
+    AtlasVertex findVertex(String guid) {
+        return AtlasGraphUtilsV2.findByGuid(graph, guid);
+    }
+
+    // vertices marked pending with token greater than the given token, in the order of tokens
+    List<AtlasVertex> findPendingVertices(long afterToken, int limit) {
+        List<AtlasVertex> ret = new ArrayList<>();
+
+        for (Object vertex : graph.query().has(FULLTEXT_PENDING_PROPERTY_KEY, ComparisionOperator.GREATER_THAN, afterToken).orderBy(FULLTEXT_PENDING_PROPERTY_KEY, SortOrder.ASC).vertices(limit)) {
+            ret.add((AtlasVertex) vertex);
+        }
+
+        return ret;
+    }
+
+    // unique to each update, increasing with time, so that a mark set by a later update is told apart from earlier ones
+    static long nextPendingToken() {
+        return LAST_PENDING_TOKEN.updateAndGet(last -> Math.max(System.currentTimeMillis(), last + 1));
+    }
+}
@@ -0,0 +1,272 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.graph;
+
+import org.apache.atlas.AtlasConfiguration;
+import org.apache.atlas.model.TimeBoundary;
+import org.apache.atlas.model.glossary.relations.AtlasTermAssignmentHeader;
+import org.apache.atlas.model.instance.AtlasClassification;
+import org.apache.atlas.model.instance.AtlasEntityHeader;
+import org.apache.atlas.utils.LruCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Server-wide cache of entity headers, to avoid reading frequently referenced entities from the graph across requests.
+ * An entry is keyed by the entity guid and holds the version of the entity, i.e. its modification timestamp, the header
+ * was built from; an entry of a different version is not used. Entries are also removed when the entity is updated or
+ * deleted, or when its classifications, labels or terms change, since a few such changes, like classification
+ * propagation, don't update the modification timestamp.
+ *
+ * Only the header attributes, classification names, labels and meanings are cached; headers, with their classifications
+ * and meanings, are copied on put and get, so that callers can add other attributes to the returned header.
+ *
+ * A header read from the graph is put only if its entry was not removed while it was read, as tracked by invalidation
+ * stamps of guid stripes: the read could otherwise see the entity as it was before a change whose invalidation has
+ * already run. A removal drops only in-flight puts of guids in the same stripe; such puts are counted as dropped.
+ */
+public final class EntityHeaderCache {
+    private static final int                       CACHE_SIZE            = AtlasConfiguration.ENTITY_HEADER_CACHE_SIZE.getInt();
+    private static final AtomicLong                HITS                  = new AtomicLong();
+    private static final AtomicLong                MISSES                = new AtomicLong();
+    private static final AtomicLong                EVICTIONS             = new AtomicLong();
+    private static final AtomicLong                DROPPED_PUTS          = new AtomicLong();
+    private static final int                       INVALIDATION_STRIPES  = 1024;
+    private static final AtomicLongArray           INVALIDATION_STAMPS   = new AtomicLongArray(INVALIDATION_STRIPES);
+    private static final Map<String, CachedHeader> CACHE                 = CACHE_SIZE > 0 ? new LruCache<String, CachedHeader>(CACHE_SIZE, 0) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedHeader> eldest) {
+            boolean ret = super.removeEldestEntry(eldest);
+
+            if (ret) {
+                EVICTIONS.incrementAndGet();
+            }
+
+            return ret;
+        }
+    } : null;
+
+    private EntityHeaderCache() { }
+
+    public static boolean isEnabled() {
+        return CACHE != null;
+    }
+
+    /**
+     * @return copy of the cached header of the guid; null if the guid is not in cache, or the cached header is of
+     *         a different version
+     */
+    public static AtlasEntityHeader get(String guid, long version) {
+        if (CACHE == null || guid == null) {
+            return null;
+        }
+
+        final CachedHeader cached;
+
+        synchronized (CACHE) {
+            cached = CACHE.get(guid);
+        }
+
+        AtlasEntityHeader ret = null;
+
+        if (cached != null && cached.version == version) {
+            ret = copy(cached.header);
+
+            HITS.incrementAndGet();
+        } else {
+            MISSES.incrementAndGet();
+        }
+
+        return ret;
+    }
+
+    /**
+     * @return current invalidation stamp of the guid, to be read before reading its header from the graph and passed to put()
+     */
+    public static long getInvalidationStamp(String guid) {
+        return guid != null ? INVALIDATION_STAMPS.get(getStripe(guid)) : 0;
+    }
+
+    /**
+     * Caches a copy of the header, unless an entry of the guid's stripe has been removed since invalidationStamp was read.
+     */
+    public static void put(String guid, long version, AtlasEntityHeader header, long invalidationStamp) {
+        if (CACHE != null && guid != null && header != null) {
+            CachedHeader cached = new CachedHeader(version, copy(header));
+
+            synchronized (CACHE) {
+                if (INVALIDATION_STAMPS.get(getStripe(guid)) == invalidationStamp) {
+                    CACHE.put(guid, cached);
+                } else {
+                    DROPPED_PUTS.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    public static void remove(String guid) {
+        if (CACHE != null && guid != null) {
+            synchronized (CACHE) {
+                INVALIDATION_STAMPS.incrementAndGet(getStripe(guid));
+
+                CACHE.remove(guid);
+            }
+        }
+    }
+
+    public static void remove(Collection<String> guids) {
+        if (CACHE != null && guids != null && !guids.isEmpty()) {
+            synchronized (CACHE) {
+                for (String guid : guids) {
+                    if (guid != null) {
+                        INVALIDATION_STAMPS.incrementAndGet(getStripe(guid));
+
+                        CACHE.remove(guid);
+                    }
+                }
+            }
+        }
+    }
+
+    public static void clear() {
+        if (CACHE != null) {
+            synchronized (CACHE) {
+                for (int i = 0; i < INVALIDATION_STRIPES; i++) {
+                    INVALIDATION_STAMPS.incrementAndGet(i);
+                }
+
+                CACHE.clear();
+            }
+        }
+    }
+
+    public static int getSize() {
+        if (CACHE == null) {
+            return 0;
+        }
+
+        synchronized (CACHE) {
+            return CACHE.size();
+        }
+    }
+
+    public static long getHits() {
+        return HITS.get();
+    }
+
+    public static long getMisses() {
+        return MISSES.get();
+    }
+
+    public static long getEvictions() {
+        return EVICTIONS.get();
+    }
+
+    public static long getDroppedPuts() {
+        return DROPPED_PUTS.get();
+    }
+
+    private static int getStripe(String guid) {
+        return Math.floorMod(guid.hashCode(), INVALIDATION_STRIPES);
+    }
+
+    private static AtlasEntityHeader copy(AtlasEntityHeader header) {
+        AtlasEntityHeader ret = new AtlasEntityHeader(header.getTypeName(), header.getGuid(), header.getAttributes() != null ? new HashMap<>(header.getAttributes()) : null);
+
+        ret.setStatus(header.getStatus());
+        ret.setDisplayText(header.getDisplayText());
+        ret.setIsIncomplete(header.getIsIncomplete());
+        ret.setClassificationNames(header.getClassificationNames() != null ? new ArrayList<>(header.getClassificationNames()) : null);
+        ret.setLabels(header.getLabels() != null ? new LinkedHashSet<>(header.getLabels()) : null);
+        ret.setMeaningNames(header.getMeaningNames() != null ? new ArrayList<>(header.getMeaningNames()) : null);
+
+        if (header.getClassifications() != null) {
+            List<AtlasClassification> classifications = new ArrayList<>(header.getClassifications().size());
+
+            for (AtlasClassification classification : header.getClassifications()) {
+                classifications.add(classification != null ? copy(classification) : null);
+            }
+
+            ret.setClassifications(classifications);
+        }
+
+        if (header.getMeanings() != null) {
+            List<AtlasTermAssignmentHeader> meanings = new ArrayList<>(header.getMeanings().size());
+
+            for (AtlasTermAssignmentHeader meaning : header.getMeanings()) {
+                meanings.add(meaning != null ? copy(meaning) : null);
+            }
+
+            ret.setMeanings(meanings);
+        }
+
+        return ret;
+    }
+
+    private static AtlasClassification copy(AtlasClassification classification) {
+        AtlasClassification ret = new AtlasClassification(classification);
+
+        ret.setAttributes(classification.getAttributes() != null ? new HashMap<>(classification.getAttributes()) : null);
+
+        if (classification.getValidityPeriods() != null) {
+            List<TimeBoundary> validityPeriods = new ArrayList<>(classification.getValidityPeriods().size());
+
+            for (TimeBoundary period : classification.getValidityPeriods()) {
+                validityPeriods.add(period != null ? new TimeBoundary(period.getStartTime(), period.getEndTime(), period.getTimeZone()) : null);
+            }
+
+            ret.setValidityPeriods(validityPeriods);
+        }
+
+        return ret;
+    }
+
+    private static AtlasTermAssignmentHeader copy(AtlasTermAssignmentHeader meaning) {
+        AtlasTermAssignmentHeader ret = new AtlasTermAssignmentHeader();
+
+        ret.setTermGuid(meaning.getTermGuid());
+        ret.setRelationGuid(meaning.getRelationGuid());
+        ret.setDescription(meaning.getDescription());
+        ret.setDisplayText(meaning.getDisplayText());
+        ret.setExpression(meaning.getExpression());
+        ret.setCreatedBy(meaning.getCreatedBy());
+        ret.setSteward(meaning.getSteward());
+        ret.setSource(meaning.getSource());
+        ret.setConfidence(meaning.getConfidence());
+        ret.setStatus(meaning.getStatus());
+
+        return ret;
+    }
+
+    private static class CachedHeader {
+        final long              version;
+        final AtlasEntityHeader header;
+
+        CachedHeader(long version, AtlasEntityHeader header) {
+            this.version = version;
+            this.header  = header;
+        }
+    }
+}
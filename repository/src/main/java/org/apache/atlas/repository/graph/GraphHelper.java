@@ -441,6 +441,25 @@ public final class GraphHelper {
         return ret;
     }
 
+    /**
+     * Returns up to limit entity vertices to which the classification is propagated.
+     */
+    public static List<AtlasVertex> getPropagatedEntityVertices(AtlasVertex classificationVertex, int limit) {
+        List<AtlasVertex> ret   = new ArrayList<>();
+        Iterable          edges = classificationVertex.query().direction(AtlasEdgeDirection.IN).label(CLASSIFICATION_LABEL)
+                                                      .has(CLASSIFICATION_EDGE_IS_PROPAGATED_PROPERTY_KEY, true)
+                                                      .has(CLASSIFICATION_EDGE_NAME_PROPERTY_KEY, getTypeName(classificationVertex)).edges(limit);
+        if (edges != null) {
+            Iterator<AtlasEdge> iterator = edges.iterator();
+
+            while (iterator.hasNext()) {
+                ret.add(iterator.next().getOutVertex());
+            }
+        }
+
+        return ret;
+    }
+
     public static Iterator<AtlasEdge> getIncomingEdgesByLabel(AtlasVertex instanceVertex, String edgeLabel) {
         return getAdjacentEdgesByLabel(instanceVertex, AtlasEdgeDirection.IN, edgeLabel);
     }
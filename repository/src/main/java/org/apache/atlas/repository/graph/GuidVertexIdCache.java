@@ -0,0 +1,141 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.graph;
+
+import org.apache.atlas.AtlasConfiguration;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.utils.LruCache;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.apache.atlas.repository.Constants.GUID_PROPERTY_KEY;
+
+/**
+ * Server-wide cache of entity guid to vertex id, to avoid index lookups for frequently referenced entities across
+ * transactions. Only vertex ids are cached, as vertices are bound to a transaction. A cached vertex is loaded by id in
+ * the current transaction and verified to have the guid before use; hence a stale entry, for example of a purged
+ * entity or of a vertex created in a rolled back transaction, results in a lookup by index as before.
+ */
+public final class GuidVertexIdCache {
+    private static final int                 CACHE_SIZE = AtlasConfiguration.GRAPH_GUID_VERTEX_ID_CACHE_SIZE.getInt();
+    private static final AtomicLong          HITS       = new AtomicLong();
+    private static final AtomicLong          MISSES     = new AtomicLong();
+    private static final AtomicLong          EVICTIONS  = new AtomicLong();
+    private static final Map<String, String> CACHE      = CACHE_SIZE > 0 ? new LruCache<String, String>(CACHE_SIZE, 0) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            boolean ret = super.removeEldestEntry(eldest);
+
+            if (ret) {
+                EVICTIONS.incrementAndGet();
+            }
+
+            return ret;
+        }
+    } : null;
+
+    private GuidVertexIdCache() { }
+
+    public static boolean isEnabled() {
+        return CACHE != null;
+    }
+
+    /**
+     * @return vertex of the guid, loaded by the cached vertex id; null if the guid is not in cache, or the cached
+     *         vertex id is no longer of the guid
+     */
+    public static AtlasVertex getVertex(AtlasGraph graph, String guid) {
+        if (CACHE == null || guid == null) {
+            return null;
+        }
+
+        final String vertexId;
+
+        synchronized (CACHE) {
+            vertexId = CACHE.get(guid);
+        }
+
+        AtlasVertex ret = vertexId != null ? graph.getVertex(vertexId) : null;
+
+        if (ret != null && (!ret.exists() || !guid.equals(ret.getProperty(GUID_PROPERTY_KEY, String.class)))) {
+            ret = null;
+        }
+
+        if (ret != null) {
+            HITS.incrementAndGet();
+        } else {
+            MISSES.incrementAndGet();
+
+            if (vertexId != null) {
+                remove(guid);
+            }
+        }
+
+        return ret;
+    }
+
+    public static void put(String guid, AtlasVertex vertex) {
+        if (CACHE != null && guid != null && vertex != null && vertex.getId() != null) {
+            String vertexId = vertex.getId().toString();
+
+            synchronized (CACHE) {
+                CACHE.put(guid, vertexId);
+            }
+        }
+    }
+
+    public static void remove(String guid) {
+        if (CACHE != null && guid != null) {
+            synchronized (CACHE) {
+                CACHE.remove(guid);
+            }
+        }
+    }
+
+    public static void clear() {
+        if (CACHE != null) {
+            synchronized (CACHE) {
+                CACHE.clear();
+            }
+        }
+    }
+
+    public static int getSize() {
+        if (CACHE == null) {
+            return 0;
+        }
+
+        synchronized (CACHE) {
+            return CACHE.size();
+        }
+    }
+
+    public static long getHits() {
+        return HITS.get();
+    }
+
+    public static long getMisses() {
+        return MISSES.get();
+    }
+
+    public static long getEvictions() {
+        return EVICTIONS.get();
+    }
+}
@@ -66,6 +66,17 @@ public interface AtlasEntityStore {
      */
     AtlasEntityWithExtInfo getById(String guid, boolean isMinExtInfo, boolean ignoreRelationships) throws AtlasBaseException;
 
+    /**
+     *
+     * Get entity definition by its guid, with only the given attributes of the entity
+     * @param guid
+     * @param isMinExtInfo
+     * @param attributes names of attributes to include; all if null. Unique attributes are always included
+     * @param relationshipAttributes names of relationship attributes to include; all if null
+     * @return AtlasEntity
+     */
+    AtlasEntityWithExtInfo getById(String guid, boolean isMinExtInfo, boolean ignoreRelationships, Set<String> attributes, Set<String> relationshipAttributes) throws AtlasBaseException;
+
     /**
      * Get entity header for the given GUID
      * @param guid
@@ -94,6 +105,17 @@ public interface AtlasEntityStore {
      */
     AtlasEntitiesWithExtInfo getByIds(List<String> guid, boolean isMinExtInfo, boolean ignoreRelationships) throws AtlasBaseException;
 
+    /**
+     * Batch GET to retrieve entities by their ID, with only the given attributes of the entities
+     * @param guid
+     * @param isMinExtInfo
+     * @param attributes names of attributes to include; all if null. Unique attributes are always included
+     * @param relationshipAttributes names of relationship attributes to include; all if null
+     * @return
+     * @throws AtlasBaseException
+     */
+    AtlasEntitiesWithExtInfo getByIds(List<String> guid, boolean isMinExtInfo, boolean ignoreRelationships, Set<String> attributes, Set<String> relationshipAttributes) throws AtlasBaseException;
+
     /**
      * Batch GET to retrieve entities by their uniqueIds
      * @param entityType
@@ -27,6 +27,7 @@ import org.apache.atlas.model.SearchFilter;
 import org.apache.atlas.model.typedef.*;
 import org.apache.atlas.model.typedef.AtlasStructDef.AtlasAttributeDef;
 import org.apache.atlas.model.typedef.AtlasStructDef.AtlasConstraintDef;
+import org.apache.atlas.repository.graph.EntityHeaderCache;
 import org.apache.atlas.repository.graphdb.AtlasVertex;
 import org.apache.atlas.repository.util.FilterUtil;
 import org.apache.atlas.store.AtlasTypeDefStore;
@@ -1069,6 +1070,8 @@ public abstract class AtlasTypeDefGraphStore implements AtlasTypeDefStore {
             typeRegistry.releaseTypeRegistryForUpdate(ttr, isSuccess);
 
             if (isSuccess) {
+                EntityHeaderCache.clear(); // header attributes and display text depend on type definitions
+
                 notifyListeners(ttr);
             }
 
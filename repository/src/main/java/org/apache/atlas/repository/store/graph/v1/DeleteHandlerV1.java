@@ -30,6 +30,8 @@ import org.apache.atlas.model.typedef.AtlasRelationshipDef.PropagateTags;
 import org.apache.atlas.model.typedef.AtlasStructDef.AtlasAttributeDef;
 import org.apache.atlas.repository.graph.AtlasEdgeLabel;
 import org.apache.atlas.repository.graph.GraphHelper;
+import org.apache.atlas.repository.graph.EntityHeaderCache;
+import org.apache.atlas.repository.graph.GuidVertexIdCache;
 import org.apache.atlas.repository.graphdb.AtlasEdge;
 import org.apache.atlas.repository.graphdb.AtlasEdgeDirection;
 import org.apache.atlas.repository.graphdb.AtlasGraph;
@@ -966,6 +968,11 @@ public abstract class DeleteHandlerV1 {
             }
         }
 
+        String guid = GraphHelper.getGuid(instanceVertex);
+
+        GuidVertexIdCache.remove(guid);
+        EntityHeaderCache.remove(guid);
+
         _deleteVertex(instanceVertex, force);
     }
 
@@ -20,6 +20,7 @@ package org.apache.atlas.repository.store.graph.v2;
 
 import org.apache.atlas.AtlasErrorCode;
 import org.apache.atlas.AtlasException;
+import org.apache.atlas.GraphTransactionInterceptor;
 import org.apache.atlas.RequestContext;
 import org.apache.atlas.exception.AtlasBaseException;
 import org.apache.atlas.listener.EntityChangeListener;
@@ -41,8 +42,11 @@ import org.apache.atlas.utils.AtlasPerfMetrics.MetricRecorder;
 import org.apache.atlas.v1.model.instance.Referenceable;
 import org.apache.atlas.v1.model.instance.Struct;
 import org.apache.atlas.repository.converters.AtlasInstanceConverter;
+import org.apache.atlas.repository.graph.AsyncFullTextMapper;
+import org.apache.atlas.repository.graph.EntityHeaderCache;
 import org.apache.atlas.repository.graph.FullTextMapperV2;
 import org.apache.atlas.repository.graph.GraphHelper;
+import org.apache.atlas.repository.graph.GuidVertexIdCache;
 import org.apache.atlas.repository.graphdb.AtlasVertex;
 import org.apache.atlas.util.AtlasRepositoryConfiguration;
 import org.apache.commons.collections.CollectionUtils;
@@ -54,12 +58,15 @@ import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 
+import static org.apache.atlas.discovery.TermSearchProcessor.ATLAS_GLOSSARY_TERM_ENTITY_TYPE;
 import static org.apache.atlas.model.audit.EntityAuditEventV2.EntityAuditActionV2.PROPAGATED_CLASSIFICATION_ADD;
 import static org.apache.atlas.model.audit.EntityAuditEventV2.EntityAuditActionV2.PROPAGATED_CLASSIFICATION_DELETE;
 import static org.apache.atlas.repository.Constants.ENTITY_TEXT_PROPERTY_KEY;
@@ -73,6 +80,7 @@ public class AtlasEntityChangeNotifier implements IAtlasEntityChangeNotifier {
     private final Set<EntityChangeListenerV2> entityChangeListenersV2;
     private final AtlasInstanceConverter      instanceConverter;
     private final FullTextMapperV2            fullTextMapperV2;
+    private final AsyncFullTextMapper         asyncFullTextMapper;
     private final AtlasTypeRegistry           atlasTypeRegistry;
     private final boolean                     isV2EntityNotificationEnabled;
 
@@ -82,17 +90,30 @@ public class AtlasEntityChangeNotifier implements IAtlasEntityChangeNotifier {
                                      Set<EntityChangeListenerV2> entityChangeListenersV2,
                                      AtlasInstanceConverter instanceConverter,
                                      FullTextMapperV2 fullTextMapperV2,
+                                     AsyncFullTextMapper asyncFullTextMapper,
                                      AtlasTypeRegistry atlasTypeRegistry) {
         this.entityChangeListeners         = entityChangeListeners;
         this.entityChangeListenersV2       = entityChangeListenersV2;
         this.instanceConverter             = instanceConverter;
         this.fullTextMapperV2              = fullTextMapperV2;
+        this.asyncFullTextMapper           = asyncFullTextMapper;
         this.atlasTypeRegistry             = atlasTypeRegistry;
         this.isV2EntityNotificationEnabled = AtlasRepositoryConfiguration.isV2EntityNotificationEnabled();
     }
 
     @Override
     public void onEntitiesMutated(EntityMutationResponse entityMutationResponse, boolean isImport) throws AtlasBaseException {
+        if (CollectionUtils.isNotEmpty(entityMutationResponse.getPurgedEntities())) {
+            for (AtlasEntityHeader entity : entityMutationResponse.getPurgedEntities()) {
+                GuidVertexIdCache.remove(entity.getGuid());
+            }
+        }
+
+        invalidateEntityHeaders(entityMutationResponse.getUpdatedEntities());
+        invalidateEntityHeaders(entityMutationResponse.getPartialUpdatedEntities());
+        invalidateEntityHeaders(entityMutationResponse.getDeletedEntities());
+        invalidateEntityHeaders(entityMutationResponse.getPurgedEntities());
+
         if (CollectionUtils.isEmpty(entityChangeListeners)) {
             return;
         }
@@ -141,6 +162,8 @@ public class AtlasEntityChangeNotifier implements IAtlasEntityChangeNotifier {
 
     @Override
     public void onClassificationAddedToEntity(AtlasEntity entity, List<AtlasClassification> addedClassifications) throws AtlasBaseException {
+        invalidateEntityHeader(entity.getGuid());
+
         if (isV2EntityNotificationEnabled) {
             doFullTextMapping(entity.getGuid());
 
@@ -171,6 +194,8 @@ public class AtlasEntityChangeNotifier implements IAtlasEntityChangeNotifier {
 
     @Override
     public void onClassificationsAddedToEntities(List<AtlasEntity> entities, List<AtlasClassification> addedClassifications) throws AtlasBaseException {
+        invalidateEntityHeaders(toGuids(entities));
+
         if (isV2EntityNotificationEnabled) {
             doFullTextMappingHelper(entities);
 
@@ -205,8 +230,31 @@ public class AtlasEntityChangeNotifier implements IAtlasEntityChangeNotifier {
         }
     }
 
+    @Override
+    public void onClassificationsAddedToEntities(Map<AtlasEntity, List<AtlasClassification>> entityClassifications) throws AtlasBaseException {
+        if (MapUtils.isEmpty(entityClassifications)) {
+            return;
+        }
+
+        if (isV2EntityNotificationEnabled) {
+            invalidateEntityHeaders(toGuids(entityClassifications.keySet()));
+
+            doFullTextMappingHelper(new ArrayList<>(entityClassifications.keySet()));
+
+            for (EntityChangeListenerV2 listener : entityChangeListenersV2) {
+                listener.onClassificationsAdded(entityClassifications);
+            }
+        } else {
+            for (Map.Entry<AtlasEntity, List<AtlasClassification>> entry : entityClassifications.entrySet()) {
+                onClassificationAddedToEntity(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
     @Override
     public void onClassificationUpdatedToEntity(AtlasEntity entity, List<AtlasClassification> updatedClassifications) throws AtlasBaseException {
+        invalidateEntityHeader(entity.getGuid());
+
         doFullTextMapping(entity.getGuid());
 
         if (isV2EntityNotificationEnabled) {
@@ -235,6 +283,8 @@ public class AtlasEntityChangeNotifier implements IAtlasEntityChangeNotifier {
 
     @Override
     public void onClassificationDeletedFromEntity(AtlasEntity entity, List<AtlasClassification> deletedClassifications) throws AtlasBaseException {
+        invalidateEntityHeader(entity.getGuid());
+
         doFullTextMapping(entity.getGuid());
 
         if (isV2EntityNotificationEnabled) {
@@ -263,6 +313,8 @@ public class AtlasEntityChangeNotifier implements IAtlasEntityChangeNotifier {
 
     @Override
     public void onClassificationsDeletedFromEntities(List<AtlasEntity> entities, List<AtlasClassification> deletedClassifications) throws AtlasBaseException {
+        invalidateEntityHeaders(toGuids(entities));
+
         doFullTextMappingHelper(entities);
 
         if (isV2EntityNotificationEnabled) {
@@ -297,6 +349,8 @@ public class AtlasEntityChangeNotifier implements IAtlasEntityChangeNotifier {
 
     @Override
     public void onTermAddedToEntities(AtlasGlossaryTerm term, List<AtlasRelatedObjectId> entityIds) throws AtlasBaseException {
+        invalidateEntityHeaders(toGuids(entityIds));
+
         // listeners notified on term-entity association only if v2 notifications are enabled
         if (isV2EntityNotificationEnabled) {
             for (EntityChangeListenerV2 listener : entityChangeListenersV2) {
@@ -317,6 +371,8 @@ public class AtlasEntityChangeNotifier implements IAtlasEntityChangeNotifier {
 
     @Override
     public void onTermDeletedFromEntities(AtlasGlossaryTerm term, List<AtlasRelatedObjectId> entityIds) throws AtlasBaseException {
+        invalidateEntityHeaders(toGuids(entityIds));
+
         // listeners notified on term-entity disassociation only if v2 notifications are enabled
         if (isV2EntityNotificationEnabled) {
             for (EntityChangeListenerV2 listener : entityChangeListenersV2) {
@@ -337,6 +393,8 @@ public class AtlasEntityChangeNotifier implements IAtlasEntityChangeNotifier {
 
     @Override
     public void onLabelsUpdatedFromEntity(String entityGuid, Set<String> addedLabels, Set<String> deletedLabels) throws AtlasBaseException {
+        invalidateEntityHeader(entityGuid);
+
         doFullTextMapping(entityGuid);
 
         if (isV2EntityNotificationEnabled) {
@@ -361,6 +419,8 @@ public class AtlasEntityChangeNotifier implements IAtlasEntityChangeNotifier {
 
     @Override
     public void onBusinessAttributesUpdated(String entityGuid, Map<String, Map<String, Object>> updatedBusinessAttributes) throws AtlasBaseException{
+        invalidateEntityHeader(entityGuid);
+
         if (isV2EntityNotificationEnabled) {
             AtlasEntity entity = instanceConverter.getAndCacheEntity(entityGuid);
 
@@ -378,6 +438,8 @@ public class AtlasEntityChangeNotifier implements IAtlasEntityChangeNotifier {
 
         RequestContext context = RequestContext.get();
 
+        invalidateEntityHeaders(entityPropagationMap.keySet());
+
         for (String guid : entityPropagationMap.keySet()) {
             // if entity is deleted, don't send propagated classifications add/remove notifications.
             if (context.isDeletedEntity(guid)) {
@@ -402,6 +464,62 @@ public class AtlasEntityChangeNotifier implements IAtlasEntityChangeNotifier {
         return listener.getClass().getSimpleName();
     }
 
+    private void invalidateEntityHeader(String guid) {
+        if (EntityHeaderCache.isEnabled() && guid != null) {
+            invalidateEntityHeaders(Collections.singleton(guid));
+        }
+    }
+
+    private void invalidateEntityHeaders(List<AtlasEntityHeader> entityHeaders) {
+        if (EntityHeaderCache.isEnabled() && CollectionUtils.isNotEmpty(entityHeaders)) {
+            Set<String> guids = new HashSet<>();
+
+            for (AtlasEntityHeader entityHeader : entityHeaders) {
+                if (ATLAS_GLOSSARY_TERM_ENTITY_TYPE.equals(entityHeader.getTypeName())) { // term name is in headers of entities the term is assigned to
+                    EntityHeaderCache.clear();
+                }
+
+                guids.add(entityHeader.getGuid());
+            }
+
+            invalidateEntityHeaders(guids);
+        }
+    }
+
+    /**
+     * Removes cached headers of the entities now, and again once the transaction completes: a header built by another
+     * request before the commit, of an entity whose modification timestamp is not updated by the change, would otherwise
+     * remain in the cache.
+     */
+    private void invalidateEntityHeaders(final Collection<String> guids) {
+        if (EntityHeaderCache.isEnabled() && CollectionUtils.isNotEmpty(guids)) {
+            EntityHeaderCache.remove(guids);
+
+            new GraphTransactionInterceptor.PostTransactionHook() {
+                @Override
+                public void onComplete(boolean isSuccess) {
+                    EntityHeaderCache.remove(guids);
+                }
+            };
+        }
+    }
+
+    private Set<String> toGuids(Collection<?> entities) {
+        Set<String> ret = new HashSet<>();
+
+        if (entities != null) {
+            for (Object entity : entities) {
+                if (entity instanceof AtlasEntity) {
+                    ret.add(((AtlasEntity) entity).getGuid());
+                } else if (entity instanceof AtlasRelatedObjectId) {
+                    ret.add(((AtlasRelatedObjectId) entity).getGuid());
+                }
+            }
+        }
+
+        return ret;
+    }
+
     private void notifyListeners(List<AtlasEntityHeader> entityHeaders, EntityOperation operation, boolean isImport) throws AtlasBaseException {
         if (CollectionUtils.isEmpty(entityHeaders)) {
             return;
@@ -611,6 +729,20 @@ public class AtlasEntityChangeNotifier implements IAtlasEntityChangeNotifier {
             return;
         }
 
+        if (asyncFullTextMapper.isEnabled()) {
+            List<String> guids = new ArrayList<>(entityHeaders.size());
+
+            for (AtlasEntityHeader entityHeader : entityHeaders) {
+                if (!GraphHelper.isInternalType(entityHeader.getTypeName())) {
+                    guids.add(entityHeader.getGuid());
+                }
+            }
+
+            asyncFullTextMapper.enqueue(guids);
+
+            return;
+        }
+
         MetricRecorder metric = RequestContext.get().startMetricRecord("fullTextMapping");
 
         for (AtlasEntityHeader entityHeader : entityHeaders) {
@@ -651,6 +783,12 @@ public class AtlasEntityChangeNotifier implements IAtlasEntityChangeNotifier {
             return;
         }
 
+        if (asyncFullTextMapper.isEnabled()) { // full text of the entity includes its classifications
+            asyncFullTextMapper.enqueue(Collections.singletonList(entityId));
+
+            return;
+        }
+
         MetricRecorder metric = RequestContext.get().startMetricRecord("fullTextMapping");
 
         try {
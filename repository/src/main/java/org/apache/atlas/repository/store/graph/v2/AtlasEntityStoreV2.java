@@ -79,6 +79,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -147,13 +148,19 @@ public class AtlasEntityStoreV2 implements AtlasEntityStore {
     @Override
     @GraphTransaction
     public AtlasEntityWithExtInfo getById(final String guid, final boolean isMinExtInfo, boolean ignoreRelationships) throws AtlasBaseException {
+        return getById(guid, isMinExtInfo, ignoreRelationships, null, null);
+    }
+
+    @Override
+    @GraphTransaction
+    public AtlasEntityWithExtInfo getById(final String guid, final boolean isMinExtInfo, boolean ignoreRelationships, Set<String> attributes, Set<String> relationshipAttributes) throws AtlasBaseException {
         if (LOG.isDebugEnabled()) {
-            LOG.debug("==> getById({}, {})", guid, isMinExtInfo);
+            LOG.debug("==> getById({}, {}, {}, {})", guid, isMinExtInfo, attributes, relationshipAttributes);
         }
 
         EntityGraphRetriever entityRetriever = new EntityGraphRetriever(graph, typeRegistry, ignoreRelationships);
 
-        AtlasEntityWithExtInfo ret = entityRetriever.toAtlasEntityWithExtInfo(guid, isMinExtInfo);
+        AtlasEntityWithExtInfo ret = entityRetriever.toAtlasEntityWithExtInfo(guid, isMinExtInfo, attributes, relationshipAttributes);
 
         if (ret == null) {
             throw new AtlasBaseException(AtlasErrorCode.INSTANCE_GUID_NOT_FOUND, guid);
@@ -201,13 +208,19 @@ public class AtlasEntityStoreV2 implements AtlasEntityStore {
     @Override
     @GraphTransaction
     public AtlasEntitiesWithExtInfo getByIds(List<String> guids, boolean isMinExtInfo, boolean ignoreRelationships) throws AtlasBaseException {
+        return getByIds(guids, isMinExtInfo, ignoreRelationships, null, null);
+    }
+
+    @Override
+    @GraphTransaction
+    public AtlasEntitiesWithExtInfo getByIds(List<String> guids, boolean isMinExtInfo, boolean ignoreRelationships, Set<String> attributes, Set<String> relationshipAttributes) throws AtlasBaseException {
         if (LOG.isDebugEnabled()) {
-            LOG.debug("==> getByIds({}, {})", guids, isMinExtInfo);
+            LOG.debug("==> getByIds({}, {}, {}, {})", guids, isMinExtInfo, attributes, relationshipAttributes);
         }
 
         EntityGraphRetriever entityRetriever = new EntityGraphRetriever(graph, typeRegistry, ignoreRelationships);
 
-        AtlasEntitiesWithExtInfo ret = entityRetriever.toAtlasEntitiesWithExtInfo(guids, isMinExtInfo);
+        AtlasEntitiesWithExtInfo ret = entityRetriever.toAtlasEntitiesWithExtInfo(guids, isMinExtInfo, attributes, relationshipAttributes);
 
         if(ret != null){
             for(String guid : guids){
@@ -732,13 +745,17 @@ public class AtlasEntityStoreV2 implements AtlasEntityStore {
 
         validateAndNormalize(classification);
 
-        List<AtlasClassification> classifications = Collections.singletonList(classification);
+        List<AtlasClassification>                   classifications      = Collections.singletonList(classification);
+        Map<AtlasEntity, List<AtlasClassification>> pendingNotifications = new LinkedHashMap<>();
 
         for (String guid : guids) {
             validateEntityAssociations(guid, classifications);
 
-            entityGraphMapper.addClassifications(context, guid, classifications);
+            entityGraphMapper.addClassifications(context, guid, classifications, pendingNotifications);
         }
+
+        // notify once for all the entities, so that listeners like audit write in one call
+        entityChangeNotifier.onClassificationsAddedToEntities(pendingNotifications);
     }
 
     @Override
@@ -1102,7 +1119,14 @@ public class AtlasEntityStoreV2 implements AtlasEntityStore {
         MetricRecorder metric = RequestContext.get().startMetricRecord("createOrUpdate");
 
         try {
-            final EntityMutationContext context = preCreateOrUpdate(entityStream, entityGraphMapper, isPartialUpdate);
+            final EntityMutationContext context       = preCreateOrUpdate(entityStream, entityGraphMapper, isPartialUpdate);
+            final Map<String, String>   contentHashes = EntityContentHash.isEnabled() ? new HashMap<>() : null; // guid -> content hash
+
+            if (contentHashes != null) {
+                for (AtlasEntity entity : context.getCreatedEntities()) {
+                    contentHashes.put(entity.getGuid(), EntityContentHash.getContentHash(entity, context.getGuidAssignments(), isPartialUpdate, replaceClassifications, replaceBusinessAttributes));
+                }
+            }
 
             // Check if authorized to create entities
             if (!RequestContext.get().isImportInProgress()) {
@@ -1119,10 +1143,26 @@ public class AtlasEntityStoreV2 implements AtlasEntityStore {
                 List<AtlasEntity> entitiesToSkipUpdate = null;
 
                 for (AtlasEntity entity : context.getUpdatedEntities()) {
-                    String          guid       = entity.getGuid();
-                    AtlasVertex     vertex     = context.getVertex(guid);
-                    AtlasEntityType entityType = typeRegistry.getEntityTypeByName(entity.getTypeName());
-                    boolean         hasUpdates = false;
+                    String          guid        = entity.getGuid();
+                    AtlasVertex     vertex      = context.getVertex(guid);
+                    AtlasEntityType entityType  = typeRegistry.getEntityTypeByName(entity.getTypeName());
+                    boolean         hasUpdates  = false;
+                    String          contentHash = contentHashes != null ? EntityContentHash.getContentHash(entity, context.getGuidAssignments(), isPartialUpdate, replaceClassifications, replaceBusinessAttributes) : null;
+
+                    if (contentHash != null && EntityContentHash.isUnchanged(vertex, contentHash)) { // same content as in the last update
+                        if (entitiesToSkipUpdate == null) {
+                            entitiesToSkipUpdate = new ArrayList<>();
+                        }
+
+                        if (LOG.isDebugEnabled()) {
+                            LOG.debug("skipping entity with unchanged content hash: guid={}, typeName={}", guid, entity.getTypeName());
+                        }
+
+                        entitiesToSkipUpdate.add(entity);
+                        RequestContext.get().recordEntityToSkip(entity.getGuid());
+
+                        continue;
+                    }
 
                     if (!hasUpdates) {
                         hasUpdates = entity.getStatus() == AtlasEntity.Status.DELETED; // entity status could be updated during import
@@ -1206,6 +1246,12 @@ public class AtlasEntityStoreV2 implements AtlasEntityStore {
 
                         entitiesToSkipUpdate.add(entity);
                         RequestContext.get().recordEntityToSkip(entity.getGuid());
+
+                        if (contentHash != null) { // content is same as in the vertex, so that next time the comparison above can be skipped
+                            EntityContentHash.record(vertex, contentHash);
+                        }
+                    } else if (contentHash != null) {
+                        contentHashes.put(guid, contentHash);
                     }
                 }
 
@@ -1229,6 +1275,16 @@ public class AtlasEntityStoreV2 implements AtlasEntityStore {
 
             ret.setGuidAssignments(context.getGuidAssignments());
 
+            if (contentHashes != null) {
+                for (Map.Entry<String, String> entry : contentHashes.entrySet()) {
+                    AtlasVertex vertex = context.getVertex(entry.getKey());
+
+                    if (vertex != null) {
+                        EntityContentHash.record(vertex, entry.getValue());
+                    }
+                }
+            }
+
             // Notify the change listeners
             entityChangeNotifier.onEntitiesMutated(ret, RequestContext.get().isImportInProgress());
 
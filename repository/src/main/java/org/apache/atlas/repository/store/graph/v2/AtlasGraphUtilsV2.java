@@ -32,6 +32,7 @@ import org.apache.atlas.model.typedef.AtlasBaseTypeDef;
 import org.apache.atlas.model.typedef.AtlasEnumDef;
 import org.apache.atlas.repository.Constants;
 import org.apache.atlas.repository.graph.GraphHelper;
+import org.apache.atlas.repository.graph.GuidVertexIdCache;
 import org.apache.atlas.repository.graphdb.AtlasEdge;
 import org.apache.atlas.repository.graphdb.AtlasElement;
 import org.apache.atlas.repository.graphdb.AtlasGraph;
@@ -56,8 +57,11 @@ import org.slf4j.LoggerFactory;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -233,17 +237,17 @@ public class AtlasGraphUtilsV2 {
                 element.removeProperty(propertyName);
             }
         } else {
-            if (!value.equals(existingValue)) {
+            // dates are stored as long; compare the stored form so that an unchanged date isn't written again
+            Object encodedValue = (value instanceof Date) ? ((Date) value).getTime() : value;
+
+            if (!encodedValue.equals(existingValue)) {
                 if (LOG.isDebugEnabled()) {
                     LOG.debug("Setting property {} in {}", propertyName, toString(element));
                 }
 
-                if ( value instanceof Date) {
-                    Long encodedValue = ((Date) value).getTime();
-                    element.setProperty(propertyName, encodedValue);
-                } else {
-                    element.setProperty(propertyName, value);
-                }
+                element.setProperty(propertyName, encodedValue);
+            } else {
+                RequestContext.get().recordSkippedWrite();
             }
         }
     }
@@ -350,6 +354,46 @@ public class AtlasGraphUtilsV2 {
         return vertex;
     }
 
+    /**
+     * Finds vertices of entities of the given type, or its sub-types, having one of the given values for a unique
+     * attribute. Values are looked up in one graph query, using the unique property of the attribute in vertices.
+     *
+     * @return attribute value to vertex map; values that are not found are not in the map. null is returned when values
+     *         can't be looked up this way - for example, the attribute has no unique property; in such case
+     *         findByUniqueAttributes() should be used for each value
+     */
+    public static Map<String, AtlasVertex> findByUniqueAttributeValues(AtlasGraph graph, AtlasEntityType entityType, AtlasAttribute attribute, Collection<String> attrValues) {
+        if (USE_INDEX_QUERY_TO_FIND_ENTITY_BY_UNIQUE_ATTRIBUTES || !USE_UNIQUE_INDEX_PROPERTY_TO_FIND_ENTITY || attribute.getVertexUniquePropertyName() == null) {
+            return null;
+        }
+
+        MetricRecorder metric = RequestContext.get().startMetricRecord("findByUniqueAttributeValues");
+
+        String                   propertyName = attribute.getVertexUniquePropertyName();
+        Map<String, AtlasVertex> ret          = new HashMap<>();
+        AtlasGraphQuery          query        = graph.query()
+                                                     .in(ENTITY_TYPE_PROPERTY_KEY, entityType.getTypeAndAllSubTypes())
+                                                     .in(propertyName, attrValues);
+
+        Iterable<AtlasVertex> results = query.vertices();
+
+        for (AtlasVertex vertex : results) {
+            Object attrValue = vertex.getProperty(propertyName, Object.class);
+
+            if (attrValue != null) {
+                ret.putIfAbsent(attrValue.toString(), vertex);
+            }
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("findByUniqueAttributeValues(type={}, attrName={}, count={}): found {} vertices", entityType.getTypeName(), attribute.getName(), attrValues.size(), ret.size());
+        }
+
+        RequestContext.get().endMetricRecord(metric);
+
+        return ret;
+    }
+
     public static AtlasVertex findByGuid(String guid) {
         return findByGuid(getGraphInstance(), guid);
     }
@@ -360,11 +404,19 @@ public class AtlasGraphUtilsV2 {
         AtlasVertex ret = GraphTransactionInterceptor.getVertexFromCache(guid);
 
         if (ret == null) {
-            AtlasGraphQuery query = graph.query().has(Constants.GUID_PROPERTY_KEY, guid);
+            ret = GuidVertexIdCache.getVertex(graph, guid);
 
-            Iterator<AtlasVertex> results = query.vertices().iterator();
+            if (ret == null) {
+                AtlasGraphQuery query = graph.query().has(Constants.GUID_PROPERTY_KEY, guid);
 
-            ret = results.hasNext() ? results.next() : null;
+                Iterator<AtlasVertex> results = query.vertices().iterator();
+
+                ret = results.hasNext() ? results.next() : null;
+
+                if (ret != null) {
+                    GuidVertexIdCache.put(guid, ret);
+                }
+            }
 
             if (ret != null) {
                 GraphTransactionInterceptor.addToVertexCache(guid, ret);
@@ -375,6 +427,51 @@ public class AtlasGraphUtilsV2 {
         return ret;
     }
 
+    /**
+     * Finds vertices of the given guids; vertices not in caches are looked up with a single query.
+     *
+     * @return guid to vertex map; guids that are not found are not in the map
+     */
+    public static Map<String, AtlasVertex> findByGuids(AtlasGraph graph, Collection<String> guids) {
+        AtlasPerfMetrics.MetricRecorder metric = RequestContext.get().startMetricRecord("findByGuids");
+
+        Map<String, AtlasVertex> ret          = new HashMap<>();
+        Set<String>              guidsToQuery = new HashSet<>();
+
+        for (String guid : guids) {
+            AtlasVertex vertex = GraphTransactionInterceptor.getVertexFromCache(guid);
+
+            if (vertex == null) {
+                vertex = GuidVertexIdCache.getVertex(graph, guid);
+
+                if (vertex != null) {
+                    GraphTransactionInterceptor.addToVertexCache(guid, vertex);
+                }
+            }
+
+            if (vertex != null) {
+                ret.put(guid, vertex);
+            } else if (guid != null) {
+                guidsToQuery.add(guid);
+            }
+        }
+
+        if (!guidsToQuery.isEmpty()) {
+            Map<String, AtlasVertex> vertices = graph.findByGuids(guidsToQuery);
+
+            for (Map.Entry<String, AtlasVertex> entry : vertices.entrySet()) {
+                GuidVertexIdCache.put(entry.getKey(), entry.getValue());
+                GraphTransactionInterceptor.addToVertexCache(entry.getKey(), entry.getValue());
+
+                ret.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        RequestContext.get().endMetricRecord(metric);
+
+        return ret;
+    }
+
     public static AtlasVertex findDeletedByGuid(AtlasGraph graph, String guid) {
         AtlasVertex ret = GraphTransactionInterceptor.getVertexFromCache(guid);
 
@@ -288,6 +288,9 @@ public class AtlasRelationshipStoreV2 implements AtlasRelationshipStore {
         AtlasAuthorizationUtils.verifyAccess(new AtlasRelationshipAccessRequest(typeRegistry,AtlasPrivilege.RELATIONSHIP_REMOVE, relationShipType, end1Entity, end2Entity ));
 
 
+        EntityContentHash.invalidate(edge.getOutVertex());
+        EntityContentHash.invalidate(edge.getInVertex());
+
         deleteDelegate.getHandler().deleteRelationships(Collections.singleton(edge), forceDelete);
 
         sendNotifications(entityRetriever.mapEdgeToAtlasRelationship(edge), OperationType.RELATIONSHIP_DELETE);
@@ -405,6 +408,9 @@ public class AtlasRelationshipStoreV2 implements AtlasRelationshipStore {
 
                 // propagate tags
                 deleteDelegate.getHandler().addTagPropagation(ret, tagPropagation);
+
+                EntityContentHash.invalidate(end1Vertex);
+                EntityContentHash.invalidate(end2Vertex);
             }
 
             if (MapUtils.isNotEmpty(relationType.getAllAttributes())) {
@@ -435,6 +441,9 @@ public class AtlasRelationshipStoreV2 implements AtlasRelationshipStore {
 
         updateTagPropagations(relationshipEdge, relationship);
 
+        EntityContentHash.invalidate(end1Vertex);
+        EntityContentHash.invalidate(end2Vertex);
+
         if (MapUtils.isNotEmpty(relationType.getAllAttributes())) {
             for (AtlasAttribute attr : relationType.getAllAttributes().values()) {
                 String attrName           = attr.getName();
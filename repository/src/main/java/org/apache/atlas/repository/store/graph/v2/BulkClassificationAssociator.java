@@ -0,0 +1,214 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.store.graph.v2;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.atlas.AtlasConfiguration;
+import org.apache.atlas.AtlasErrorCode;
+import org.apache.atlas.RequestContext;
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.model.instance.AtlasClassification;
+import org.apache.atlas.model.instance.ClassificationAssociateResponse;
+import org.apache.atlas.model.instance.ClassificationAssociateResponse.ChunkResult;
+import org.apache.atlas.model.instance.ClassificationAssociateResponse.ChunkStatus;
+import org.apache.atlas.repository.store.graph.AtlasEntityStore;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Associates a classification to a large number of entities: the entities are split into chunks, each of which is
+ * classified in its own transaction, with chunks classified concurrently. Unlike AtlasEntityStore.addClassification(),
+ * a failure fails only the chunk it occurs in; the result has the status of each chunk, for the caller to retry the
+ * entities of failed chunks. Notifications and audits are sent once per chunk, on commit of the chunk.
+ *
+ * Each chunk holds the locks of its entities until it commits, blocking other updates of these entities. To limit this,
+ * chunk size x threads is capped by atlas.classification.bulk.max.locked.entities; the number of threads is reduced
+ * first, then the chunk size.
+ */
+@Component
+public class BulkClassificationAssociator {
+    private static final Logger LOG = LoggerFactory.getLogger(BulkClassificationAssociator.class);
+
+    private final AtlasEntityStore entityStore;
+    private final int              chunkSize;
+    private final ExecutorService  executor;
+
+    @Inject
+    public BulkClassificationAssociator(AtlasEntityStore entityStore) {
+        this(entityStore, AtlasConfiguration.CLASSIFICATION_BULK_CHUNK_SIZE.getInt(), AtlasConfiguration.CLASSIFICATION_BULK_THREADS.getInt(),
+             AtlasConfiguration.CLASSIFICATION_BULK_MAX_LOCKED_ENTITIES.getInt());
+    }
+
+    BulkClassificationAssociator(AtlasEntityStore entityStore, int chunkSize, int threads, int maxLockedEntities) {
+        int maxLocked = Math.max(maxLockedEntities, 1);
+
+        chunkSize = Math.min(Math.max(chunkSize, 1), maxLocked);
+        threads   = Math.min(Math.max(threads, 1), maxLocked / chunkSize);
+
+        this.entityStore = entityStore;
+        this.chunkSize   = chunkSize;
+        this.executor    = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("atlas-bulk-classification-%d").setDaemon(true).build());
+
+        LOG.info("BulkClassificationAssociator: chunkSize={}, threads={}, maxLockedEntities={}", chunkSize, threads, maxLocked);
+    }
+
+    int getChunkSize() {
+        return chunkSize;
+    }
+
+    int getThreadCount() {
+        return ((ThreadPoolExecutor) executor).getMaximumPoolSize();
+    }
+
+    public ClassificationAssociateResponse addClassification(List<String> guids, AtlasClassification classification) throws AtlasBaseException {
+        if (CollectionUtils.isEmpty(guids)) {
+            throw new AtlasBaseException(AtlasErrorCode.INVALID_PARAMETERS, "Guid(s) not specified");
+        }
+
+        if (classification == null || StringUtils.isEmpty(classification.getTypeName())) {
+            throw new AtlasBaseException(AtlasErrorCode.INVALID_PARAMETERS, "classification not specified");
+        }
+
+        // a guid repeated in another chunk would fail that chunk, as the classification would already be associated
+        Set<String>               uniqueGuids = new LinkedHashSet<>(guids);
+        List<List<String>>        chunks      = Lists.partition(new ArrayList<>(uniqueGuids), chunkSize);
+        CallerContext             caller      = new CallerContext(RequestContext.get(), SecurityContextHolder.getContext());
+        AtomicInteger             completed   = new AtomicInteger();
+        List<Future<ChunkResult>> futures     = new ArrayList<>(chunks.size());
+
+        LOG.info("==> addClassification(classification={}): {} entities in {} chunks", classification.getTypeName(), uniqueGuids.size(), chunks.size());
+
+        for (int i = 0; i < chunks.size(); i++) {
+            final int          chunkIndex = i;
+            final List<String> chunk      = chunks.get(i);
+
+            futures.add(executor.submit(() -> addClassification(chunkIndex, chunk, classification, caller, completed, chunks.size())));
+        }
+
+        ClassificationAssociateResponse ret = new ClassificationAssociateResponse();
+
+        for (int i = 0; i < futures.size(); i++) {
+            ret.addChunk(getResult(futures.get(i), i, chunks.get(i)));
+        }
+
+        LOG.info("<== addClassification(classification={}): classified={}, failed={}", classification.getTypeName(), ret.getClassifiedCount(), ret.getFailedCount());
+
+        return ret;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private ChunkResult addClassification(int chunkIndex, List<String> guids, AtlasClassification classification, CallerContext caller, AtomicInteger completed, int chunkCount) {
+        long        startTime = System.currentTimeMillis();
+        ChunkResult ret;
+
+        try {
+            caller.setupRequestContext();
+
+            // store normalizes the classification; chunks are classified concurrently, hence a copy for each
+            entityStore.addClassification(guids, new AtlasClassification(classification));
+
+            ret = new ChunkResult(chunkIndex, guids.size(), ChunkStatus.SUCCEEDED);
+        } catch (Throwable t) {
+            LOG.warn("addClassification(classification={}): chunk #{} of {} entities failed", classification.getTypeName(), chunkIndex, guids.size(), t);
+
+            ret = toFailedResult(chunkIndex, guids, t);
+        } finally {
+            RequestContext.clear();
+            SecurityContextHolder.clearContext();
+        }
+
+        ret.setTimeTakenMs(System.currentTimeMillis() - startTime);
+
+        LOG.info("addClassification(classification={}): chunk #{} {} in {} ms; {} of {} chunks done", classification.getTypeName(), chunkIndex, ret.getStatus(), ret.getTimeTakenMs(), completed.incrementAndGet(), chunkCount);
+
+        return ret;
+    }
+
+    private ChunkResult getResult(Future<ChunkResult> future, int chunkIndex, List<String> guids) throws AtlasBaseException {
+        try {
+            return future.get();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+
+            throw new AtlasBaseException(AtlasErrorCode.INTERNAL_ERROR, excp, "interrupted while waiting for bulk classification");
+        } catch (ExecutionException excp) {
+            return toFailedResult(chunkIndex, guids, excp.getCause());
+        }
+    }
+
+    private static ChunkResult toFailedResult(int chunkIndex, List<String> guids, Throwable t) {
+        ChunkResult ret = new ChunkResult(chunkIndex, guids.size(), ChunkStatus.FAILED);
+
+        ret.setErrorMessage(t.getMessage() != null ? t.getMessage() : t.toString());
+        ret.setFailedEntityGuids(new ArrayList<>(guids));
+
+        return ret;
+    }
+
+    // request and security context of the caller, to be set in worker threads for authorization and audit
+    private static class CallerContext {
+        final String          user;
+        final Set<String>     userGroups;
+        final String          clientIPAddress;
+        final List<String>    forwardedAddresses;
+        final SecurityContext securityContext;
+
+        CallerContext(RequestContext context, SecurityContext securityContext) {
+            this.user               = context.getUser();
+            this.userGroups         = context.getUserGroups();
+            this.clientIPAddress    = context.getClientIPAddress();
+            this.forwardedAddresses = context.getForwardedAddresses();
+            this.securityContext    = securityContext;
+        }
+
+        void setupRequestContext() {
+            RequestContext.clear();
+
+            RequestContext context = RequestContext.get();
+
+            context.setUser(user, userGroups);
+            context.setClientIPAddress(clientIPAddress);
+            context.setForwardedAddresses(forwardedAddresses);
+
+            SecurityContextHolder.setContext(securityContext);
+        }
+    }
+}
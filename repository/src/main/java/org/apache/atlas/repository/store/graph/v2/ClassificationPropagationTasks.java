@@ -0,0 +1,268 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.store.graph.v2;
+
+import com.carrotsearch.hppc.LongHashSet;
+import org.apache.atlas.annotation.GraphTransaction;
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.model.instance.AtlasRelationship;
+import org.apache.atlas.model.tasks.AtlasTask;
+import org.apache.atlas.repository.graphdb.AtlasEdge;
+import org.apache.atlas.repository.graphdb.AtlasEdgeDirection;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.repository.store.graph.v1.DeleteHandlerDelegate;
+import org.apache.atlas.tasks.TaskHandler;
+import org.apache.atlas.type.AtlasClassificationType;
+import org.apache.atlas.type.AtlasEntityType;
+import org.apache.atlas.type.AtlasType;
+import org.apache.atlas.type.AtlasTypeRegistry;
+import org.apache.commons.collections.MapUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.apache.atlas.repository.Constants.CLASSIFICATION_LABEL;
+import static org.apache.atlas.repository.graph.GraphHelper.getClassificationEdge;
+import static org.apache.atlas.repository.graph.GraphHelper.getEdgeStatus;
+import static org.apache.atlas.repository.graph.GraphHelper.getPropagatedEntityVertices;
+import static org.apache.atlas.repository.graph.GraphHelper.getTypeName;
+
+/**
+ * Adds or removes propagations of a classification, in tasks created by EntityGraphMapper when tasks are enabled.
+ *
+ * CLASSIFICATION_PROPAGATION_ADD propagates the classification to entities impacted by its associated entity, with a
+ * breadth-first traversal from the entity that visits a chunk of entities at a time; it stops if the classification is
+ * removed from the entity meanwhile. CLASSIFICATION_PROPAGATION_DELETE removes propagations of a classification
+ * already removed from its associated entity, a chunk at a time, and then deletes the classification vertex.
+ */
+@Component
+public class ClassificationPropagationTasks implements TaskHandler {
+    private static final Logger LOG = LoggerFactory.getLogger(ClassificationPropagationTasks.class);
+
+    public static final String CLASSIFICATION_PROPAGATION_ADD    = "CLASSIFICATION_PROPAGATION_ADD";
+    public static final String CLASSIFICATION_PROPAGATION_DELETE = "CLASSIFICATION_PROPAGATION_DELETE";
+
+    public static final String PARAM_ENTITY_GUID              = "entityGuid";
+    public static final String PARAM_CLASSIFICATION_VERTEX_ID = "classificationVertexId";
+    public static final String PARAM_CLASSIFICATION_NAME      = "classificationName";
+
+    private static final String CURSOR_FRONTIER = "frontier";
+    private static final String CURSOR_SKIPPED  = "skipped";
+
+    private final AtlasGraph            graph;
+    private final AtlasTypeRegistry     typeRegistry;
+    private final EntityGraphMapper     entityGraphMapper;
+    private final DeleteHandlerDelegate deleteDelegate;
+    private final EntityGraphRetriever  entityRetriever;
+
+    @Inject
+    public ClassificationPropagationTasks(AtlasGraph graph, AtlasTypeRegistry typeRegistry, EntityGraphMapper entityGraphMapper, DeleteHandlerDelegate deleteDelegate) {
+        this.graph             = graph;
+        this.typeRegistry      = typeRegistry;
+        this.entityGraphMapper = entityGraphMapper;
+        this.deleteDelegate    = deleteDelegate;
+        this.entityRetriever   = new EntityGraphRetriever(graph, typeRegistry);
+    }
+
+    @Override
+    public List<String> getSupportedTypes() {
+        return Arrays.asList(CLASSIFICATION_PROPAGATION_ADD, CLASSIFICATION_PROPAGATION_DELETE);
+    }
+
+    @Override
+    @GraphTransaction
+    public Chunk processNextChunk(AtlasTask task, String cursor, int chunkSize) throws AtlasBaseException {
+        AtlasVertex classificationVertex = getClassificationVertex(task);
+
+        if (classificationVertex == null) {
+            LOG.info("{}: classification vertex {} not found. Nothing to do", task.getType(), getParameter(task, PARAM_CLASSIFICATION_VERTEX_ID));
+
+            return Chunk.last(0);
+        }
+
+        if (CLASSIFICATION_PROPAGATION_ADD.equals(task.getType())) {
+            return addPropagations(task, classificationVertex, cursor, chunkSize);
+        } else {
+            return removePropagations(classificationVertex, chunkSize);
+        }
+    }
+
+    @Override
+    @GraphTransaction
+    public void complete(AtlasTask task) throws AtlasBaseException {
+        if (CLASSIFICATION_PROPAGATION_DELETE.equals(task.getType())) {
+            AtlasVertex classificationVertex = getClassificationVertex(task);
+
+            if (classificationVertex != null) {
+                // deletes the vertex only if no entity refers to it
+                deleteDelegate.getHandler().deleteClassificationVertex(classificationVertex, true);
+            }
+        }
+    }
+
+    /**
+     * Propagates the classification to the next chunk of vertices of the traversal frontier, and replaces them in the
+     * frontier with vertices impacted by them that are yet to be visited. Vertices the classification is propagated to
+     * are recognized as visited by their edge to the classification vertex, hence the cursor holds only the frontier and
+     * visited vertices to which the classification can't be applied.
+     */
+    private Chunk addPropagations(AtlasTask task, AtlasVertex classificationVertex, String cursor, int chunkSize) throws AtlasBaseException {
+        AtlasVertex entityVertex = getAssociatedEntityVertex(task, classificationVertex);
+
+        // don't propagate a classification that has been removed from the entity after the task was created
+        if (entityVertex == null) {
+            return Chunk.last(0);
+        }
+
+        Map<String, List<String>> state    = cursor != null ? AtlasType.fromJson(cursor, Map.class) : null;
+        List<String>              frontier = state != null ? state.get(CURSOR_FRONTIER) : Collections.singletonList(entityVertex.getIdForDisplay());
+        List<String>              skipped  = state != null ? state.get(CURSOR_SKIPPED) : new ArrayList<>();
+        LongHashSet               visited  = new LongHashSet();
+
+        for (String vertexId : frontier) {
+            visited.add(Long.parseLong(vertexId));
+        }
+
+        for (String vertexId : skipped) {
+            visited.add(Long.parseLong(vertexId));
+        }
+
+        int                     count              = Math.min(chunkSize, frontier.size());
+        List<AtlasVertex>       vertices           = new ArrayList<>(count);
+        List<AtlasVertex>       propagateTo        = new ArrayList<>(count);
+        AtlasClassificationType classificationType = typeRegistry.getClassificationTypeByName(getTypeName(classificationVertex));
+
+        for (String vertexId : frontier.subList(0, count)) {
+            AtlasVertex vertex = graph.getVertex(vertexId);
+
+            if (vertex == null) {
+                continue;
+            }
+
+            vertices.add(vertex);
+
+            if (vertexId.equals(entityVertex.getIdForDisplay())) {
+                continue;
+            }
+
+            AtlasEntityType entityType = typeRegistry.getEntityTypeByName(getTypeName(vertex));
+
+            if (classificationType != null && entityType != null && classificationType.canApplyToEntityType(entityType)) {
+                propagateTo.add(vertex);
+            } else {
+                skipped.add(vertexId);
+            }
+        }
+
+        entityGraphMapper.addClassificationPropagation(classificationVertex, propagateTo);
+
+        List<AtlasVertex> impactedVertices = entityRetriever.getAdjacentImpactedVertices(vertices, null, classificationVertex.getIdForDisplay(), visited);
+        List<String>      nextFrontier     = new ArrayList<>(frontier.subList(count, frontier.size()));
+
+        for (AtlasVertex impactedVertex : getUnclassifiedVertices(impactedVertices, classificationVertex)) {
+            nextFrontier.add(impactedVertex.getIdForDisplay());
+        }
+
+        if (nextFrontier.isEmpty()) {
+            return Chunk.last(propagateTo.size());
+        }
+
+        Map<String, List<String>> nextState = new HashMap<>();
+
+        nextState.put(CURSOR_FRONTIER, nextFrontier);
+        nextState.put(CURSOR_SKIPPED, skipped);
+
+        return Chunk.next(propagateTo.size(), AtlasType.toJson(nextState));
+    }
+
+    // removed propagations are not returned again, hence the next chunk is read from the start
+    private Chunk removePropagations(AtlasVertex classificationVertex, int chunkSize) throws AtlasBaseException {
+        List<AtlasVertex> entityVertices = getPropagatedEntityVertices(classificationVertex, chunkSize);
+
+        if (entityVertices.isEmpty()) {
+            return Chunk.last(0);
+        }
+
+        entityGraphMapper.removeClassificationPropagation(classificationVertex, entityVertices);
+
+        return entityVertices.size() < chunkSize ? Chunk.last(entityVertices.size()) : Chunk.next(entityVertices.size(), null);
+    }
+
+    // returns vertices that don't have an edge to the classification vertex, i.e. not yet propagated to
+    private List<AtlasVertex> getUnclassifiedVertices(List<AtlasVertex> vertices, AtlasVertex classificationVertex) {
+        List<AtlasVertex> ret = new ArrayList<>(vertices.size());
+
+        if (vertices.isEmpty()) {
+            return ret;
+        }
+
+        Map<AtlasVertex, List<AtlasEdge>> classificationEdges = graph.getEdges(vertices, AtlasEdgeDirection.OUT, CLASSIFICATION_LABEL);
+
+        for (AtlasVertex vertex : vertices) {
+            List<AtlasEdge> edges        = classificationEdges.get(vertex);
+            boolean         isClassified = false;
+
+            if (edges != null) {
+                for (AtlasEdge edge : edges) {
+                    if (Objects.equals(edge.getInVertex().getId(), classificationVertex.getId())) {
+                        isClassified = true;
+
+                        break;
+                    }
+                }
+            }
+
+            if (!isClassified) {
+                ret.add(vertex);
+            }
+        }
+
+        return ret;
+    }
+
+    private AtlasVertex getClassificationVertex(AtlasTask task) {
+        String vertexId = getParameter(task, PARAM_CLASSIFICATION_VERTEX_ID);
+
+        return vertexId != null ? graph.getVertex(vertexId) : null;
+    }
+
+    // returns the entity the classification is associated with, if the association is still active
+    private AtlasVertex getAssociatedEntityVertex(AtlasTask task, AtlasVertex classificationVertex) {
+        AtlasVertex entityVertex = AtlasGraphUtilsV2.findByGuid(graph, getParameter(task, PARAM_ENTITY_GUID));
+        AtlasEdge   edge         = entityVertex != null ? getClassificationEdge(entityVertex, classificationVertex) : null;
+
+        return edge != null && getEdgeStatus(edge) == AtlasRelationship.Status.ACTIVE ? entityVertex : null;
+    }
+
+    private static String getParameter(AtlasTask task, String name) {
+        Map<String, Object> parameters = task.getParameters();
+        Object              ret        = MapUtils.isNotEmpty(parameters) ? parameters.get(name) : null;
+
+        return ret != null ? ret.toString() : null;
+    }
+}
@@ -0,0 +1,227 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.store.graph.v2;
+
+import org.apache.atlas.AtlasConfiguration;
+import org.apache.atlas.model.instance.AtlasClassification;
+import org.apache.atlas.model.instance.AtlasEntity;
+import org.apache.atlas.model.instance.AtlasObjectId;
+import org.apache.atlas.model.instance.AtlasRelatedObjectId;
+import org.apache.atlas.model.instance.AtlasStruct;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.commons.codec.binary.Hex;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.apache.atlas.repository.Constants.CONTENT_HASH_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.MODIFICATION_TIMESTAMP_PROPERTY_KEY;
+
+/**
+ * Computes a hash of the content of an entity given to create/update, to detect an entity that is sent again with the
+ * same content. The hash is stored in the entity vertex along with its modification timestamp; it is considered valid
+ * only while the modification timestamp is unchanged, i.e. the entity has not been updated by other means since.
+ *
+ * The hash doesn't depend on the order of map entries. References to other entities are hashed by their unique
+ * attributes when present, otherwise by guid after resolving guids assigned in the request; hence temporary guids
+ * that hooks assign to referenced entities don't affect the hash.
+ */
+public final class EntityContentHash {
+    private static final boolean IS_ENABLED = AtlasConfiguration.ENTITY_CONTENT_HASH_ENABLED.getBoolean();
+
+    private static final String KEY_GUID              = "guid";
+    private static final String KEY_TYPE_NAME         = "typeName";
+    private static final String KEY_UNIQUE_ATTRIBUTES = "uniqueAttributes";
+
+    private final MessageDigest       digest;
+    private final Map<String, String> guidAssignments;
+
+    private EntityContentHash(Map<String, String> guidAssignments) {
+        try {
+            this.digest          = MessageDigest.getInstance("SHA-256");
+            this.guidAssignments = guidAssignments;
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalStateException(excp);
+        }
+    }
+
+    public static boolean isEnabled() {
+        return IS_ENABLED;
+    }
+
+    /**
+     * @param entity                     the entity to create/update
+     * @param guidAssignments            guids assigned in the request, for temporary guids
+     * @param isPartialUpdate            included in the hash, as same content can result in different updates
+     * @param replaceClassifications     classifications are included in the hash only when they are to be replaced
+     * @param replaceBusinessAttributes  included in the hash, as it changes how business attributes are updated
+     */
+    public static String getContentHash(AtlasEntity entity, Map<String, String> guidAssignments, boolean isPartialUpdate, boolean replaceClassifications, boolean replaceBusinessAttributes) {
+        EntityContentHash hash = new EntityContentHash(guidAssignments);
+
+        hash.add(isPartialUpdate).add(replaceClassifications).add(replaceBusinessAttributes);
+        hash.add(entity.getTypeName()).add(entity.getStatus());
+        hash.add(entity.getAttributes());
+        hash.add(entity.getRelationshipAttributes());
+        hash.add(entity.getCustomAttributes());
+        hash.add(entity.getLabels() != null ? new TreeSet<>(entity.getLabels()) : null);
+        hash.add(entity.getBusinessAttributes());
+
+        if (replaceClassifications) {
+            hash.add(entity.getClassifications());
+        }
+
+        return new String(Hex.encodeHex(hash.digest.digest()));
+    }
+
+    /**
+     * @return true if the hash stored in the vertex is same as the given hash, and the vertex was not modified since
+     */
+    public static boolean isUnchanged(AtlasVertex vertex, String contentHash) {
+        String storedValue = vertex.getProperty(CONTENT_HASH_PROPERTY_KEY, String.class);
+
+        return storedValue != null && storedValue.equals(toStoredValue(vertex, contentHash));
+    }
+
+    /**
+     * Stores the hash in the vertex; to be called after the vertex is updated with the content that the hash was computed from.
+     */
+    public static void record(AtlasVertex vertex, String contentHash) {
+        AtlasGraphUtilsV2.setEncodedProperty(vertex, CONTENT_HASH_PROPERTY_KEY, toStoredValue(vertex, contentHash));
+    }
+
+    /**
+     * Removes the hash stored in the vertex; to be called when the entity is updated other than by create/update, without
+     * an update to its modification timestamp - for example, when a relationship is created.
+     */
+    public static void invalidate(AtlasVertex vertex) {
+        if (IS_ENABLED && vertex != null && vertex.getProperty(CONTENT_HASH_PROPERTY_KEY, String.class) != null) {
+            vertex.removeProperty(CONTENT_HASH_PROPERTY_KEY);
+        }
+    }
+
+    private static String toStoredValue(AtlasVertex vertex, String contentHash) {
+        return contentHash + ":" + vertex.getProperty(MODIFICATION_TIMESTAMP_PROPERTY_KEY, Long.class);
+    }
+
+    private EntityContentHash add(Object value) {
+        if (value == null) {
+            update("N");
+        } else if (value instanceof String) {
+            update("S").update(Integer.toString(((String) value).length())).update(":").update((String) value);
+        } else if (value instanceof Number || value instanceof Boolean) {
+            update("V").update(value.toString()).update(";");
+        } else if (value instanceof Date) {
+            update("D").update(Long.toString(((Date) value).getTime())).update(";");
+        } else if (value instanceof Enum) {
+            update("E").update(((Enum) value).name()).update(";");
+        } else if (value instanceof AtlasObjectId) {
+            addObjectId((AtlasObjectId) value);
+        } else if (value instanceof AtlasClassification) {
+            AtlasClassification classification = (AtlasClassification) value;
+
+            update("C").add(classification.getTypeName()).add(classification.getAttributes()).add(classification.isPropagate()).add(classification.getRemovePropagationsOnEntityDelete());
+            add(classification.getValidityPeriods() != null ? classification.getValidityPeriods().toString() : null);
+        } else if (value instanceof AtlasStruct) {
+            update("T").add(((AtlasStruct) value).getTypeName()).add(((AtlasStruct) value).getAttributes());
+        } else if (value instanceof Map) {
+            addMap((Map<?, ?>) value);
+        } else if (value instanceof Collection) {
+            update("L[");
+
+            for (Object element : (Collection<?>) value) {
+                add(element);
+            }
+
+            update("]");
+        } else if (value instanceof Object[]) {
+            update("L[");
+
+            for (Object element : (Object[]) value) {
+                add(element);
+            }
+
+            update("]");
+        } else {
+            update("O").update(value.toString()).update(";");
+        }
+
+        return this;
+    }
+
+    private void addObjectId(AtlasObjectId objectId) {
+        Map<String, Object> map = new TreeMap<>();
+
+        map.put(KEY_TYPE_NAME, objectId.getTypeName());
+        map.put(KEY_GUID, objectId.getGuid());
+        map.put(KEY_UNIQUE_ATTRIBUTES, objectId.getUniqueAttributes());
+
+        if (objectId instanceof AtlasRelatedObjectId) {
+            AtlasRelatedObjectId relatedObjectId = (AtlasRelatedObjectId) objectId;
+
+            map.put("relationshipType", relatedObjectId.getRelationshipType());
+            map.put("relationshipAttributes", relatedObjectId.getRelationshipAttributes());
+        }
+
+        addMap(map);
+    }
+
+    private void addMap(Map<?, ?> map) {
+        TreeMap<String, Object> sorted = new TreeMap<>();
+
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            sorted.put(String.valueOf(entry.getKey()), entry.getValue());
+        }
+
+        if (sorted.containsKey(KEY_GUID) && sorted.containsKey(KEY_TYPE_NAME)) { // object-id
+            Object uniqueAttributes = sorted.get(KEY_UNIQUE_ATTRIBUTES);
+
+            if (uniqueAttributes instanceof Map && !((Map) uniqueAttributes).isEmpty()) {
+                sorted.remove(KEY_GUID);
+            } else {
+                Object guid         = sorted.get(KEY_GUID);
+                String assignedGuid = guid != null && guidAssignments != null ? guidAssignments.get(guid.toString()) : null;
+
+                if (assignedGuid != null) {
+                    sorted.put(KEY_GUID, assignedGuid);
+                }
+            }
+        }
+
+        update("M{");
+
+        for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+            add(entry.getKey());
+            add(entry.getValue());
+        }
+
+        update("}");
+    }
+
+    private EntityContentHash update(String str) {
+        digest.update(str.getBytes(StandardCharsets.UTF_8));
+
+        return this;
+    }
+}
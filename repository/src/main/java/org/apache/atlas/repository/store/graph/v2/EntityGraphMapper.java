@@ -48,6 +48,7 @@ import org.apache.atlas.repository.graphdb.AtlasVertex;
 import org.apache.atlas.repository.store.graph.AtlasRelationshipStore;
 import org.apache.atlas.repository.store.graph.EntityGraphDiscoveryContext;
 import org.apache.atlas.repository.store.graph.v1.DeleteHandlerDelegate;
+import org.apache.atlas.tasks.TaskRegistry;
 import org.apache.atlas.type.AtlasArrayType;
 import org.apache.atlas.type.AtlasBuiltInTypes;
 import org.apache.atlas.type.AtlasClassificationType;
@@ -128,6 +129,7 @@ public class EntityGraphMapper {
 
     private static final boolean ENTITY_CHANGE_NOTIFY_IGNORE_RELATIONSHIP_ATTRIBUTES = AtlasConfiguration.ENTITY_CHANGE_NOTIFY_IGNORE_RELATIONSHIP_ATTRIBUTES.getBoolean();
     private static final boolean CLASSIFICATION_PROPAGATION_DEFAULT                  = AtlasConfiguration.CLASSIFICATION_PROPAGATION_DEFAULT.getBoolean();
+    private static final boolean TASKS_ENABLED                                       = AtlasConfiguration.TASKS_ENABLED.getBoolean();
 
     private final GraphHelper               graphHelper;
     private final AtlasGraph                graph;
@@ -138,11 +140,12 @@ public class EntityGraphMapper {
     private final AtlasInstanceConverter    instanceConverter;
     private final EntityGraphRetriever      entityRetriever;
     private final IFullTextMapper fullTextMapperV2;
+    private final TaskRegistry              taskRegistry;
 
     @Inject
     public EntityGraphMapper(DeleteHandlerDelegate deleteDelegate, AtlasTypeRegistry typeRegistry, AtlasGraph graph,
                              AtlasRelationshipStore relationshipStore, IAtlasEntityChangeNotifier entityChangeNotifier,
-                             AtlasInstanceConverter instanceConverter, IFullTextMapper fullTextMapperV2) {
+                             AtlasInstanceConverter instanceConverter, IFullTextMapper fullTextMapperV2, TaskRegistry taskRegistry) {
         this.graphHelper          = new GraphHelper(graph);
         this.deleteDelegate       = deleteDelegate;
         this.typeRegistry         = typeRegistry;
@@ -152,6 +155,7 @@ public class EntityGraphMapper {
         this.instanceConverter    = instanceConverter;
         this.entityRetriever      = new EntityGraphRetriever(graph, typeRegistry);
         this.fullTextMapperV2     = fullTextMapperV2;
+        this.taskRegistry         = taskRegistry;
     }
 
     public AtlasVertex createVertex(AtlasEntity entity) throws AtlasBaseException {
@@ -1074,7 +1078,13 @@ public class EntityGraphMapper {
             }
 
             if (structVal != null) {
-                updateVertex(structVal, ctx.getCurrentEdge().getInVertex(), context);
+                AtlasVertex structVertex = ctx.getCurrentEdge().getInVertex();
+
+                if (isUnchangedStruct(structVal, structVertex)) {
+                    RequestContext.get().recordSkippedWrite();
+                } else {
+                    updateVertex(structVal, structVertex, context);
+                }
             }
 
             ret = ctx.getCurrentEdge();
@@ -1107,23 +1117,7 @@ public class EntityGraphMapper {
 
         AtlasEdge ret = null;
 
-        String guid = getGuid(ctx.getValue());
-
-        AtlasVertex entityVertex = context.getDiscoveryContext().getResolvedEntityVertex(guid);
-
-        if (entityVertex == null) {
-            if (AtlasTypeUtil.isAssignedGuid(guid)) {
-                entityVertex = context.getVertex(guid);
-            }
-
-            if (entityVertex == null) {
-                AtlasObjectId objId = getObjectId(ctx.getValue());
-
-                if (objId != null) {
-                    entityVertex = context.getDiscoveryContext().getResolvedEntityVertex(objId);
-                }
-            }
-        }
+        AtlasVertex entityVertex = getReferencedEntityVertex(ctx.getValue(), context);
 
         if (entityVertex == null) {
             throw new AtlasBaseException(AtlasErrorCode.INVALID_OBJECT_ID, (ctx.getValue() == null ? null : ctx.getValue().toString()));
@@ -1302,7 +1296,11 @@ public class EntityGraphMapper {
                 if (!isSoftReference && newEntry instanceof AtlasEdge) {
                     AtlasEdge edge = (AtlasEdge) newEntry;
 
-                    edge.setProperty(ATTRIBUTE_KEY_PROPERTY_KEY, key);
+                    if (!key.equals(edge.getProperty(ATTRIBUTE_KEY_PROPERTY_KEY, String.class))) {
+                        edge.setProperty(ATTRIBUTE_KEY_PROPERTY_KEY, key);
+                    } else {
+                        RequestContext.get().recordSkippedWrite();
+                    }
 
                     // If value type indicates this attribute is a reference, and the attribute has an inverse reference attribute,
                     // update the inverse reference value.
@@ -1327,9 +1325,15 @@ public class EntityGraphMapper {
         } else {
             // primitive type map
             if (isNewValNull) {
-                ctx.getReferringVertex().setProperty(propertyName, null);
-            } else {
+                if (currentMap != null) {
+                    ctx.getReferringVertex().setProperty(propertyName, null);
+                } else {
+                    RequestContext.get().recordSkippedWrite();
+                }
+            } else if (!newVal.equals(currentMap)) {
                 ctx.getReferringVertex().setProperty(propertyName, new HashMap<>(newVal));
+            } else {
+                RequestContext.get().recordSkippedWrite();
             }
             newVal.forEach((key, value) -> newMap.put(key.toString(), value));
         }
@@ -1393,6 +1397,23 @@ public class EntityGraphMapper {
             newElements = (List) newElements.stream().distinct().collect(Collectors.toList());
         }
 
+        if (isReference && !isSoftReference && isUnchangedReferenceArray(ctx, context, elementType, newElements, currentElements)) {
+            if (inverseRefAttribute != null) {
+                // as done for each element below; a no-op when the inverse reference is already in place
+                for (Object currentElement : currentElements) {
+                    addInverseReference(context, inverseRefAttribute, (AtlasEdge) currentElement, getRelationshipAttributes(ctx.getValue()));
+                }
+            }
+
+            RequestContext.get().recordSkippedWrites(currentElements.size());
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("<== mapArrayValue({}): references unchanged", ctx);
+            }
+
+            return currentElements;
+        }
+
         for (int index = 0; index < newElements.size(); index++) {
             AtlasEdge               existingEdge = (isSoftReference) ? null : getEdgeAt(currentElements, index, elementType);
             AttributeMutationContext arrCtx      = new AttributeMutationContext(ctx.getOp(), ctx.getReferringVertex(), ctx.getAttribute(), newElements.get(index),
@@ -1807,6 +1828,94 @@ public class EntityGraphMapper {
         }
     }
 
+    /**
+     * Checks if the given references resolve to the entities already referenced by the current edges, in the same
+     * order. When true, mapping the elements would only rewrite the existing edges, hence can be skipped. Relationship
+     * attributes of the references are not compared: like updateRelationship(), which keeps the existing edge to the
+     * same entity as is, the relationship attributes are applied only on creating a relationship.
+     */
+    private boolean isUnchangedReferenceArray(AttributeMutationContext ctx, EntityMutationContext context, AtlasType elementType, List newElements, List<Object> currentElements) throws AtlasBaseException {
+        if (ctx.getOp() == CREATE || RequestContext.get().isImportInProgress() || elementType.getTypeCategory() != TypeCategory.OBJECT_ID_TYPE ||
+            CollectionUtils.isEmpty(currentElements) || newElements.size() != currentElements.size()) {
+            return false;
+        }
+
+        AtlasRelationshipEdgeDirection edgeDirection = ctx.getAttribute().getRelationshipEdgeDirection();
+
+        for (int index = 0; index < newElements.size(); index++) {
+            Object element = newElements.get(index);
+
+            // references in hook messages have unassigned guids and unique attributes; resolve as mapObjectIdValue() does
+            AtlasVertex elementVertex = getReferencedEntityVertex(element, context);
+            AtlasEdge   currentEdge   = (AtlasEdge) currentElements.get(index);
+
+            if (elementVertex == null || getStatus(currentEdge) != ACTIVE) {
+                return false;
+            }
+
+            AtlasVertex currentVertex = edgeDirection == IN ? currentEdge.getOutVertex() : currentEdge.getInVertex();
+
+            if (!Objects.equals(elementVertex.getId(), currentVertex.getId())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks if the given attributes of the struct are equal to those of the existing struct vertex. Only the given
+     * attributes are compared, since updateVertex() maps only those; a value that is equal only after defaults are
+     * applied, or a reference not yet resolved to a guid, is considered changed.
+     */
+    private boolean isUnchangedStruct(AtlasStruct struct, AtlasVertex structVertex) throws AtlasBaseException {
+        if (!StringUtils.equals(struct.getTypeName(), getTypeName(structVertex))) {
+            return false;
+        }
+
+        if (MapUtils.isNotEmpty(struct.getAttributes())) {
+            AtlasStructType structType = getStructType(struct.getTypeName());
+
+            for (Map.Entry<String, Object> entry : struct.getAttributes().entrySet()) {
+                AtlasAttribute attribute = structType.getAttribute(entry.getKey());
+
+                if (attribute == null) { // ignored by mapAttributes()
+                    continue;
+                }
+
+                Object currentValue = entityRetriever.getEntityAttribute(structVertex, attribute);
+
+                if (!attribute.getAttributeType().areEqualValues(entry.getValue(), currentValue, null)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    // vertex of the entity referenced by the given object-id value: by guid, assigned or not, or by unique attributes
+    private AtlasVertex getReferencedEntityVertex(Object value, EntityMutationContext context) throws AtlasBaseException {
+        String      guid = getGuid(value);
+        AtlasVertex ret  = context.getDiscoveryContext().getResolvedEntityVertex(guid);
+
+        if (ret == null) {
+            if (AtlasTypeUtil.isAssignedGuid(guid)) {
+                ret = context.getVertex(guid);
+            }
+
+            if (ret == null) {
+                AtlasObjectId objId = getObjectId(value);
+
+                if (objId != null) {
+                    ret = context.getDiscoveryContext().getResolvedEntityVertex(objId);
+                }
+            }
+        }
+
+        return ret;
+    }
+
     private AtlasEdge getEdgeAt(List<Object> currentElements, int index, AtlasType elemType) {
         AtlasEdge ret = null;
 
@@ -1876,6 +1985,15 @@ public class EntityGraphMapper {
     }
 
     public void addClassifications(final EntityMutationContext context, String guid, List<AtlasClassification> classifications) throws AtlasBaseException {
+        addClassifications(context, guid, classifications, null);
+    }
+
+    /**
+     * @param pendingNotifications if not null, the entities updated and the classifications added to each are collected
+     *                             here, for the caller to notify listeners once for many calls; else listeners are notified here
+     */
+    public void addClassifications(final EntityMutationContext context, String guid, List<AtlasClassification> classifications,
+                                   Map<AtlasEntity, List<AtlasClassification>> pendingNotifications) throws AtlasBaseException {
         if (CollectionUtils.isNotEmpty(classifications)) {
             MetricRecorder metric = RequestContext.get().startMetricRecord("addClassifications");
 
@@ -1949,7 +2067,9 @@ public class EntityGraphMapper {
                 //Add current Vertex to be notified
                 addedClassifications.get(classification).add(entityVertex);
 
-                if (propagateTags) {
+                if (propagateTags && isTasksEnabled()) {
+                    createPropagationTask(ClassificationPropagationTasks.CLASSIFICATION_PROPAGATION_ADD, guid, classificationVertex);
+                } else if (propagateTags) {
                     // compute propagatedEntityVertices only once
                     if (entitiesToPropagateTo == null) {
                         entitiesToPropagateTo = entityRetriever.getImpactedVerticesV2(entityVertex);
@@ -1990,7 +2110,13 @@ public class EntityGraphMapper {
                 Set<AtlasVertex>  vertices           = addedClassifications.get(classification);
                 List<AtlasEntity> propagatedEntities = updateClassificationText(classification, vertices);
 
-                entityChangeNotifier.onClassificationsAddedToEntities(propagatedEntities, Collections.singletonList(classification));
+                if (pendingNotifications != null) {
+                    for (AtlasEntity entity : propagatedEntities) {
+                        pendingNotifications.computeIfAbsent(entity, e -> new ArrayList<>()).add(classification);
+                    }
+                } else {
+                    entityChangeNotifier.onClassificationsAddedToEntities(propagatedEntities, Collections.singletonList(classification));
+                }
             }
 
             RequestContext.get().endMetricRecord(metric);
@@ -2054,7 +2180,12 @@ public class EntityGraphMapper {
         // remove classification from propagated entities if propagation is turned on
         final List<AtlasVertex> entityVertices;
 
-        if (isPropagationEnabled(classificationVertex)) {
+        if (isPropagationEnabled(classificationVertex) && isTasksEnabled()) {
+            // propagated edges are removed by the task; the classification vertex is deleted once no edges remain
+            createPropagationTask(ClassificationPropagationTasks.CLASSIFICATION_PROPAGATION_DELETE, entityGuid, classificationVertex);
+
+            entityVertices = new ArrayList<>();
+        } else if (isPropagationEnabled(classificationVertex)) {
             entityVertices = deleteDelegate.getHandler().removeTagPropagation(classificationVertex);
 
             if (LOG.isDebugEnabled()) {
@@ -2100,6 +2231,47 @@ public class EntityGraphMapper {
         AtlasPerfTracer.log(perf);
     }
 
+    /**
+     * Propagate the classification to the given entities; called by tasks that propagate classifications in chunks.
+     */
+    public void addClassificationPropagation(AtlasVertex classificationVertex, List<AtlasVertex> entityVertices) throws AtlasBaseException {
+        List<AtlasVertex> entitiesPropagatedTo = deleteDelegate.getHandler().addTagPropagation(classificationVertex, entityVertices);
+
+        if (CollectionUtils.isNotEmpty(entitiesPropagatedTo)) {
+            AtlasClassification classification     = entityRetriever.toAtlasClassification(classificationVertex);
+            List<AtlasEntity>   propagatedEntities = updateClassificationText(classification, entitiesPropagatedTo);
+
+            entityChangeNotifier.onClassificationsAddedToEntities(propagatedEntities, Collections.singletonList(classification));
+        }
+    }
+
+    /**
+     * Remove propagations of the classification from the given entities; called by tasks that remove propagations in chunks.
+     */
+    public void removeClassificationPropagation(AtlasVertex classificationVertex, List<AtlasVertex> entityVertices) throws AtlasBaseException {
+        AtlasClassification classification = entityRetriever.toAtlasClassification(classificationVertex);
+
+        deleteDelegate.getHandler().removeTagPropagation(classificationVertex, entityVertices);
+
+        List<AtlasEntity> propagatedEntities = updateClassificationText(classification, entityVertices);
+
+        entityChangeNotifier.onClassificationsDeletedFromEntities(propagatedEntities, Collections.singletonList(classification));
+    }
+
+    private boolean isTasksEnabled() {
+        return TASKS_ENABLED && taskRegistry != null && !RequestContext.get().isImportInProgress();
+    }
+
+    private void createPropagationTask(String taskType, String entityGuid, AtlasVertex classificationVertex) {
+        Map<String, Object> parameters = new HashMap<>();
+
+        parameters.put(ClassificationPropagationTasks.PARAM_ENTITY_GUID, entityGuid);
+        parameters.put(ClassificationPropagationTasks.PARAM_CLASSIFICATION_VERTEX_ID, classificationVertex.getIdForDisplay());
+        parameters.put(ClassificationPropagationTasks.PARAM_CLASSIFICATION_NAME, getTypeName(classificationVertex));
+
+        taskRegistry.createTask(taskType, parameters);
+    }
+
     private AtlasEntity updateClassificationText(AtlasVertex vertex) throws AtlasBaseException {
         String guid        = graphHelper.getGuid(vertex);
         AtlasEntity entity = instanceConverter.getAndCacheEntity(guid, ENTITY_CHANGE_NOTIFY_IGNORE_RELATIONSHIP_ATTRIBUTES);
@@ -17,10 +17,14 @@
  */
 package org.apache.atlas.repository.store.graph.v2;
 
+import com.carrotsearch.hppc.LongHashSet;
 import com.fasterxml.jackson.core.type.TypeReference;
+import org.apache.atlas.AtlasConfiguration;
 import org.apache.atlas.AtlasErrorCode;
+import org.apache.atlas.RequestContext;
 import org.apache.atlas.exception.AtlasBaseException;
 import org.apache.atlas.model.TimeBoundary;
+import org.apache.atlas.model.TypeCategory;
 import org.apache.atlas.model.glossary.enums.AtlasTermAssignmentStatus;
 import org.apache.atlas.model.glossary.relations.AtlasTermAssignmentHeader;
 import org.apache.atlas.model.instance.AtlasClassification;
@@ -39,6 +43,7 @@ import org.apache.atlas.model.typedef.AtlasRelationshipDef.PropagateTags;
 import org.apache.atlas.model.typedef.AtlasRelationshipEndDef;
 import org.apache.atlas.model.typedef.AtlasStructDef.AtlasAttributeDef;
 import org.apache.atlas.repository.Constants;
+import org.apache.atlas.repository.graph.EntityHeaderCache;
 import org.apache.atlas.repository.graph.GraphHelper;
 import org.apache.atlas.repository.graphdb.AtlasEdge;
 import org.apache.atlas.repository.graphdb.AtlasEdgeDirection;
@@ -58,6 +63,7 @@ import org.apache.atlas.type.AtlasTypeRegistry;
 import org.apache.atlas.type.AtlasTypeUtil;
 import org.apache.atlas.utils.AtlasEntityUtil;
 import org.apache.atlas.utils.AtlasJson;
+import org.apache.atlas.utils.AtlasPerfMetrics.MetricRecorder;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -76,6 +82,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -108,6 +115,8 @@ import static org.apache.atlas.model.typedef.AtlasRelationshipDef.PropagateTags.
 import static org.apache.atlas.repository.Constants.CLASSIFICATION_ENTITY_GUID;
 import static org.apache.atlas.repository.Constants.CLASSIFICATION_LABEL;
 import static org.apache.atlas.repository.Constants.CLASSIFICATION_VALIDITY_PERIODS_KEY;
+import static org.apache.atlas.repository.Constants.ENTITY_TYPE_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.MODIFICATION_TIMESTAMP_PROPERTY_KEY;
 import static org.apache.atlas.repository.Constants.TERM_ASSIGNMENT_LABEL;
 import static org.apache.atlas.repository.graph.GraphHelper.*;
 import static org.apache.atlas.repository.store.graph.v2.AtlasGraphUtilsV2.getIdFromVertex;
@@ -132,11 +141,14 @@ public class EntityGraphRetriever {
     public static final String QUALIFIED_NAME = "qualifiedName";
 
     private static final TypeReference<List<TimeBoundary>> TIME_BOUNDARIES_LIST_TYPE = new TypeReference<List<TimeBoundary>>() {};
+    private static final int                                TRAVERSAL_BATCH_SIZE      = Math.max(AtlasConfiguration.GRAPH_TRAVERSAL_BATCH_SIZE.getInt(), 1);
+    private static final boolean                            PREFETCH_ENABLED          = AtlasConfiguration.ENTITY_RETRIEVE_PREFETCH_ENABLED.getBoolean();
     private final GraphHelper graphHelper;
 
     private final AtlasTypeRegistry typeRegistry;
 
     private final boolean ignoreRelationshipAttr;
+    private final boolean isPrefetchEnabled;
     private final AtlasGraph graph;
 
     @Inject
@@ -145,10 +157,15 @@ public class EntityGraphRetriever {
     }
 
     public EntityGraphRetriever(AtlasGraph graph, AtlasTypeRegistry typeRegistry, boolean ignoreRelationshipAttr) {
+        this(graph, typeRegistry, ignoreRelationshipAttr, PREFETCH_ENABLED);
+    }
+
+    EntityGraphRetriever(AtlasGraph graph, AtlasTypeRegistry typeRegistry, boolean ignoreRelationshipAttr, boolean isPrefetchEnabled) {
         this.graph                  = graph;
         this.graphHelper            = new GraphHelper(graph);
         this.typeRegistry           = typeRegistry;
         this.ignoreRelationshipAttr = ignoreRelationshipAttr;
+        this.isPrefetchEnabled      = isPrefetchEnabled;
     }
 
     public AtlasEntity toAtlasEntity(String guid, boolean includeReferences) throws AtlasBaseException {
@@ -175,6 +192,10 @@ public class EntityGraphRetriever {
         return toAtlasEntityWithExtInfo(getEntityVertex(guid), isMinExtInfo);
     }
 
+    public AtlasEntityWithExtInfo toAtlasEntityWithExtInfo(String guid, boolean isMinExtInfo, Set<String> attributes, Set<String> relationshipAttributes) throws AtlasBaseException {
+        return toAtlasEntityWithExtInfo(getEntityVertex(guid), isMinExtInfo, attributes, relationshipAttributes);
+    }
+
     public AtlasEntityWithExtInfo toAtlasEntityWithExtInfo(AtlasObjectId objId) throws AtlasBaseException {
         return toAtlasEntityWithExtInfo(getEntityVertex(objId));
     }
@@ -184,8 +205,21 @@ public class EntityGraphRetriever {
     }
 
     public AtlasEntityWithExtInfo toAtlasEntityWithExtInfo(AtlasVertex entityVertex, boolean isMinExtInfo) throws AtlasBaseException {
+        return toAtlasEntityWithExtInfo(entityVertex, isMinExtInfo, null, null);
+    }
+
+    /**
+     * Maps only the given attributes of the entity, and reads only these from the graph. Referred entities are mapped as
+     * without a projection.
+     *
+     * @param attributes             names of attributes of the entity to map; all if null. Unique attributes are always mapped
+     * @param relationshipAttributes names of relationship attributes of the entity to map; all if null
+     */
+    public AtlasEntityWithExtInfo toAtlasEntityWithExtInfo(AtlasVertex entityVertex, boolean isMinExtInfo, Set<String> attributes, Set<String> relationshipAttributes) throws AtlasBaseException {
+        prefetch(Collections.singletonList(entityVertex), isMinExtInfo, attributes, relationshipAttributes);
+
         AtlasEntityExtInfo     entityExtInfo = new AtlasEntityExtInfo();
-        AtlasEntity            entity        = mapVertexToAtlasEntity(entityVertex, entityExtInfo, isMinExtInfo);
+        AtlasEntity            entity        = mapVertexToAtlasEntity(entityVertex, entityExtInfo, isMinExtInfo, true, attributes, relationshipAttributes);
         AtlasEntityWithExtInfo ret           = new AtlasEntityWithExtInfo(entity, entityExtInfo);
 
         ret.compact();
@@ -209,6 +243,30 @@ public class EntityGraphRetriever {
         return atlasVertex != null ? mapVertexToAtlasEntityHeader(atlasVertex, attributes) : null;
     }
 
+    /**
+     * @return headers of entities of the given guids, in the order of guids; vertices are looked up, and read, with
+     *         batched queries
+     * @throws AtlasBaseException if an entity is not found
+     */
+    public Map<String, AtlasEntityHeader> toAtlasEntityHeaders(Collection<String> guids) throws AtlasBaseException {
+        Map<String, AtlasEntityHeader> ret      = new LinkedHashMap<>();
+        Map<String, AtlasVertex>       vertices = AtlasGraphUtilsV2.findByGuids(graph, guids);
+
+        prefetchEntityHeaders(vertices.values(), null, false);
+
+        for (String guid : guids) {
+            AtlasVertex vertex = vertices.get(guid);
+
+            if (vertex == null) {
+                throw new AtlasBaseException(AtlasErrorCode.INSTANCE_GUID_NOT_FOUND, guid);
+            }
+
+            ret.put(guid, mapVertexToAtlasEntityHeader(vertex));
+        }
+
+        return ret;
+    }
+
     public AtlasEntityHeader toAtlasEntityHeaderWithClassifications(String guid) throws AtlasBaseException {
         return toAtlasEntityHeaderWithClassifications(getEntityVertex(guid), Collections.emptySet());
     }
@@ -379,12 +437,27 @@ public class EntityGraphRetriever {
     }
 
     public AtlasEntitiesWithExtInfo toAtlasEntitiesWithExtInfo(List<String> guids, boolean isMinExtInfo) throws AtlasBaseException {
-        AtlasEntitiesWithExtInfo ret = new AtlasEntitiesWithExtInfo();
+        return toAtlasEntitiesWithExtInfo(guids, isMinExtInfo, null, null);
+    }
+
+    /**
+     * @param attributes             names of attributes of the entities to map; all if null. Unique attributes are always mapped
+     * @param relationshipAttributes names of relationship attributes of the entities to map; all if null
+     */
+    public AtlasEntitiesWithExtInfo toAtlasEntitiesWithExtInfo(List<String> guids, boolean isMinExtInfo, Set<String> attributes, Set<String> relationshipAttributes) throws AtlasBaseException {
+        AtlasEntitiesWithExtInfo ret      = new AtlasEntitiesWithExtInfo();
+        Map<String, AtlasVertex> vertices = AtlasGraphUtilsV2.findByGuids(this.graph, guids);
+
+        prefetch(vertices.values(), isMinExtInfo, attributes, relationshipAttributes);
 
         for (String guid : guids) {
-            AtlasVertex vertex = getEntityVertex(guid);
+            AtlasVertex vertex = vertices.get(guid);
 
-            AtlasEntity entity = mapVertexToAtlasEntity(vertex, ret, isMinExtInfo);
+            if (vertex == null) {
+                throw new AtlasBaseException(AtlasErrorCode.INSTANCE_GUID_NOT_FOUND, guid);
+            }
+
+            AtlasEntity entity = mapVertexToAtlasEntity(vertex, ret, isMinExtInfo, true, attributes, relationshipAttributes);
 
             ret.addEntity(entity);
         }
@@ -493,7 +566,7 @@ public class EntityGraphRetriever {
     public List<AtlasVertex> getImpactedVerticesV2(AtlasVertex entityVertex, String relationshipGuidToExclude) {
         List<AtlasVertex> ret = new ArrayList<>();
 
-        traverseImpactedVertices(entityVertex, relationshipGuidToExclude, null, new HashSet<>(), ret);
+        traverseImpactedVertices(entityVertex, relationshipGuidToExclude, null, ret);
 
         return ret;
     }
@@ -501,7 +574,7 @@ public class EntityGraphRetriever {
     public List<AtlasVertex> getIncludedImpactedVerticesV2(AtlasVertex entityVertex, String relationshipGuidToExclude) {
         List<AtlasVertex> ret = new ArrayList<>(Arrays.asList(entityVertex));
 
-        traverseImpactedVertices(entityVertex, relationshipGuidToExclude, null, new HashSet<>(), ret);
+        traverseImpactedVertices(entityVertex, relationshipGuidToExclude, null, ret);
 
         return ret;
     }
@@ -509,73 +582,394 @@ public class EntityGraphRetriever {
     public List<AtlasVertex> getImpactedVerticesV2(AtlasVertex entityVertex, String relationshipGuidToExclude, String classificationId) {
         List<AtlasVertex> ret = new ArrayList<>();
 
-        traverseImpactedVertices(entityVertex, relationshipGuidToExclude, classificationId, new HashSet<>(), ret);
+        traverseImpactedVertices(entityVertex, relationshipGuidToExclude, classificationId, ret);
 
         return ret;
     }
 
-    private void traverseImpactedVertices(AtlasVertex entityVertex, String relationshipGuidToExclude, String classificationId, Set<String> visitedVertices, List<AtlasVertex> result) {
-        visitedVertices.add(entityVertex.getIdForDisplay());
+    /**
+     * Breadth-first traversal of tag-propagation edges from the given vertex.
+     */
+    private void traverseImpactedVertices(AtlasVertex entityVertex, String relationshipGuidToExclude, String classificationId, List<AtlasVertex> result) {
+        LongHashSet       visitedVertexIds = new LongHashSet();
+        List<AtlasVertex> currentLevel     = Collections.singletonList(entityVertex);
 
-        AtlasEntityType entityType          = typeRegistry.getEntityTypeByName(getTypeName(entityVertex));
-        String[]        tagPropagationEdges = entityType != null ? entityType.getTagPropagationEdgesArray() : null;
+        visitedVertexIds.add(getVertexId(entityVertex));
 
-        if (tagPropagationEdges != null) {
-            Iterable<AtlasEdge> propagationEdges = entityVertex.getEdges(AtlasEdgeDirection.BOTH, tagPropagationEdges);
+        while (!currentLevel.isEmpty()) {
+            currentLevel = getAdjacentImpactedVertices(currentLevel, relationshipGuidToExclude, classificationId, visitedVertexIds);
 
-            for (AtlasEdge propagationEdge : propagationEdges) {
-                if (getEdgeStatus(propagationEdge) != ACTIVE) {
-                    continue;
+            result.addAll(currentLevel);
+        }
+    }
+
+    /**
+     * Returns vertices to which a classification propagates from the given vertices over a tag-propagation edge. Edges
+     * are fetched with one query per entity type, for up to TRAVERSAL_BATCH_SIZE vertices at a time; filters are applied
+     * on fetched edges. Vertices in visitedVertexIds are skipped; returned vertices are added to it.
+     */
+    public List<AtlasVertex> getAdjacentImpactedVertices(List<AtlasVertex> vertices, String relationshipGuidToExclude, String classificationId, LongHashSet visitedVertexIds) {
+        List<AtlasVertex> ret = new ArrayList<>();
+
+        for (int i = 0; i < vertices.size(); i += TRAVERSAL_BATCH_SIZE) {
+            List<AtlasVertex>              batch        = vertices.subList(i, Math.min(i + TRAVERSAL_BATCH_SIZE, vertices.size()));
+            Map<AtlasVertex, String>       vertexTypes  = graph.getPropertyValues(batch, ENTITY_TYPE_PROPERTY_KEY, String.class);
+            Map<String, List<AtlasVertex>> typeVertices = new HashMap<>();
+
+            for (AtlasVertex vertex : batch) {
+                String typeName = vertexTypes.get(vertex);
+
+                if (typeName != null) {
+                    typeVertices.computeIfAbsent(typeName, k -> new ArrayList<>()).add(vertex);
                 }
+            }
 
-                PropagateTags tagPropagation = getPropagateTags(propagationEdge);
+            for (Map.Entry<String, List<AtlasVertex>> entry : typeVertices.entrySet()) {
+                AtlasEntityType entityType          = typeRegistry.getEntityTypeByName(entry.getKey());
+                String[]        tagPropagationEdges = entityType != null ? entityType.getTagPropagationEdgesArray() : null;
 
-                if (tagPropagation == null || tagPropagation == NONE) {
+                if (tagPropagationEdges == null) {
                     continue;
-                } else if (tagPropagation == TWO_TO_ONE)  {
-                    if (isOutVertex(entityVertex, propagationEdge)) {
+                }
+
+                Map<AtlasVertex, List<AtlasEdge>> vertexEdges = graph.getEdges(entry.getValue(), AtlasEdgeDirection.BOTH, tagPropagationEdges);
+
+                for (AtlasVertex vertex : entry.getValue()) {
+                    List<AtlasEdge> propagationEdges = vertexEdges.get(vertex);
+
+                    if (propagationEdges == null) {
                         continue;
                     }
-                } else if (tagPropagation == ONE_TO_TWO) {
-                    if (!isOutVertex(entityVertex, propagationEdge)) {
-                        continue;
+
+                    long vertexId = getVertexId(vertex);
+
+                    for (AtlasEdge propagationEdge : propagationEdges) {
+                        if (getEdgeStatus(propagationEdge) != ACTIVE) {
+                            continue;
+                        }
+
+                        PropagateTags tagPropagation = getPropagateTags(propagationEdge);
+                        AtlasVertex   outVertex      = propagationEdge.getOutVertex();
+                        boolean       isOutVertex    = getVertexId(outVertex) == vertexId;
+
+                        if (tagPropagation == null || tagPropagation == NONE) {
+                            continue;
+                        } else if (tagPropagation == TWO_TO_ONE)  {
+                            if (isOutVertex) {
+                                continue;
+                            }
+                        } else if (tagPropagation == ONE_TO_TWO) {
+                            if (!isOutVertex) {
+                                continue;
+                            }
+                        }
+
+                        if (relationshipGuidToExclude != null) {
+                            if (StringUtils.equals(getRelationshipGuid(propagationEdge), relationshipGuidToExclude)) {
+                                continue;
+                            }
+                        }
+
+                        if (classificationId != null) {
+                            List<String> blockedClassificationIds = getBlockedClassificationIds(propagationEdge);
+
+                            if (CollectionUtils.isNotEmpty(blockedClassificationIds) && blockedClassificationIds.contains(classificationId)) {
+                                continue;
+                            }
+                        }
+
+                        AtlasVertex adjacentVertex = isOutVertex ? propagationEdge.getInVertex() : outVertex;
+
+                        if (visitedVertexIds.add(getVertexId(adjacentVertex))) {
+                            ret.add(adjacentVertex);
+                        }
                     }
                 }
+            }
+        }
 
-                if (relationshipGuidToExclude != null) {
-                    if (StringUtils.equals(getRelationshipGuid(propagationEdge), relationshipGuidToExclude)) {
-                        continue;
+        return ret;
+    }
+
+    static long getVertexId(AtlasVertex vertex) {
+        Object id = vertex.getId();
+
+        return id instanceof Number ? ((Number) id).longValue() : Long.parseLong(vertex.getIdForDisplay());
+    }
+
+    /**
+     * Loads, with batched queries, the properties and edges that mapping of the given entity vertices would read one at
+     * a time: properties and attribute edges of the entities, and of the owned entities and structs they refer to, and
+     * properties of other vertices at the end of these edges - like classifications and non-owned referred entities.
+     * With isMinExtInfo, owned entities are mapped with minimal info; only their classification edges are loaded.
+     * With attributes/relationshipAttributes, only edges of these attributes of the given entities are loaded.
+     * Prefetch is only an optimization: on failure, mapping reads the graph as it would without prefetch.
+     */
+    private void prefetch(Collection<AtlasVertex> entityVertices, boolean isMinExtInfo, Set<String> attributes, Set<String> relationshipAttributes) {
+        if (!isPrefetchEnabled || CollectionUtils.isEmpty(entityVertices)) {
+            return;
+        }
+
+        MetricRecorder metric = RequestContext.get().startMetricRecord("prefetch");
+
+        try {
+            LongHashSet       loadedVertexIds   = new LongHashSet();
+            LongHashSet       expandedVertexIds = new LongHashSet();
+            List<AtlasVertex> toLoad            = new ArrayList<>();
+            List<AtlasVertex> currentLevel      = new ArrayList<>();
+            boolean           isRootLevel       = true;
+
+            for (AtlasVertex vertex : entityVertices) {
+                long vertexId = getVertexId(vertex);
+
+                if (expandedVertexIds.add(vertexId)) {
+                    loadedVertexIds.add(vertexId);
+                    currentLevel.add(vertex);
+                }
+            }
+
+            loadProperties(currentLevel);
+
+            while (!currentLevel.isEmpty()) {
+                List<AtlasVertex> nextLevel   = new ArrayList<>();
+                boolean           isFullLevel = isRootLevel || !isMinExtInfo;
+
+                for (int i = 0; i < currentLevel.size(); i += TRAVERSAL_BATCH_SIZE) {
+                    List<AtlasVertex>              batch        = currentLevel.subList(i, Math.min(i + TRAVERSAL_BATCH_SIZE, currentLevel.size()));
+                    Map<String, List<AtlasVertex>> typeVertices = new HashMap<>();
+
+                    for (AtlasVertex vertex : batch) {
+                        String typeName = getTypeName(vertex); // served from the properties loaded earlier
+
+                        if (typeName != null) {
+                            typeVertices.computeIfAbsent(typeName, k -> new ArrayList<>()).add(vertex);
+                        }
+                    }
+
+                    for (Map.Entry<String, List<AtlasVertex>> entry : typeVertices.entrySet()) {
+                        Set<String> edgeLabels  = new HashSet<>();
+                        Set<String> ownedLabels = new HashSet<>();
+
+                        if (isRootLevel) {
+                            getPrefetchEdgeLabels(typeRegistry.getType(entry.getKey()), attributes, relationshipAttributes, edgeLabels, ownedLabels);
+                        } else if (isFullLevel) {
+                            getPrefetchEdgeLabels(typeRegistry.getType(entry.getKey()), null, null, edgeLabels, ownedLabels);
+                        } else {
+                            edgeLabels.add(CLASSIFICATION_LABEL);
+                        }
+
+                        if (edgeLabels.isEmpty()) {
+                            continue;
+                        }
+
+                        Map<AtlasVertex, List<AtlasEdge>> vertexEdges = graph.getEdges(entry.getValue(), AtlasEdgeDirection.BOTH, edgeLabels.toArray(new String[0]));
+
+                        for (AtlasVertex vertex : entry.getValue()) {
+                            List<AtlasEdge> edges = vertexEdges.get(vertex);
+
+                            if (edges == null) {
+                                continue;
+                            }
+
+                            long vertexId = getVertexId(vertex);
+
+                            for (AtlasEdge edge : edges) {
+                                AtlasVertex adjacentVertex   = edge.getOutVertex();
+                                long        adjacentVertexId = getVertexId(adjacentVertex);
+
+                                if (adjacentVertexId == vertexId) {
+                                    adjacentVertex   = edge.getInVertex();
+                                    adjacentVertexId = getVertexId(adjacentVertex);
+                                }
+
+                                if (loadedVertexIds.add(adjacentVertexId)) {
+                                    toLoad.add(adjacentVertex);
+                                }
+
+                                if (ownedLabels.contains(edge.getLabel()) && expandedVertexIds.add(adjacentVertexId)) {
+                                    nextLevel.add(adjacentVertex);
+                                }
+                            }
+                        }
                     }
                 }
 
-                if (classificationId != null) {
-                    List<String> blockedClassificationIds = getBlockedClassificationIds(propagationEdge);
+                loadProperties(toLoad);
 
-                    if (CollectionUtils.isNotEmpty(blockedClassificationIds) && blockedClassificationIds.contains(classificationId)) {
-                        continue;
+                toLoad.clear();
+
+                currentLevel = nextLevel;
+                isRootLevel  = false;
+            }
+        } catch (Exception excp) {
+            LOG.warn("prefetch of {} entities failed; will read on demand", entityVertices.size(), excp);
+        } finally {
+            RequestContext.get().endMetricRecord(metric);
+        }
+    }
+
+    /**
+     * Loads, with batched queries, what mapping of the given entity vertices to headers would read one at a time:
+     * properties of the entities, their term-assignment edges and edges of the given attributes, and properties of
+     * vertices at the end of these edges - like terms and referred entities. With includeClassifications, classification
+     * edges and vertices are loaded as well.
+     * Prefetch is only an optimization: on failure, mapping reads the graph as it would without prefetch.
+     */
+    public void prefetchEntityHeaders(Collection<AtlasVertex> entityVertices, Set<String> attributes, boolean includeClassifications) {
+        if (!isPrefetchEnabled || CollectionUtils.isEmpty(entityVertices)) {
+            return;
+        }
+
+        MetricRecorder metric = RequestContext.get().startMetricRecord("prefetchEntityHeaders");
+
+        try {
+            LongHashSet       loadedVertexIds = new LongHashSet();
+            List<AtlasVertex> vertices        = new ArrayList<>();
+            List<AtlasVertex> toLoad          = new ArrayList<>();
+
+            for (AtlasVertex vertex : entityVertices) {
+                if (loadedVertexIds.add(getVertexId(vertex))) {
+                    vertices.add(vertex);
+                }
+            }
+
+            loadProperties(vertices);
+
+            for (int i = 0; i < vertices.size(); i += TRAVERSAL_BATCH_SIZE) {
+                List<AtlasVertex>              batch        = vertices.subList(i, Math.min(i + TRAVERSAL_BATCH_SIZE, vertices.size()));
+                Map<String, List<AtlasVertex>> typeVertices = new HashMap<>();
+
+                for (AtlasVertex vertex : batch) {
+                    String typeName = getTypeName(vertex); // served from the properties loaded earlier
+
+                    if (typeName != null) {
+                        typeVertices.computeIfAbsent(typeName, k -> new ArrayList<>()).add(vertex);
                     }
                 }
 
-                AtlasVertex adjacentVertex = getOtherVertex(propagationEdge, entityVertex);
+                for (Map.Entry<String, List<AtlasVertex>> entry : typeVertices.entrySet()) {
+                    AtlasEntityType entityType = typeRegistry.getEntityTypeByName(entry.getKey());
+                    Set<String>     edgeLabels = new HashSet<>();
+
+                    edgeLabels.add(Constants.INTERNAL_PROPERTY_KEY_PREFIX + TERM_ASSIGNMENT_LABEL);
+
+                    if (includeClassifications) {
+                        edgeLabels.add(CLASSIFICATION_LABEL);
+                    }
+
+                    if (entityType != null) {
+                        Set<String> ownedLabels = new HashSet<>(); // not used: owned entities are not mapped to headers
+
+                        for (AtlasAttribute attribute : entityType.getHeaderAttributes().values()) {
+                            addPrefetchEdgeLabel(attribute, edgeLabels, ownedLabels);
+                        }
+
+                        if (attributes != null) {
+                            for (String attrName : attributes) {
+                                AtlasAttribute attribute = entityType.getAttribute(attrName);
+
+                                if (attribute == null) {
+                                    attribute = entityType.getRelationshipAttribute(attrName, null);
+                                }
+
+                                if (attribute != null) {
+                                    addPrefetchEdgeLabel(attribute, edgeLabels, ownedLabels);
+                                }
+                            }
+                        }
+                    }
+
+                    Map<AtlasVertex, List<AtlasEdge>> vertexEdges = graph.getEdges(entry.getValue(), AtlasEdgeDirection.BOTH, edgeLabels.toArray(new String[0]));
 
-                if (!visitedVertices.contains(adjacentVertex.getIdForDisplay())) {
-                    result.add(adjacentVertex);
+                    for (AtlasVertex vertex : entry.getValue()) {
+                        List<AtlasEdge> edges = vertexEdges.get(vertex);
 
-                    traverseImpactedVertices(adjacentVertex, relationshipGuidToExclude, classificationId, visitedVertices, result);
+                        if (edges == null) {
+                            continue;
+                        }
+
+                        long vertexId = getVertexId(vertex);
+
+                        for (AtlasEdge edge : edges) {
+                            AtlasVertex adjacentVertex = edge.getOutVertex();
+
+                            if (getVertexId(adjacentVertex) == vertexId) {
+                                adjacentVertex = edge.getInVertex();
+                            }
+
+                            if (loadedVertexIds.add(getVertexId(adjacentVertex))) {
+                                toLoad.add(adjacentVertex);
+                            }
+                        }
+                    }
                 }
             }
+
+            loadProperties(toLoad);
+        } catch (Exception excp) {
+            LOG.warn("prefetch of {} entity headers failed; will read on demand", entityVertices.size(), excp);
+        } finally {
+            RequestContext.get().endMetricRecord(metric);
         }
     }
 
-    private boolean isOutVertex(AtlasVertex vertex, AtlasEdge edge) {
-        return StringUtils.equals(vertex.getIdForDisplay(), edge.getOutVertex().getIdForDisplay());
+    private void loadProperties(List<AtlasVertex> vertices) {
+        for (int i = 0; i < vertices.size(); i += TRAVERSAL_BATCH_SIZE) {
+            graph.loadProperties(vertices.subList(i, Math.min(i + TRAVERSAL_BATCH_SIZE, vertices.size())));
+        }
     }
 
-    private AtlasVertex getOtherVertex(AtlasEdge edge, AtlasVertex vertex) {
-        AtlasVertex outVertex = edge.getOutVertex();
-        AtlasVertex inVertex  = edge.getInVertex();
+    // labels of edges read to map attributes of the given type; ownedLabels: edges to vertices that are mapped fully
+    private void getPrefetchEdgeLabels(AtlasType type, Set<String> attributes, Set<String> relationshipAttributes, Set<String> edgeLabels, Set<String> ownedLabels) {
+        if (!(type instanceof AtlasStructType)) {
+            return;
+        }
 
-        return StringUtils.equals(outVertex.getIdForDisplay(), vertex.getIdForDisplay()) ? inVertex : outVertex;
+        for (AtlasAttribute attribute : ((AtlasStructType) type).getAllAttributes().values()) {
+            if (isProjected(attribute, attributes)) {
+                addPrefetchEdgeLabel(attribute, edgeLabels, ownedLabels);
+            }
+        }
+
+        if (type instanceof AtlasEntityType) {
+            AtlasEntityType entityType = (AtlasEntityType) type;
+
+            if (!ignoreRelationshipAttr) {
+                for (Map.Entry<String, Map<String, AtlasAttribute>> entry : entityType.getRelationshipAttributes().entrySet()) {
+                    if (relationshipAttributes != null && !relationshipAttributes.contains(entry.getKey())) {
+                        continue;
+                    }
+
+                    for (AtlasAttribute attribute : entry.getValue().values()) {
+                        addPrefetchEdgeLabel(attribute, edgeLabels, ownedLabels);
+                    }
+                }
+            }
+
+            edgeLabels.add(CLASSIFICATION_LABEL);
+        }
+    }
+
+    private static boolean isProjected(AtlasAttribute attribute, Set<String> attributes) {
+        return attributes == null || attributes.contains(attribute.getName()) || attribute.getAttributeDef().getIsUnique();
+    }
+
+    private static void addPrefetchEdgeLabel(AtlasAttribute attribute, Set<String> edgeLabels, Set<String> ownedLabels) {
+        AtlasType referredType = attribute.getAttributeType();
+
+        if (referredType instanceof AtlasArrayType) {
+            referredType = ((AtlasArrayType) referredType).getElementType();
+        } else if (referredType instanceof AtlasMapType) {
+            referredType = ((AtlasMapType) referredType).getValueType();
+        }
+
+        if (attribute.getRelationshipEdgeLabel() != null && isReference(referredType)) {
+            edgeLabels.add(attribute.getRelationshipEdgeLabel());
+
+            if (attribute.isOwnedRef() || referredType.getTypeCategory() == TypeCategory.STRUCT) {
+                ownedLabels.add(attribute.getRelationshipEdgeLabel());
+            }
+        }
     }
 
     private AtlasVertex getEntityVertex(AtlasObjectId objId) throws AtlasBaseException {
@@ -610,6 +1004,11 @@ public class EntityGraphRetriever {
     }
 
     private AtlasEntity mapVertexToAtlasEntity(AtlasVertex entityVertex, AtlasEntityExtInfo entityExtInfo, boolean isMinExtInfo, boolean includeReferences) throws AtlasBaseException {
+        return mapVertexToAtlasEntity(entityVertex, entityExtInfo, isMinExtInfo, includeReferences, null, null);
+    }
+
+    private AtlasEntity mapVertexToAtlasEntity(AtlasVertex entityVertex, AtlasEntityExtInfo entityExtInfo, boolean isMinExtInfo, boolean includeReferences,
+                                               Set<String> attributes, Set<String> relationshipAttributes) throws AtlasBaseException {
         String      guid   = GraphHelper.getGuid(entityVertex);
         AtlasEntity entity = entityExtInfo != null ? entityExtInfo.getEntity(guid) : null;
 
@@ -628,10 +1027,10 @@ public class EntityGraphRetriever {
 
             mapBusinessAttributes(entityVertex, entity);
 
-            mapAttributes(entityVertex, entity, entityExtInfo, isMinExtInfo, includeReferences);
+            mapAttributes(entityVertex, entity, entityExtInfo, isMinExtInfo, includeReferences, attributes);
 
             if (!ignoreRelationshipAttr) { // only map when really needed
-                mapRelationshipAttributes(entityVertex, entity, entityExtInfo, isMinExtInfo);
+                mapRelationshipAttributes(entityVertex, entity, entityExtInfo, isMinExtInfo, relationshipAttributes);
             }
 
             mapClassifications(entityVertex, entity);
@@ -680,11 +1079,60 @@ public class EntityGraphRetriever {
     }
 
     private AtlasEntityHeader mapVertexToAtlasEntityHeader(AtlasVertex entityVertex, Set<String> attributes) throws AtlasBaseException {
-        AtlasEntityHeader ret = new AtlasEntityHeader();
+        String typeName = entityVertex.getProperty(Constants.TYPE_NAME_PROPERTY_KEY, String.class);
+        String guid     = entityVertex.getProperty(Constants.GUID_PROPERTY_KEY, String.class);
+        Long   version  = EntityHeaderCache.isEnabled() ? entityVertex.getProperty(MODIFICATION_TIMESTAMP_PROPERTY_KEY, Long.class) : null;
+
+        if (version != null && version == RequestContext.get().getRequestTime()) { // modified in this request, possibly yet to be committed
+            version = null;
+        }
+
+        AtlasEntityHeader ret = version != null ? EntityHeaderCache.get(guid, version) : null;
 
-        String  typeName     = entityVertex.getProperty(Constants.TYPE_NAME_PROPERTY_KEY, String.class);
-        String  guid         = entityVertex.getProperty(Constants.GUID_PROPERTY_KEY, String.class);
-        Boolean isIncomplete = isEntityIncomplete(entityVertex);
+        if (ret == null) {
+            long invalidationStamp = EntityHeaderCache.getInvalidationStamp(guid);
+
+            ret = mapVertexToAtlasEntityHeader(entityVertex, typeName, guid);
+
+            if (version != null) {
+                EntityHeaderCache.put(guid, version, ret, invalidationStamp);
+            }
+        }
+
+        AtlasEntityType entityType = typeRegistry.getEntityTypeByName(typeName);
+
+        if (entityType != null && CollectionUtils.isNotEmpty(attributes)) {
+            for (String attrName : attributes) {
+                AtlasAttribute attribute = entityType.getAttribute(attrName);
+
+                if (attribute == null) {
+                    attrName = toNonQualifiedName(attrName);
+
+                    if (ret.hasAttribute(attrName)) {
+                        continue;
+                    }
+
+                    attribute = entityType.getAttribute(attrName);
+
+                    if (attribute == null) {
+                        attribute = entityType.getRelationshipAttribute(attrName, null);
+                    }
+                }
+
+                Object attrValue = getVertexAttribute(entityVertex, attribute);
+
+                if (attrValue != null) {
+                    ret.setAttribute(attrName, attrValue);
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    private AtlasEntityHeader mapVertexToAtlasEntityHeader(AtlasVertex entityVertex, String typeName, String guid) throws AtlasBaseException {
+        AtlasEntityHeader ret          = new AtlasEntityHeader();
+        Boolean           isIncomplete = isEntityIncomplete(entityVertex);
 
         ret.setTypeName(typeName);
         ret.setGuid(guid);
@@ -713,32 +1161,6 @@ public class EntityGraphRetriever {
             if (displayText != null) {
                 ret.setDisplayText(displayText.toString());
             }
-
-            if (CollectionUtils.isNotEmpty(attributes)) {
-                for (String attrName : attributes) {
-                    AtlasAttribute attribute = entityType.getAttribute(attrName);
-
-                    if (attribute == null) {
-                        attrName = toNonQualifiedName(attrName);
-
-                        if (ret.hasAttribute(attrName)) {
-                            continue;
-                        }
-
-                        attribute = entityType.getAttribute(attrName);
-
-                        if (attribute == null) {
-                            attribute = entityType.getRelationshipAttribute(attrName, null);
-                        }
-                    }
-
-                    Object attrValue = getVertexAttribute(entityVertex, attribute);
-
-                    if (attrValue != null) {
-                        ret.setAttribute(attrName, attrValue);
-                    }
-                }
-            }
         }
 
         return ret;
@@ -792,6 +1214,10 @@ public class EntityGraphRetriever {
     }
 
     private void mapAttributes(AtlasVertex entityVertex, AtlasStruct struct, AtlasEntityExtInfo entityExtInfo, boolean isMinExtInfo, boolean includeReferences) throws AtlasBaseException {
+        mapAttributes(entityVertex, struct, entityExtInfo, isMinExtInfo, includeReferences, null);
+    }
+
+    private void mapAttributes(AtlasVertex entityVertex, AtlasStruct struct, AtlasEntityExtInfo entityExtInfo, boolean isMinExtInfo, boolean includeReferences, Set<String> attributes) throws AtlasBaseException {
         AtlasType objType = typeRegistry.getType(struct.getTypeName());
 
         if (!(objType instanceof AtlasStructType)) {
@@ -801,6 +1227,10 @@ public class EntityGraphRetriever {
         AtlasStructType structType = (AtlasStructType) objType;
 
         for (AtlasAttribute attribute : structType.getAllAttributes().values()) {
+            if (!isProjected(attribute, attributes)) {
+                continue;
+            }
+
             Object attrValue = mapVertexToAttribute(entityVertex, attribute, entityExtInfo, isMinExtInfo, includeReferences);
 
             struct.setAttribute(attribute.getName(), attrValue);
@@ -1298,7 +1728,7 @@ public class EntityGraphRetriever {
         return vertex != null && attribute != null ? mapVertexToAttribute(vertex, attribute, null, false) : null;
     }
 
-    private void mapRelationshipAttributes(AtlasVertex entityVertex, AtlasEntity entity, AtlasEntityExtInfo entityExtInfo, boolean isMinExtInfo) throws AtlasBaseException {
+    private void mapRelationshipAttributes(AtlasVertex entityVertex, AtlasEntity entity, AtlasEntityExtInfo entityExtInfo, boolean isMinExtInfo, Set<String> relationshipAttributes) throws AtlasBaseException {
         AtlasEntityType entityType = typeRegistry.getEntityTypeByName(entity.getTypeName());
 
         if (entityType == null) {
@@ -1306,6 +1736,10 @@ public class EntityGraphRetriever {
         }
 
         for (String attributeName : entityType.getRelationshipAttributes().keySet()) {
+            if (relationshipAttributes != null && !relationshipAttributes.contains(attributeName)) {
+                continue;
+            }
+
             mapVertexToRelationshipAttribute(entityVertex, entityType, attributeName, entity, entityExtInfo, isMinExtInfo);
         }
     }
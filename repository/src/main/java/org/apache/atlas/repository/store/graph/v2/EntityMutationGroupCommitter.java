@@ -0,0 +1,455 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.store.graph.v2;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.atlas.AtlasConfiguration;
+import org.apache.atlas.AtlasErrorCode;
+import org.apache.atlas.RequestContext;
+import org.apache.atlas.authorize.AtlasAuthorizationUtils;
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.model.instance.AtlasEntity;
+import org.apache.atlas.model.instance.AtlasEntity.AtlasEntitiesWithExtInfo;
+import org.apache.atlas.model.instance.AtlasEntityHeader;
+import org.apache.atlas.model.instance.EntityMutationResponse;
+import org.apache.atlas.model.instance.EntityMutations.EntityOperation;
+import org.apache.atlas.repository.store.graph.AtlasEntityStore;
+import org.apache.atlas.store.DeleteType;
+import org.apache.atlas.type.AtlasEntityType;
+import org.apache.atlas.type.AtlasStructType.AtlasAttribute;
+import org.apache.atlas.type.AtlasTypeRegistry;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.collections.MapUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit of concurrent entity create/update requests: requests that arrive within a short window are mutated in
+ * one graph transaction, hence committed once; the response of each request is built from the response of the group.
+ *
+ * Requests are grouped only with requests of the same user and request settings, and only when they don't share any
+ * entity - by guid, including the temporary guids assigned in requests, or by unique attribute value. When a group
+ * fails, each of its requests is retried in its own transaction, so that a failing request doesn't fail the others.
+ *
+ * Requests are mutated in the caller's RequestContext and SecurityContext, so that the authorization checks in the
+ * entity store see the caller. Requests still pending at shutdown are failed.
+ */
+@Component
+public class EntityMutationGroupCommitter {
+    private static final Logger LOG = LoggerFactory.getLogger(EntityMutationGroupCommitter.class);
+
+    private final AtlasEntityStore               entityStore;
+    private final AtlasTypeRegistry              typeRegistry;
+    private final boolean                        isEnabled;
+    private final long                           windowMs;
+    private final int                            maxEntities;
+    private final BlockingQueue<PendingMutation> pendingMutations = new LinkedBlockingQueue<>();
+    private final Set<PendingMutation>           activeMutations  = ConcurrentHashMap.newKeySet();
+    private final ExecutorService                collector;
+    private final ExecutorService                committers;
+    private volatile boolean                     isShutdown       = false;
+
+    @Inject
+    public EntityMutationGroupCommitter(AtlasEntityStore entityStore, AtlasTypeRegistry typeRegistry) {
+        this(entityStore, typeRegistry, AtlasConfiguration.ENTITY_GROUP_COMMIT_ENABLED.getBoolean(),
+             AtlasConfiguration.ENTITY_GROUP_COMMIT_WINDOW_MS.getLong(), AtlasConfiguration.ENTITY_GROUP_COMMIT_MAX_ENTITIES.getInt(),
+             AtlasConfiguration.ENTITY_GROUP_COMMIT_THREADS.getInt());
+    }
+
+    EntityMutationGroupCommitter(AtlasEntityStore entityStore, AtlasTypeRegistry typeRegistry, boolean isEnabled, long windowMs, int maxEntities, int commitThreads) {
+        this.entityStore  = entityStore;
+        this.typeRegistry = typeRegistry;
+        this.isEnabled    = isEnabled && maxEntities > 1 && commitThreads > 0;
+        this.windowMs     = windowMs;
+        this.maxEntities  = maxEntities;
+
+        if (this.isEnabled) {
+            collector  = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("atlas-group-commit-collector").setDaemon(true).build());
+            committers = Executors.newFixedThreadPool(commitThreads, new ThreadFactoryBuilder().setNameFormat("atlas-group-commit-%d").setDaemon(true).build());
+
+            collector.submit(this::collect);
+
+            LOG.info("EntityMutationGroupCommitter: enabled; windowMs={}, maxEntities={}, commitThreads={}", windowMs, maxEntities, commitThreads);
+        } else {
+            collector  = null;
+            committers = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * Create or update the given entities, possibly in the same transaction as other concurrent requests.
+     * Equivalent of AtlasEntityStore.createOrUpdate(new AtlasEntityStream(entities), isPartialUpdate).
+     */
+    public EntityMutationResponse createOrUpdate(AtlasEntitiesWithExtInfo entities, boolean isPartialUpdate) throws AtlasBaseException {
+        if (!isEnabled || getEntityCount(entities) >= maxEntities) {
+            return entityStore.createOrUpdate(new AtlasEntityStream(entities), isPartialUpdate);
+        }
+
+        PendingMutation mutation = new PendingMutation(entities, isPartialUpdate, RequestContext.get(), SecurityContextHolder.getContext());
+
+        activeMutations.add(mutation);
+
+        mutation.result.whenComplete((response, excp) -> activeMutations.remove(mutation));
+
+        pendingMutations.add(mutation);
+
+        if (isShutdown) { // shutdown() might have missed this mutation
+            mutation.failOnShutdown();
+        }
+
+        try {
+            return mutation.result.get();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+
+            throw new AtlasBaseException(AtlasErrorCode.INTERNAL_ERROR, excp, "interrupted while waiting for group commit");
+        } catch (ExecutionException excp) {
+            Throwable cause = excp.getCause();
+
+            if (cause instanceof AtlasBaseException) {
+                throw (AtlasBaseException) cause;
+            }
+
+            throw new AtlasBaseException(AtlasErrorCode.INTERNAL_ERROR, cause, String.valueOf(cause));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (collector != null) {
+            isShutdown = true;
+
+            collector.shutdownNow();
+            committers.shutdownNow();
+
+            // requests waiting in the queue, or in a group not yet committed, would otherwise block their callers forever
+            for (PendingMutation mutation : activeMutations) {
+                mutation.failOnShutdown();
+            }
+
+            pendingMutations.clear();
+        }
+    }
+
+    private void collect() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<PendingMutation> mutations = new ArrayList<>();
+                PendingMutation       first     = pendingMutations.take();
+                long                  deadline  = System.currentTimeMillis() + windowMs;
+                int                   count     = first.entityCount;
+
+                mutations.add(first);
+
+                while (count < maxEntities) {
+                    PendingMutation next = pendingMutations.poll(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+
+                    if (next == null) {
+                        break;
+                    }
+
+                    mutations.add(next);
+
+                    count += next.entityCount;
+                }
+
+                for (List<PendingMutation> group : toGroups(mutations)) {
+                    committers.submit(() -> commit(group));
+                }
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable t) {
+                LOG.error("EntityMutationGroupCommitter: unexpected error", t);
+            }
+        }
+    }
+
+    // split the mutations into groups of requests that can be mutated in one transaction
+    private List<List<PendingMutation>> toGroups(List<PendingMutation> mutations) {
+        List<List<PendingMutation>> ret    = new ArrayList<>();
+        List<Set<String>>           keys   = new ArrayList<>();
+        List<Integer>               counts = new ArrayList<>();
+
+        for (PendingMutation mutation : mutations) {
+            Set<String> mutationKeys = getEntityKeys(mutation.entities);
+            boolean     isAdded      = false;
+
+            for (int i = 0; i < ret.size(); i++) {
+                List<PendingMutation> group = ret.get(i);
+
+                if (group.get(0).isGroupableWith(mutation) && counts.get(i) + mutation.entityCount <= maxEntities && !CollectionUtils.containsAny(keys.get(i), mutationKeys)) {
+                    group.add(mutation);
+                    keys.get(i).addAll(mutationKeys);
+                    counts.set(i, counts.get(i) + mutation.entityCount);
+
+                    isAdded = true;
+
+                    break;
+                }
+            }
+
+            if (!isAdded) {
+                List<PendingMutation> group = new ArrayList<>();
+
+                group.add(mutation);
+
+                ret.add(group);
+                keys.add(mutationKeys);
+                counts.add(mutation.entityCount);
+            }
+        }
+
+        return ret;
+    }
+
+    private void commit(List<PendingMutation> group) {
+        if (group.size() == 1) {
+            commitEach(group);
+        } else {
+            AtlasEntitiesWithExtInfo entities = new AtlasEntitiesWithExtInfo();
+
+            for (PendingMutation mutation : group) {
+                for (AtlasEntity entity : getAllEntities(mutation.entities, false)) {
+                    entities.addEntity(entity);
+                }
+
+                if (MapUtils.isNotEmpty(mutation.entities.getReferredEntities())) {
+                    for (Map.Entry<String, AtlasEntity> entry : mutation.entities.getReferredEntities().entrySet()) {
+                        entities.addReferredEntity(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+
+            PendingMutation first = group.get(0);
+
+            try {
+                first.setupRequestContext();
+
+                EntityMutationResponse response = entityStore.createOrUpdate(new AtlasEntityStream(entities), first.isPartialUpdate);
+
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("EntityMutationGroupCommitter: committed {} requests in one transaction", group.size());
+                }
+
+                completeAll(group, response);
+            } catch (Throwable t) {
+                LOG.warn("EntityMutationGroupCommitter: failed to commit {} requests in one transaction. Will retry each separately", group.size(), t);
+
+                RequestContext.get().resetEntityGuidUpdates();
+
+                commitEach(group);
+            } finally {
+                RequestContext.clear();
+                SecurityContextHolder.clearContext();
+            }
+        }
+    }
+
+    private void commitEach(List<PendingMutation> mutations) {
+        for (PendingMutation mutation : mutations) {
+            try {
+                mutation.setupRequestContext();
+
+                mutation.result.complete(entityStore.createOrUpdate(new AtlasEntityStream(mutation.entities), mutation.isPartialUpdate));
+            } catch (Throwable t) {
+                mutation.result.completeExceptionally(t);
+            } finally {
+                RequestContext.clear();
+                SecurityContextHolder.clearContext();
+            }
+        }
+    }
+
+    // response of each request has the entities in the request; entities mutated as a side effect, like the other end of
+    // a relationship, are included in the responses of all requests in the group as they can't be attributed to one
+    private void completeAll(List<PendingMutation> group, EntityMutationResponse groupResponse) {
+        List<Set<String>> requestGuids = new ArrayList<>(group.size());
+        Set<String>       allGuids     = new HashSet<>();
+
+        for (PendingMutation mutation : group) {
+            Set<String> guids = new HashSet<>();
+
+            for (AtlasEntity entity : getAllEntities(mutation.entities, true)) {
+                guids.add(entity.getGuid());
+            }
+
+            requestGuids.add(guids);
+            allGuids.addAll(guids);
+        }
+
+        for (int i = 0; i < group.size(); i++) {
+            Set<String>            guids    = requestGuids.get(i);
+            EntityMutationResponse response = new EntityMutationResponse();
+
+            if (MapUtils.isNotEmpty(groupResponse.getMutatedEntities())) {
+                for (Map.Entry<EntityOperation, List<AtlasEntityHeader>> entry : groupResponse.getMutatedEntities().entrySet()) {
+                    for (AtlasEntityHeader header : entry.getValue()) {
+                        if (guids.contains(header.getGuid()) || !allGuids.contains(header.getGuid())) {
+                            response.addEntity(entry.getKey(), header);
+                        }
+                    }
+                }
+            }
+
+            if (MapUtils.isNotEmpty(groupResponse.getGuidAssignments())) {
+                Map<String, String> guidAssignments = new HashMap<>();
+
+                for (Map.Entry<String, String> entry : groupResponse.getGuidAssignments().entrySet()) {
+                    if (guids.contains(entry.getValue())) {
+                        guidAssignments.put(entry.getKey(), entry.getValue());
+                    }
+                }
+
+                response.setGuidAssignments(guidAssignments);
+            }
+
+            group.get(i).result.complete(response);
+        }
+    }
+
+    // keys that identify the entities in the request: guids and unique attribute values
+    private Set<String> getEntityKeys(AtlasEntitiesWithExtInfo entities) {
+        Set<String> ret = new HashSet<>();
+
+        if (MapUtils.isNotEmpty(entities.getReferredEntities())) {
+            ret.addAll(entities.getReferredEntities().keySet());
+        }
+
+        for (AtlasEntity entity : getAllEntities(entities, true)) {
+            ret.add(entity.getGuid());
+
+            AtlasEntityType entityType = typeRegistry.getEntityTypeByName(entity.getTypeName());
+
+            if (entityType != null && MapUtils.isNotEmpty(entity.getAttributes())) {
+                for (AtlasAttribute attribute : entityType.getUniqAttributes().values()) {
+                    Object value = entity.getAttribute(attribute.getName());
+
+                    if (value != null) {
+                        ret.add(attribute.getQualifiedName() + "=" + value);
+                    }
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    private static List<AtlasEntity> getAllEntities(AtlasEntitiesWithExtInfo entities, boolean includeReferred) {
+        List<AtlasEntity> ret = new ArrayList<>();
+
+        if (CollectionUtils.isNotEmpty(entities.getEntities())) {
+            ret.addAll(entities.getEntities());
+        }
+
+        if (includeReferred && MapUtils.isNotEmpty(entities.getReferredEntities())) {
+            ret.addAll(entities.getReferredEntities().values());
+        }
+
+        return ret;
+    }
+
+    private static int getEntityCount(AtlasEntitiesWithExtInfo entities) {
+        return (entities.getEntities() != null ? entities.getEntities().size() : 0) + (entities.getReferredEntities() != null ? entities.getReferredEntities().size() : 0);
+    }
+
+    private static class PendingMutation {
+        final AtlasEntitiesWithExtInfo                  entities;
+        final boolean                                   isPartialUpdate;
+        final int                                       entityCount;
+        final String                                    user;
+        final Set<String>                               userGroups;
+        final String                                    clientIPAddress;
+        final List<String>                              forwardedAddresses;
+        final DeleteType                                deleteType;
+        final boolean                                   createShellEntityForNonExistingReference;
+        final SecurityContext                           securityContext;
+        final String                                    authUser;
+        final Set<String>                               authGroups;
+        final CompletableFuture<EntityMutationResponse> result = new CompletableFuture<>();
+
+        PendingMutation(AtlasEntitiesWithExtInfo entities, boolean isPartialUpdate, RequestContext context, SecurityContext securityContext) {
+            this.entities                                 = entities;
+            this.isPartialUpdate                          = isPartialUpdate;
+            this.entityCount                              = getEntityCount(entities);
+            this.user                                     = context.getUser();
+            this.userGroups                               = context.getUserGroups();
+            this.clientIPAddress                          = context.getClientIPAddress();
+            this.forwardedAddresses                       = context.getForwardedAddresses();
+            this.deleteType                               = context.getDeleteType();
+            this.createShellEntityForNonExistingReference = context.isCreateShellEntityForNonExistingReference();
+            this.securityContext                          = securityContext;
+            this.authUser                                 = AtlasAuthorizationUtils.getCurrentUserName();
+            this.authGroups                               = AtlasAuthorizationUtils.getCurrentUserGroups();
+        }
+
+        boolean isGroupableWith(PendingMutation other) {
+            return isPartialUpdate == other.isPartialUpdate &&
+                   createShellEntityForNonExistingReference == other.createShellEntityForNonExistingReference &&
+                   deleteType == other.deleteType &&
+                   Objects.equals(user, other.user) &&
+                   Objects.equals(userGroups, other.userGroups) &&
+                   Objects.equals(authUser, other.authUser) &&
+                   Objects.equals(authGroups, other.authGroups) &&
+                   Objects.equals(clientIPAddress, other.clientIPAddress) &&
+                   Objects.equals(forwardedAddresses, other.forwardedAddresses);
+        }
+
+        void setupRequestContext() {
+            RequestContext.clear();
+
+            RequestContext context = RequestContext.get();
+
+            context.setUser(user, userGroups);
+            context.setClientIPAddress(clientIPAddress);
+            context.setForwardedAddresses(forwardedAddresses);
+            context.setDeleteType(deleteType);
+            context.setCreateShellEntityForNonExistingReference(createShellEntityForNonExistingReference);
+
+            SecurityContextHolder.setContext(securityContext);
+        }
+
+        void failOnShutdown() {
+            result.completeExceptionally(new AtlasBaseException(AtlasErrorCode.INTERNAL_ERROR, "group commit is shut down"));
+        }
+    }
+}
@@ -17,6 +17,8 @@
  */
 package org.apache.atlas.repository.store.graph.v2;
 
+import com.google.common.collect.Lists;
+import org.apache.atlas.AtlasConfiguration;
 import org.apache.atlas.AtlasErrorCode;
 import org.apache.atlas.RequestContext;
 import org.apache.atlas.exception.AtlasBaseException;
@@ -27,24 +29,38 @@ import org.apache.atlas.repository.graphdb.AtlasVertex;
 import org.apache.atlas.repository.store.graph.EntityGraphDiscoveryContext;
 import org.apache.atlas.repository.store.graph.EntityResolver;
 import org.apache.atlas.type.AtlasEntityType;
+import org.apache.atlas.type.AtlasStructType.AtlasAttribute;
 import org.apache.atlas.type.AtlasTypeRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class UniqAttrBasedEntityResolver implements EntityResolver {
     private static final Logger LOG = LoggerFactory.getLogger(UniqAttrBasedEntityResolver.class);
 
+    private static final int BATCH_SIZE = AtlasConfiguration.ENTITY_RESOLVER_UNIQUE_ATTRIBUTE_BATCH_SIZE.getInt();
+
     private final AtlasGraph        graph;
     private final AtlasTypeRegistry typeRegistry;
     private final EntityGraphMapper entityGraphMapper;
+    private final int               batchSize;
 
     public UniqAttrBasedEntityResolver(AtlasGraph graph, AtlasTypeRegistry typeRegistry, EntityGraphMapper entityGraphMapper) {
+        this(graph, typeRegistry, entityGraphMapper, BATCH_SIZE);
+    }
+
+    UniqAttrBasedEntityResolver(AtlasGraph graph, AtlasTypeRegistry typeRegistry, EntityGraphMapper entityGraphMapper, int batchSize) {
         this.graph             = graph;
         this.typeRegistry      = typeRegistry;
         this.entityGraphMapper = entityGraphMapper;
+        this.batchSize         = batchSize;
     }
 
     @Override
@@ -53,6 +69,13 @@ public class UniqAttrBasedEntityResolver implements EntityResolver {
             throw new AtlasBaseException(AtlasErrorCode.INTERNAL_ERROR, "UniqAttrBasedEntityResolver.resolveEntityReferences(): context is null");
         }
 
+        Map<AtlasObjectId, AtlasVertex> foundInBatch    = new HashMap<>();
+        Set<AtlasObjectId>              notFoundInBatch = new HashSet<>();
+
+        if (batchSize > 1 && context.getReferencedByUniqAttribs().size() > 1) {
+            findInBatches(context.getReferencedByUniqAttribs(), foundInBatch, notFoundInBatch);
+        }
+
         //Resolve attribute references
         List<AtlasObjectId> resolvedReferences = new ArrayList<>();
 
@@ -64,7 +87,11 @@ public class UniqAttrBasedEntityResolver implements EntityResolver {
                 throw new AtlasBaseException(AtlasErrorCode.TYPE_NAME_INVALID, TypeCategory.ENTITY.name(), objId.getTypeName());
             }
 
-            AtlasVertex vertex = AtlasGraphUtilsV2.findByUniqueAttributes(this.graph, entityType, objId.getUniqueAttributes());
+            AtlasVertex vertex = foundInBatch.get(objId);
+
+            if (vertex == null && !notFoundInBatch.contains(objId)) {
+                vertex = findByUniqueAttributes(entityType, objId.getUniqueAttributes());
+            }
 
             if (vertex == null && RequestContext.get().isCreateShellEntityForNonExistingReference()) {
                 vertex = entityGraphMapper.createShellEntityVertex(objId, context);
@@ -80,4 +107,95 @@ public class UniqAttrBasedEntityResolver implements EntityResolver {
 
         return context;
     }
+
+    /**
+     * Looks up references by the first unique attribute having a value, with one query for references of the same
+     * type and attribute. A reference that is not found is added to notFound only if it has no other unique attribute
+     * value to look up by; other references that are not found are to be looked up individually.
+     */
+    private void findInBatches(Set<AtlasObjectId> objIds, Map<AtlasObjectId, AtlasVertex> found, Set<AtlasObjectId> notFound) {
+        Map<AtlasEntityType, Map<AtlasAttribute, Map<String, List<AtlasObjectId>>>> referencesByTypeAndAttr = new HashMap<>();
+        Set<AtlasObjectId>                                                          singleValueReferences   = new HashSet<>();
+
+        for (AtlasObjectId objId : objIds) {
+            AtlasEntityType entityType = typeRegistry.getEntityTypeByName(objId.getTypeName());
+
+            if (entityType == null || objId.getUniqueAttributes() == null) {
+                continue;
+            }
+
+            AtlasAttribute attribute   = null;
+            Object         attrValue   = null;
+            int            valuesCount = 0;
+
+            for (AtlasAttribute uniqAttribute : entityType.getUniqAttributes().values()) {
+                Object value = objId.getUniqueAttributes().get(uniqAttribute.getName());
+
+                if (value != null) {
+                    if (attribute == null) {
+                        attribute = uniqAttribute;
+                        attrValue = value;
+                    }
+
+                    valuesCount++;
+                }
+            }
+
+            if (attrValue instanceof String) { // values read from vertices are compared as strings
+                referencesByTypeAndAttr.computeIfAbsent(entityType, t -> new HashMap<>())
+                                       .computeIfAbsent(attribute, a -> new HashMap<>())
+                                       .computeIfAbsent((String) attrValue, v -> new ArrayList<>()).add(objId);
+
+                if (valuesCount == 1) {
+                    singleValueReferences.add(objId);
+                }
+            }
+        }
+
+        for (Map.Entry<AtlasEntityType, Map<AtlasAttribute, Map<String, List<AtlasObjectId>>>> typeEntry : referencesByTypeAndAttr.entrySet()) {
+            AtlasEntityType entityType = typeEntry.getKey();
+
+            for (Map.Entry<AtlasAttribute, Map<String, List<AtlasObjectId>>> attrEntry : typeEntry.getValue().entrySet()) {
+                AtlasAttribute                   attribute      = attrEntry.getKey();
+                Map<String, List<AtlasObjectId>> referencesByValue = attrEntry.getValue();
+
+                if (referencesByValue.size() < 2) { // a single value is looked up as before
+                    continue;
+                }
+
+                for (List<String> attrValues : Lists.partition(new ArrayList<>(referencesByValue.keySet()), batchSize)) {
+                    Map<String, AtlasVertex> vertices = findByUniqueAttributeValues(entityType, attribute, attrValues);
+
+                    if (vertices == null) { // can't be looked up in batches; will be looked up individually
+                        break;
+                    }
+
+                    for (String attrValue : attrValues) {
+                        AtlasVertex vertex = vertices.get(attrValue);
+
+                        for (AtlasObjectId objId : referencesByValue.get(attrValue)) {
+                            if (vertex != null) {
+                                found.put(objId, vertex);
+                            } else if (singleValueReferences.contains(objId)) {
+                                notFound.add(objId);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("findInBatches(): references={}, found={}, notFound={}", objIds.size(), found.size(), notFound.size());
+        }
+    }
+
+    AtlasVertex findByUniqueAttributes(AtlasEntityType entityType, Map<String, Object> attrValues) {
+        return AtlasGraphUtilsV2.findByUniqueAttributes(graph, entityType, attrValues);
+    }
+
+    // vertices by the given values of a unique attribute; null if they can't be looked up with one query
+    Map<String, AtlasVertex> findByUniqueAttributeValues(AtlasEntityType entityType, AtlasAttribute attribute, Collection<String> attrValues) {
+        return AtlasGraphUtilsV2.findByUniqueAttributeValues(graph, entityType, attribute, attrValues);
+    }
 }
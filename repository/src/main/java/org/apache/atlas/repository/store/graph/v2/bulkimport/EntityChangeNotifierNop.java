@@ -52,6 +52,11 @@ public class EntityChangeNotifierNop implements IAtlasEntityChangeNotifier {
 
     }
 
+    @Override
+    public void onClassificationsAddedToEntities(Map<AtlasEntity, List<AtlasClassification>> entityClassifications) throws AtlasBaseException {
+
+    }
+
     @Override
     public void onClassificationDeletedFromEntity(AtlasEntity entity, List<AtlasClassification> deletedClassifications) throws AtlasBaseException {
 
@@ -0,0 +1,77 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.tasks;
+
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.model.tasks.AtlasTask;
+
+import java.util.List;
+
+/**
+ * Executes tasks of given types. A task is executed in chunks, each processed in its own transaction; complete() is
+ * called once all chunks are processed. The position to resume from is returned with each chunk, and is saved in the
+ * task after the chunk commits; after a failure or a restart, the task resumes from the last saved position. As the
+ * chunk that follows the saved position may have been processed already, processing a chunk must be idempotent.
+ */
+public interface TaskHandler {
+    List<String> getSupportedTypes();
+
+    /**
+     * Processes up to chunkSize work items of the task, like entities to update, that follow the given cursor.
+     *
+     * @param cursor position to resume from, as returned with the previous chunk; null to start the task
+     */
+    Chunk processNextChunk(AtlasTask task, String cursor, int chunkSize) throws AtlasBaseException;
+
+    void complete(AtlasTask task) throws AtlasBaseException;
+
+    class Chunk {
+        private final int     processedCount;
+        private final boolean hasMore;
+        private final String  cursor;
+
+        private Chunk(int processedCount, boolean hasMore, String cursor) {
+            this.processedCount = processedCount;
+            this.hasMore        = hasMore;
+            this.cursor         = cursor;
+        }
+
+        /**
+         * @param cursor position to process the next chunk from
+         */
+        public static Chunk next(int processedCount, String cursor) {
+            return new Chunk(processedCount, true, cursor);
+        }
+
+        public static Chunk last(int processedCount) {
+            return new Chunk(processedCount, false, null);
+        }
+
+        public int getProcessedCount() {
+            return processedCount;
+        }
+
+        public boolean hasMore() {
+            return hasMore;
+        }
+
+        public String getCursor() {
+            return cursor;
+        }
+    }
+}
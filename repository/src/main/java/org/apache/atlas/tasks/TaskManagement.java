@@ -0,0 +1,314 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.tasks;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.atlas.AtlasConfiguration;
+import org.apache.atlas.RequestContext;
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.ha.HAConfiguration;
+import org.apache.atlas.listener.ActiveStateChangeHandler;
+import org.apache.atlas.model.tasks.AtlasTask;
+import org.apache.atlas.model.tasks.AtlasTask.Status;
+import org.apache.atlas.service.Service;
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes tasks recorded in the graph, like propagation of classifications, in a pool of worker threads.
+ *
+ * New tasks are queued once the transaction that created them commits. Tasks not completed before a restart, or
+ * before the instance became passive, are queued again when the instance becomes active. Each chunk of a task is
+ * processed in its own transaction, with the user that created the task; the cursor returned with the chunk is then
+ * saved in the task, so that the task resumes from there when executed again.
+ *
+ * A failed task is left PENDING and executed again, from its saved cursor, after a delay doubled for each further
+ * attempt, until it has failed maxAttempts times; it is then marked FAILED. Completed tasks are deleted once older than the retention period.
+ */
+@Component
+@Order(7)
+public class TaskManagement implements Service, ActiveStateChangeHandler {
+    private static final Logger LOG = LoggerFactory.getLogger(TaskManagement.class);
+
+    private final TaskRegistry             registry;
+    private final Map<String, TaskHandler> handlers = new HashMap<>();
+    private final Configuration            configuration;
+    private final boolean                  isEnabled;
+    private final int                      chunkSize;
+    private final int                      workerThreads;
+    private final int                      maxAttempts;
+    private final long                     retryDelayMs;
+    private final long                     completedRetentionMs;
+    private final long                     purgeIntervalMs;
+    private final Set<String>              queuedTasks = ConcurrentHashMap.newKeySet();
+    private       ScheduledExecutorService workers;
+    private volatile boolean               isActive = false;
+
+    @Inject
+    public TaskManagement(TaskRegistry registry, List<TaskHandler> handlers, Configuration configuration) {
+        this(registry, handlers, configuration, AtlasConfiguration.TASKS_ENABLED.getBoolean(),
+             AtlasConfiguration.TASKS_CHUNK_SIZE.getInt(), AtlasConfiguration.TASKS_WORKER_THREADS.getInt(),
+             AtlasConfiguration.TASKS_MAX_ATTEMPTS.getInt(), AtlasConfiguration.TASKS_RETRY_DELAY_MS.getLong(),
+             AtlasConfiguration.TASKS_COMPLETED_RETENTION_MS.getLong(), AtlasConfiguration.TASKS_PURGE_INTERVAL_MS.getLong());
+    }
+
+    TaskManagement(TaskRegistry registry, List<TaskHandler> handlers, Configuration configuration, boolean isEnabled, int chunkSize, int workerThreads,
+                   int maxAttempts, long retryDelayMs, long completedRetentionMs, long purgeIntervalMs) {
+        this.registry             = registry;
+        this.configuration        = configuration;
+        this.isEnabled            = isEnabled && workerThreads > 0;
+        this.chunkSize            = Math.max(chunkSize, 1);
+        this.workerThreads        = workerThreads;
+        this.maxAttempts          = Math.max(maxAttempts, 1);
+        this.retryDelayMs         = Math.max(retryDelayMs, 0);
+        this.completedRetentionMs = completedRetentionMs;
+        this.purgeIntervalMs      = purgeIntervalMs;
+
+        if (handlers != null) {
+            for (TaskHandler handler : handlers) {
+                for (String type : handler.getSupportedTypes()) {
+                    this.handlers.put(type, handler);
+                }
+            }
+        }
+
+        registry.setTaskCreatedListener(this::queue);
+    }
+
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    @Override
+    public void start() {
+        if (!isEnabled) {
+            LOG.info("TaskManagement: disabled");
+        } else if (!HAConfiguration.isHAEnabled(configuration)) {
+            startWorkers();
+        } else {
+            LOG.info("TaskManagement.start(): deferring until instance activation");
+        }
+    }
+
+    @Override
+    public void stop() {
+        stopWorkers();
+    }
+
+    @Override
+    public void instanceIsActive() {
+        if (isEnabled) {
+            startWorkers();
+        }
+    }
+
+    @Override
+    public void instanceIsPassive() {
+        stopWorkers();
+    }
+
+    @Override
+    public int getHandlerOrder() {
+        return HandlerOrder.TASK_MANAGEMENT.getOrder();
+    }
+
+    /**
+     * @param guid  guid of the task to return; all tasks are returned if null
+     */
+    public List<AtlasTask> getTasks(String guid, Status status, int offset, int limit) {
+        if (guid != null) {
+            AtlasTask task = offset == 0 && limit > 0 ? registry.getByGuid(guid) : null;
+
+            return task != null && (status == null || task.getStatus() == status) ? Collections.singletonList(task) : Collections.emptyList();
+        }
+
+        return registry.getTasks(status, offset, limit);
+    }
+
+    int getQueuedTaskCount() {
+        return queuedTasks.size();
+    }
+
+    private synchronized void startWorkers() {
+        if (workers == null) {
+            workers  = Executors.newScheduledThreadPool(workerThreads, new ThreadFactoryBuilder().setNameFormat("atlas-task-%d").setDaemon(true).build());
+            isActive = true;
+
+            List<AtlasTask> incompleteTasks = registry.getIncompleteTasks();
+
+            for (AtlasTask task : incompleteTasks) {
+                queue(task);
+            }
+
+            if (completedRetentionMs > 0 && purgeIntervalMs > 0) {
+                workers.scheduleWithFixedDelay(this::purgeCompletedTasks, purgeIntervalMs, purgeIntervalMs, TimeUnit.MILLISECONDS);
+            }
+
+            LOG.info("TaskManagement: started; chunkSize={}, workerThreads={}, maxAttempts={}, incompleteTasks={}", chunkSize, workerThreads, maxAttempts, incompleteTasks.size());
+        }
+    }
+
+    private synchronized void stopWorkers() {
+        if (workers != null) {
+            isActive = false;
+
+            workers.shutdownNow();
+
+            workers = null;
+
+            queuedTasks.clear();
+
+            LOG.info("TaskManagement: stopped");
+        }
+    }
+
+    synchronized void queue(AtlasTask task) {
+        if (workers == null) { // passive instance: task will be executed after the instance becomes active
+            return;
+        }
+
+        if (queuedTasks.add(task.getGuid())) {
+            workers.submit(() -> execute(task));
+        }
+    }
+
+    // a failed task is queued again after retryDelayMs, doubled for each further attempt
+    private synchronized void retry(AtlasTask task) {
+        if (workers != null) {
+            long delayMs = retryDelayMs << Math.min(Math.max(task.getAttemptCount() - 1, 0), 20);
+
+            workers.schedule(() -> queue(task), delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void purgeCompletedTasks() {
+        try {
+            long endedBefore = System.currentTimeMillis() - completedRetentionMs;
+            int  count       = 0;
+            int  deleted;
+
+            do {
+                deleted = registry.deleteCompletedTasks(endedBefore, chunkSize);
+                count  += deleted;
+            } while (deleted == chunkSize && isActive);
+
+            if (count > 0) {
+                LOG.info("TaskManagement: deleted {} tasks completed before {}", count, endedBefore);
+            }
+        } catch (Throwable t) { // an exception would cancel further runs of the schedule
+            LOG.error("TaskManagement: failed to delete completed tasks", t);
+        }
+    }
+
+    void execute(AtlasTask task) {
+        TaskHandler handler = handlers.get(task.getType());
+
+        try {
+            task.setStatus(Status.IN_PROGRESS);
+            task.setStartTime(System.currentTimeMillis());
+            task.setAttemptCount(task.getAttemptCount() + 1);
+
+            setRequestContext(task);
+
+            registry.updateStatus(task);
+
+            if (handler == null) {
+                throw new AtlasBaseException("no handler found for task type " + task.getType());
+            }
+
+            boolean hasMore = true;
+
+            while (hasMore && isActive) {
+                setRequestContext(task);
+
+                TaskHandler.Chunk chunk = handler.processNextChunk(task, task.getCursor(), chunkSize);
+
+                hasMore = chunk.hasMore();
+
+                task.setProcessedCount(task.getProcessedCount() + chunk.getProcessedCount());
+                task.setCursor(chunk.getCursor());
+
+                registry.updateStatus(task);
+            }
+
+            if (isActive) {
+                setRequestContext(task);
+
+                handler.complete(task);
+
+                task.setStatus(Status.COMPLETE);
+                task.setErrorMessage(null);
+            }
+        } catch (Throwable t) {
+            if (isActive) {
+                if (task.getAttemptCount() < maxAttempts) {
+                    LOG.warn("TaskManagement: task {} failed in attempt {} of {}; will be retried", task, task.getAttemptCount(), maxAttempts, t);
+
+                    task.setStatus(Status.PENDING);
+                } else {
+                    LOG.error("TaskManagement: task {} failed", task, t);
+
+                    task.setStatus(Status.FAILED);
+                }
+
+                task.setErrorMessage(t.getMessage() != null ? t.getMessage() : t.getClass().getName());
+            }
+        } finally {
+            if (isActive) { // an incomplete task is left IN_PROGRESS, to be executed again when the instance becomes active
+                task.setEndTime(System.currentTimeMillis());
+
+                try {
+                    registry.updateStatus(task);
+                } catch (Throwable t) {
+                    LOG.error("TaskManagement: failed to update status of task {}", task, t);
+                }
+
+                LOG.info("TaskManagement: task {} of type {} {}: processed {} items in {} ms", task.getGuid(), task.getType(), task.getStatus(),
+                         task.getProcessedCount(), task.getEndTime() - task.getStartTime());
+            }
+
+            RequestContext.clear();
+
+            queuedTasks.remove(task.getGuid());
+
+            if (isActive && task.getStatus() == Status.PENDING) {
+                retry(task);
+            }
+        }
+    }
+
+    private static void setRequestContext(AtlasTask task) {
+        RequestContext.clear();
+
+        RequestContext.get().setUser(task.getCreatedBy(), null);
+    }
+}
@@ -0,0 +1,285 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.tasks;
+
+import org.apache.atlas.GraphTransactionInterceptor;
+import org.apache.atlas.RequestContext;
+import org.apache.atlas.model.tasks.AtlasTask;
+import org.apache.atlas.model.tasks.AtlasTask.Status;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.graphdb.AtlasGraphQuery;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.type.AtlasType;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.apache.atlas.repository.Constants.*;
+import static org.apache.atlas.repository.graphdb.AtlasGraphQuery.ComparisionOperator.EQUAL;
+import static org.apache.atlas.repository.graphdb.AtlasGraphQuery.ComparisionOperator.LESS_THAN;
+import static org.apache.atlas.repository.graphdb.AtlasGraphQuery.SortOrder.ASC;
+import static org.apache.atlas.repository.store.graph.v2.AtlasGraphUtilsV2.getEncodedProperty;
+import static org.apache.atlas.repository.store.graph.v2.AtlasGraphUtilsV2.setEncodedProperty;
+
+/**
+ * Stores tasks as vertices in the graph.
+ *
+ * Tasks are created in the transaction of the operation that requires them, so that a task exists only if the
+ * operation commits. Listeners are notified of new tasks once that transaction commits. Completed tasks are kept until
+ * deleted by deleteCompletedTasks().
+ */
+@Component
+public class TaskRegistry {
+    private static final Logger LOG = LoggerFactory.getLogger(TaskRegistry.class);
+
+    private final    AtlasGraph          graph;
+    private volatile Consumer<AtlasTask> taskCreatedListener;
+
+    @Inject
+    public TaskRegistry(AtlasGraph graph) {
+        this.graph = graph;
+    }
+
+    public void setTaskCreatedListener(Consumer<AtlasTask> taskCreatedListener) {
+        this.taskCreatedListener = taskCreatedListener;
+    }
+
+    /**
+     * Create a task in the current transaction.
+     */
+    public AtlasTask createTask(String type, Map<String, Object> parameters) {
+        RequestContext  context = RequestContext.get();
+        final AtlasTask ret     = new AtlasTask(UUID.randomUUID().toString(), type, parameters, context.getUser(), context.getRequestTime());
+        AtlasVertex     vertex  = graph.addVertex();
+
+        setEncodedProperty(vertex, TASK_GUID_PROPERTY_KEY, ret.getGuid());
+        setEncodedProperty(vertex, TASK_TYPE_PROPERTY_KEY, ret.getType());
+        setEncodedProperty(vertex, TASK_PARAMETERS_PROPERTY_KEY, AtlasType.toJson(ret.getParameters()));
+        setEncodedProperty(vertex, TASK_STATUS_PROPERTY_KEY, ret.getStatus().name());
+        setEncodedProperty(vertex, TASK_ATTEMPT_COUNT_PROPERTY_KEY, ret.getAttemptCount());
+        setEncodedProperty(vertex, TASK_PROCESSED_COUNT_PROPERTY_KEY, ret.getProcessedCount());
+        setEncodedProperty(vertex, CREATED_BY_KEY, ret.getCreatedBy());
+        setEncodedProperty(vertex, TIMESTAMP_PROPERTY_KEY, ret.getCreatedTime());
+        setEncodedProperty(vertex, MODIFICATION_TIMESTAMP_PROPERTY_KEY, ret.getUpdatedTime());
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("TaskRegistry.createTask(): {}", ret);
+        }
+
+        new GraphTransactionInterceptor.PostTransactionHook() {
+            @Override
+            public void onComplete(boolean isSuccess) {
+                Consumer<AtlasTask> listener = taskCreatedListener;
+
+                if (isSuccess && listener != null) {
+                    listener.accept(ret);
+                }
+            }
+        };
+
+        return ret;
+    }
+
+    /**
+     * Save status, times, counts and cursor of the task, in a new transaction.
+     */
+    public void updateStatus(AtlasTask task) {
+        try {
+            AtlasVertex vertex = findByGuid(task.getGuid());
+
+            if (vertex != null) {
+                task.setUpdatedTime(System.currentTimeMillis());
+
+                setEncodedProperty(vertex, TASK_STATUS_PROPERTY_KEY, task.getStatus().name());
+                setEncodedProperty(vertex, TASK_ATTEMPT_COUNT_PROPERTY_KEY, task.getAttemptCount());
+                setEncodedProperty(vertex, TASK_PROCESSED_COUNT_PROPERTY_KEY, task.getProcessedCount());
+                setEncodedProperty(vertex, TASK_CURSOR_PROPERTY_KEY, task.getCursor());
+                setEncodedProperty(vertex, MODIFICATION_TIMESTAMP_PROPERTY_KEY, task.getUpdatedTime());
+
+                if (task.getStartTime() != null) {
+                    setEncodedProperty(vertex, TASK_START_TIME_PROPERTY_KEY, task.getStartTime());
+                }
+
+                if (task.getEndTime() != null) {
+                    setEncodedProperty(vertex, TASK_END_TIME_PROPERTY_KEY, task.getEndTime());
+                }
+
+                if (task.getErrorMessage() != null) {
+                    setEncodedProperty(vertex, TASK_ERROR_MESSAGE_PROPERTY_KEY, task.getErrorMessage());
+                }
+            } else {
+                LOG.warn("TaskRegistry.updateStatus(): task {} not found", task.getGuid());
+            }
+
+            graph.commit();
+        } catch (Throwable t) {
+            graph.rollback();
+
+            throw t;
+        }
+    }
+
+    public AtlasTask getByGuid(String guid) {
+        try {
+            AtlasVertex vertex = findByGuid(guid);
+
+            return vertex != null ? toAtlasTask(vertex) : null;
+        } finally {
+            graph.commit();
+        }
+    }
+
+    /**
+     * @return tasks yet to complete, i.e. in PENDING or IN_PROGRESS status, in the order of creation
+     */
+    public List<AtlasTask> getIncompleteTasks() {
+        return findTasks(Status.PENDING, Status.IN_PROGRESS);
+    }
+
+    /**
+     * @param status  status of tasks to return; tasks in all statuses are returned if null
+     * @param offset  number of tasks to skip, in the order of creation
+     * @param limit   maximum number of tasks to return
+     */
+    public List<AtlasTask> getTasks(Status status, int offset, int limit) {
+        List<AtlasTask> ret = new ArrayList<>();
+
+        try {
+            // the first offset + limit tasks of each status, in the order of creation, include the page to return
+            for (Status taskStatus : status != null ? new Status[] { status } : Status.values()) {
+                Iterator<AtlasVertex> results = graph.query().has(TASK_STATUS_PROPERTY_KEY, EQUAL, taskStatus.name())
+                                                     .orderBy(TIMESTAMP_PROPERTY_KEY, ASC)
+                                                     .vertices(0, offset + limit).iterator();
+
+                while (results.hasNext()) {
+                    ret.add(toAtlasTask(results.next()));
+                }
+            }
+        } finally {
+            graph.commit();
+        }
+
+        ret.sort(Comparator.comparingLong(AtlasTask::getCreatedTime));
+
+        return offset < ret.size() ? new ArrayList<>(ret.subList(offset, Math.min(offset + limit, ret.size()))) : new ArrayList<>();
+    }
+
+    /**
+     * Delete, in a new transaction, up to limit tasks that completed before the given time.
+     *
+     * @return number of tasks deleted
+     */
+    public int deleteCompletedTasks(long endedBefore, int limit) {
+        int ret = 0;
+
+        try {
+            Iterator<AtlasVertex> results = graph.query().has(TASK_STATUS_PROPERTY_KEY, EQUAL, Status.COMPLETE.name())
+                                                 .has(TASK_END_TIME_PROPERTY_KEY, LESS_THAN, endedBefore)
+                                                 .vertices(limit).iterator();
+
+            while (results.hasNext()) {
+                graph.removeVertex(results.next());
+
+                ret++;
+            }
+
+            graph.commit();
+        } catch (Throwable t) {
+            graph.rollback();
+
+            throw t;
+        }
+
+        return ret;
+    }
+
+    private List<AtlasTask> findTasks(Status... statuses) {
+        List<AtlasTask>       ret          = new ArrayList<>();
+        List<AtlasGraphQuery> orConditions = new ArrayList<>();
+        AtlasGraphQuery       query        = graph.query();
+
+        for (Status status : statuses) {
+            orConditions.add(query.createChildQuery().has(TASK_STATUS_PROPERTY_KEY, EQUAL, status.name()));
+        }
+
+        query.or(orConditions);
+
+        try {
+            Iterator<AtlasVertex> results = query.vertices().iterator();
+
+            while (results.hasNext()) {
+                ret.add(toAtlasTask(results.next()));
+            }
+
+            ret.sort(Comparator.comparingLong(AtlasTask::getCreatedTime));
+        } finally {
+            graph.commit();
+        }
+
+        return ret;
+    }
+
+    private AtlasVertex findByGuid(String guid) {
+        if (StringUtils.isEmpty(guid)) {
+            return null;
+        }
+
+        Iterator<AtlasVertex> results = graph.query().has(TASK_GUID_PROPERTY_KEY, guid).vertices().iterator();
+
+        return results.hasNext() ? results.next() : null;
+    }
+
+    private static AtlasTask toAtlasTask(AtlasVertex vertex) {
+        AtlasTask ret          = new AtlasTask();
+        String    parameters   = getEncodedProperty(vertex, TASK_PARAMETERS_PROPERTY_KEY, String.class);
+        String    status       = getEncodedProperty(vertex, TASK_STATUS_PROPERTY_KEY, String.class);
+        Integer   attemptCount = getEncodedProperty(vertex, TASK_ATTEMPT_COUNT_PROPERTY_KEY, Integer.class);
+
+        ret.setGuid(getEncodedProperty(vertex, TASK_GUID_PROPERTY_KEY, String.class));
+        ret.setType(getEncodedProperty(vertex, TASK_TYPE_PROPERTY_KEY, String.class));
+        ret.setParameters(parameters != null ? AtlasType.fromJson(parameters, Map.class) : null);
+        ret.setStatus(status != null ? Status.valueOf(status) : null);
+        ret.setCreatedBy(getEncodedProperty(vertex, CREATED_BY_KEY, String.class));
+        ret.setCreatedTime(getLong(vertex, TIMESTAMP_PROPERTY_KEY, 0L));
+        ret.setUpdatedTime(getLong(vertex, MODIFICATION_TIMESTAMP_PROPERTY_KEY, 0L));
+        ret.setStartTime(getLong(vertex, TASK_START_TIME_PROPERTY_KEY, null));
+        ret.setEndTime(getLong(vertex, TASK_END_TIME_PROPERTY_KEY, null));
+        ret.setAttemptCount(attemptCount != null ? attemptCount : 0);
+        ret.setProcessedCount(getLong(vertex, TASK_PROCESSED_COUNT_PROPERTY_KEY, 0L));
+        ret.setErrorMessage(getEncodedProperty(vertex, TASK_ERROR_MESSAGE_PROPERTY_KEY, String.class));
+        ret.setCursor(getEncodedProperty(vertex, TASK_CURSOR_PROPERTY_KEY, String.class));
+
+        return ret;
+    }
+
+    private static Long getLong(AtlasVertex vertex, String propertyName, Long defaultValue) {
+        Long ret = getEncodedProperty(vertex, propertyName, Long.class);
+
+        return ret != null ? ret : defaultValue;
+    }
+}
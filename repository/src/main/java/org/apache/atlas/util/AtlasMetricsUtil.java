@@ -17,8 +17,13 @@
  */
 package org.apache.atlas.util;
 
+import org.apache.atlas.GraphTransactionInterceptor;
+import org.apache.atlas.GraphTransactionInterceptor.ObjectUpdateSynchronizer;
 import org.apache.atlas.model.instance.EntityMutationResponse;
 import org.apache.atlas.repository.Constants;
+import org.apache.atlas.repository.graph.AsyncFullTextMapper;
+import org.apache.atlas.repository.graph.EntityHeaderCache;
+import org.apache.atlas.repository.graph.GuidVertexIdCache;
 import org.apache.atlas.repository.graphdb.AtlasGraph;
 import org.apache.atlas.repository.store.graph.v2.AtlasGraphUtilsV2;
 import org.apache.atlas.util.AtlasMetricsCounter.StatsReport;
@@ -43,14 +48,16 @@ import static org.apache.atlas.util.AtlasMetricsCounter.Period.*;
 public class AtlasMetricsUtil {
     private static final Logger LOG = LoggerFactory.getLogger(AtlasMetricsUtil.class);
 
-    private static final long   SEC_MS               = 1000;
-    private static final long   MIN_MS               =   60 * SEC_MS;
-    private static final long   HOUR_MS              =   60 * MIN_MS;
-    private static final long   DAY_MS               =   24 * HOUR_MS;
-    private static final String STATUS_CONNECTED     = "connected";
-    private static final String STATUS_NOT_CONNECTED = "not-connected";
+    private static final long   SEC_MS                       = 1000;
+    private static final long   MIN_MS                       =   60 * SEC_MS;
+    private static final long   HOUR_MS                      =   60 * MIN_MS;
+    private static final long   DAY_MS                       =   24 * HOUR_MS;
+    private static final String STATUS_CONNECTED             = "connected";
+    private static final String STATUS_NOT_CONNECTED         = "not-connected";
+    private static final int    MAX_CONTENDED_GUIDS_IN_STATS = 10;
 
     private final AtlasGraph              graph;
+    private final AsyncFullTextMapper     asyncFullTextMapper;
     private       long                    serverStartTime   = 0;
     private       long                    serverActiveTime  = 0;
     private final Map<String, TopicStats> topicStats        = new HashMap<>();
@@ -59,10 +66,16 @@ public class AtlasMetricsUtil {
     private final AtlasMetricsCounter     entityCreates     = new AtlasMetricsCounter("entityCreates");
     private final AtlasMetricsCounter     entityUpdates     = new AtlasMetricsCounter("entityUpdates");
     private final AtlasMetricsCounter     entityDeletes     = new AtlasMetricsCounter("entityDeletes");
+    private volatile int                  consumerThreads       = 0;
+    private volatile long                 consumerLag           = -1;
+    private volatile long                 consumerScaleUps      = 0;
+    private volatile long                 consumerScaleDowns    = 0;
+    private volatile long                 consumerLastScaleTime = 0;
 
     @Inject
-    public AtlasMetricsUtil(AtlasGraph graph) {
-        this.graph = graph;
+    public AtlasMetricsUtil(AtlasGraph graph, AsyncFullTextMapper asyncFullTextMapper) {
+        this.graph               = graph;
+        this.asyncFullTextMapper = asyncFullTextMapper;
     }
 
     // visible only for testing
@@ -116,6 +129,21 @@ public class AtlasMetricsUtil {
         partitionStat.setLastMessageProcessedTime(messagesProcessed.getLastIncrTime().toEpochMilli());
     }
 
+    public void onNotificationConsumerScaling(long lag, int prevThreads, int newThreads) {
+        consumerLag     = lag;
+        consumerThreads = newThreads;
+
+        if (newThreads != prevThreads) {
+            if (newThreads > prevThreads) {
+                consumerScaleUps++;
+            } else {
+                consumerScaleDowns++;
+            }
+
+            consumerLastScaleTime = System.currentTimeMillis();
+        }
+    }
+
     public Map<String, Object> getStats() {
         Map<String, Object> ret = new HashMap<>();
 
@@ -131,6 +159,33 @@ public class AtlasMetricsUtil {
         ret.put(STAT_SERVER_STATUS_BACKEND_STORE, getBackendStoreStatus() ? STATUS_CONNECTED : STATUS_NOT_CONNECTED);
         ret.put(STAT_SERVER_STATUS_INDEX_STORE, getIndexStoreStatus() ? STATUS_CONNECTED : STATUS_NOT_CONNECTED);
 
+        if (GuidVertexIdCache.isEnabled()) {
+            ret.put(STAT_SERVER_GUID_CACHE_SIZE, GuidVertexIdCache.getSize());
+            ret.put(STAT_SERVER_GUID_CACHE_HITS, GuidVertexIdCache.getHits());
+            ret.put(STAT_SERVER_GUID_CACHE_MISSES, GuidVertexIdCache.getMisses());
+            ret.put(STAT_SERVER_GUID_CACHE_EVICTIONS, GuidVertexIdCache.getEvictions());
+        }
+
+        if (EntityHeaderCache.isEnabled()) {
+            ret.put(STAT_SERVER_HEADER_CACHE_SIZE, EntityHeaderCache.getSize());
+            ret.put(STAT_SERVER_HEADER_CACHE_HITS, EntityHeaderCache.getHits());
+            ret.put(STAT_SERVER_HEADER_CACHE_MISSES, EntityHeaderCache.getMisses());
+            ret.put(STAT_SERVER_HEADER_CACHE_EVICTIONS, EntityHeaderCache.getEvictions());
+            ret.put(STAT_SERVER_HEADER_CACHE_DROPPED_PUTS, EntityHeaderCache.getDroppedPuts());
+        }
+
+        ObjectUpdateSynchronizer objectUpdateSynchronizer = GraphTransactionInterceptor.getObjectUpdateSynchronizer();
+
+        ret.put(STAT_SERVER_ENTITY_LOCK_WAITS, objectUpdateSynchronizer.getWaitTimeCounts());
+        ret.put(STAT_SERVER_ENTITY_LOCK_TIMEOUTS, objectUpdateSynchronizer.getWaitTimeoutCount());
+        ret.put(STAT_SERVER_ENTITY_LOCK_OUT_OF_ORDER, objectUpdateSynchronizer.getOutOfOrderFailureCount());
+        ret.put(STAT_SERVER_ENTITY_LOCK_CONTENDED_GUIDS, objectUpdateSynchronizer.getContendedGuids(MAX_CONTENDED_GUIDS_IN_STATS));
+
+        if (asyncFullTextMapper.isEnabled()) {
+            ret.put(STAT_SERVER_FULLTEXT_QUEUE_SIZE, asyncFullTextMapper.getQueueSize());
+            ret.put(STAT_SERVER_FULLTEXT_LAG_MS, asyncFullTextMapper.getLagMs());
+        }
+
         Map<String, Map<String, Long>> topicDetails = new HashMap<>();
 
         for (TopicStats tStat : topicStats.values()) {
@@ -159,6 +214,12 @@ public class AtlasMetricsUtil {
         ret.put(STAT_NOTIFY_UPDATES_COUNT_TOTAL, entityUpdates.getCount(ALL));
         ret.put(STAT_NOTIFY_DELETES_COUNT_TOTAL, entityDeletes.getCount(ALL));
 
+        ret.put(STAT_NOTIFY_CONSUMER_THREADS,         consumerThreads);
+        ret.put(STAT_NOTIFY_CONSUMER_LAG,             consumerLag);
+        ret.put(STAT_NOTIFY_CONSUMER_SCALE_UPS,       consumerScaleUps);
+        ret.put(STAT_NOTIFY_CONSUMER_SCALE_DOWNS,     consumerScaleDowns);
+        ret.put(STAT_NOTIFY_CONSUMER_LAST_SCALE_TIME, consumerLastScaleTime);
+
         ret.put(STAT_NOTIFY_START_TIME_CURR_DAY,    messagesProcessed.getDayStartTimeMs());
         ret.put(STAT_NOTIFY_COUNT_CURR_DAY,         messagesProcessed.getCount(CURR_DAY));
         ret.put(STAT_NOTIFY_AVG_TIME_CURR_DAY,      messagesProcessed.getMeasureAvg(CURR_DAY));
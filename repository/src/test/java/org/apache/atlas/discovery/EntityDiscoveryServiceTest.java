@@ -0,0 +1,128 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.discovery;
+
+import org.apache.atlas.BasicTestSetup;
+import org.apache.atlas.SortOrder;
+import org.apache.atlas.TestModules;
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.model.discovery.AtlasSearchResult;
+import org.apache.atlas.model.discovery.SearchParameters;
+import org.apache.atlas.model.instance.AtlasEntityHeader;
+import org.apache.atlas.model.instance.AtlasObjectId;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.repository.store.graph.v2.AtlasGraphUtilsV2;
+import org.apache.atlas.repository.store.graph.v2.EntityGraphRetriever;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Guice;
+import org.testng.annotations.Test;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+@Guice(modules = TestModules.TestOnlyModule.class)
+public class EntityDiscoveryServiceTest extends BasicTestSetup {
+    @Inject
+    private AtlasDiscoveryService discoveryService;
+
+    @Inject
+    private AtlasGraph graph;
+
+    @Inject
+    private EntityGraphRetriever entityRetriever;
+
+    @BeforeClass
+    public void setup() {
+        setupTestData();
+    }
+
+    @Test
+    public void searchResultsMatchHeadersMappedOneAtATime() throws AtlasBaseException {
+        Set<String>      attributes = new HashSet<>(Arrays.asList("owner", "db", "sd", "columns"));
+        SearchParameters params     = new SearchParameters();
+
+        params.setTypeName(HIVE_TABLE_TYPE);
+        params.setAttributes(attributes);
+        params.setIncludeClassificationAttributes(true);
+        params.setSortBy("name");
+        params.setSortOrder(SortOrder.ASCENDING);
+        params.setLimit(100);
+
+        AtlasSearchResult       result   = discoveryService.searchWithParameters(params);
+        List<AtlasEntityHeader> entities = result.getEntities();
+
+        assertNotNull(entities);
+        assertTrue(entities.size() > 1);
+
+        List<String> names       = new ArrayList<>();
+        List<String> sortedNames = new ArrayList<>();
+
+        for (AtlasEntityHeader entity : entities) {
+            names.add((String) entity.getAttribute("name"));
+        }
+
+        sortedNames.addAll(names);
+        sortedNames.sort(String::compareTo);
+
+        assertEquals(names, sortedNames); // results are listed in the order returned by the search
+
+        // headers and referred entities as they were mapped before batching: one vertex at a time
+        Set<String>                    entityAttributes         = new HashSet<>(Arrays.asList("db", "sd", "columns")); // iterated as the search does
+        Map<String, AtlasEntityHeader> expectedReferredEntities = new LinkedHashMap<>();
+
+        for (AtlasEntityHeader entity : entities) {
+            AtlasVertex       vertex   = AtlasGraphUtilsV2.findByGuid(graph, entity.getGuid());
+            AtlasEntityHeader expected = entityRetriever.toAtlasEntityHeader(vertex, attributes);
+
+            expected.setClassifications(entityRetriever.getAllClassifications(vertex));
+
+            assertEquals(entity, expected);
+
+            for (String attribute : entityAttributes) {
+                Object        attrValue = entity.getAttribute(attribute);
+                Collection<?> objIds    = attrValue instanceof Collection ? (Collection<?>) attrValue : Arrays.asList(attrValue);
+
+                for (Object objId : objIds) {
+                    if (objId instanceof AtlasObjectId) {
+                        String guid = ((AtlasObjectId) objId).getGuid();
+
+                        if (!expectedReferredEntities.containsKey(guid)) {
+                            expectedReferredEntities.put(guid, entityRetriever.toAtlasEntityHeader(guid));
+                        }
+                    }
+                }
+            }
+        }
+
+        assertTrue(expectedReferredEntities.size() > entities.size());
+        assertEquals(result.getReferredEntities(), expectedReferredEntities);
+        assertEquals(new ArrayList<>(result.getReferredEntities().keySet()), new ArrayList<>(expectedReferredEntities.keySet())); // in the order first referenced
+    }
+}
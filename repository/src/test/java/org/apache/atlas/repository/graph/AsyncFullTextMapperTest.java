@@ -0,0 +1,148 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.graph;
+
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.atlas.repository.Constants.ENTITY_TEXT_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.FULLTEXT_PENDING_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.GUID_PROPERTY_KEY;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class AsyncFullTextMapperTest {
+    @Test
+    public void queuedGuidsAreDeduplicated() throws Exception {
+        AsyncFullTextMapper mapper = new AsyncFullTextMapper(mock(AtlasGraph.class), mock(FullTextMapperV2.class), new PropertiesConfiguration(), true, 10, 1);
+
+        assertEquals(mapper.getQueueSize(), 0);
+        assertEquals(mapper.getLagMs(), 0);
+
+        mapper.addToQueue(Arrays.asList("guid1", "guid2"));
+
+        Thread.sleep(20);
+
+        mapper.addToQueue(Arrays.asList("guid2", "guid3", "guid1"));
+
+        assertEquals(mapper.getQueueSize(), 3);
+        assertTrue(mapper.getLagMs() >= 20); // lag is from the first time guid1 was queued
+    }
+
+    @Test
+    public void pendingTokenIsUniqueToEachUpdate() {
+        long token1 = AsyncFullTextMapper.nextPendingToken();
+        long token2 = AsyncFullTextMapper.nextPendingToken();
+
+        assertTrue(token2 > token1);
+    }
+
+    @Test
+    public void pendingMarkIsClearedOnlyIfUnchanged() throws Exception {
+        AtlasVertex      unchanged      = mockVertex("guid1", 5L);
+        AtlasVertex      updatedAgain   = mockVertex("guid2", 5L, 6L); // marked again while its full text was updated
+        FullTextMapperV2 fullTextMapper = mock(FullTextMapperV2.class);
+
+        when(fullTextMapper.getIndexTextForEntity("guid1")).thenReturn("text1");
+        when(fullTextMapper.getIndexTextForEntity("guid2")).thenReturn("text2");
+
+        TestMapper mapper = new TestMapper(fullTextMapper, 10);
+
+        mapper.vertices.put("guid1", unchanged);
+        mapper.vertices.put("guid2", updatedAgain);
+
+        mapper.addToQueue(Arrays.asList("guid1", "guid2"));
+        mapper.processPending();
+
+        verify(unchanged).setProperty(ENTITY_TEXT_PROPERTY_KEY, "text1");
+        verify(updatedAgain).setProperty(ENTITY_TEXT_PROPERTY_KEY, "text2");
+        verify(unchanged).removeProperty(FULLTEXT_PENDING_PROPERTY_KEY);
+        verify(updatedAgain, never()).removeProperty(FULLTEXT_PENDING_PROPERTY_KEY);
+        assertEquals(mapper.getQueueSize(), 0);
+    }
+
+    @Test
+    public void pendingEntitiesAreRecoveredInPages() throws Exception {
+        TestMapper mapper = new TestMapper(mock(FullTextMapperV2.class), 2);
+
+        for (int i = 1; i <= 5; i++) {
+            mapper.pendingVertices.add(mockVertex("guid" + i, (long) i * 10));
+        }
+
+        mapper.processPending();
+
+        assertEquals(mapper.pageTokens, Arrays.asList(0L, 20L, 40L));
+        assertEquals(mapper.processedGuids, Arrays.asList("guid1", "guid2", "guid3", "guid4", "guid5"));
+    }
+
+    private AtlasVertex mockVertex(String guid, Long token, Long... laterTokens) {
+        AtlasVertex vertex = mock(AtlasVertex.class);
+
+        when(vertex.getId()).thenReturn(guid);
+        when(vertex.getProperty(GUID_PROPERTY_KEY, String.class)).thenReturn(guid);
+        when(vertex.getProperty(FULLTEXT_PENDING_PROPERTY_KEY, Long.class)).thenReturn(token, laterTokens);
+
+        return vertex;
+    }
+
+    // finds vertices in the given maps, instead of in the graph
+    private static class TestMapper extends AsyncFullTextMapper {
+        final Map<String, AtlasVertex> vertices        = new HashMap<>();
+        final List<AtlasVertex>        pendingVertices = new ArrayList<>();
+        final List<Long>               pageTokens      = new ArrayList<>();
+        final List<String>             processedGuids  = new ArrayList<>();
+
+        TestMapper(FullTextMapperV2 fullTextMapper, int batchSize) {
+            super(mock(AtlasGraph.class), fullTextMapper, new PropertiesConfiguration(), true, batchSize, 1);
+        }
+
+        @Override
+        AtlasVertex findVertex(String guid) {
+            processedGuids.add(guid);
+
+            return vertices.get(guid);
+        }
+
+        @Override
+        List<AtlasVertex> findPendingVertices(long afterToken, int limit) {
+            List<AtlasVertex> ret = new ArrayList<>();
+
+            pageTokens.add(afterToken);
+
+            for (AtlasVertex vertex : pendingVertices) {
+                if (ret.size() < limit && vertex.getProperty(FULLTEXT_PENDING_PROPERTY_KEY, Long.class) > afterToken) {
+                    ret.add(vertex);
+                }
+            }
+
+            return ret;
+        }
+    }
+}
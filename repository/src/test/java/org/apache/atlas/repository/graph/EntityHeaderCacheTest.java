@@ -0,0 +1,185 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.graph;
+
+import org.apache.atlas.model.TimeBoundary;
+import org.apache.atlas.model.glossary.relations.AtlasTermAssignmentHeader;
+import org.apache.atlas.model.instance.AtlasClassification;
+import org.apache.atlas.model.instance.AtlasEntityHeader;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class EntityHeaderCacheTest {
+    @Test
+    public void testHeaderIsCachedForVersion() {
+        assertTrue(EntityHeaderCache.isEnabled());
+        assertNull(EntityHeaderCache.get("header-guid-1", 100L));
+
+        EntityHeaderCache.put("header-guid-1", 100L, getHeader("header-guid-1"), EntityHeaderCache.getInvalidationStamp("header-guid-1"));
+
+        long hits   = EntityHeaderCache.getHits();
+        long misses = EntityHeaderCache.getMisses();
+
+        assertNotNull(EntityHeaderCache.get("header-guid-1", 100L));
+        assertNull(EntityHeaderCache.get("header-guid-1", 200L)); // entity modified since the header was cached
+        assertEquals(EntityHeaderCache.getHits(), hits + 1);
+        assertEquals(EntityHeaderCache.getMisses(), misses + 1);
+
+        EntityHeaderCache.remove(Collections.singleton("header-guid-1"));
+
+        assertNull(EntityHeaderCache.get("header-guid-1", 100L));
+    }
+
+    @Test
+    public void testCachedHeaderIsCopied() {
+        AtlasEntityHeader header = getHeader("header-guid-2");
+
+        EntityHeaderCache.put("header-guid-2", 100L, header, EntityHeaderCache.getInvalidationStamp("header-guid-2"));
+
+        header.setAttribute("owner", "user1");
+        header.getClassificationNames().add("PII");
+
+        AtlasEntityHeader cached = EntityHeaderCache.get("header-guid-2", 100L);
+
+        assertNotNull(cached);
+        assertEquals(cached.getAttribute("name"), "table1");
+        assertFalse(cached.hasAttribute("owner"));
+        assertEquals(cached.getClassificationNames(), Collections.singletonList("Sensitive"));
+
+        cached.setAttribute("owner", "user2");
+        cached.getLabels().add("label2");
+
+        AtlasEntityHeader cachedAgain = EntityHeaderCache.get("header-guid-2", 100L);
+
+        assertFalse(cachedAgain.hasAttribute("owner"));
+        assertEquals(cachedAgain.getLabels().size(), 1);
+
+        EntityHeaderCache.remove("header-guid-2");
+    }
+
+    @Test
+    public void testClassificationsAndMeaningsAreCopied() {
+        AtlasEntityHeader         header         = getHeader("header-guid-3");
+        AtlasClassification       classification = new AtlasClassification("Sensitive", "level", 1);
+        AtlasTermAssignmentHeader meaning        = new AtlasTermAssignmentHeader();
+
+        classification.setValidityPeriods(new ArrayList<>(Collections.singletonList(new TimeBoundary("2020/01/01 00:00:00"))));
+        meaning.setTermGuid("term-guid-1");
+        meaning.setDisplayText("term1");
+
+        header.setClassifications(new ArrayList<>(Collections.singletonList(classification)));
+        header.setMeanings(new ArrayList<>(Collections.singletonList(meaning)));
+
+        EntityHeaderCache.put("header-guid-3", 100L, header, EntityHeaderCache.getInvalidationStamp("header-guid-3"));
+
+        classification.setAttribute("level", 2);
+        classification.getValidityPeriods().get(0).setEndTime("2021/01/01 00:00:00");
+        meaning.setDisplayText("term2");
+
+        AtlasEntityHeader cached = EntityHeaderCache.get("header-guid-3", 100L);
+
+        assertNotNull(cached);
+        assertEquals(cached.getClassifications().get(0).getAttribute("level"), 1);
+        assertNull(cached.getClassifications().get(0).getValidityPeriods().get(0).getEndTime());
+        assertEquals(cached.getMeanings().get(0).getDisplayText(), "term1");
+
+        cached.getClassifications().get(0).setAttribute("level", 3);
+        cached.getMeanings().get(0).setDisplayText("term3");
+
+        AtlasEntityHeader cachedAgain = EntityHeaderCache.get("header-guid-3", 100L);
+
+        assertEquals(cachedAgain.getClassifications().get(0).getAttribute("level"), 1);
+        assertEquals(cachedAgain.getMeanings().get(0).getDisplayText(), "term1");
+
+        EntityHeaderCache.remove("header-guid-3");
+    }
+
+    @Test
+    public void testHeaderReadBeforeInvalidationIsNotCached() {
+        long invalidationStamp = EntityHeaderCache.getInvalidationStamp("header-guid-4"); // read of the header starts
+        long droppedPuts       = EntityHeaderCache.getDroppedPuts();
+
+        EntityHeaderCache.remove("header-guid-4"); // entity changed and its header invalidated, while the header is read
+
+        EntityHeaderCache.put("header-guid-4", 100L, getHeader("header-guid-4"), invalidationStamp);
+
+        assertNull(EntityHeaderCache.get("header-guid-4", 100L));
+        assertEquals(EntityHeaderCache.getDroppedPuts(), droppedPuts + 1);
+
+        EntityHeaderCache.put("header-guid-4", 100L, getHeader("header-guid-4"), EntityHeaderCache.getInvalidationStamp("header-guid-4"));
+
+        assertNotNull(EntityHeaderCache.get("header-guid-4", 100L));
+
+        EntityHeaderCache.remove("header-guid-4");
+    }
+
+    @Test
+    public void testHeaderReadDuringInvalidationOfOtherEntityIsCached() {
+        String guid      = "header-guid-5";
+        String otherGuid = getGuidInOtherStripe(guid);
+
+        long invalidationStamp = EntityHeaderCache.getInvalidationStamp(guid); // read of the header starts
+        long droppedPuts       = EntityHeaderCache.getDroppedPuts();
+
+        EntityHeaderCache.remove(otherGuid); // another entity changed while the header is read
+
+        EntityHeaderCache.put(guid, 100L, getHeader(guid), invalidationStamp);
+
+        assertNotNull(EntityHeaderCache.get(guid, 100L));
+        assertEquals(EntityHeaderCache.getDroppedPuts(), droppedPuts);
+
+        EntityHeaderCache.remove(guid);
+    }
+
+    private static String getGuidInOtherStripe(String guid) {
+        long invalidationStamp = EntityHeaderCache.getInvalidationStamp(guid);
+
+        for (int i = 0; ; i++) {
+            String ret = "other-guid-" + i;
+
+            EntityHeaderCache.remove(ret);
+
+            if (EntityHeaderCache.getInvalidationStamp(guid) == invalidationStamp) {
+                return ret;
+            }
+
+            invalidationStamp = EntityHeaderCache.getInvalidationStamp(guid);
+        }
+    }
+
+    private static AtlasEntityHeader getHeader(String guid) {
+        AtlasEntityHeader ret = new AtlasEntityHeader("hive_table");
+
+        ret.setGuid(guid);
+        ret.setAttribute("name", "table1");
+        ret.setClassificationNames(new ArrayList<>(Collections.singletonList("Sensitive")));
+        ret.setLabels(new HashSet<>(Arrays.asList("label1")));
+
+        return ret;
+    }
+}
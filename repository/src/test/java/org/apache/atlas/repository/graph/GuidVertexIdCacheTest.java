@@ -0,0 +1,88 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.graph;
+
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.testng.annotations.Test;
+
+import static org.apache.atlas.repository.Constants.GUID_PROPERTY_KEY;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class GuidVertexIdCacheTest {
+    @Test
+    public void testCachedVertexIsLoadedById() {
+        AtlasGraph  graph  = mock(AtlasGraph.class);
+        AtlasVertex vertex = getVertex("1001", "cache-guid-1");
+
+        when(graph.getVertex("1001")).thenReturn(vertex);
+
+        assertTrue(GuidVertexIdCache.isEnabled());
+        assertNull(GuidVertexIdCache.getVertex(graph, "cache-guid-1"));
+
+        GuidVertexIdCache.put("cache-guid-1", vertex);
+
+        long hits = GuidVertexIdCache.getHits();
+
+        assertEquals(GuidVertexIdCache.getVertex(graph, "cache-guid-1"), vertex);
+        assertEquals(GuidVertexIdCache.getHits(), hits + 1);
+
+        GuidVertexIdCache.remove("cache-guid-1");
+
+        assertNull(GuidVertexIdCache.getVertex(graph, "cache-guid-1"));
+    }
+
+    @Test
+    public void testStaleEntryIsRemoved() {
+        AtlasGraph  graph         = mock(AtlasGraph.class);
+        AtlasVertex vertex        = getVertex("2001", "cache-guid-2");
+        AtlasVertex reusedVertex  = getVertex("2001", "cache-guid-3");
+        AtlasVertex removedVertex = getVertex("2002", "cache-guid-4");
+
+        when(removedVertex.exists()).thenReturn(false);
+        when(graph.getVertex("2001")).thenReturn(reusedVertex);
+        when(graph.getVertex("2002")).thenReturn(removedVertex);
+
+        GuidVertexIdCache.put("cache-guid-2", vertex);
+        GuidVertexIdCache.put("cache-guid-4", removedVertex);
+
+        long misses = GuidVertexIdCache.getMisses();
+
+        assertNull(GuidVertexIdCache.getVertex(graph, "cache-guid-2")); // vertex has a different guid
+        assertNull(GuidVertexIdCache.getVertex(graph, "cache-guid-4")); // vertex doesn't exist
+        assertEquals(GuidVertexIdCache.getMisses(), misses + 2);
+
+        when(graph.getVertex("2001")).thenReturn(vertex);
+
+        assertNull(GuidVertexIdCache.getVertex(graph, "cache-guid-2")); // entry was removed
+    }
+
+    private static AtlasVertex getVertex(String id, String guid) {
+        AtlasVertex ret = mock(AtlasVertex.class);
+
+        when(ret.getId()).thenReturn(id);
+        when(ret.exists()).thenReturn(true);
+        when(ret.getProperty(GUID_PROPERTY_KEY, String.class)).thenReturn(guid);
+
+        return ret;
+    }
+}
@@ -37,9 +37,11 @@ import org.apache.atlas.model.instance.EntityMutations.EntityOperation;
 import org.apache.atlas.model.typedef.AtlasClassificationDef;
 import org.apache.atlas.model.typedef.AtlasEntityDef;
 import org.apache.atlas.model.typedef.AtlasTypesDef;
+import org.apache.atlas.type.AtlasEntityType;
 import org.apache.atlas.type.AtlasTypeUtil;
 import org.apache.atlas.util.FileUtils;
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.collections.MapUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
@@ -54,6 +56,7 @@ import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -73,6 +76,7 @@ import static org.apache.atlas.TestUtilsV2.getFile;
 import static org.apache.commons.lang.RandomStringUtils.randomAlphanumeric;
 import static org.mockito.Mockito.mock;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
@@ -287,6 +291,218 @@ public class AtlasEntityStoreV2Test extends AtlasEntityTestBase {
         assertEquals(response.getEntitiesByOperation(EntityMutations.EntityOperation.DELETE).size(), 2);
     }
 
+    @Test(dependsOnMethods = "testCreate")
+    public void testUnchangedReferenceArrayIsNotWritten() throws Exception {
+        AtlasEntity              tableEntity  = TestUtilsV2.createTableEntityV2(dbEntity.getEntity()).getEntity();
+        AtlasEntity              col1         = TestUtilsV2.createColumnEntity(tableEntity);
+        AtlasEntity              col2         = TestUtilsV2.createColumnEntity(tableEntity);
+        AtlasEntitiesWithExtInfo entitiesInfo = new AtlasEntitiesWithExtInfo(tableEntity);
+
+        ((AtlasObjectId) tableEntity.getAttribute("database")).setGuid(dbEntityGuid);
+        tableEntity.setAttribute(COLUMNS_ATTR_NAME, Arrays.asList(AtlasTypeUtil.getAtlasObjectId(col1), AtlasTypeUtil.getAtlasObjectId(col2)));
+
+        entitiesInfo.addReferredEntity(col1);
+        entitiesInfo.addReferredEntity(col2);
+
+        init();
+        EntityMutationResponse response  = entityStore.createOrUpdate(new AtlasEntityStream(entitiesInfo), false);
+        String                 tableGuid = response.getFirstCreatedEntityByTypeName(TABLE_TYPE).getGuid();
+
+        // same entities sent as a hook would: new unassigned guids, references carrying unique attributes
+        init();
+        response = entityStore.createOrUpdate(new AtlasEntityStream(toHookMessage(tableEntity, Arrays.asList(col1, col2), "updated", false)), false);
+
+        long skippedWithoutColumns = RequestContext.get().getSkippedWriteCount();
+
+        assertEquals(response.getFirstUpdatedEntityByTypeName(TABLE_TYPE).getGuid(), tableGuid);
+
+        init();
+        response = entityStore.createOrUpdate(new AtlasEntityStream(toHookMessage(tableEntity, Arrays.asList(col1, col2), "updated again", true)), false);
+
+        long skippedWithColumns = RequestContext.get().getSkippedWriteCount();
+
+        assertEquals(response.getFirstUpdatedEntityByTypeName(TABLE_TYPE).getGuid(), tableGuid);
+        assertEquals(skippedWithColumns - skippedWithoutColumns, 2); // edges to col1, col2 are not rewritten
+        assertTrue(CollectionUtils.isEmpty(response.getUpdatedEntitiesByTypeName(COLUMN_TYPE)));  // hence no audit event for the columns
+
+        AtlasEntity         updatedTable = getEntityFromStore(tableGuid);
+        List<AtlasObjectId> columns      = (List<AtlasObjectId>) updatedTable.getAttribute(COLUMNS_ATTR_NAME);
+
+        assertEquals(updatedTable.getAttribute("description"), "updated again");
+        assertEquals(columns.size(), 2);
+
+        for (AtlasObjectId column : columns) {
+            assertEquals(getEntityFromStore(column.getGuid()).getStatus(), AtlasEntity.Status.ACTIVE);
+        }
+    }
+
+    @Test(dependsOnMethods = "testCreate")
+    public void testUnchangedDateIsNotWritten() throws Exception {
+        AtlasEntityType employeeType = typeRegistry.getEntityTypeByName(TestUtilsV2.EMPLOYEE_TYPE);
+        AtlasEntity     employee     = entityStore.getByUniqueAttributes(employeeType, Collections.singletonMap(NAME, "Max")).getEntity();
+        Object          birthday     = employee.getAttribute("birthday");
+        Boolean         hasPets      = (Boolean) employee.getAttribute("hasPets");
+
+        assertNotNull(birthday);
+
+        AtlasEntity update = new AtlasEntity(TestUtilsV2.EMPLOYEE_TYPE);
+
+        update.setGuid(employee.getGuid());
+        update.setAttribute("hasPets", !hasPets);
+
+        init();
+        EntityMutationResponse response = entityStore.createOrUpdate(new AtlasEntityStream(update), true);
+
+        long skippedWithoutDate = RequestContext.get().getSkippedWriteCount();
+
+        assertEquals(response.getFirstEntityPartialUpdated().getGuid(), employee.getGuid());
+
+        update.setAttribute("hasPets", hasPets);
+        update.setAttribute("birthday", birthday);
+
+        init();
+        response = entityStore.createOrUpdate(new AtlasEntityStream(update), true);
+
+        long skippedWithDate = RequestContext.get().getSkippedWriteCount();
+
+        assertEquals(response.getFirstEntityPartialUpdated().getGuid(), employee.getGuid());
+        assertEquals(skippedWithDate - skippedWithoutDate, 1);
+
+        // only the unchanged date: nothing to write, nothing to audit
+        update.removeAttribute("hasPets");
+
+        init();
+        response = entityStore.createOrUpdate(new AtlasEntityStream(update), true);
+
+        assertTrue(CollectionUtils.isEmpty(response.getPartialUpdatedEntities()));
+        assertTrue(CollectionUtils.isEmpty(response.getUpdatedEntities()));
+        assertEquals(getEntityFromStore(employee.getGuid()).getAttribute("birthday"), birthday);
+    }
+
+    @Test(dependsOnMethods = "testCreate")
+    public void testUnchangedStructIsNotWritten() throws Exception {
+        AtlasEntityType employeeType = typeRegistry.getEntityTypeByName(TestUtilsV2.EMPLOYEE_TYPE);
+        AtlasEntity     employee     = entityStore.getByUniqueAttributes(employeeType, Collections.singletonMap(NAME, "Max")).getEntity();
+        AtlasStruct     address      = (AtlasStruct) employee.getAttribute("address");
+        Boolean         hasPets      = (Boolean) employee.getAttribute("hasPets");
+
+        assertNotNull(address);
+
+        AtlasEntity update = new AtlasEntity(TestUtilsV2.EMPLOYEE_TYPE);
+
+        update.setGuid(employee.getGuid());
+        update.setAttribute("hasPets", !hasPets);
+
+        init();
+        EntityMutationResponse response = entityStore.createOrUpdate(new AtlasEntityStream(update), true);
+
+        long skippedWithoutAddress = RequestContext.get().getSkippedWriteCount();
+
+        assertEquals(response.getFirstEntityPartialUpdated().getGuid(), employee.getGuid());
+
+        update.setAttribute("hasPets", hasPets);
+        update.setAttribute("address", new AtlasStruct(address.getTypeName(), address.getAttributes()));
+
+        init();
+        response = entityStore.createOrUpdate(new AtlasEntityStream(update), true);
+
+        long skippedWithAddress = RequestContext.get().getSkippedWriteCount();
+
+        assertEquals(response.getFirstEntityPartialUpdated().getGuid(), employee.getGuid());
+        assertEquals(skippedWithAddress - skippedWithoutAddress, 1); // the struct vertex isn't updated
+
+        AtlasStruct changedAddress = new AtlasStruct(address.getTypeName(), address.getAttributes());
+
+        changedAddress.setAttribute("street", "Newton St");
+        update.setAttribute("address", changedAddress);
+
+        init();
+        entityStore.createOrUpdate(new AtlasEntityStream(update), true);
+
+        assertEquals(((AtlasStruct) getEntityFromStore(employee.getGuid()).getAttribute("address")).getAttribute("street"), "Newton St");
+    }
+
+    @Test(dependsOnMethods = "testCreate")
+    public void testRetrieveWithAndWithoutPrefetch() throws Exception {
+        AtlasEntity              tableEntity  = TestUtilsV2.createTableEntityV2(dbEntity.getEntity()).getEntity();
+        AtlasEntity              col1         = TestUtilsV2.createColumnEntity(tableEntity);
+        AtlasEntity              col2         = TestUtilsV2.createColumnEntity(tableEntity);
+        AtlasEntitiesWithExtInfo entitiesInfo = new AtlasEntitiesWithExtInfo(tableEntity);
+
+        ((AtlasObjectId) tableEntity.getAttribute("database")).setGuid(dbEntityGuid);
+        tableEntity.setAttribute(COLUMNS_ATTR_NAME, Arrays.asList(AtlasTypeUtil.getAtlasObjectId(col1), AtlasTypeUtil.getAtlasObjectId(col2)));
+
+        entitiesInfo.addReferredEntity(col1);
+        entitiesInfo.addReferredEntity(col2);
+
+        init();
+        EntityMutationResponse response = entityStore.createOrUpdate(new AtlasEntityStream(entitiesInfo), false);
+
+        // table: owned columns, structs; department: owned employees with struct addresses; database: referred by tables
+        String       tableGuid = response.getFirstCreatedEntityByTypeName(TABLE_TYPE).getGuid();
+        String       deptGuid  = entityStore.getByUniqueAttributes(typeRegistry.getEntityTypeByName(TestUtilsV2.DEPARTMENT_TYPE), Collections.singletonMap(NAME, "hr")).getEntity().getGuid();
+        List<String> guids     = Arrays.asList(tableGuid, deptGuid, dbEntityGuid);
+
+        for (boolean ignoreRelationships : new boolean[] { false, true }) {
+            EntityGraphRetriever withPrefetch    = new EntityGraphRetriever(graph, typeRegistry, ignoreRelationships, true);
+            EntityGraphRetriever withoutPrefetch = new EntityGraphRetriever(graph, typeRegistry, ignoreRelationships, false);
+
+            for (boolean isMinExtInfo : new boolean[] { false, true }) {
+                String testCase = "ignoreRelationships=" + ignoreRelationships + ", isMinExtInfo=" + isMinExtInfo;
+
+                for (String guid : guids) {
+                    graph.commit(); // each retrieval starts with an empty per-transaction vertex cache
+
+                    AtlasEntityWithExtInfo expected = withoutPrefetch.toAtlasEntityWithExtInfo(guid, isMinExtInfo);
+
+                    graph.commit();
+
+                    AtlasEntityWithExtInfo actual = withPrefetch.toAtlasEntityWithExtInfo(guid, isMinExtInfo);
+
+                    assertEquals(actual, expected, testCase + ", guid=" + guid);
+                }
+
+                graph.commit();
+
+                AtlasEntitiesWithExtInfo expected = withoutPrefetch.toAtlasEntitiesWithExtInfo(guids, isMinExtInfo);
+
+                graph.commit();
+
+                AtlasEntitiesWithExtInfo actual = withPrefetch.toAtlasEntitiesWithExtInfo(guids, isMinExtInfo);
+
+                assertEquals(actual, expected, testCase);
+                assertEquals(actual.getEntities().size(), guids.size());
+            }
+        }
+    }
+
+    // copies of the given table and columns, as sent in a hook message: unassigned guids, references with unique attributes
+    private AtlasEntitiesWithExtInfo toHookMessage(AtlasEntity tableEntity, List<AtlasEntity> columnEntities, String description, boolean includeColumns) {
+        AtlasEntity              table     = new AtlasEntity(tableEntity.getTypeName(), new HashMap<>(tableEntity.getAttributes()));
+        AtlasEntitiesWithExtInfo ret       = new AtlasEntitiesWithExtInfo(table);
+        List<AtlasObjectId>      columnIds = new ArrayList<>();
+
+        for (AtlasEntity columnEntity : columnEntities) {
+            AtlasEntity column = new AtlasEntity(columnEntity.getTypeName(), new HashMap<>(columnEntity.getAttributes()));
+
+            column.setAttribute("table", AtlasTypeUtil.getAtlasObjectId(table, typeRegistry));
+
+            columnIds.add(AtlasTypeUtil.getAtlasObjectId(column, typeRegistry));
+
+            ret.addReferredEntity(column);
+        }
+
+        table.setAttribute("description", description);
+
+        if (includeColumns) {
+            table.setAttribute(COLUMNS_ATTR_NAME, columnIds);
+        } else {
+            table.removeAttribute(COLUMNS_ATTR_NAME);
+        }
+
+        return ret;
+    }
+
     @Test(dependsOnMethods = "testCreate")
     public void testUpdateEntityWithMap() throws Exception {
         AtlasEntity              tableEntity  = new AtlasEntity(tblEntity.getEntity());
@@ -563,6 +779,25 @@ public class AtlasEntityStoreV2Test extends AtlasEntityTestBase {
         Assert.assertEquals(((AtlasObjectId) updatedTableDefinition.getAttribute("database")).getGuid(), dbCreated.getGuid());
     }
 
+    @Test(dependsOnMethods = "testCreate")
+    public void testGetByIdWithAttributeProjection() throws Exception {
+        Set<String>            attributes = new HashSet<>(Arrays.asList("description", "database"));
+        AtlasEntityWithExtInfo ret        = entityStore.getById(tblEntityGuid, false, false, attributes, new HashSet<>());
+        AtlasEntity            table      = ret.getEntity();
+
+        assertEquals(table.getAttribute("description"), "random table");
+        assertNotNull(table.getAttribute("database"));
+        assertTrue(table.hasAttribute("name")); // unique attribute is always included
+        assertFalse(table.hasAttribute("tableType"));
+        assertFalse(table.hasAttribute("partitions"));
+        assertTrue(MapUtils.isEmpty(table.getRelationshipAttributes()));
+
+        AtlasEntitiesWithExtInfo entities = entityStore.getByIds(Arrays.asList(tblEntityGuid, dbEntityGuid), false, false, attributes, null);
+
+        assertFalse(entities.getEntity(tblEntityGuid).hasAttribute("tableType"));
+        assertEquals(entities.getEntity(tblEntityGuid).getAttribute("description"), "random table");
+    }
+
     @Test
     public void testCheckOptionalAttrValueRetention() throws Exception {
 
@@ -0,0 +1,225 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.store.graph.v2;
+
+import org.apache.atlas.AtlasErrorCode;
+import org.apache.atlas.RequestContext;
+import org.apache.atlas.authorize.AtlasAuthorizationUtils;
+import org.apache.atlas.authorize.AtlasAuthorizer;
+import org.apache.atlas.authorize.AtlasEntityAccessRequest;
+import org.apache.atlas.authorize.AtlasPrivilege;
+import org.apache.atlas.authorize.simple.AtlasSimpleAuthorizer;
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.model.instance.AtlasClassification;
+import org.apache.atlas.model.instance.AtlasEntityHeader;
+import org.apache.atlas.model.instance.ClassificationAssociateResponse;
+import org.apache.atlas.model.instance.ClassificationAssociateResponse.ChunkResult;
+import org.apache.atlas.model.instance.ClassificationAssociateResponse.ChunkStatus;
+import org.apache.atlas.repository.store.graph.AtlasEntityStore;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+public class BulkClassificationAssociatorTest {
+    private static final int MAX_LOCKED_ENTITIES = 100;
+
+    @AfterMethod
+    public void cleanup() {
+        RequestContext.clear();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void entitiesAreClassifiedInChunks() throws Exception {
+        List<List<String>>           calls      = new ArrayList<>();
+        BulkClassificationAssociator associator = new BulkClassificationAssociator(mockStore(calls, null, null), 2, 2, MAX_LOCKED_ENTITIES);
+
+        ClassificationAssociateResponse response = associator.addClassification(Arrays.asList("g1", "g2", "g3", "g4", "g5", "g1"), new AtlasClassification("tag1"));
+
+        assertEquals(response.getEntityCount(), 5); // repeated guid is classified once
+        assertEquals(response.getClassifiedCount(), 5);
+        assertEquals(response.getFailedCount(), 0);
+        assertEquals(response.getChunks().size(), 3);
+        assertEquals(calls.size(), 3);
+
+        for (int i = 0; i < response.getChunks().size(); i++) {
+            ChunkResult chunk = response.getChunks().get(i);
+
+            assertEquals(chunk.getChunkIndex(), i);
+            assertEquals(chunk.getStatus(), ChunkStatus.SUCCEEDED);
+            assertNull(chunk.getFailedEntityGuids());
+        }
+
+        associator.shutdown();
+    }
+
+    @Test
+    public void failedChunkDoesNotFailOthers() throws Exception {
+        List<List<String>>           calls      = new ArrayList<>();
+        BulkClassificationAssociator associator = new BulkClassificationAssociator(mockStore(calls, "g3", null), 2, 2, MAX_LOCKED_ENTITIES);
+
+        ClassificationAssociateResponse response = associator.addClassification(Arrays.asList("g1", "g2", "g3", "g4", "g5"), new AtlasClassification("tag1"));
+
+        assertEquals(response.getClassifiedCount(), 3);
+        assertEquals(response.getFailedCount(), 2);
+        assertEquals(response.getChunks().get(0).getStatus(), ChunkStatus.SUCCEEDED);
+        assertEquals(response.getChunks().get(1).getStatus(), ChunkStatus.FAILED);
+        assertEquals(response.getChunks().get(1).getFailedEntityGuids(), Arrays.asList("g3", "g4"));
+        assertNotNull(response.getChunks().get(1).getErrorMessage());
+        assertEquals(response.getChunks().get(2).getStatus(), ChunkStatus.SUCCEEDED);
+
+        associator.shutdown();
+    }
+
+    @Test
+    public void chunksAreClassifiedAsCaller() throws Exception {
+        List<String>                 users      = Collections.synchronizedList(new ArrayList<>());
+        BulkClassificationAssociator associator = new BulkClassificationAssociator(mockStore(new ArrayList<>(), null, users), 1, 2, MAX_LOCKED_ENTITIES);
+
+        RequestContext.get().setUser("user1", null);
+
+        associator.addClassification(Arrays.asList("g1", "g2"), new AtlasClassification("tag1"));
+
+        assertEquals(users, Arrays.asList("user1", "user1"));
+        assertEquals(RequestContext.get().getUser(), "user1"); // request context of the caller is retained
+
+        associator.shutdown();
+    }
+
+    @Test
+    public void chunksAreAuthorizedAsCaller() throws Exception {
+        AtlasSimpleAuthorizer authorizer = new AtlasSimpleAuthorizer();
+
+        authorizer.init();
+
+        BulkClassificationAssociator associator = new BulkClassificationAssociator(mockAuthorizingStore(authorizer), 1, 2, MAX_LOCKED_ENTITIES);
+
+        // 'admin' is allowed to add classifications by the default policy of the simple authorizer; 'rangertagsync' isn't
+        setCaller("admin");
+
+        ClassificationAssociateResponse response = associator.addClassification(Arrays.asList("g1", "g2"), new AtlasClassification("tag1"));
+
+        assertEquals(response.getClassifiedCount(), 2);
+        assertEquals(AtlasAuthorizationUtils.getCurrentUserName(), "admin"); // security context of the caller is retained
+
+        setCaller("rangertagsync");
+
+        response = associator.addClassification(Arrays.asList("g1", "g2"), new AtlasClassification("tag1"));
+
+        assertEquals(response.getClassifiedCount(), 0);
+        assertEquals(response.getFailedCount(), 2);
+
+        associator.shutdown();
+    }
+
+    @Test
+    public void lockedEntitiesAreCapped() throws Exception {
+        BulkClassificationAssociator associator = new BulkClassificationAssociator(mockStore(new ArrayList<>(), null, null), 50, 4, MAX_LOCKED_ENTITIES);
+
+        assertEquals(associator.getChunkSize(), 50);
+        assertEquals(associator.getThreadCount(), 2);
+
+        associator.shutdown();
+
+        associator = new BulkClassificationAssociator(mockStore(new ArrayList<>(), null, null), 1000, 4, MAX_LOCKED_ENTITIES);
+
+        assertEquals(associator.getChunkSize(), MAX_LOCKED_ENTITIES);
+        assertEquals(associator.getThreadCount(), 1);
+
+        associator.shutdown();
+    }
+
+    // verifies that the caller of each addClassification() call is allowed to classify the entities, like AtlasEntityStoreV2 does
+    private AtlasEntityStore mockAuthorizingStore(final AtlasAuthorizer authorizer) throws AtlasBaseException {
+        AtlasEntityStore store = mock(AtlasEntityStore.class);
+
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                List<String>        guids          = (List<String>) invocation.getArguments()[0];
+                AtlasClassification classification = (AtlasClassification) invocation.getArguments()[1];
+
+                for (String guid : guids) {
+                    AtlasEntityHeader entityHeader = new AtlasEntityHeader("test_type");
+
+                    entityHeader.setGuid(guid);
+                    entityHeader.setAttribute("qualifiedName", guid);
+
+                    AtlasEntityAccessRequest request = new AtlasEntityAccessRequest(null, AtlasPrivilege.ENTITY_ADD_CLASSIFICATION, entityHeader, classification, AtlasAuthorizationUtils.getCurrentUserName(), AtlasAuthorizationUtils.getCurrentUserGroups());
+
+                    if (!authorizer.isAccessAllowed(request)) {
+                        throw new AtlasBaseException(AtlasErrorCode.UNAUTHORIZED_ACCESS, request.getUser(), "add classification to " + guid);
+                    }
+                }
+
+                return null;
+            }
+        }).when(store).addClassification(anyList(), any(AtlasClassification.class));
+
+        return store;
+    }
+
+    private void setCaller(String user) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user, "", Collections.singletonList(new SimpleGrantedAuthority("public"))));
+    }
+
+    // records guids in each addClassification() call, and the user of the call; fails calls that include failGuid
+    private AtlasEntityStore mockStore(final List<List<String>> calls, final String failGuid, final List<String> users) throws AtlasBaseException {
+        AtlasEntityStore store = mock(AtlasEntityStore.class);
+
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                List<String> guids = (List<String>) invocation.getArguments()[0];
+
+                if (users != null) {
+                    users.add(RequestContext.get().getUser());
+                }
+
+                if (guids.contains(failGuid)) {
+                    throw new AtlasBaseException(AtlasErrorCode.INSTANCE_GUID_NOT_FOUND, failGuid);
+                }
+
+                synchronized (calls) {
+                    calls.add(guids);
+                }
+
+                return null;
+            }
+        }).when(store).addClassification(anyList(), any(AtlasClassification.class));
+
+        return store;
+    }
+}
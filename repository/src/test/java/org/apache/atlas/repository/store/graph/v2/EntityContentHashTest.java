@@ -0,0 +1,115 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.store.graph.v2;
+
+import org.apache.atlas.model.instance.AtlasEntity;
+import org.apache.atlas.model.instance.AtlasObjectId;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.apache.atlas.repository.Constants.CONTENT_HASH_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.MODIFICATION_TIMESTAMP_PROPERTY_KEY;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+public class EntityContentHashTest {
+    @Test
+    public void testHashIsIndependentOfAttributeOrderAndTemporaryGuids() {
+        AtlasEntity table1 = new AtlasEntity("hive_table");
+        AtlasEntity table2 = new AtlasEntity("hive_table");
+
+        table1.setAttribute("qualifiedName", "db.tbl@cl1");
+        table1.setAttribute("name", "tbl");
+        table1.setAttribute("db", new AtlasObjectId("-100", "hive_db", Collections.singletonMap("qualifiedName", "db@cl1")));
+
+        table2.setAttribute("db", new AtlasObjectId("-200", "hive_db", Collections.singletonMap("qualifiedName", "db@cl1")));
+        table2.setAttribute("name", "tbl");
+        table2.setAttribute("qualifiedName", "db.tbl@cl1");
+
+        assertEquals(getContentHash(table1, null), getContentHash(table2, null));
+
+        table2.setAttribute("name", "tbl2");
+
+        assertNotEquals(getContentHash(table1, null), getContentHash(table2, null));
+    }
+
+    @Test
+    public void testReferencesByGuidAreResolvedToAssignedGuids() {
+        AtlasEntity column1 = new AtlasEntity("hive_column");
+        AtlasEntity column2 = new AtlasEntity("hive_column");
+
+        column1.setAttribute("qualifiedName", "db.tbl.col@cl1");
+        column1.setAttribute("table", getObjectIdMap("-100", "hive_table"));
+
+        column2.setAttribute("qualifiedName", "db.tbl.col@cl1");
+        column2.setAttribute("table", getObjectIdMap("-200", "hive_table"));
+
+        assertEquals(getContentHash(column1, Collections.singletonMap("-100", "guid-1")), getContentHash(column2, Collections.singletonMap("-200", "guid-1")));
+        assertNotEquals(getContentHash(column1, Collections.singletonMap("-100", "guid-1")), getContentHash(column2, Collections.singletonMap("-200", "guid-2")));
+    }
+
+    @Test
+    public void testHashIncludesKindOfUpdate() {
+        AtlasEntity entity = new AtlasEntity("hive_db");
+
+        entity.setAttribute("qualifiedName", "db@cl1");
+
+        String fullUpdateHash    = EntityContentHash.getContentHash(entity, null, false, false, false);
+        String partialUpdateHash = EntityContentHash.getContentHash(entity, null, true, false, false);
+
+        assertNotEquals(fullUpdateHash, partialUpdateHash);
+    }
+
+    @Test
+    public void testStoredHashIsValidOnlyUntilVertexIsModified() {
+        AtlasVertex vertex = mock(AtlasVertex.class);
+
+        when(vertex.getProperty(CONTENT_HASH_PROPERTY_KEY, String.class)).thenReturn("abcd:100");
+        when(vertex.getProperty(MODIFICATION_TIMESTAMP_PROPERTY_KEY, Long.class)).thenReturn(100L);
+
+        assertTrue(EntityContentHash.isUnchanged(vertex, "abcd"));
+        assertFalse(EntityContentHash.isUnchanged(vertex, "abce"));
+
+        when(vertex.getProperty(MODIFICATION_TIMESTAMP_PROPERTY_KEY, Long.class)).thenReturn(200L);
+
+        assertFalse(EntityContentHash.isUnchanged(vertex, "abcd"));
+    }
+
+    private static String getContentHash(AtlasEntity entity, Map<String, String> guidAssignments) {
+        return EntityContentHash.getContentHash(entity, guidAssignments, false, false, false);
+    }
+
+    private static Map<String, Object> getObjectIdMap(String guid, String typeName) {
+        Map<String, Object> ret = new LinkedHashMap<>();
+
+        ret.put("guid", guid);
+        ret.put("typeName", typeName);
+        ret.put("uniqueAttributes", new HashMap<>());
+
+        return ret;
+    }
+}
@@ -0,0 +1,457 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.store.graph.v2;
+
+import org.apache.atlas.AtlasConfiguration;
+import org.apache.atlas.model.typedef.AtlasRelationshipDef.PropagateTags;
+import org.apache.atlas.repository.graphdb.AtlasEdge;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.type.AtlasEntityType;
+import org.apache.atlas.type.AtlasTypeRegistry;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.StringUtils;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.apache.atlas.model.instance.AtlasRelationship.Status.ACTIVE;
+import static org.apache.atlas.model.typedef.AtlasRelationshipDef.PropagateTags.BOTH;
+import static org.apache.atlas.model.typedef.AtlasRelationshipDef.PropagateTags.NONE;
+import static org.apache.atlas.model.typedef.AtlasRelationshipDef.PropagateTags.ONE_TO_TWO;
+import static org.apache.atlas.model.typedef.AtlasRelationshipDef.PropagateTags.TWO_TO_ONE;
+import static org.apache.atlas.repository.Constants.ENTITY_TYPE_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.RELATIONSHIPTYPE_BLOCKED_PROPAGATED_CLASSIFICATIONS_KEY;
+import static org.apache.atlas.repository.Constants.RELATIONSHIPTYPE_TAG_PROPAGATION_KEY;
+import static org.apache.atlas.repository.Constants.RELATIONSHIP_GUID_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.STATE_PROPERTY_KEY;
+import static org.apache.atlas.repository.graph.GraphHelper.getBlockedClassificationIds;
+import static org.apache.atlas.repository.graph.GraphHelper.getEdgeStatus;
+import static org.apache.atlas.repository.graph.GraphHelper.getPropagateTags;
+import static org.apache.atlas.repository.graph.GraphHelper.getRelationshipGuid;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Checks that the breadth-first, batched traversal in EntityGraphRetriever finds the same impacted vertices as the
+ * recursive traversal it replaced, which is kept here as traverseRecursively().
+ */
+public class EntityGraphRetrieverImpactedVerticesTest {
+    private static final int      BATCH_SIZE     = Math.max(AtlasConfiguration.GRAPH_TRAVERSAL_BATCH_SIZE.getInt(), 1);
+    private static final String   DATASET_TYPE   = "test_dataset";
+    private static final String   PROCESS_TYPE   = "test_process";
+    private static final String   COLUMN_TYPE    = "test_column";
+    private static final String   NO_PROP_TYPE   = "test_no_propagation";
+    private static final String   UNKNOWN_TYPE   = "test_unknown";
+    private static final String   INPUTS         = "__test_process.inputs";
+    private static final String   OUTPUTS        = "__test_process.outputs";
+    private static final String   COLUMNS        = "__test_dataset.columns";
+    private static final String   OTHER          = "__test_dataset.other";
+    private static final String[] TYPE_NAMES     = { DATASET_TYPE, PROCESS_TYPE, COLUMN_TYPE, NO_PROP_TYPE, UNKNOWN_TYPE };
+    private static final String[] EDGE_LABELS    = { INPUTS, OUTPUTS, COLUMNS, OTHER };
+    private static final String[] CLASSIFICATION = { "classification-1", "classification-2" };
+
+    @Test
+    public void deepLineageMatchesRecursiveTraversal() {
+        TestGraph   graph = new TestGraph();
+        AtlasVertex first = graph.addVertex(DATASET_TYPE);
+        AtlasVertex table = first;
+
+        for (int i = 0; i < 500; i++) {
+            AtlasVertex process = graph.addVertex(PROCESS_TYPE);
+            AtlasVertex output  = graph.addVertex(DATASET_TYPE);
+
+            graph.addEdge(process, table, INPUTS, TWO_TO_ONE);
+            graph.addEdge(process, output, OUTPUTS, ONE_TO_TWO);
+            graph.addEdge(output, graph.addVertex(COLUMN_TYPE), COLUMNS, ONE_TO_TWO);
+
+            table = output;
+        }
+
+        List<AtlasVertex> impacted = assertSameAsRecursive(graph, first, null, null);
+
+        assertEquals(impacted.size(), 1500);
+        assertSameAsRecursive(graph, table, null, null); // propagation is one-way: nothing upstream is impacted
+    }
+
+    @Test
+    public void wideLineageMatchesRecursiveTraversal() {
+        TestGraph   graph   = new TestGraph();
+        AtlasVertex source  = graph.addVertex(DATASET_TYPE);
+        AtlasVertex process = graph.addVertex(PROCESS_TYPE);
+        int         width   = 2 * BATCH_SIZE + 1;
+
+        graph.addEdge(process, source, INPUTS, TWO_TO_ONE);
+
+        for (int i = 0; i < width; i++) {
+            AtlasVertex output = graph.addVertex(DATASET_TYPE);
+
+            graph.addEdge(process, output, OUTPUTS, ONE_TO_TWO);
+
+            if (i % 2 == 0) {
+                AtlasVertex next = graph.addVertex(PROCESS_TYPE);
+
+                graph.addEdge(next, output, INPUTS, TWO_TO_ONE);
+                graph.addEdge(next, graph.addVertex(DATASET_TYPE), OUTPUTS, ONE_TO_TWO);
+                graph.addEdge(next, source, OUTPUTS, ONE_TO_TWO); // back to an already visited vertex
+            }
+        }
+
+        List<AtlasVertex> impacted = assertSameAsRecursive(graph, source, null, null);
+
+        assertEquals(impacted.size(), 1 + width + (width / 2 + 1) * 2);
+        assertTrue(graph.maxEdgeQueryVertices <= BATCH_SIZE, "edges of " + graph.maxEdgeQueryVertices + " vertices queried at once");
+        assertTrue(graph.edgeQueryCount > 3, "edge queries: " + graph.edgeQueryCount);
+    }
+
+    @Test
+    public void blockedClassificationsMatchRecursiveTraversal() {
+        TestGraph   graph   = new TestGraph();
+        AtlasVertex source  = graph.addVertex(DATASET_TYPE);
+        AtlasVertex process = graph.addVertex(PROCESS_TYPE);
+
+        graph.addEdge(process, source, INPUTS, TWO_TO_ONE);
+
+        for (int i = 0; i < 10; i++) {
+            AtlasVertex output = graph.addVertex(DATASET_TYPE);
+            AtlasEdge   edge   = graph.addEdge(process, output, OUTPUTS, ONE_TO_TWO);
+
+            if (i % 3 == 0) {
+                graph.setProperty(edge, RELATIONSHIPTYPE_BLOCKED_PROPAGATED_CLASSIFICATIONS_KEY, Collections.singletonList(CLASSIFICATION[0]));
+            } else if (i % 3 == 1) {
+                graph.setProperty(edge, RELATIONSHIPTYPE_BLOCKED_PROPAGATED_CLASSIFICATIONS_KEY, Arrays.asList(CLASSIFICATION));
+            }
+        }
+
+        assertEquals(assertSameAsRecursive(graph, source, null, null).size(), 11);
+        assertEquals(assertSameAsRecursive(graph, source, null, CLASSIFICATION[0]).size(), 1 + 3);
+        assertEquals(assertSameAsRecursive(graph, source, null, CLASSIFICATION[1]).size(), 1 + 7);
+    }
+
+    @Test
+    public void excludedRelationshipMatchesRecursiveTraversal() {
+        TestGraph   graph    = new TestGraph();
+        AtlasVertex source   = graph.addVertex(DATASET_TYPE);
+        AtlasVertex process  = graph.addVertex(PROCESS_TYPE);
+        AtlasVertex output   = graph.addVertex(DATASET_TYPE);
+        AtlasEdge   excluded = graph.addEdge(process, output, OUTPUTS, ONE_TO_TWO);
+
+        graph.addEdge(process, source, INPUTS, TWO_TO_ONE);
+        graph.addEdge(output, graph.addVertex(COLUMN_TYPE), COLUMNS, BOTH);
+
+        assertEquals(assertSameAsRecursive(graph, source, null, null).size(), 3);
+        assertEquals(assertSameAsRecursive(graph, source, getRelationshipGuid(excluded), null).size(), 1);
+        assertEquals(assertSameAsRecursive(graph, source, "unknown-relationship", null).size(), 3);
+    }
+
+    @Test
+    public void randomGraphsMatchRecursiveTraversal() {
+        for (long seed = 1; seed <= 20; seed++) {
+            Random    random = new Random(seed);
+            TestGraph graph  = new TestGraph();
+
+            for (int i = 0; i < 300; i++) {
+                graph.addVertex(TYPE_NAMES[random.nextInt(TYPE_NAMES.length)]);
+            }
+
+            for (int i = 0; i < 600; i++) {
+                AtlasVertex outVertex   = graph.vertices.get(random.nextInt(graph.vertices.size()));
+                AtlasVertex inVertex    = graph.vertices.get(random.nextInt(graph.vertices.size()));
+                int         propagation = random.nextInt(PropagateTags.values().length + 1);
+                AtlasEdge   edge;
+
+                if (outVertex == inVertex) {
+                    continue;
+                }
+
+                edge = graph.addEdge(outVertex, inVertex, EDGE_LABELS[random.nextInt(EDGE_LABELS.length)], propagation < PropagateTags.values().length ? PropagateTags.values()[propagation] : null);
+
+                if (random.nextInt(10) == 0) {
+                    graph.setProperty(edge, STATE_PROPERTY_KEY, "DELETED");
+                }
+
+                if (random.nextInt(5) == 0) {
+                    graph.setProperty(edge, RELATIONSHIPTYPE_BLOCKED_PROPAGATED_CLASSIFICATIONS_KEY, Collections.singletonList(CLASSIFICATION[random.nextInt(CLASSIFICATION.length)]));
+                }
+            }
+
+            for (int i = 0; i < 10; i++) {
+                AtlasVertex start                     = graph.vertices.get(random.nextInt(graph.vertices.size()));
+                String      relationshipGuidToExclude = random.nextBoolean() ? getRelationshipGuid(graph.edges.get(random.nextInt(graph.edges.size()))) : null;
+                String      classificationId          = random.nextBoolean() ? CLASSIFICATION[random.nextInt(CLASSIFICATION.length)] : null;
+
+                assertSameAsRecursive(graph, start, relationshipGuidToExclude, classificationId);
+            }
+        }
+    }
+
+    private List<AtlasVertex> assertSameAsRecursive(TestGraph graph, AtlasVertex start, String relationshipGuidToExclude, String classificationId) {
+        EntityGraphRetriever retriever = new EntityGraphRetriever(graph.graph, graph.typeRegistry);
+        List<AtlasVertex>    expected  = new ArrayList<>();
+
+        traverseRecursively(graph, start, relationshipGuidToExclude, classificationId, new HashSet<>(), expected);
+
+        List<AtlasVertex> actual = classificationId != null ? retriever.getImpactedVerticesV2(start, relationshipGuidToExclude, classificationId)
+                                                            : retriever.getImpactedVerticesV2(start, relationshipGuidToExclude);
+
+        assertEquals(actual.size(), expected.size());
+        assertEquals(new HashSet<>(actual), new HashSet<>(expected));
+
+        if (classificationId == null) {
+            List<AtlasVertex> included = retriever.getIncludedImpactedVerticesV2(start, relationshipGuidToExclude);
+
+            assertEquals(included.get(0), start);
+            assertEquals(new HashSet<>(included.subList(1, included.size())), new HashSet<>(expected));
+        }
+
+        return actual;
+    }
+
+    // traversal as implemented before the breadth-first one: depth-first, reading the edges of one vertex at a time
+    private void traverseRecursively(TestGraph graph, AtlasVertex entityVertex, String relationshipGuidToExclude, String classificationId, Set<String> visitedVertices, List<AtlasVertex> result) {
+        visitedVertices.add(entityVertex.getIdForDisplay());
+
+        AtlasEntityType entityType          = graph.typeRegistry.getEntityTypeByName(entityVertex.getProperty(ENTITY_TYPE_PROPERTY_KEY, String.class));
+        String[]        tagPropagationEdges = entityType != null ? entityType.getTagPropagationEdgesArray() : null;
+
+        if (tagPropagationEdges != null) {
+            for (AtlasEdge propagationEdge : graph.getEdges(entityVertex, tagPropagationEdges)) {
+                if (getEdgeStatus(propagationEdge) != ACTIVE) {
+                    continue;
+                }
+
+                PropagateTags tagPropagation = getPropagateTags(propagationEdge);
+                boolean       isOutVertex    = StringUtils.equals(entityVertex.getIdForDisplay(), propagationEdge.getOutVertex().getIdForDisplay());
+
+                if (tagPropagation == null || tagPropagation == NONE) {
+                    continue;
+                } else if (tagPropagation == TWO_TO_ONE) {
+                    if (isOutVertex) {
+                        continue;
+                    }
+                } else if (tagPropagation == ONE_TO_TWO) {
+                    if (!isOutVertex) {
+                        continue;
+                    }
+                }
+
+                if (relationshipGuidToExclude != null && StringUtils.equals(getRelationshipGuid(propagationEdge), relationshipGuidToExclude)) {
+                    continue;
+                }
+
+                if (classificationId != null) {
+                    List<String> blockedClassificationIds = getBlockedClassificationIds(propagationEdge);
+
+                    if (CollectionUtils.isNotEmpty(blockedClassificationIds) && blockedClassificationIds.contains(classificationId)) {
+                        continue;
+                    }
+                }
+
+                AtlasVertex adjacentVertex = isOutVertex ? propagationEdge.getInVertex() : propagationEdge.getOutVertex();
+
+                if (!visitedVertices.contains(adjacentVertex.getIdForDisplay())) {
+                    result.add(adjacentVertex);
+
+                    traverseRecursively(graph, adjacentVertex, relationshipGuidToExclude, classificationId, visitedVertices, result);
+                }
+            }
+        }
+    }
+
+    /**
+     * In-memory graph, with vertices and edges mocked over property maps; AtlasGraph answers the batched queries
+     * used by the traversal.
+     */
+    private static class TestGraph {
+        final List<AtlasVertex>                 vertices             = new ArrayList<>();
+        final List<AtlasEdge>                   edges                = new ArrayList<>();
+        final Map<Object, Element>              elements             = new HashMap<>(); // mocks hash by identity
+        final Map<AtlasVertex, List<AtlasEdge>> vertexEdges          = new HashMap<>();
+        final AtlasTypeRegistry                 typeRegistry         = mock(AtlasTypeRegistry.class);
+        final AtlasGraph                        graph                = mock(AtlasGraph.class, new GraphAnswer());
+        int                                     edgeQueryCount       = 0;
+        int                                     maxEdgeQueryVertices = 0;
+
+        TestGraph() {
+            AtlasEntityType datasetType = mock(AtlasEntityType.class);
+            AtlasEntityType processType = mock(AtlasEntityType.class);
+            AtlasEntityType columnType  = mock(AtlasEntityType.class);
+            AtlasEntityType noPropType  = mock(AtlasEntityType.class);
+
+            when(datasetType.getTagPropagationEdgesArray()).thenReturn(new String[] { INPUTS, OUTPUTS, COLUMNS });
+            when(processType.getTagPropagationEdgesArray()).thenReturn(new String[] { INPUTS, OUTPUTS });
+            when(columnType.getTagPropagationEdgesArray()).thenReturn(new String[] { COLUMNS });
+            when(noPropType.getTagPropagationEdgesArray()).thenReturn(null);
+
+            when(typeRegistry.getEntityTypeByName(DATASET_TYPE)).thenReturn(datasetType);
+            when(typeRegistry.getEntityTypeByName(PROCESS_TYPE)).thenReturn(processType);
+            when(typeRegistry.getEntityTypeByName(COLUMN_TYPE)).thenReturn(columnType);
+            when(typeRegistry.getEntityTypeByName(NO_PROP_TYPE)).thenReturn(noPropType);
+        }
+
+        AtlasVertex addVertex(String typeName) {
+            Element     element = new Element(vertices.size() + edges.size() + 1);
+            AtlasVertex ret     = mock(AtlasVertex.class, element);
+
+            element.properties.put(ENTITY_TYPE_PROPERTY_KEY, typeName);
+            element.properties.put(STATE_PROPERTY_KEY, "ACTIVE");
+
+            vertices.add(ret);
+            vertexEdges.put(ret, new ArrayList<>());
+            elements.put(ret, element);
+
+            return ret;
+        }
+
+        AtlasEdge addEdge(AtlasVertex outVertex, AtlasVertex inVertex, String label, PropagateTags propagateTags) {
+            Element   element = new Element(vertices.size() + edges.size() + 1);
+            AtlasEdge ret     = mock(AtlasEdge.class, element);
+
+            element.label     = label;
+            element.outVertex = outVertex;
+            element.inVertex  = inVertex;
+
+            element.properties.put(STATE_PROPERTY_KEY, "ACTIVE");
+            element.properties.put(RELATIONSHIP_GUID_PROPERTY_KEY, "relationship-" + element.id);
+
+            if (propagateTags != null) {
+                element.properties.put(RELATIONSHIPTYPE_TAG_PROPAGATION_KEY, propagateTags.name());
+            }
+
+            edges.add(ret);
+            vertexEdges.get(outVertex).add(ret);
+            vertexEdges.get(inVertex).add(ret);
+            elements.put(ret, element);
+
+            return ret;
+        }
+
+        void setProperty(Object element, String name, Object value) {
+            elements.get(element).properties.put(name, value);
+        }
+
+        List<AtlasEdge> getEdges(AtlasVertex vertex, String... labels) {
+            List<AtlasEdge> ret = new ArrayList<>();
+
+            for (AtlasEdge edge : vertexEdges.get(vertex)) {
+                if (Arrays.asList(labels).contains(edge.getLabel())) {
+                    ret.add(edge);
+                }
+            }
+
+            return ret;
+        }
+
+        private class GraphAnswer implements Answer<Object> {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                Object[] args = invocation.getArguments();
+
+                switch (invocation.getMethod().getName()) {
+                    case "getPropertyValues": {
+                        Map<AtlasVertex, Object> ret = new LinkedHashMap<>();
+
+                        for (Object vertex : (Collection) args[0]) {
+                            Object value = ((AtlasVertex) vertex).getProperty((String) args[1], (Class) args[2]);
+
+                            if (value != null) {
+                                ret.put((AtlasVertex) vertex, value);
+                            }
+                        }
+
+                        return ret;
+                    }
+
+                    case "getEdges": {
+                        if (args.length == 0) {
+                            return new ArrayList<>(edges);
+                        }
+
+                        Collection vertices = (Collection) args[0];
+                        String[]   labels   = args[2] instanceof String[] ? (String[]) args[2] : Arrays.copyOfRange(args, 2, args.length, String[].class);
+
+                        Map<AtlasVertex, List<AtlasEdge>> ret = new LinkedHashMap<>();
+
+                        edgeQueryCount++;
+                        maxEdgeQueryVertices = Math.max(maxEdgeQueryVertices, vertices.size());
+
+                        for (Object vertex : vertices) {
+                            List<AtlasEdge> vertexEdges = TestGraph.this.getEdges((AtlasVertex) vertex, labels);
+
+                            if (!vertexEdges.isEmpty()) {
+                                ret.put((AtlasVertex) vertex, vertexEdges);
+                            }
+                        }
+
+                        return ret;
+                    }
+                }
+
+                return null;
+            }
+        }
+    }
+
+    private static class Element implements Answer<Object> {
+        final long                id;
+        final Map<String, Object> properties = new HashMap<>();
+        String                    label;
+        AtlasVertex               outVertex;
+        AtlasVertex               inVertex;
+
+        Element(long id) {
+            this.id = id;
+        }
+
+        @Override
+        public Object answer(InvocationOnMock invocation) {
+            switch (invocation.getMethod().getName()) {
+                case "getId":
+                    return id;
+                case "getIdForDisplay":
+                    return String.valueOf(id);
+                case "getProperty":
+                    return properties.get(invocation.getArguments()[0]);
+                case "getLabel":
+                    return label;
+                case "getOutVertex":
+                    return outVertex;
+                case "getInVertex":
+                    return inVertex;
+                case "toString":
+                    return (label != null ? label : properties.get(ENTITY_TYPE_PROPERTY_KEY)) + ":" + id;
+            }
+
+            return null;
+        }
+    }
+}
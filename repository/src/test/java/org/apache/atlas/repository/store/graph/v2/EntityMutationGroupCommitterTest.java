@@ -0,0 +1,273 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.store.graph.v2;
+
+import org.apache.atlas.AtlasErrorCode;
+import org.apache.atlas.authorize.AtlasAuthorizationUtils;
+import org.apache.atlas.authorize.AtlasAuthorizer;
+import org.apache.atlas.authorize.AtlasEntityAccessRequest;
+import org.apache.atlas.authorize.AtlasPrivilege;
+import org.apache.atlas.authorize.simple.AtlasSimpleAuthorizer;
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.model.instance.AtlasEntity;
+import org.apache.atlas.model.instance.AtlasEntity.AtlasEntitiesWithExtInfo;
+import org.apache.atlas.model.instance.AtlasEntityHeader;
+import org.apache.atlas.model.instance.EntityMutationResponse;
+import org.apache.atlas.model.instance.EntityMutations.EntityOperation;
+import org.apache.atlas.repository.store.graph.AtlasEntityStore;
+import org.apache.atlas.type.AtlasTypeRegistry;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class EntityMutationGroupCommitterTest {
+    private static final long WINDOW_MS = 500;
+
+    private final ExecutorService requestThreads = Executors.newFixedThreadPool(2);
+
+    @Test
+    public void concurrentRequestsAreCommittedTogether() throws Exception {
+        List<Integer>                store     = new ArrayList<>();
+        EntityMutationGroupCommitter committer = new EntityMutationGroupCommitter(mockStore(store, null), mock(AtlasTypeRegistry.class), true, WINDOW_MS, 100, 1);
+
+        CompletableFuture<EntityMutationResponse> response1 = submit(committer, "guid1");
+        CompletableFuture<EntityMutationResponse> response2 = submit(committer, "guid2");
+
+        assertEquals(getGuids(response1.get()), Collections.singletonList("guid1"));
+        assertEquals(getGuids(response2.get()), Collections.singletonList("guid2"));
+        assertEquals(store, Collections.singletonList(2)); // one createOrUpdate() call for both requests
+
+        committer.shutdown();
+    }
+
+    @Test
+    public void failingRequestDoesNotFailOthers() throws Exception {
+        List<Integer>                store     = new ArrayList<>();
+        EntityMutationGroupCommitter committer = new EntityMutationGroupCommitter(mockStore(store, "bad"), mock(AtlasTypeRegistry.class), true, WINDOW_MS, 100, 1);
+
+        CompletableFuture<EntityMutationResponse> response1 = submit(committer, "guid1");
+        CompletableFuture<EntityMutationResponse> response2 = submit(committer, "bad");
+
+        assertEquals(getGuids(response1.get()), Collections.singletonList("guid1"));
+
+        try {
+            response2.get();
+
+            fail("expected failure of request with entity 'bad'");
+        } catch (ExecutionException excp) {
+            assertTrue(excp.getCause().getCause() instanceof AtlasBaseException);
+        }
+
+        assertEquals(store, Collections.singletonList(1)); // group failed, then each request retried separately
+
+        committer.shutdown();
+    }
+
+    @Test
+    public void requestsWithSameEntityAreNotGrouped() throws Exception {
+        List<Integer>                store     = new ArrayList<>();
+        EntityMutationGroupCommitter committer = new EntityMutationGroupCommitter(mockStore(store, null), mock(AtlasTypeRegistry.class), true, WINDOW_MS, 100, 1);
+
+        CompletableFuture<EntityMutationResponse> response1 = submit(committer, "guid1");
+        CompletableFuture<EntityMutationResponse> response2 = submit(committer, "guid1");
+
+        response1.get();
+        response2.get();
+
+        assertEquals(store, Arrays.asList(1, 1));
+
+        committer.shutdown();
+    }
+
+    @Test
+    public void requestsAreAuthorizedAsCaller() throws Exception {
+        final AtlasSimpleAuthorizer authorizer = new AtlasSimpleAuthorizer();
+
+        authorizer.init();
+
+        List<Integer>                store     = new ArrayList<>();
+        EntityMutationGroupCommitter committer = new EntityMutationGroupCommitter(mockAuthorizingStore(store, authorizer), mock(AtlasTypeRegistry.class), true, WINDOW_MS, 100, 1);
+
+        // 'admin' is allowed to create entities by the default policy of the simple authorizer; 'guest' isn't
+        CompletableFuture<EntityMutationResponse> response1 = submitAs(committer, "guid1", "admin");
+        CompletableFuture<EntityMutationResponse> response2 = submitAs(committer, "guid2", "guest");
+
+        assertEquals(getGuids(response1.get()), Collections.singletonList("guid1"));
+
+        try {
+            response2.get();
+
+            fail("expected request of 'guest' to be denied");
+        } catch (ExecutionException excp) {
+            assertTrue(excp.getCause().getCause() instanceof AtlasBaseException);
+            assertEquals(((AtlasBaseException) excp.getCause().getCause()).getAtlasErrorCode(), AtlasErrorCode.UNAUTHORIZED_ACCESS);
+        }
+
+        committer.shutdown();
+    }
+
+    @Test
+    public void pendingRequestsFailOnShutdown() throws Exception {
+        List<Integer>                store     = new ArrayList<>();
+        EntityMutationGroupCommitter committer = new EntityMutationGroupCommitter(mockStore(store, null), mock(AtlasTypeRegistry.class), true, TimeUnit.MINUTES.toMillis(1), 100, 1);
+
+        CompletableFuture<EntityMutationResponse> response = submit(committer, "guid1");
+
+        Thread.sleep(WINDOW_MS); // let the request reach the collector, which waits for the rest of the window
+
+        assertFalse(response.isDone());
+
+        committer.shutdown();
+
+        try {
+            response.get(10, TimeUnit.SECONDS);
+
+            fail("expected request to fail on shutdown");
+        } catch (ExecutionException excp) {
+            assertTrue(excp.getCause().getCause() instanceof AtlasBaseException);
+        }
+
+        assertTrue(store.isEmpty());
+    }
+
+    // records number of entities in each successful createOrUpdate() call; fails calls that include entity with guid failGuid
+    private AtlasEntityStore mockStore(final List<Integer> calls, final String failGuid) throws AtlasBaseException {
+        AtlasEntityStore store = mock(AtlasEntityStore.class);
+
+        when(store.createOrUpdate(any(EntityStream.class), anyBoolean())).thenAnswer(new Answer<EntityMutationResponse>() {
+            @Override
+            public EntityMutationResponse answer(InvocationOnMock invocation) throws Throwable {
+                EntityStream           entityStream = (EntityStream) invocation.getArguments()[0];
+                EntityMutationResponse ret          = new EntityMutationResponse();
+                int                    count        = 0;
+
+                while (entityStream.hasNext()) {
+                    AtlasEntity entity = entityStream.next();
+
+                    if (entity.getGuid().equals(failGuid)) {
+                        throw new AtlasBaseException(AtlasErrorCode.INTERNAL_ERROR, "failed");
+                    }
+
+                    ret.addEntity(EntityOperation.CREATE, new AtlasEntityHeader(entity));
+
+                    count++;
+                }
+
+                synchronized (calls) {
+                    calls.add(count);
+                }
+
+                return ret;
+            }
+        });
+
+        return store;
+    }
+
+    // verifies that the caller of each createOrUpdate() call is allowed to create the entities, like AtlasEntityStoreV2 does
+    private AtlasEntityStore mockAuthorizingStore(final List<Integer> calls, final AtlasAuthorizer authorizer) throws AtlasBaseException {
+        AtlasEntityStore store = mock(AtlasEntityStore.class);
+
+        when(store.createOrUpdate(any(EntityStream.class), anyBoolean())).thenAnswer(new Answer<EntityMutationResponse>() {
+            @Override
+            public EntityMutationResponse answer(InvocationOnMock invocation) throws Throwable {
+                EntityStream           entityStream = (EntityStream) invocation.getArguments()[0];
+                EntityMutationResponse ret          = new EntityMutationResponse();
+                int                    count        = 0;
+
+                while (entityStream.hasNext()) {
+                    AtlasEntityHeader        header  = new AtlasEntityHeader(entityStream.next());
+                    AtlasEntityAccessRequest request = new AtlasEntityAccessRequest(null, AtlasPrivilege.ENTITY_CREATE, header, AtlasAuthorizationUtils.getCurrentUserName(), AtlasAuthorizationUtils.getCurrentUserGroups());
+
+                    if (!authorizer.isAccessAllowed(request)) {
+                        throw new AtlasBaseException(AtlasErrorCode.UNAUTHORIZED_ACCESS, request.getUser(), "create entity " + header.getGuid());
+                    }
+
+                    ret.addEntity(EntityOperation.CREATE, header);
+
+                    count++;
+                }
+
+                synchronized (calls) {
+                    calls.add(count);
+                }
+
+                return ret;
+            }
+        });
+
+        return store;
+    }
+
+    private CompletableFuture<EntityMutationResponse> submit(final EntityMutationGroupCommitter committer, String guid) {
+        return submitAs(committer, guid, null);
+    }
+
+    private CompletableFuture<EntityMutationResponse> submitAs(final EntityMutationGroupCommitter committer, String guid, final String user) {
+        final AtlasEntity entity = new AtlasEntity("test_type");
+
+        entity.setGuid(guid);
+        entity.setAttribute("qualifiedName", guid);
+
+        return CompletableFuture.supplyAsync(() -> {
+            if (user != null) {
+                SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user, "", Collections.singletonList(new SimpleGrantedAuthority("public"))));
+            }
+
+            try {
+                return committer.createOrUpdate(new AtlasEntitiesWithExtInfo(entity), false);
+            } catch (AtlasBaseException excp) {
+                throw new RuntimeException(excp);
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        }, requestThreads);
+    }
+
+    private List<String> getGuids(EntityMutationResponse response) {
+        List<String> ret = new ArrayList<>();
+
+        for (AtlasEntityHeader header : response.getCreatedEntities()) {
+            ret.add(header.getGuid());
+        }
+
+        return ret;
+    }
+}
@@ -0,0 +1,270 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.store.graph.v2;
+
+import org.apache.atlas.AtlasErrorCode;
+import org.apache.atlas.RequestContext;
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.model.instance.AtlasObjectId;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.repository.store.graph.EntityGraphDiscoveryContext;
+import org.apache.atlas.type.AtlasEntityType;
+import org.apache.atlas.type.AtlasStructType.AtlasAttribute;
+import org.apache.atlas.type.AtlasTypeRegistry;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class UniqAttrBasedEntityResolverTest {
+    private static final String TYPE_NAME      = "test_table";
+    private static final String QUALIFIED_NAME = "qualifiedName";
+    private static final String NAME           = "name";
+
+    @AfterMethod
+    public void cleanup() {
+        RequestContext.clear();
+    }
+
+    @Test
+    public void hitsAndMissesInBatch() throws Exception {
+        TestResolver resolver = new TestResolver(10, "qn1", "qn3", "qn5");
+
+        resolver.addVertex(NAME, "n6");
+
+        RequestContext.get().setCreateShellEntityForNonExistingReference(true);
+
+        AtlasObjectId byNameToo = reference("qn6");
+
+        byNameToo.getUniqueAttributes().put(NAME, "n6");
+
+        EntityGraphDiscoveryContext context = context(reference("qn1"), reference("qn2"), reference("qn3"), reference("qn4"), reference("qn5"), byNameToo);
+
+        resolver.resolveEntityReferences(context);
+
+        assertEquals(resolver.batchSizes, Collections.singletonList(6));
+        assertEquals(resolver.lookups, Collections.singletonList(byNameToo.getUniqueAttributes())); // miss in batch, with another unique attribute to look up by
+
+        for (String qualifiedName : Arrays.asList("qn1", "qn3", "qn5")) {
+            assertEquals(context.getResolvedIdsByUniqAttribs().get(reference(qualifiedName)), resolver.vertices.get(QUALIFIED_NAME + "=" + qualifiedName));
+        }
+
+        assertEquals(context.getResolvedIdsByUniqAttribs().get(byNameToo), resolver.vertices.get(NAME + "=n6"));
+        assertEquals(context.getResolvedIdsByUniqAttribs().get(reference("qn2")), resolver.shellVertices.get("qn2"));
+        assertEquals(context.getResolvedIdsByUniqAttribs().get(reference("qn4")), resolver.shellVertices.get("qn4"));
+        assertEquals(resolver.shellVertices.size(), 2);
+    }
+
+    @Test
+    public void missInBatchIsNotFound() throws Exception {
+        TestResolver resolver = new TestResolver(10, "qn1");
+
+        try {
+            resolver.resolveEntityReferences(context(reference("qn1"), reference("qn2")));
+
+            fail("reference to a missing entity should have failed");
+        } catch (AtlasBaseException excp) {
+            assertEquals(excp.getAtlasErrorCode(), AtlasErrorCode.REFERENCED_ENTITY_NOT_FOUND);
+        }
+
+        assertEquals(resolver.batchSizes, Collections.singletonList(2));
+        assertTrue(resolver.lookups.isEmpty());
+    }
+
+    @Test
+    public void referencesAreSplitAtBatchSize() throws Exception {
+        for (int count : new int[] { 6, 7 }) {
+            String[] qualifiedNames = new String[count];
+
+            for (int i = 0; i < count; i++) {
+                qualifiedNames[i] = "qn" + i;
+            }
+
+            TestResolver                resolver = new TestResolver(3, qualifiedNames);
+            EntityGraphDiscoveryContext context  = context(qualifiedNames);
+
+            resolver.resolveEntityReferences(context);
+
+            Collections.sort(resolver.batchSizes);
+
+            assertEquals(resolver.batchSizes, count == 6 ? Arrays.asList(3, 3) : Arrays.asList(1, 3, 3));
+            assertTrue(resolver.lookups.isEmpty());
+            assertEquals(context.getResolvedIdsByUniqAttribs().size(), count);
+        }
+    }
+
+    @Test
+    public void batchSizeZeroLooksUpOneAtATime() throws Exception {
+        for (int batchSize : new int[] { 0, 1 }) {
+            TestResolver                resolver = new TestResolver(batchSize, "qn1", "qn2", "qn3");
+            EntityGraphDiscoveryContext context  = context("qn1", "qn2", "qn3");
+
+            resolver.resolveEntityReferences(context);
+
+            assertTrue(resolver.batchSizes.isEmpty());
+            assertEquals(resolver.lookups.size(), 3);
+
+            for (String qualifiedName : Arrays.asList("qn1", "qn2", "qn3")) {
+                assertEquals(context.getResolvedIdsByUniqAttribs().get(reference(qualifiedName)), resolver.vertices.get(QUALIFIED_NAME + "=" + qualifiedName));
+            }
+        }
+    }
+
+    @Test
+    public void referencesAreLookedUpOneAtATimeWhenBatchLookupIsUnsupported() throws Exception {
+        TestResolver                resolver = new TestResolver(10, "qn1", "qn2", "qn3");
+        EntityGraphDiscoveryContext context  = context("qn1", "qn2", "qn3");
+
+        resolver.isBatchLookupSupported = false;
+
+        resolver.resolveEntityReferences(context);
+
+        assertEquals(resolver.batchSizes, Collections.singletonList(3));
+        assertEquals(resolver.lookups.size(), 3);
+        assertEquals(context.getResolvedIdsByUniqAttribs().size(), 3);
+    }
+
+    private static AtlasObjectId reference(String qualifiedName) {
+        Map<String, Object> uniqueAttributes = new HashMap<>();
+
+        uniqueAttributes.put(QUALIFIED_NAME, qualifiedName);
+
+        return new AtlasObjectId(TYPE_NAME, uniqueAttributes);
+    }
+
+    private static EntityGraphDiscoveryContext context(String... qualifiedNames) {
+        EntityGraphDiscoveryContext ret = new EntityGraphDiscoveryContext(null, null);
+
+        for (String qualifiedName : qualifiedNames) {
+            ret.addReferencedByUniqAttribs(reference(qualifiedName));
+        }
+
+        return ret;
+    }
+
+    private static EntityGraphDiscoveryContext context(AtlasObjectId... objIds) {
+        EntityGraphDiscoveryContext ret = new EntityGraphDiscoveryContext(null, null);
+
+        for (AtlasObjectId objId : objIds) {
+            ret.addReferencedByUniqAttribs(objId);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Resolver over an in-memory set of vertices, recording the lookups made: values looked up in each batch query,
+     * and unique attributes looked up individually.
+     */
+    private static class TestResolver extends UniqAttrBasedEntityResolver {
+        final Map<String, AtlasVertex>  vertices               = new HashMap<>(); // "attrName=value" to vertex
+        final Map<String, AtlasVertex>  shellVertices          = new HashMap<>();
+        final List<Integer>             batchSizes             = new ArrayList<>();
+        final List<Map<String, Object>> lookups                = new ArrayList<>();
+        boolean                         isBatchLookupSupported = true;
+
+        TestResolver(int batchSize, String... qualifiedNames) throws AtlasBaseException {
+            this(mock(AtlasTypeRegistry.class), mock(EntityGraphMapper.class), batchSize);
+
+            for (String qualifiedName : qualifiedNames) {
+                addVertex(QUALIFIED_NAME, qualifiedName);
+            }
+        }
+
+        private TestResolver(AtlasTypeRegistry typeRegistry, EntityGraphMapper entityGraphMapper, int batchSize) throws AtlasBaseException {
+            super(null, typeRegistry, entityGraphMapper, batchSize);
+
+            AtlasEntityType             entityType       = mock(AtlasEntityType.class);
+            Map<String, AtlasAttribute> uniqueAttributes = new LinkedHashMap<>();
+
+            for (String attrName : Arrays.asList(QUALIFIED_NAME, NAME)) {
+                AtlasAttribute attribute = mock(AtlasAttribute.class);
+
+                when(attribute.getName()).thenReturn(attrName);
+
+                uniqueAttributes.put(attrName, attribute);
+            }
+
+            when(entityType.getTypeName()).thenReturn(TYPE_NAME);
+            when(entityType.getUniqAttributes()).thenReturn(uniqueAttributes);
+            when(typeRegistry.getEntityTypeByName(TYPE_NAME)).thenReturn(entityType);
+            when(entityGraphMapper.createShellEntityVertex(any(AtlasObjectId.class), any(EntityGraphDiscoveryContext.class))).thenAnswer(invocation -> {
+                String      qualifiedName = (String) ((AtlasObjectId) invocation.getArguments()[0]).getUniqueAttributes().get(QUALIFIED_NAME);
+                AtlasVertex ret           = mock(AtlasVertex.class);
+
+                shellVertices.put(qualifiedName, ret);
+
+                return ret;
+            });
+        }
+
+        void addVertex(String attrName, String attrValue) {
+            vertices.put(attrName + "=" + attrValue, mock(AtlasVertex.class));
+        }
+
+        @Override
+        AtlasVertex findByUniqueAttributes(AtlasEntityType entityType, Map<String, Object> attrValues) {
+            lookups.add(attrValues);
+
+            for (Map.Entry<String, Object> entry : attrValues.entrySet()) {
+                AtlasVertex ret = vertices.get(entry.getKey() + "=" + entry.getValue());
+
+                if (ret != null) {
+                    return ret;
+                }
+            }
+
+            return null;
+        }
+
+        @Override
+        Map<String, AtlasVertex> findByUniqueAttributeValues(AtlasEntityType entityType, AtlasAttribute attribute, Collection<String> attrValues) {
+            batchSizes.add(attrValues.size());
+
+            if (!isBatchLookupSupported) {
+                return null;
+            }
+
+            Map<String, AtlasVertex> ret = new HashMap<>();
+
+            for (String attrValue : attrValues) {
+                AtlasVertex vertex = vertices.get(attribute.getName() + "=" + attrValue);
+
+                if (vertex != null) {
+                    ret.put(attrValue, vertex);
+                }
+            }
+
+            return ret;
+        }
+    }
+}
@@ -26,6 +26,7 @@ import org.apache.atlas.exception.AtlasBaseException;
 import org.apache.atlas.model.instance.AtlasClassification;
 import org.apache.atlas.model.instance.AtlasEntity;
 import org.apache.atlas.model.instance.AtlasEntity.AtlasEntityWithExtInfo;
+import org.apache.atlas.model.instance.AtlasEntityHeader;
 import org.apache.atlas.model.instance.AtlasRelationship;
 import org.apache.atlas.model.instance.EntityMutationResponse;
 import org.apache.atlas.model.lineage.AtlasLineageInfo;
@@ -38,6 +39,7 @@ import org.apache.atlas.repository.impexp.ImportService;
 import org.apache.atlas.repository.impexp.ZipFileResourceTestUtils;
 import org.apache.atlas.repository.store.graph.AtlasEntityStore;
 import org.apache.atlas.repository.store.graph.AtlasRelationshipStore;
+import org.apache.atlas.repository.store.graph.v2.EntityGraphRetriever;
 import org.apache.atlas.runner.LocalSolrRunner;
 import org.apache.atlas.store.AtlasTypeDefStore;
 import org.apache.atlas.type.AtlasTypeRegistry;
@@ -69,6 +71,7 @@ import static org.apache.atlas.model.typedef.AtlasRelationshipDef.PropagateTags.
 import static org.apache.atlas.utils.TestLoadModelUtils.loadModelFromJson;
 import static org.apache.atlas.repository.impexp.ZipFileResourceTestUtils.runImportWithNoParameters;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
@@ -105,6 +108,9 @@ public class ClassificationPropagationTest {
     @Inject
     private ImportService importService;
 
+    @Inject
+    private EntityGraphRetriever entityRetriever;
+
     @Inject
     private AtlasLineageService lineageService;
 
@@ -515,6 +521,33 @@ public class ClassificationPropagationTest {
         assertClassificationExistInEntity(US_EMPLOYEES_TABLE, tag1);
     }
 
+    @Test(dependsOnMethods = {"addClassification_removePropagationsFalse_DeleteCase"})
+    public void entityHeaderReflectsClassificationAdd() throws AtlasBaseException {
+        AtlasEntity         hdfs_employees = getEntity(HDFS_PATH_EMPLOYEES);
+        AtlasClassification tag3           = new AtlasClassification("tag3"); tag3.setPropagate(true); tag3.setEntityGuid(hdfs_employees.getGuid());
+
+        // headers are read, and cached, before the classification is added
+        List<String> entityNames = Arrays.asList(HDFS_PATH_EMPLOYEES, EMPLOYEES1_PROCESS, EMPLOYEES1_TABLE);
+
+        for (String entityName : entityNames) {
+            assertFalse(getHeaderClassificationNames(entityName).contains("tag3"));
+            assertFalse(getHeaderClassificationNames(entityName).contains("tag3")); // from the header cache
+        }
+
+        addClassification(hdfs_employees, tag3);
+
+        // propagation doesn't update the modification timestamp of process1 and employees1
+        for (String entityName : entityNames) {
+            assertTrue(getHeaderClassificationNames(entityName).contains("tag3"));
+        }
+
+        deleteClassification(hdfs_employees, tag3);
+
+        for (String entityName : entityNames) {
+            assertFalse(getHeaderClassificationNames(entityName).contains("tag3"));
+        }
+    }
+
     private void assertClassificationExistInList(Set<AtlasClassification> classifications, AtlasClassification classification) {
         String  classificationName  = classification.getTypeName();
         String  entityGuid          = classification.getEntityGuid();
@@ -638,6 +671,15 @@ public class ClassificationPropagationTest {
         lineageInfo = lineageService.getAtlasLineageInfo(entitiesMap.get(HDFS_PATH_EMPLOYEES), LineageDirection.BOTH, 3);
     }
 
+    // header as read by a new request
+    private List<String> getHeaderClassificationNames(String entityName) throws AtlasBaseException {
+        RequestContext.clear();
+
+        AtlasEntityHeader header = entityRetriever.toAtlasEntityHeader(entitiesMap.get(entityName));
+
+        return header.getClassificationNames() != null ? header.getClassificationNames() : Collections.emptyList();
+    }
+
     private AtlasEntity getEntity(String entityName) throws AtlasBaseException {
         String                 entityGuid        = entitiesMap.get(entityName);
         AtlasEntityWithExtInfo entityWithExtInfo = entityStore.getById(entityGuid);
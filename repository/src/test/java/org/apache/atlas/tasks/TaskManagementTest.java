@@ -0,0 +1,249 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.tasks;
+
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.model.tasks.AtlasTask;
+import org.apache.atlas.model.tasks.AtlasTask.Status;
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TaskManagementTest {
+    private static final String TASK_TYPE = "TEST_TASK";
+
+    @Test
+    public void taskIsProcessedInChunks() {
+        TaskRegistry    registry       = mock(TaskRegistry.class);
+        TestTaskHandler handler        = new TestTaskHandler(Arrays.asList("v1", "v2", "v3", "v4", "v5"), 0);
+        TaskManagement  taskManagement = new TaskManagement(registry, Collections.singletonList(handler), new PropertiesConfiguration(), true, 2, 1, 1, 0, 0, 0);
+        AtlasTask       task           = new AtlasTask("guid1", TASK_TYPE, null, "user1", System.currentTimeMillis());
+
+        taskManagement.start();
+        taskManagement.execute(task);
+        taskManagement.stop();
+
+        assertEquals(handler.chunks, Arrays.asList(Arrays.asList("v1", "v2"), Arrays.asList("v3", "v4"), Collections.singletonList("v5")));
+        assertEquals(handler.completeCount, 1);
+        assertEquals(task.getStatus(), Status.COMPLETE);
+        assertEquals(task.getProcessedCount(), 5);
+        assertEquals(task.getAttemptCount(), 1);
+        assertTrue(task.getEndTime() >= task.getStartTime());
+
+        verify(registry, atLeastOnce()).updateStatus(task);
+    }
+
+    @Test
+    public void failedTaskIsMarkedFailed() {
+        TaskRegistry    registry       = mock(TaskRegistry.class);
+        TestTaskHandler handler        = new TestTaskHandler(Arrays.asList("v1", "v2", "v3"), Integer.MAX_VALUE);
+        TaskManagement  taskManagement = new TaskManagement(registry, Collections.singletonList(handler), new PropertiesConfiguration(), true, 2, 1, 1, 0, 0, 0);
+        AtlasTask       task           = new AtlasTask("guid1", TASK_TYPE, null, "user1", System.currentTimeMillis());
+
+        taskManagement.start();
+        taskManagement.execute(task);
+        taskManagement.stop();
+
+        assertEquals(handler.completeCount, 0);
+        assertEquals(task.getStatus(), Status.FAILED);
+        assertEquals(task.getErrorMessage(), "chunk failed");
+        assertEquals(task.getProcessedCount(), 0);
+    }
+
+    @Test
+    public void incompleteTasksAreResumedOnStart() throws Exception {
+        TaskRegistry    registry = mock(TaskRegistry.class);
+        TestTaskHandler handler  = new TestTaskHandler(Collections.singletonList("v1"), 0);
+        AtlasTask       task     = new AtlasTask("guid1", TASK_TYPE, null, "user1", System.currentTimeMillis());
+
+        task.setStatus(Status.IN_PROGRESS);
+        task.setAttemptCount(1);
+
+        when(registry.getIncompleteTasks()).thenReturn(Collections.singletonList(task));
+
+        TaskManagement taskManagement = new TaskManagement(registry, Collections.singletonList(handler), new PropertiesConfiguration(), true, 2, 1, 1, 0, 0, 0);
+
+        taskManagement.start();
+
+        assertTrue(handler.completed.await(10, TimeUnit.SECONDS));
+
+        taskManagement.stop();
+
+        assertEquals(task.getAttemptCount(), 2);
+    }
+
+    @Test
+    public void failedTaskIsRetried() throws Exception {
+        TaskRegistry    registry       = mock(TaskRegistry.class);
+        TestTaskHandler handler        = new TestTaskHandler(Arrays.asList("v1", "v2", "v3"), 2);
+        TaskManagement  taskManagement = new TaskManagement(registry, Collections.singletonList(handler), new PropertiesConfiguration(), true, 2, 1, 3, 0, 0, 0);
+        AtlasTask       task           = new AtlasTask("guid1", TASK_TYPE, null, "user1", System.currentTimeMillis());
+
+        taskManagement.start();
+        taskManagement.queue(task);
+
+        assertTrue(handler.completed.await(10, TimeUnit.SECONDS));
+
+        taskManagement.stop();
+
+        assertEquals(handler.completeCount, 1);
+        assertEquals(task.getStatus(), Status.COMPLETE);
+        assertEquals(task.getAttemptCount(), 3);
+        assertNull(task.getErrorMessage());
+    }
+
+    @Test
+    public void failedTaskResumesFromLastProcessedChunk() {
+        TaskRegistry    registry       = mock(TaskRegistry.class);
+        TestTaskHandler handler        = new TestTaskHandler(Arrays.asList("v1", "v2", "v3", "v4", "v5"), 1, 2);
+        TaskManagement  taskManagement = new TaskManagement(registry, Collections.singletonList(handler), new PropertiesConfiguration(), true, 2, 1, 2, TimeUnit.HOURS.toMillis(1), 0, 0);
+        AtlasTask       task           = new AtlasTask("guid1", TASK_TYPE, null, "user1", System.currentTimeMillis());
+
+        taskManagement.start();
+        taskManagement.execute(task);
+
+        assertEquals(task.getStatus(), Status.PENDING);
+        assertEquals(task.getProcessedCount(), 2);
+        assertEquals(task.getCursor(), "2");
+
+        // as after a restart, the task is read from the registry with the cursor saved after the last chunk
+        AtlasTask savedTask = new AtlasTask("guid1", TASK_TYPE, null, "user1", task.getCreatedTime());
+
+        savedTask.setAttemptCount(task.getAttemptCount());
+        savedTask.setProcessedCount(task.getProcessedCount());
+        savedTask.setCursor(task.getCursor());
+
+        taskManagement.execute(savedTask);
+        taskManagement.stop();
+
+        assertEquals(handler.chunks, Arrays.asList(Arrays.asList("v1", "v2"), Arrays.asList("v3", "v4"), Collections.singletonList("v5")));
+        assertEquals(savedTask.getStatus(), Status.COMPLETE);
+        assertEquals(savedTask.getProcessedCount(), 5);
+        assertNull(savedTask.getCursor());
+    }
+
+    @Test
+    public void taskIsMarkedFailedAfterMaxAttempts() {
+        TaskRegistry    registry       = mock(TaskRegistry.class);
+        TestTaskHandler handler        = new TestTaskHandler(Arrays.asList("v1", "v2", "v3"), Integer.MAX_VALUE);
+        TaskManagement  taskManagement = new TaskManagement(registry, Collections.singletonList(handler), new PropertiesConfiguration(), true, 2, 1, 2, TimeUnit.HOURS.toMillis(1), 0, 0);
+        AtlasTask       task           = new AtlasTask("guid1", TASK_TYPE, null, "user1", System.currentTimeMillis());
+
+        taskManagement.start();
+        taskManagement.execute(task);
+
+        assertEquals(task.getStatus(), Status.PENDING); // retry is scheduled after an hour
+        assertEquals(task.getAttemptCount(), 1);
+        assertEquals(task.getErrorMessage(), "chunk failed");
+
+        taskManagement.execute(task);
+        taskManagement.stop();
+
+        assertEquals(handler.completeCount, 0);
+        assertEquals(task.getStatus(), Status.FAILED);
+        assertEquals(task.getAttemptCount(), 2);
+        assertEquals(task.getErrorMessage(), "chunk failed");
+    }
+
+    @Test
+    public void completedTasksAreDeletedInChunks() {
+        TaskRegistry   registry       = mock(TaskRegistry.class);
+        long           retentionMs    = TimeUnit.DAYS.toMillis(1);
+        TaskManagement taskManagement = new TaskManagement(registry, Collections.emptyList(), new PropertiesConfiguration(), true, 2, 1, 1, 0, retentionMs, TimeUnit.HOURS.toMillis(1));
+
+        when(registry.deleteCompletedTasks(anyLong(), eq(2))).thenReturn(2, 2, 1);
+
+        long startTime = System.currentTimeMillis();
+
+        taskManagement.start();
+        taskManagement.purgeCompletedTasks();
+        taskManagement.stop();
+
+        ArgumentCaptor<Long> endedBefore = ArgumentCaptor.forClass(Long.class);
+
+        verify(registry, times(3)).deleteCompletedTasks(endedBefore.capture(), eq(2));
+
+        for (Long value : endedBefore.getAllValues()) {
+            assertTrue(value >= startTime - retentionMs && value <= System.currentTimeMillis() - retentionMs);
+        }
+    }
+
+    private static class TestTaskHandler implements TaskHandler {
+        final List<String>       workItems;
+        final int                failedAttempts; // number of attempts in which the chunk starting at failedChunkStart fails
+        final int                failedChunkStart;
+        final List<List<String>> chunks    = new ArrayList<>();
+        final CountDownLatch     completed = new CountDownLatch(1);
+        int                      completeCount = 0;
+
+        TestTaskHandler(List<String> workItems, int failedAttempts) {
+            this(workItems, failedAttempts, 0);
+        }
+
+        TestTaskHandler(List<String> workItems, int failedAttempts, int failedChunkStart) {
+            this.workItems        = workItems;
+            this.failedAttempts   = failedAttempts;
+            this.failedChunkStart = failedChunkStart;
+        }
+
+        @Override
+        public List<String> getSupportedTypes() {
+            return Collections.singletonList(TASK_TYPE);
+        }
+
+        @Override
+        public Chunk processNextChunk(AtlasTask task, String cursor, int chunkSize) throws AtlasBaseException {
+            int start = cursor != null ? Integer.parseInt(cursor) : 0;
+
+            if (start == failedChunkStart && task.getAttemptCount() <= failedAttempts) {
+                throw new AtlasBaseException("chunk failed");
+            }
+
+            int end = Math.min(start + chunkSize, workItems.size());
+
+            chunks.add(new ArrayList<>(workItems.subList(start, end)));
+
+            return end < workItems.size() ? Chunk.next(end - start, Integer.toString(end)) : Chunk.last(end - start);
+        }
+
+        @Override
+        public void complete(AtlasTask task) {
+            completeCount++;
+
+            completed.countDown();
+        }
+    }
+}
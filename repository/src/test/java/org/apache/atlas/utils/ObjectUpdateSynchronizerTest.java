@@ -17,7 +17,9 @@
  */
 package org.apache.atlas.utils;
 
+import org.apache.atlas.AtlasErrorCode;
 import org.apache.atlas.GraphTransactionInterceptor;
+import org.apache.atlas.exception.AtlasBaseException;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.RandomStringUtils;
 import org.springframework.util.CollectionUtils;
@@ -25,10 +27,18 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 public class ObjectUpdateSynchronizerTest {
     private static final GraphTransactionInterceptor.ObjectUpdateSynchronizer objectUpdateSynchronizer = new GraphTransactionInterceptor.ObjectUpdateSynchronizer();
@@ -48,7 +58,12 @@ public class ObjectUpdateSynchronizerTest {
         }
 
         public void run() {
-            objectUpdateSynchronizer.lockObject(CollectionUtils.arrayToList(ids));
+            try {
+                objectUpdateSynchronizer.lockObject(CollectionUtils.arrayToList(ids));
+            } catch (AtlasBaseException excp) {
+                throw new RuntimeException(excp);
+            }
+
             for (int i = 0; i < MAX_COUNT; i++) {
                 outputList.add(i);
                 RandomStringUtils.randomAlphabetic(20);
@@ -166,6 +181,125 @@ public class ObjectUpdateSynchronizerTest {
         assertArrayEquals(populateExpectedArrayOutput(th.length));
     }
 
+    @Test
+    public void lockWaitIsBoundedByTimeout() throws Exception {
+        GraphTransactionInterceptor.ObjectUpdateSynchronizer synchronizer = new GraphTransactionInterceptor.ObjectUpdateSynchronizer(100);
+        CountDownLatch                                       locked       = new CountDownLatch(1);
+        CountDownLatch                                       release      = new CountDownLatch(1);
+        Thread                                               holder       = new Thread(() -> {
+            try {
+                synchronizer.lockObject(Collections.singletonList("guid-1"));
+
+                locked.countDown();
+                release.await();
+            } catch (Exception excp) {
+                // ignore
+            } finally {
+                synchronizer.releaseLockedObjects();
+            }
+        });
+
+        holder.start();
+        locked.await();
+
+        try {
+            synchronizer.lockObject(Collections.singletonList("guid-1"));
+
+            fail("lockObject() should have failed");
+        } catch (AtlasBaseException excp) {
+            assertEquals(excp.getAtlasErrorCode(), AtlasErrorCode.FAILED_TO_OBTAIN_ENTITY_LOCK);
+        } finally {
+            synchronizer.releaseLockedObjects();
+        }
+
+        assertEquals(synchronizer.getWaitTimeoutCount(), 1);
+        assertEquals(synchronizer.getContendedGuids(10), Collections.singletonMap("guid-1", 1L));
+
+        release.countDown();
+        holder.join();
+
+        synchronizer.lockObject(Arrays.asList("guid-2", "guid-1"));
+        synchronizer.releaseLockedObjects();
+
+        assertEquals(synchronizer.getWaitTimeoutCount(), 1);
+        assertEquals(synchronizer.getLockCount(), 0);
+    }
+
+    @Test
+    public void outOfOrderLockAcrossCallsFailsInsteadOfDeadlock() throws Exception {
+        GraphTransactionInterceptor.ObjectUpdateSynchronizer synchronizer = new GraphTransactionInterceptor.ObjectUpdateSynchronizer(60 * 1000);
+        CountDownLatch                                       t1Locked     = new CountDownLatch(1);
+        CountDownLatch                                       t2Locked     = new CountDownLatch(1);
+        AtomicReference<AtlasBaseException>                  t1Failure    = new AtomicReference<>();
+        AtomicReference<Throwable>                           t2Failure    = new AtomicReference<>();
+
+        // t1 locks guid-b, then guid-a in a later call of the same transaction; t2 locks guid-a, then guid-b
+        Thread t1 = new Thread(() -> {
+            try {
+                synchronizer.lockObject(Collections.singletonList("guid-b"));
+
+                t1Locked.countDown();
+                t2Locked.await();
+
+                Thread.sleep(100); // let t2 start waiting for guid-b
+
+                synchronizer.lockObject(Collections.singletonList("guid-a"));
+            } catch (AtlasBaseException excp) {
+                t1Failure.set(excp);
+            } catch (InterruptedException excp) {
+                // ignore
+            } finally {
+                synchronizer.releaseLockedObjects();
+            }
+        });
+
+        Thread t2 = new Thread(() -> {
+            try {
+                t1Locked.await();
+
+                synchronizer.lockObject(Collections.singletonList("guid-a"));
+
+                t2Locked.countDown();
+
+                synchronizer.lockObject(Collections.singletonList("guid-b"));
+            } catch (Throwable excp) {
+                t2Failure.set(excp);
+            } finally {
+                synchronizer.releaseLockedObjects();
+            }
+        });
+
+        long startTime = System.currentTimeMillis();
+
+        t1.start();
+        t2.start();
+        t1.join();
+        t2.join();
+
+        assertTrue(System.currentTimeMillis() - startTime < 30 * 1000, "threads should not wait for the lock timeout");
+        assertNotNull(t1Failure.get());
+        assertEquals(t1Failure.get().getAtlasErrorCode(), AtlasErrorCode.FAILED_TO_OBTAIN_ENTITY_LOCK);
+        assertNull(t2Failure.get());
+        assertEquals(synchronizer.getOutOfOrderFailureCount(), 1);
+        assertEquals(synchronizer.getWaitTimeoutCount(), 0);
+        assertEquals(synchronizer.getLockCount(), 0);
+    }
+
+    @Test
+    public void outOfOrderLockNotHeldByOthersIsObtained() throws Exception {
+        GraphTransactionInterceptor.ObjectUpdateSynchronizer synchronizer = new GraphTransactionInterceptor.ObjectUpdateSynchronizer(100);
+
+        synchronizer.lockObject(Arrays.asList("guid-c", "guid-b"));
+        synchronizer.lockObject(Arrays.asList("guid-a", "guid-b"));
+
+        assertEquals(synchronizer.getLockCount(), 3);
+
+        synchronizer.releaseLockedObjects();
+
+        assertEquals(synchronizer.getOutOfOrderFailureCount(), 0);
+        assertEquals(synchronizer.getLockCount(), 0);
+    }
+
     private void verifyMultipleThreadRun(int limit) throws InterruptedException {
         CounterThread[] th = getCounterThreads(limit);
         startCounterThreads(th);
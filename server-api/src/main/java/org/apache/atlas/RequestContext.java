@@ -58,6 +58,7 @@ public class RequestContext {
     private final AtlasPerfMetrics                       metrics              = isMetricsEnabled ? new AtlasPerfMetrics() : null;
     private       List<EntityGuidPair>                   entityGuidInRequest  = null;
     private final Set<String>                            entitiesToSkipUpdate = new HashSet<>();
+    private       long                                   skippedWriteCount    = 0;
 
     private String       user;
     private Set<String>  userGroups;
@@ -121,6 +122,8 @@ public class RequestContext {
             metrics.clear();
         }
 
+        this.skippedWriteCount = 0;
+
         if (this.entityGuidInRequest != null) {
             this.entityGuidInRequest.clear();
         }
@@ -220,6 +223,25 @@ public class RequestContext {
         }
     }
 
+    /**
+     * Record a property or edge write that was skipped, as the value in the graph is unchanged.
+     */
+    public void recordSkippedWrite() {
+        recordSkippedWrites(1);
+    }
+
+    public void recordSkippedWrites(int count) {
+        skippedWriteCount += count;
+
+        if (metrics != null) {
+            metrics.recordCount("skippedWrites", count);
+        }
+    }
+
+    public long getSkippedWriteCount() {
+        return skippedWriteCount;
+    }
+
     public void recordEntityDelete(AtlasEntityHeader entity) {
         if (entity != null && entity.getGuid() != null) {
             deletedEntities.put(entity.getGuid(), entity);
@@ -32,7 +32,9 @@ public interface ActiveStateChangeHandler {
         TYPEDEF_STORE_INITIALIZER(2),
         ATLAS_PATCH_SERVICE(3),
         DEFAULT_METADATA_SERVICE(4),
-        NOTIFICATION_HOOK_CONSUMER(5);
+        NOTIFICATION_HOOK_CONSUMER(5),
+        ASYNC_FULLTEXT_MAPPER(6),
+        TASK_MANAGEMENT(7);
 
 
         private final int order;
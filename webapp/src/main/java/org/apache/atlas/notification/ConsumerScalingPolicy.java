@@ -0,0 +1,69 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.notification;
+
+/**
+ * Decides the number of hook consumer threads, from the lag of consumers and the average time taken to process a
+ * message. Threads are added one at a time while lag is high, and removed one at a time while lag is low. When
+ * messages take longer than the configured limit to process, the backend store is likely saturated: more threads
+ * would only add contention, hence a thread is removed instead.
+ */
+class ConsumerScalingPolicy {
+    private final int  minThreads;
+    private final int  maxThreads;
+    private final long lagHigh;
+    private final long lagLow;
+    private final long maxAvgProcessingMs;
+
+    ConsumerScalingPolicy(int minThreads, int maxThreads, long lagHigh, long lagLow, long maxAvgProcessingMs) {
+        this.minThreads         = Math.max(1, minThreads);
+        this.maxThreads         = Math.max(this.minThreads, maxThreads);
+        this.lagHigh            = lagHigh;
+        this.lagLow             = lagLow;
+        this.maxAvgProcessingMs = maxAvgProcessingMs;
+    }
+
+    public int getMinThreads() {
+        return minThreads;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    /**
+     * @param currentThreads   number of consumer threads now running
+     * @param lag              number of messages yet to be consumed; -1 if not known
+     * @param avgProcessingMs  average time taken to process a message since the last call
+     *
+     * @return number of consumer threads to run
+     */
+    public int getTargetThreads(int currentThreads, long lag, long avgProcessingMs) {
+        int ret = currentThreads;
+
+        if (avgProcessingMs > maxAvgProcessingMs) {
+            ret = currentThreads - 1;
+        } else if (lag > lagHigh) {
+            ret = currentThreads + 1;
+        } else if (lag >= 0 && lag < lagLow) {
+            ret = currentThreads - 1;
+        }
+
+        return Math.min(maxThreads, Math.max(minThreads, ret));
+    }
+}
@@ -0,0 +1,401 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.notification;
+
+import org.apache.atlas.kafka.AtlasKafkaMessage;
+import org.apache.atlas.model.instance.AtlasEntity;
+import org.apache.atlas.model.instance.AtlasEntity.AtlasEntitiesWithExtInfo;
+import org.apache.atlas.model.instance.AtlasEntity.AtlasEntityWithExtInfo;
+import org.apache.atlas.model.instance.AtlasObjectId;
+import org.apache.atlas.model.notification.HookNotification;
+import org.apache.atlas.model.notification.HookNotification.EntityCreateRequestV2;
+import org.apache.atlas.model.notification.HookNotification.EntityPartialUpdateRequestV2;
+import org.apache.atlas.model.notification.HookNotification.EntityUpdateRequestV2;
+import org.apache.atlas.model.notification.HookNotification.HookNotificationType;
+import org.apache.atlas.type.AtlasEntityType;
+import org.apache.atlas.type.AtlasType;
+import org.apache.atlas.type.AtlasTypeRegistry;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.collections.MapUtils;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static org.apache.atlas.model.instance.AtlasObjectId.KEY_GUID;
+
+/**
+ * Merges consecutive hook notifications that update the same entity into a single notification, so that the entity is
+ * written to the graph once instead of once per notification.
+ *
+ * Only ENTITY_CREATE_V2, ENTITY_FULL_UPDATE_V2 and ENTITY_PARTIAL_UPDATE_V2 notifications from the same partition and
+ * user, with consecutive offsets, are merged; an entity is identified by its type and unique attribute. Any other
+ * notification in between, like a delete of the entity, ends the merge - even when it is not in the given list, for
+ * example when it was handed off to the large-message lane. Attributes of an entity in a later notification overlay
+ * the attributes from earlier notifications, which is the state sequential processing would have resulted in.
+ *
+ * The merged notification carries the offset of the last notification merged into it, and the notifications merged
+ * into it, unmodified, so that these can be processed one by one if the merged notification fails.
+ */
+class HookNotificationCoalescer {
+    private static final Logger LOG = LoggerFactory.getLogger(HookNotificationCoalescer.class);
+
+    private final AtlasTypeRegistry typeRegistry;
+
+    HookNotificationCoalescer(AtlasTypeRegistry typeRegistry) {
+        this.typeRegistry = typeRegistry;
+    }
+
+    public List<AtlasKafkaMessage<HookNotification>> coalesce(List<AtlasKafkaMessage<HookNotification>> messages) {
+        if (messages == null || messages.size() < 2) {
+            return messages;
+        }
+
+        List<AtlasKafkaMessage<HookNotification>> ret        = new ArrayList<>(messages.size());
+        List<AtlasKafkaMessage<HookNotification>> group      = new ArrayList<>();
+        Set<String>                               groupKeys  = new HashSet<>();
+
+        for (AtlasKafkaMessage<HookNotification> msg : messages) {
+            if (!group.isEmpty() && canMerge(group, groupKeys, msg)) {
+                group.add(msg);
+
+                groupKeys.addAll(getEntityKeys(msg.getMessage()));
+
+                continue;
+            }
+
+            flush(group, ret);
+
+            groupKeys.clear();
+
+            if (isGroupStart(msg.getMessage())) {
+                group.add(msg);
+
+                groupKeys.addAll(getEntityKeys(msg.getMessage()));
+            } else {
+                ret.add(msg);
+            }
+        }
+
+        flush(group, ret);
+
+        if (LOG.isDebugEnabled() && ret.size() < messages.size()) {
+            LOG.debug("coalesced {} notifications into {}", messages.size(), ret.size());
+        }
+
+        return ret;
+    }
+
+    private void flush(List<AtlasKafkaMessage<HookNotification>> group, List<AtlasKafkaMessage<HookNotification>> result) {
+        if (group.size() == 1) {
+            result.add(group.get(0));
+        } else if (group.size() > 1) {
+            result.add(merge(group));
+        }
+
+        group.clear();
+    }
+
+    private boolean isGroupStart(HookNotification message) {
+        AtlasEntitiesWithExtInfo entities = getEntities(message);
+
+        return entities != null && CollectionUtils.isNotEmpty(entities.getEntities());
+    }
+
+    private boolean canMerge(List<AtlasKafkaMessage<HookNotification>> group, Set<String> groupKeys, AtlasKafkaMessage<HookNotification> msg) {
+        AtlasKafkaMessage<HookNotification> first   = group.get(0);
+        AtlasKafkaMessage<HookNotification> last    = group.get(group.size() - 1);
+        HookNotification                    message = msg.getMessage();
+
+        if (!Objects.equals(first.getTopicPartition(), msg.getTopicPartition()) || !StringUtils.equals(first.getMessage().getUser(), message.getUser())) {
+            return false;
+        }
+
+        if (msg.getOffset() != last.getOffset() + 1) { // a notification in between is not in the list
+            return false;
+        }
+
+        if (message.getType() == HookNotificationType.ENTITY_PARTIAL_UPDATE_V2) {
+            EntityPartialUpdateRequestV2 request = (EntityPartialUpdateRequestV2) message;
+            String                       key     = getEntityKey(request.getEntityId());
+
+            return key != null && request.getEntity() != null && request.getEntity().getEntity() != null && groupKeys.contains(key);
+        }
+
+        if (isGroupStart(message)) {
+            for (String key : getEntityKeys(message)) {
+                if (groupKeys.contains(key)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private AtlasKafkaMessage<HookNotification> merge(List<AtlasKafkaMessage<HookNotification>> group) {
+        AtlasKafkaMessage<HookNotification> first         = group.get(0);
+        AtlasKafkaMessage<HookNotification> last          = group.get(group.size() - 1);
+        Map<String, AtlasEntity>            entities      = new LinkedHashMap<>();
+        Map<String, AtlasEntity>            referred      = new LinkedHashMap<>();
+        Map<String, String>                 guidAliases   = new HashMap<>();
+        boolean                             isFullUpdate  = false;
+
+        for (AtlasKafkaMessage<HookNotification> msg : group) {
+            HookNotification message = msg.getMessage();
+
+            if (message.getType() == HookNotificationType.ENTITY_PARTIAL_UPDATE_V2) {
+                EntityPartialUpdateRequestV2 request = (EntityPartialUpdateRequestV2) message;
+                AtlasEntityWithExtInfo       entity  = request.getEntity();
+
+                addEntity(getEntityKey(request.getEntityId()), entity.getEntity(), true, entities, referred, guidAliases);
+                addReferredEntities(entity.getReferredEntities(), entities, referred, guidAliases);
+            } else {
+                AtlasEntitiesWithExtInfo msgEntities = getEntities(message);
+
+                isFullUpdate |= message.getType() == HookNotificationType.ENTITY_FULL_UPDATE_V2;
+
+                for (AtlasEntity entity : msgEntities.getEntities()) {
+                    addEntity(getEntityKey(entity), entity, true, entities, referred, guidAliases);
+                }
+
+                addReferredEntities(msgEntities.getReferredEntities(), entities, referred, guidAliases);
+            }
+        }
+
+        AtlasEntitiesWithExtInfo merged = new AtlasEntitiesWithExtInfo(new ArrayList<>(entities.values()));
+
+        for (AtlasEntity entity : referred.values()) {
+            merged.addReferredEntity(entity);
+        }
+
+        if (!guidAliases.isEmpty()) {
+            for (AtlasEntity entity : entities.values()) {
+                updateReferences(entity, guidAliases);
+            }
+
+            for (AtlasEntity entity : referred.values()) {
+                updateReferences(entity, guidAliases);
+            }
+        }
+
+        String           user          = first.getMessage().getUser();
+        HookNotification mergedMessage = isFullUpdate ? new EntityUpdateRequestV2(user, merged) : new EntityCreateRequestV2(user, merged);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("merged {} notifications: topic-offsets={}-{}, partition={}, entities={}, referredEntities={}", group.size(), first.getOffset(), last.getOffset(), last.getPartition(), entities.size(), referred.size());
+        }
+
+        return new CoalescedMessage(mergedMessage, last, group);
+    }
+
+    private void addReferredEntities(Map<String, AtlasEntity> referredEntities, Map<String, AtlasEntity> entities, Map<String, AtlasEntity> referred, Map<String, String> guidAliases) {
+        if (MapUtils.isNotEmpty(referredEntities)) {
+            for (AtlasEntity entity : referredEntities.values()) {
+                addEntity(getEntityKey(entity), entity, false, entities, referred, guidAliases);
+            }
+        }
+    }
+
+    private void addEntity(String key, AtlasEntity entity, boolean isTopLevel, Map<String, AtlasEntity> entities, Map<String, AtlasEntity> referred, Map<String, String> guidAliases) {
+        if (key == null) {
+            key = entity.getGuid() != null ? entity.getGuid() : Integer.toString(System.identityHashCode(entity));
+        }
+
+        AtlasEntity existing = entities.get(key);
+
+        if (existing == null) {
+            existing = referred.get(key);
+
+            if (existing != null && isTopLevel) {
+                referred.remove(key);
+                entities.put(key, existing);
+            }
+        }
+
+        if (existing == null) {
+            (isTopLevel ? entities : referred).put(key, copyOf(entity)); // entities of source notifications are not modified
+        } else {
+            overlay(existing, copyOf(entity));
+
+            if (entity.getGuid() != null && existing.getGuid() != null && !StringUtils.equals(entity.getGuid(), existing.getGuid())) {
+                guidAliases.put(entity.getGuid(), existing.getGuid());
+            }
+        }
+    }
+
+    private static AtlasEntity copyOf(AtlasEntity entity) {
+        return AtlasType.fromJson(AtlasType.toJson(entity), AtlasEntity.class);
+    }
+
+    private void overlay(AtlasEntity existing, AtlasEntity update) {
+        if (MapUtils.isNotEmpty(update.getAttributes())) {
+            for (Map.Entry<String, Object> entry : update.getAttributes().entrySet()) {
+                existing.setAttribute(entry.getKey(), entry.getValue());
+            }
+        }
+
+        if (MapUtils.isNotEmpty(update.getRelationshipAttributes())) {
+            for (Map.Entry<String, Object> entry : update.getRelationshipAttributes().entrySet()) {
+                existing.setRelationshipAttribute(entry.getKey(), entry.getValue());
+            }
+        }
+
+        if (update.getClassifications() != null) {
+            existing.setClassifications(update.getClassifications());
+        }
+
+        if (update.getCustomAttributes() != null) {
+            existing.setCustomAttributes(update.getCustomAttributes());
+        }
+
+        if (update.getBusinessAttributes() != null) {
+            existing.setBusinessAttributes(update.getBusinessAttributes());
+        }
+
+        if (update.getLabels() != null) {
+            existing.setLabels(update.getLabels());
+        }
+    }
+
+    private void updateReferences(AtlasEntity entity, Map<String, String> guidAliases) {
+        if (MapUtils.isNotEmpty(entity.getAttributes())) {
+            for (Object value : entity.getAttributes().values()) {
+                updateReferences(value, guidAliases);
+            }
+        }
+
+        if (MapUtils.isNotEmpty(entity.getRelationshipAttributes())) {
+            for (Object value : entity.getRelationshipAttributes().values()) {
+                updateReferences(value, guidAliases);
+            }
+        }
+    }
+
+    private void updateReferences(Object value, Map<String, String> guidAliases) {
+        if (value instanceof AtlasObjectId) {
+            AtlasObjectId objId = (AtlasObjectId) value;
+            String        alias = objId.getGuid() != null ? guidAliases.get(objId.getGuid()) : null;
+
+            if (alias != null) {
+                objId.setGuid(alias);
+            }
+        } else if (value instanceof Map) {
+            Map    objId = (Map) value;
+            Object guid  = objId.get(KEY_GUID);
+            String alias = guid != null ? guidAliases.get(guid.toString()) : null;
+
+            if (alias != null) {
+                objId.put(KEY_GUID, alias);
+            }
+        } else if (value instanceof Collection) {
+            for (Object element : (Collection) value) {
+                updateReferences(element, guidAliases);
+            }
+        }
+    }
+
+    private Set<String> getEntityKeys(HookNotification message) {
+        Set<String> ret = new HashSet<>();
+
+        if (message.getType() == HookNotificationType.ENTITY_PARTIAL_UPDATE_V2) {
+            String key = getEntityKey(((EntityPartialUpdateRequestV2) message).getEntityId());
+
+            if (key != null) {
+                ret.add(key);
+            }
+        } else {
+            AtlasEntitiesWithExtInfo entities = getEntities(message);
+
+            if (entities != null && entities.getEntities() != null) {
+                for (AtlasEntity entity : entities.getEntities()) {
+                    String key = getEntityKey(entity);
+
+                    if (key != null) {
+                        ret.add(key);
+                    }
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    private AtlasEntitiesWithExtInfo getEntities(HookNotification message) {
+        switch (message.getType()) {
+            case ENTITY_CREATE_V2:
+                return ((EntityCreateRequestV2) message).getEntities();
+
+            case ENTITY_FULL_UPDATE_V2:
+                return ((EntityUpdateRequestV2) message).getEntities();
+
+            default:
+                return null;
+        }
+    }
+
+    private String getEntityKey(AtlasEntity entity) {
+        return entity != null ? getEntityKey(entity.getTypeName(), entity.getAttributes()) : null;
+    }
+
+    private String getEntityKey(AtlasObjectId objectId) {
+        return objectId != null ? getEntityKey(objectId.getTypeName(), objectId.getUniqueAttributes()) : null;
+    }
+
+    private String getEntityKey(String typeName, Map<String, Object> attributes) {
+        AtlasEntityType entityType = typeName != null ? typeRegistry.getEntityTypeByName(typeName) : null;
+
+        if (entityType != null && MapUtils.isNotEmpty(attributes) && MapUtils.isNotEmpty(entityType.getUniqAttributes())) {
+            for (String attrName : entityType.getUniqAttributes().keySet()) {
+                Object attrValue = attributes.get(attrName);
+
+                if (attrValue != null) {
+                    return typeName + "." + attrName + "=" + attrValue;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Notification merged from consecutive notifications, along with the notifications merged into it.
+     */
+    static class CoalescedMessage extends AtlasKafkaMessage<HookNotification> {
+        private final List<AtlasKafkaMessage<HookNotification>> sourceMessages;
+
+        CoalescedMessage(HookNotification message, AtlasKafkaMessage<HookNotification> last, List<AtlasKafkaMessage<HookNotification>> sourceMessages) {
+            super(message, last.getOffset(), last.getTopic(), last.getPartition());
+
+            this.sourceMessages = new ArrayList<>(sourceMessages);
+        }
+
+        public List<AtlasKafkaMessage<HookNotification>> getSourceMessages() {
+            return sourceMessages;
+        }
+    }
+}
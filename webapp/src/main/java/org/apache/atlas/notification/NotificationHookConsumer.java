@@ -36,7 +36,10 @@ import org.apache.atlas.model.notification.HookNotification.EntityCreateRequestV
 import org.apache.atlas.model.notification.HookNotification.EntityDeleteRequestV2;
 import org.apache.atlas.model.notification.HookNotification.EntityUpdateRequestV2;
 import org.apache.atlas.model.notification.HookNotification.EntityPartialUpdateRequestV2;
+import org.apache.atlas.model.notification.HookNotification.HookNotificationType;
+import org.apache.atlas.notification.HookNotificationCoalescer.CoalescedMessage;
 import org.apache.atlas.notification.NotificationInterface.NotificationType;
+import org.apache.atlas.notification.WriterLaneRouter.MessageKeys;
 import org.apache.atlas.notification.preprocessor.EntityPreprocessor;
 import org.apache.atlas.notification.preprocessor.PreprocessorContext;
 import org.apache.atlas.notification.preprocessor.PreprocessorContext.PreprocessAction;
@@ -67,6 +70,7 @@ import org.apache.commons.collections.MapUtils;
 import org.apache.commons.collections4.map.PassiveExpiringMap;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.lang.StringUtils;
+import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.DependsOn;
@@ -84,15 +88,26 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 import static org.apache.atlas.model.instance.AtlasObjectId.*;
@@ -133,6 +148,24 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
     public static final String CONSUMER_MAX_RETRY_INTERVAL       = "atlas.notification.consumer.max.retry.interval";
     public static final String CONSUMER_COMMIT_BATCH_SIZE        = "atlas.notification.consumer.commit.batch.size";
     public static final String CONSUMER_DISABLED                 = "atlas.notification.consumer.disabled";
+    public static final String CONSUMER_PIPELINE_ENABLED            = "atlas.notification.consumer.pipeline.enabled";
+    public static final String CONSUMER_PIPELINE_PREPROCESS_THREADS = "atlas.notification.consumer.pipeline.preprocess.threads";
+    public static final String CONSUMER_PIPELINE_WRITER_THREADS     = "atlas.notification.consumer.pipeline.writer.threads";
+    public static final String CONSUMER_OFFSET_COMMIT_ASYNC         = "atlas.notification.consumer.offset.commit.async";
+    public static final String CONSUMER_OFFSET_COMMIT_MAX_MESSAGES  = "atlas.notification.consumer.offset.commit.max.messages";
+    public static final String CONSUMER_OFFSET_COMMIT_INTERVAL_MS   = "atlas.notification.consumer.offset.commit.interval.ms";
+    public static final String CONSUMER_COALESCE_ENABLED            = "atlas.notification.consumer.coalesce.enabled";
+    public static final String CONSUMER_AUTOSCALE_ENABLED           = "atlas.notification.consumer.autoscale.enabled";
+    public static final String CONSUMER_AUTOSCALE_MIN_THREADS       = "atlas.notification.consumer.autoscale.min.threads";
+    public static final String CONSUMER_AUTOSCALE_MAX_THREADS       = "atlas.notification.consumer.autoscale.max.threads";
+    public static final String CONSUMER_AUTOSCALE_INTERVAL_MS       = "atlas.notification.consumer.autoscale.interval.ms";
+    public static final String CONSUMER_AUTOSCALE_LAG_HIGH          = "atlas.notification.consumer.autoscale.lag.high";
+    public static final String CONSUMER_AUTOSCALE_LAG_LOW           = "atlas.notification.consumer.autoscale.lag.low";
+    public static final String CONSUMER_AUTOSCALE_MAX_AVG_TIME_MS   = "atlas.notification.consumer.autoscale.max.avg.processing.ms";
+    public static final String CONSUMER_LARGE_MESSAGE_LANE_ENABLED           = "atlas.notification.consumer.large.message.lane.enabled";
+    public static final String CONSUMER_LARGE_MESSAGE_LANE_QUEUE_SIZE        = "atlas.notification.consumer.large.message.lane.queue.size";
+    public static final String CONSUMER_LARGE_MESSAGE_SIZE_THRESHOLD         = "atlas.notification.consumer.large.message.size.threshold.bytes";
+    public static final String CONSUMER_LARGE_MESSAGE_ENTITY_COUNT_THRESHOLD = "atlas.notification.consumer.large.message.entity.count.threshold";
 
 
     public static final String CONSUMER_SKIP_HIVE_COLUMN_LINEAGE_HIVE_20633                  = "atlas.notification.consumer.skip.hive_column_lineage.hive-20633";
@@ -181,11 +214,38 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
     private final boolean createShellEntityForNonExistingReference;
     private final boolean                       authorizeUsingMessageUser;
     private final Map<String, Authentication>   authnCache;
+    private final boolean                       pipelineEnabled;
+    private final int                           pipelinePreprocessThreads;
+    private final int                           pipelineWriterThreads;
+    private final boolean                       asyncOffsetCommitEnabled;
+    private final int                           offsetCommitMaxMessages;
+    private final long                          offsetCommitIntervalMs;
+    private final HookNotificationCoalescer     coalescer;
+    private final boolean                       autoscaleEnabled;
+    private final int                           autoscaleMinThreads;
+    private final int                           autoscaleMaxThreads;
+    private final long                          autoscaleIntervalMs;
+    private final long                          autoscaleLagHigh;
+    private final long                          autoscaleLagLow;
+    private final long                          autoscaleMaxAvgProcessingMs;
+    private final boolean                       largeMessageLaneEnabled;
+    private final int                           largeMessageLaneQueueSize;
+    private final int                           largeMessageSizeThreshold;
+    private final int                           largeMessageEntityCountThreshold;
+    private final AtomicLong                    processedMessageCount  = new AtomicLong();
+    private final AtomicLong                    processedMessageTimeMs = new AtomicLong();
 
     private final NotificationInterface         notificationInterface;
     private final Configuration                 applicationProperties;
     private       ExecutorService               executors;
-    private       Instant                       nextStatsLogTime = AtlasMetricsCounter.getNextHourStartTime(Instant.now());
+    private       ExecutorService               preprocessExecutor;
+    private       ExecutorService[]             writerLanes;
+    private       WriterLaneRouter              writerLaneRouter;
+    private       ScheduledExecutorService      autoscaler;
+    private       ConsumerScalingPolicy         scalingPolicy;
+    private       long                          lastProcessedMessageCount;
+    private       long                          lastProcessedMessageTimeMs;
+    private volatile Instant                     nextStatsLogTime = AtlasMetricsCounter.getNextHourStartTime(Instant.now()); // updated by consumer and writer threads
 
     @VisibleForTesting
     final int consumerRetryInterval;
@@ -222,6 +282,27 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
 
         int authnCacheTtlSeconds = applicationProperties.getInt(CONSUMER_AUTHORIZE_AUTHN_CACHE_TTL_SECONDS, 300);
 
+        pipelineEnabled           = applicationProperties.getBoolean(CONSUMER_PIPELINE_ENABLED, false);
+        pipelinePreprocessThreads = applicationProperties.getInt(CONSUMER_PIPELINE_PREPROCESS_THREADS, Runtime.getRuntime().availableProcessors());
+        pipelineWriterThreads     = applicationProperties.getInt(CONSUMER_PIPELINE_WRITER_THREADS, 4);
+        asyncOffsetCommitEnabled  = applicationProperties.getBoolean(CONSUMER_OFFSET_COMMIT_ASYNC, false);
+        offsetCommitMaxMessages   = applicationProperties.getInt(CONSUMER_OFFSET_COMMIT_MAX_MESSAGES, 100);
+        offsetCommitIntervalMs    = applicationProperties.getLong(CONSUMER_OFFSET_COMMIT_INTERVAL_MS, 1000);
+        coalescer                 = applicationProperties.getBoolean(CONSUMER_COALESCE_ENABLED, false) ? new HookNotificationCoalescer(typeRegistry) : null;
+
+        autoscaleEnabled            = applicationProperties.getBoolean(CONSUMER_AUTOSCALE_ENABLED, false);
+        autoscaleMinThreads         = applicationProperties.getInt(CONSUMER_AUTOSCALE_MIN_THREADS, applicationProperties.getInt(CONSUMER_THREADS_PROPERTY, 1));
+        autoscaleMaxThreads         = applicationProperties.getInt(CONSUMER_AUTOSCALE_MAX_THREADS, Math.max(autoscaleMinThreads, 4));
+        autoscaleIntervalMs         = applicationProperties.getLong(CONSUMER_AUTOSCALE_INTERVAL_MS, 60 * 1000);
+        autoscaleLagHigh            = applicationProperties.getLong(CONSUMER_AUTOSCALE_LAG_HIGH, 10000);
+        autoscaleLagLow             = applicationProperties.getLong(CONSUMER_AUTOSCALE_LAG_LOW, 100);
+        autoscaleMaxAvgProcessingMs = applicationProperties.getLong(CONSUMER_AUTOSCALE_MAX_AVG_TIME_MS, 1000);
+
+        largeMessageLaneEnabled          = applicationProperties.getBoolean(CONSUMER_LARGE_MESSAGE_LANE_ENABLED, false);
+        largeMessageLaneQueueSize        = applicationProperties.getInt(CONSUMER_LARGE_MESSAGE_LANE_QUEUE_SIZE, 10);
+        largeMessageSizeThreshold        = applicationProperties.getInt(CONSUMER_LARGE_MESSAGE_SIZE_THRESHOLD, 1024 * 1024);
+        largeMessageEntityCountThreshold = applicationProperties.getInt(CONSUMER_LARGE_MESSAGE_ENTITY_COUNT_THRESHOLD, 1000);
+
         authnCache = (authorizeUsingMessageUser && authnCacheTtlSeconds > 0) ? new PassiveExpiringMap<>(authnCacheTtlSeconds * 1000) : null;
 
         String[] patternHiveTablesToIgnore = applicationProperties.getStringArray(CONSUMER_PREPROCESS_HIVE_TABLE_IGNORE_PATTERN);
@@ -254,7 +335,7 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
         }
 
         if (!hiveTablesToIgnore.isEmpty() || !hiveTablesToPrune.isEmpty()) {
-            hiveTablesCache = new LruCache<>(applicationProperties.getInt(CONSUMER_PREPROCESS_HIVE_TABLE_CACHE_SIZE, 10000), 0);
+            hiveTablesCache = Collections.synchronizedMap(new LruCache<>(applicationProperties.getInt(CONSUMER_PREPROCESS_HIVE_TABLE_CACHE_SIZE, 10000), 0));
         } else {
             hiveTablesCache = Collections.emptyMap();
         }
@@ -309,6 +390,38 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
         LOG.info("{}={}", CONSUMER_PREPROCESS_RDBMS_TYPES_REMOVE_OWNEDREF_ATTRS, rdbmsTypesRemoveOwnedRefAttrs);
         LOG.info("{}={}", CONSUMER_COMMIT_BATCH_SIZE, commitBatchSize);
         LOG.info("{}={}", CONSUMER_DISABLED, consumerDisabled);
+        LOG.info("{}={}", CONSUMER_PIPELINE_ENABLED, pipelineEnabled);
+
+        if (pipelineEnabled) {
+            LOG.info("{}={}", CONSUMER_PIPELINE_PREPROCESS_THREADS, pipelinePreprocessThreads);
+            LOG.info("{}={}", CONSUMER_PIPELINE_WRITER_THREADS, pipelineWriterThreads);
+        }
+
+        LOG.info("{}={}", CONSUMER_OFFSET_COMMIT_ASYNC, asyncOffsetCommitEnabled);
+        LOG.info("{}={}", CONSUMER_COALESCE_ENABLED, coalescer != null);
+        LOG.info("{}={}", CONSUMER_AUTOSCALE_ENABLED, autoscaleEnabled);
+
+        if (autoscaleEnabled) {
+            LOG.info("{}={}", CONSUMER_AUTOSCALE_MIN_THREADS, autoscaleMinThreads);
+            LOG.info("{}={}", CONSUMER_AUTOSCALE_MAX_THREADS, autoscaleMaxThreads);
+            LOG.info("{}={}", CONSUMER_AUTOSCALE_INTERVAL_MS, autoscaleIntervalMs);
+            LOG.info("{}={}", CONSUMER_AUTOSCALE_LAG_HIGH, autoscaleLagHigh);
+            LOG.info("{}={}", CONSUMER_AUTOSCALE_LAG_LOW, autoscaleLagLow);
+            LOG.info("{}={}", CONSUMER_AUTOSCALE_MAX_AVG_TIME_MS, autoscaleMaxAvgProcessingMs);
+        }
+
+        LOG.info("{}={}", CONSUMER_LARGE_MESSAGE_LANE_ENABLED, largeMessageLaneEnabled);
+
+        if (largeMessageLaneEnabled) {
+            LOG.info("{}={}", CONSUMER_LARGE_MESSAGE_LANE_QUEUE_SIZE, largeMessageLaneQueueSize);
+            LOG.info("{}={}", CONSUMER_LARGE_MESSAGE_SIZE_THRESHOLD, largeMessageSizeThreshold);
+            LOG.info("{}={}", CONSUMER_LARGE_MESSAGE_ENTITY_COUNT_THRESHOLD, largeMessageEntityCountThreshold);
+        }
+
+        if (asyncOffsetCommitEnabled) {
+            LOG.info("{}={}", CONSUMER_OFFSET_COMMIT_MAX_MESSAGES, offsetCommitMaxMessages);
+            LOG.info("{}={}", CONSUMER_OFFSET_COMMIT_INTERVAL_MS, offsetCommitIntervalMs);
+        }
     }
 
     @Override
@@ -340,17 +453,109 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
         List<NotificationConsumer<HookNotification>> notificationConsumers = notificationInterface.createConsumers(NotificationType.HOOK, numThreads);
 
         if (executorService == null) {
-            executorService = Executors.newFixedThreadPool(notificationConsumers.size(), new ThreadFactoryBuilder().setNameFormat(THREADNAME_PREFIX + " thread-%d").build());
+            int poolSize = autoscaleEnabled ? Math.max(autoscaleMaxThreads, notificationConsumers.size()) : notificationConsumers.size();
+
+            executorService = Executors.newFixedThreadPool(poolSize, new ThreadFactoryBuilder().setNameFormat(THREADNAME_PREFIX + " thread-%d").build());
         }
 
         executors = executorService;
 
+        if (pipelineEnabled) {
+            startPipelineExecutors();
+        }
+
         for (final NotificationConsumer<HookNotification> consumer : notificationConsumers) {
             HookConsumer hookConsumer = new HookConsumer(consumer);
 
             consumers.add(hookConsumer);
             executors.submit(hookConsumer);
         }
+
+        if (autoscaleEnabled) {
+            // consumers created above are one per topic; these are never removed, so that all topics continue to be read
+            startAutoscaler(new ConsumerScalingPolicy(Math.max(autoscaleMinThreads, consumers.size()), autoscaleMaxThreads, autoscaleLagHigh, autoscaleLagLow, autoscaleMaxAvgProcessingMs));
+        }
+    }
+
+    @VisibleForTesting
+    void startAutoscaler(ConsumerScalingPolicy policy) {
+        if (autoscaler == null) {
+            scalingPolicy              = policy;
+            lastProcessedMessageCount  = processedMessageCount.get();
+            lastProcessedMessageTimeMs = processedMessageTimeMs.get();
+            autoscaler                 = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat(THREADNAME_PREFIX + " autoscaler").setDaemon(true).build());
+
+            autoscaler.scheduleWithFixedDelay(this::scaleConsumers, autoscaleIntervalMs, autoscaleIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @VisibleForTesting
+    void stopAutoscaler() throws InterruptedException {
+        if (autoscaler != null) {
+            autoscaler.shutdownNow();
+
+            if (!autoscaler.awaitTermination(5000, TimeUnit.MILLISECONDS)) {
+                LOG.error("Timed out waiting for autoscaler thread to shut down");
+            }
+
+            autoscaler = null;
+        }
+    }
+
+    /**
+     * Adds or removes a consumer thread, based on the lag of consumers and the average time taken to process messages
+     * since the last call. Additional consumers join the consumer group of existing ones, hence Kafka rebalances
+     * partitions across consumers as they are added or removed.
+     */
+    @VisibleForTesting
+    void scaleConsumers() {
+        try {
+            long count              = processedMessageCount.get();
+            long timeMs             = processedMessageTimeMs.get();
+            long avgProcessingMs    = count > lastProcessedMessageCount ? (timeMs - lastProcessedMessageTimeMs) / (count - lastProcessedMessageCount) : 0;
+            long lag                = -1;
+            int  prevThreads;
+            int  newThreads;
+
+            lastProcessedMessageCount  = count;
+            lastProcessedMessageTimeMs = timeMs;
+
+            synchronized (consumers) {
+                for (HookConsumer consumer : consumers) {
+                    if (consumer.lag >= 0) {
+                        lag = Math.max(lag, 0) + consumer.lag;
+                    }
+                }
+
+                prevThreads = consumers.size();
+                newThreads  = scalingPolicy.getTargetThreads(prevThreads, lag, avgProcessingMs);
+
+                if (newThreads > prevThreads) {
+                    NotificationConsumer<HookNotification> consumer = notificationInterface.createAdditionalConsumer(NotificationType.HOOK, prevThreads);
+
+                    if (consumer != null) {
+                        HookConsumer hookConsumer = new HookConsumer(consumer);
+
+                        consumers.add(hookConsumer);
+                        executors.submit(hookConsumer);
+                    } else {
+                        LOG.warn("scaleConsumers(): failed to create additional consumer");
+                    }
+                } else if (newThreads < prevThreads) {
+                    consumers.remove(consumers.size() - 1).shutdown();
+                }
+
+                newThreads = consumers.size();
+            }
+
+            if (newThreads != prevThreads) {
+                LOG.info("scaleConsumers(): consumer threads changed from {} to {}. lag={}, avgProcessingTimeMs={}", prevThreads, newThreads, lag, avgProcessingMs);
+            }
+
+            metricsUtil.onNotificationConsumerScaling(lag, prevThreads, newThreads);
+        } catch (Throwable t) {
+            LOG.warn("scaleConsumers(): failed", t);
+        }
     }
 
     @Override
@@ -361,7 +566,10 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
                 return;
             }
 
+            stopAutoscaler();
             stopConsumerThreads();
+            stopPipelineExecutors();
+
             if (executors != null) {
                 executors.shutdown();
 
@@ -382,16 +590,63 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
         LOG.info("==> stopConsumerThreads()");
 
         if (consumers != null) {
-            for (HookConsumer consumer : consumers) {
-                consumer.shutdown();
-            }
+            synchronized (consumers) {
+                for (HookConsumer consumer : consumers) {
+                    consumer.shutdown();
+                }
 
-            consumers.clear();
+                consumers.clear();
+            }
         }
 
         LOG.info("<== stopConsumerThreads()");
     }
 
+    @VisibleForTesting
+    void startPipelineExecutors() {
+        if (preprocessExecutor == null) {
+            preprocessExecutor = Executors.newFixedThreadPool(Math.max(1, pipelinePreprocessThreads), new ThreadFactoryBuilder().setNameFormat(THREADNAME_PREFIX + " preprocess-%d").setDaemon(true).build());
+        }
+
+        if (writerLanes == null) {
+            writerLanes = new ExecutorService[Math.max(1, pipelineWriterThreads)];
+
+            for (int i = 0; i < writerLanes.length; i++) {
+                writerLanes[i] = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat(THREADNAME_PREFIX + " writer-" + i).setDaemon(true).build());
+            }
+
+            writerLaneRouter = new WriterLaneRouter(writerLanes.length);
+        }
+    }
+
+    @VisibleForTesting
+    void stopPipelineExecutors() throws InterruptedException {
+        if (preprocessExecutor != null) {
+            preprocessExecutor.shutdown();
+
+            if (!preprocessExecutor.awaitTermination(5000, TimeUnit.MILLISECONDS)) {
+                LOG.error("Timed out waiting for preprocess threads to shut down");
+            }
+
+            preprocessExecutor = null;
+        }
+
+        if (writerLanes != null) {
+            for (ExecutorService writerLane : writerLanes) {
+                writerLane.shutdown();
+            }
+
+            for (ExecutorService writerLane : writerLanes) {
+                if (!writerLane.awaitTermination(5000, TimeUnit.MILLISECONDS)) {
+                    LOG.error("Timed out waiting for writer threads to shut down");
+                }
+            }
+
+            writerLanes      = null;
+            writerLaneRouter = null;
+        }
+    }
+
     /**
      * Start Kafka consumer threads that read from Kafka topic when server is activated.
      * <p>
@@ -518,11 +773,28 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
         @VisibleForTesting
         final FailedCommitOffsetRecorder failedCommitOffsetRecorder;
 
+        @VisibleForTesting
+        final OffsetCommitTracker offsetCommitTracker;
+
+        private final ExecutorService      largeMessageLane;
+        private final Map<String, Integer> largeMessageKeys = new HashMap<>(); // qualifiedName -> count of messages in largeMessageLane
+        private       int                  largeMessageCount = 0;               // count of messages in largeMessageLane; guarded by largeMessageKeys
+        private volatile boolean           isLargeMessageLaneStopped = false;
+
+        private final Map<TopicPartition, NavigableSet<Long>> handedOffOffsets = new HashMap<>(); // offsets of messages handed off to largeMessageLane, yet to be committed; accessed only in this thread
+
+        private long lastOffsetCommitTime = System.currentTimeMillis();
+        private long lastLagSampleTime    = 0;
+
+        volatile long lag = -1;
+
         public HookConsumer(NotificationConsumer<HookNotification> consumer) {
             super("atlas-hook-consumer-thread", false);
 
             this.consumer = consumer;
             failedCommitOffsetRecorder = new FailedCommitOffsetRecorder();
+            offsetCommitTracker        = (asyncOffsetCommitEnabled || largeMessageLaneEnabled) ? new OffsetCommitTracker() : null;
+            largeMessageLane           = largeMessageLaneEnabled ? createLargeMessageLane() : null;
         }
 
         @Override
@@ -540,9 +812,46 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
                     try {
                         List<AtlasKafkaMessage<HookNotification>> messages = consumer.receive();
 
-                        for (AtlasKafkaMessage<HookNotification> msg : messages) {
-                            handleMessage(msg);
+                        if (autoscaleEnabled) {
+                            sampleLag();
                         }
+
+                        if (offsetCommitTracker != null) {
+                            for (AtlasKafkaMessage<HookNotification> msg : messages) {
+                                offsetCommitTracker.received(msg.getTopicPartition(), msg.getOffset());
+                            }
+                        }
+
+                        if (largeMessageLane != null) {
+                            messages = routeLargeMessages(messages);
+                        }
+
+                        boolean                   isBatchHandled = false;
+                        Map<TopicPartition, Long> handledOffsets = new HashMap<>(); // partition -> offset of the last message handled in this thread
+
+                        try {
+                            List<AtlasKafkaMessage<HookNotification>> toProcess = coalescer != null ? coalesceMessages(messages) : messages;
+
+                            if (pipelineEnabled) {
+                                handleMessagesPipelined(toProcess);
+                            } else {
+                                for (AtlasKafkaMessage<HookNotification> msg : toProcess) {
+                                    handleMessage(msg);
+
+                                    handledOffsets.put(msg.getTopicPartition(), msg.getOffset());
+                                }
+                            }
+
+                            isBatchHandled = true;
+                        } finally {
+                            if (isBatchHandled) {
+                                markProcessed(messages);
+                            } else {
+                                seekToFirstUnhandledOffsets(messages, handledOffsets);
+                            }
+                        }
+
+                        commitOffsetsAsync(false);
                     } catch (IllegalStateException ex) {
                         adaptiveWaiter.pause(ex);
                     } catch (Exception e) {
@@ -556,6 +865,12 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
                     }
                 }
             } finally {
+                if (largeMessageLane != null) {
+                    stopLargeMessageLane();
+                }
+
+                commitOffsetsAsync(true);
+
                 if (consumer != null) {
                     LOG.info("closing NotificationConsumer");
 
@@ -566,60 +881,355 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
             }
         }
 
+        /**
+         * Hands off large messages to largeMessageLane, so that they don't hold up messages that follow. A message that
+         * updates an entity of a message in largeMessageLane is handed off as well, to retain the order of updates; so is
+         * a message whose entities can't be identified, while largeMessageLane has messages. Messages in largeMessageLane
+         * are tracked by offsetCommitTracker, hence offsets are committed only up to the earliest message yet to be processed.
+         * A message received again after the consumer is repositioned to an earlier message of a failed batch is skipped
+         * if it was handed off already, as largeMessageLane holds or has processed it.
+         *
+         * @return messages to be processed in this thread
+         */
         @VisibleForTesting
-        void handleMessage(AtlasKafkaMessage<HookNotification> kafkaMsg) throws AtlasServiceException, AtlasException {
-            AtlasPerfTracer  perf           = null;
-            HookNotification message        = kafkaMsg.getMessage();
-            String           messageUser    = message.getUser();
-            long             startTime      = System.currentTimeMillis();
-            NotificationStat stats          = new NotificationStat();
-            AuditLog         auditLog       = null;
+        List<AtlasKafkaMessage<HookNotification>> routeLargeMessages(List<AtlasKafkaMessage<HookNotification>> messages) {
+            List<AtlasKafkaMessage<HookNotification>> ret = new ArrayList<>(messages.size());
 
-            if (authorizeUsingMessageUser) {
-                setCurrentUser(messageUser);
+            for (AtlasKafkaMessage<HookNotification> msg : messages) {
+                NavigableSet<Long> partitionHandedOffOffsets = handedOffOffsets.get(msg.getTopicPartition());
+
+                if (partitionHandedOffOffsets != null && partitionHandedOffOffsets.contains(msg.getOffset())) {
+                    LOG.debug("skipping message already handed off to large-message lane: topic-offset={}, partition={}", msg.getOffset(), msg.getPartition());
+
+                    continue;
+                }
+
+                Set<String> keys = getEntityKeys(msg.getMessage());
+
+                if (isLargeMessage(msg) || isInLargeMessageLane(keys)) {
+                    submitToLargeMessageLane(msg, keys);
+                } else {
+                    ret.add(msg);
+                }
             }
 
-            if (AtlasPerfTracer.isPerfTraceEnabled(PERF_LOG)) {
-                perf = AtlasPerfTracer.getPerfTracer(PERF_LOG, message.getType().name());
+            return ret;
+        }
+
+        private boolean isLargeMessage(AtlasKafkaMessage<HookNotification> msg) {
+            return msg.getMsgSize() > largeMessageSizeThreshold || getEntityCount(msg.getMessage()) > largeMessageEntityCountThreshold;
+        }
+
+        private boolean isInLargeMessageLane(Set<String> keys) {
+            synchronized (largeMessageKeys) {
+                if (keys == null) {
+                    return largeMessageCount > 0;
+                }
+
+                for (String key : keys) {
+                    if (largeMessageKeys.containsKey(key)) {
+                        return true;
+                    }
+                }
+
+                return false;
+            }
+        }
+
+        private void submitToLargeMessageLane(AtlasKafkaMessage<HookNotification> msg, Set<String> keys) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("handing off message to large-message lane: topic-offset={}, partition={}, msgSize={}", msg.getOffset(), msg.getPartition(), msg.getMsgSize());
+            }
+
+            handedOffOffsets.computeIfAbsent(msg.getTopicPartition(), k -> new TreeSet<>()).add(msg.getOffset());
+
+            synchronized (largeMessageKeys) {
+                largeMessageCount++;
+
+                if (keys != null) {
+                    for (String key : keys) {
+                        largeMessageKeys.merge(key, 1, Integer::sum);
+                    }
+                }
+            }
+
+            largeMessageLane.execute(() -> {
+                try {
+                    processMessage(prepareMessage(msg), false);
+                } catch (Throwable t) {
+                    LOG.warn("Exception in NotificationHookConsumer large-message lane: topic-offset={}, partition={}", msg.getOffset(), msg.getPartition(), t);
+                } finally {
+                    synchronized (largeMessageKeys) {
+                        largeMessageCount--;
+
+                        if (keys != null) {
+                            for (String key : keys) {
+                                largeMessageKeys.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+                            }
+                        }
+                    }
+
+                    // a message interrupted by stopLargeMessageLane() is not marked processed, so that it is received again after restart
+                    if (!isLargeMessageLaneStopped) {
+                        offsetCommitTracker.processed(msg.getTopicPartition(), msg.getOffset());
+                    }
+                }
+            });
+        }
+
+        // when the lane is full, the caller is blocked until there is room in the lane, which stops reading further messages until then
+        private ExecutorService createLargeMessageLane() {
+            return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(1, largeMessageLaneQueueSize)),
+                                          new ThreadFactoryBuilder().setNameFormat(THREADNAME_PREFIX + " large-message-%d").setDaemon(true).build(),
+                                          (task, executor) -> {
+                                              if (executor.isShutdown()) {
+                                                  throw new RejectedExecutionException("large-message lane is stopped");
+                                              }
+
+                                              try {
+                                                  executor.getQueue().put(task);
+                                              } catch (InterruptedException excp) {
+                                                  Thread.currentThread().interrupt();
+
+                                                  throw new RejectedExecutionException("interrupted while waiting for room in large-message lane", excp);
+                                              }
+                                          });
+        }
+
+        /**
+         * Stops processing of messages in largeMessageLane. Messages yet to complete are not marked processed, hence
+         * offsets are committed only up to the earliest of them; these messages will be received again after restart.
+         */
+        private void stopLargeMessageLane() {
+            isLargeMessageLaneStopped = true;
+
+            List<Runnable> pendingTasks = largeMessageLane.shutdownNow();
+
+            if (!pendingTasks.isEmpty()) {
+                LOG.info("large-message lane stopped with {} messages yet to be processed", pendingTasks.size());
             }
 
             try {
-                if(failedCommitOffsetRecorder.isMessageReplayed(kafkaMsg.getOffset())) {
-                    commit(kafkaMsg);
-                    return;
+                if (!largeMessageLane.awaitTermination(5000, TimeUnit.MILLISECONDS)) {
+                    LOG.warn("Timed out waiting for large-message lane to stop");
                 }
+            } catch (InterruptedException excp) {
+                LOG.warn("Interrupted while waiting for large-message lane to stop");
+            }
+        }
+
+        // lag is read from the consumer, which can only be accessed from this thread; it is sampled often enough for the autoscaler to see a recent value
+        private void sampleLag() {
+            long now = System.currentTimeMillis();
+
+            if (now - lastLagSampleTime >= autoscaleIntervalMs / 2) {
+                lag               = consumer.getLag();
+                lastLagSampleTime = now;
+            }
+        }
 
-                // covert V1 messages to V2 to enable preProcess
+        @VisibleForTesting
+        void handleMessage(AtlasKafkaMessage<HookNotification> kafkaMsg) throws AtlasServiceException, AtlasException {
+            processMessage(prepareMessage(kafkaMsg), true);
+        }
+
+        /**
+         * Processes the messages of a batch in two stages: V1-to-V2 conversion and preprocessing run on the preprocess
+         * pool, while graph writes run on single-threaded writer lanes selected by writerLaneRouter, so that updates to
+         * the same entity are applied in the order received. A message that overlaps in-flight messages of more than one
+         * lane is submitted after writes of earlier messages complete; a message whose entities can't be identified is
+         * written in this thread, after writes of earlier messages complete and before later ones start. Offsets are
+         * committed once the batch completes.
+         */
+        @VisibleForTesting
+        void handleMessagesPipelined(List<AtlasKafkaMessage<HookNotification>> messages) throws AtlasException {
+            if (CollectionUtils.isEmpty(messages)) {
+                return;
+            }
+
+            List<Future<PreparedMessage>> preparedMessages = new ArrayList<>(messages.size());
+            List<Future<?>>               writtenMessages  = new ArrayList<>(messages.size());
+            Throwable                     failure          = null;
+
+            for (final AtlasKafkaMessage<HookNotification> msg : messages) {
+                preparedMessages.add(preprocessExecutor.submit(() -> prepareMessage(msg)));
+            }
+
+            for (Future<PreparedMessage> future : preparedMessages) {
                 try {
-                    switch (message.getType()) {
-                        case ENTITY_CREATE: {
-                            final EntityCreateRequest      createRequest = (EntityCreateRequest) message;
-                            final AtlasEntitiesWithExtInfo entities      = instanceConverter.toAtlasEntities(createRequest.getEntities());
-                            final EntityCreateRequestV2    v2Request     = new EntityCreateRequestV2(message.getUser(), entities);
-
-                            kafkaMsg = new AtlasKafkaMessage<>(v2Request, kafkaMsg.getOffset(), kafkaMsg.getTopic(), kafkaMsg.getPartition());
-                            message  = kafkaMsg.getMessage();
+                    final PreparedMessage preparedMessage = future.get();
+                    final MessageKeys     keys            = getMessageKeys(preparedMessage.kafkaMsg.getMessage());
+                    int                   laneIndex       = writerLaneRouter.acquireLane(keys);
+
+                    if (laneIndex == -1) {
+                        failure = awaitWrites(writtenMessages, null);
+
+                        if (failure != null) {
+                            break;
                         }
-                        break;
 
-                        case ENTITY_FULL_UPDATE: {
-                            final EntityUpdateRequest      updateRequest = (EntityUpdateRequest) message;
-                            final AtlasEntitiesWithExtInfo entities      = instanceConverter.toAtlasEntities(updateRequest.getEntities());
-                            final EntityUpdateRequestV2    v2Request     = new EntityUpdateRequestV2(messageUser, entities);
+                        laneIndex = writerLaneRouter.acquireLane(keys); // still -1 if keys are not known, or overlap writes of other consumers
+                    }
+
+                    if (laneIndex == -1) {
+                        processMessage(preparedMessage, false);
+                    } else {
+                        final int lane = laneIndex;
+
+                        try {
+                            writtenMessages.add(writerLanes[lane].submit(() -> {
+                                try {
+                                    processMessage(preparedMessage, false);
+                                } finally {
+                                    writerLaneRouter.release(keys, lane);
+                                }
+
+                                return null;
+                            }));
+                        } catch (RejectedExecutionException excp) {
+                            writerLaneRouter.release(keys, lane);
 
-                            kafkaMsg = new AtlasKafkaMessage<>(v2Request, kafkaMsg.getOffset(), kafkaMsg.getTopic(), kafkaMsg.getPartition());
-                            message  = kafkaMsg.getMessage();
+                            throw excp;
                         }
-                        break;
                     }
-                } catch (AtlasBaseException excp) {
-                    LOG.error("handleMessage(): failed to convert V1 message to V2", message.getType().name());
+                } catch (ExecutionException excp) {
+                    failure = excp.getCause();
+
+                    break;
+                } catch (InterruptedException | AtlasServiceException | AtlasException excp) {
+                    failure = excp;
+
+                    break;
                 }
+            }
 
-                PreprocessorContext context = preProcessNotificationMessage(kafkaMsg);
+            failure = awaitWrites(writtenMessages, failure);
+
+            if (failure != null) { // offsets are not committed; doWork() repositions the consumer to receive the batch again
+                throw new AtlasException(failure);
+            }
+
+            Map<TopicPartition, AtlasKafkaMessage<HookNotification>> lastMessages = new LinkedHashMap<>();
+
+            for (AtlasKafkaMessage<HookNotification> msg : messages) {
+                lastMessages.put(msg.getTopicPartition(), msg);
+            }
+
+            for (AtlasKafkaMessage<HookNotification> msg : lastMessages.values()) {
+                commit(msg);
+            }
+        }
+
+        // waits for the given writes to complete, and returns the given failure or else the first failure of the writes
+        private Throwable awaitWrites(List<Future<?>> writes, Throwable failure) {
+            for (Future<?> future : writes) {
+                try {
+                    future.get();
+                } catch (ExecutionException excp) {
+                    if (failure == null) {
+                        failure = excp.getCause();
+                    }
+                } catch (InterruptedException excp) {
+                    if (failure == null) {
+                        failure = excp;
+                    }
+                }
+            }
+
+            writes.clear();
+
+            return failure;
+        }
+
+        PreparedMessage prepareMessage(AtlasKafkaMessage<HookNotification> kafkaMsg) {
+            long startTime = System.currentTimeMillis();
+
+            if (failedCommitOffsetRecorder.isMessageReplayed(kafkaMsg.getOffset()) || failedCommitOffsetRecorder.isMessageReplayed(kafkaMsg.getTopicPartition(), kafkaMsg.getOffset())) {
+                return new PreparedMessage(kafkaMsg, null, startTime, true);
+            }
+
+            kafkaMsg = convertToV2(kafkaMsg);
+
+            PreprocessorContext context = preProcessNotificationMessage(kafkaMsg);
+
+            return new PreparedMessage(kafkaMsg, context, startTime, false);
+        }
+
+        /**
+         * Merges consecutive notifications in the batch that update the same entity. A merged notification carries the
+         * offset of the last notification merged into it, hence committing it commits offsets of all merged ones.
+         */
+        @VisibleForTesting
+        List<AtlasKafkaMessage<HookNotification>> coalesceMessages(List<AtlasKafkaMessage<HookNotification>> messages) {
+            List<AtlasKafkaMessage<HookNotification>> v2Messages = new ArrayList<>(messages.size());
+
+            for (AtlasKafkaMessage<HookNotification> msg : messages) {
+                if (failedCommitOffsetRecorder.isMessageReplayed(msg.getOffset()) || failedCommitOffsetRecorder.isMessageReplayed(msg.getTopicPartition(), msg.getOffset())) {
+                    return messages; // replayed messages are skipped based on their offset, hence are not merged
+                }
+
+                v2Messages.add(convertToV2(msg));
+            }
+
+            return coalescer.coalesce(v2Messages);
+        }
+
+        private AtlasKafkaMessage<HookNotification> convertToV2(AtlasKafkaMessage<HookNotification> kafkaMsg) {
+            HookNotification message = kafkaMsg.getMessage();
+
+            // covert V1 messages to V2 to enable preProcess
+            try {
+                switch (message.getType()) {
+                    case ENTITY_CREATE: {
+                        final EntityCreateRequest      createRequest = (EntityCreateRequest) message;
+                        final AtlasEntitiesWithExtInfo entities      = instanceConverter.toAtlasEntities(createRequest.getEntities());
+                        final EntityCreateRequestV2    v2Request     = new EntityCreateRequestV2(message.getUser(), entities);
+
+                        kafkaMsg = new AtlasKafkaMessage<>(v2Request, kafkaMsg.getOffset(), kafkaMsg.getTopic(), kafkaMsg.getPartition());
+                    }
+                    break;
+
+                    case ENTITY_FULL_UPDATE: {
+                        final EntityUpdateRequest      updateRequest = (EntityUpdateRequest) message;
+                        final AtlasEntitiesWithExtInfo entities      = instanceConverter.toAtlasEntities(updateRequest.getEntities());
+                        final EntityUpdateRequestV2    v2Request     = new EntityUpdateRequestV2(message.getUser(), entities);
+
+                        kafkaMsg = new AtlasKafkaMessage<>(v2Request, kafkaMsg.getOffset(), kafkaMsg.getTopic(), kafkaMsg.getPartition());
+                    }
+                    break;
+                }
+            } catch (AtlasBaseException excp) {
+                LOG.error("handleMessage(): failed to convert V1 message to V2", message.getType().name());
+            }
+
+            return kafkaMsg;
+        }
+
+        void processMessage(PreparedMessage preparedMessage, boolean commitOffset) throws AtlasServiceException, AtlasException {
+            AtlasPerfTracer                           perf           = null;
+            AtlasKafkaMessage<HookNotification>       kafkaMsg       = preparedMessage.kafkaMsg;
+            PreprocessorContext                       context        = preparedMessage.context;
+            HookNotification                          message        = kafkaMsg.getMessage();
+            String                                    messageUser    = message.getUser();
+            long                                      startTime      = preparedMessage.startTime;
+            NotificationStat                          stats          = new NotificationStat();
+            AuditLog                                  auditLog       = null;
+            List<AtlasKafkaMessage<HookNotification>> sourceMessages = null;
+
+            if (authorizeUsingMessageUser) {
+                setCurrentUser(messageUser);
+            }
+
+            if (AtlasPerfTracer.isPerfTraceEnabled(PERF_LOG)) {
+                perf = AtlasPerfTracer.getPerfTracer(PERF_LOG, message.getType().name());
+            }
+
+            try {
+                if (preparedMessage.isReplayed || isEmptyMessage(kafkaMsg)) {
+                    if (commitOffset) {
+                        commit(kafkaMsg);
+                    }
 
-                if (isEmptyMessage(kafkaMsg)) {
-                    commit(kafkaMsg);
                     return;
                 }
 
@@ -787,6 +1397,14 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
                     } catch (Throwable e) {
                         RequestContext.get().resetEntityGuidUpdates();
 
+                        if (kafkaMsg instanceof CoalescedMessage) { // notifications merged into this one are processed one by one, each with retries
+                            sourceMessages = ((CoalescedMessage) kafkaMsg).getSourceMessages();
+
+                            LOG.warn("Failed to process notification merged from {} notifications. Will process them one by one", sourceMessages.size(), e);
+
+                            break;
+                        }
+
                         if (numRetries == (maxRetries - 1)) {
                             String strMessage = AbstractNotification.getMessageJson(message);
 
@@ -794,11 +1412,8 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
 
                             stats.isFailedMsg = true;
 
-                            failedMessages.add(strMessage);
+                            addFailedMessage(strMessage);
 
-                            if (failedMessages.size() >= failedMsgCacheSize) {
-                                recordFailedMessages();
-                            }
                             return;
                         } else {
                             LOG.warn("Error handling message", e);
@@ -816,7 +1431,15 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
                     }
                 }
 
-                commit(kafkaMsg);
+                if (sourceMessages != null) {
+                    for (AtlasKafkaMessage<HookNotification> sourceMessage : sourceMessages) {
+                        processMessage(prepareMessage(sourceMessage), false);
+                    }
+                }
+
+                if (commitOffset) {
+                    commit(kafkaMsg);
+                }
             } finally {
                 AtlasPerfTracer.log(perf);
 
@@ -824,6 +1447,9 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
 
                 metricsUtil.onNotificationProcessingComplete(kafkaMsg.getTopic(), kafkaMsg.getPartition(), kafkaMsg.getOffset(), stats);
 
+                processedMessageCount.incrementAndGet();
+                processedMessageTimeMs.addAndGet(stats.timeTakenMs);
+
                 if (stats.timeTakenMs > largeMessageProcessingTimeThresholdMs) {
                     String strMessage = AbstractNotification.getMessageJson(message);
 
@@ -892,16 +1518,38 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
             }
         }
 
-        private void recordFailedMessages() {
-            //logging failed messages
-            for (String message : failedMessages) {
-                FAILED_LOG.error("[DROPPED_NOTIFICATION] {}", message);
+        private void addFailedMessage(String message) {
+            synchronized (failedMessages) {
+                failedMessages.add(message);
+
+                if (failedMessages.size() >= failedMsgCacheSize) {
+                    recordFailedMessages();
+                }
             }
+        }
 
-            failedMessages.clear();
+        private void recordFailedMessages() {
+            synchronized (failedMessages) {
+                //logging failed messages
+                for (String message : failedMessages) {
+                    FAILED_LOG.error("[DROPPED_NOTIFICATION] {}", message);
+                }
+
+                failedMessages.clear();
+            }
         }
 
         private void commit(AtlasKafkaMessage<HookNotification> kafkaMessage) {
+            if (offsetCommitTracker != null) {
+                recordFailedMessages();
+
+                offsetCommitTracker.processed(kafkaMessage.getTopicPartition(), kafkaMessage.getOffset());
+
+                commitOffsetsAsync(false);
+
+                return;
+            }
+
             boolean commitSucceessStatus = false;
             try {
                 recordFailedMessages();
@@ -914,6 +1562,102 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
             }
         }
 
+        /**
+         * Marks messages of a handled batch as processed, including messages dropped after maxRetries, so that offsets
+         * of subsequent messages can be committed - same as with synchronous commits, where a commit covers all earlier
+         * messages in the partition.
+         */
+        private void markProcessed(List<AtlasKafkaMessage<HookNotification>> messages) {
+            if (offsetCommitTracker != null) {
+                for (AtlasKafkaMessage<HookNotification> msg : messages) {
+                    offsetCommitTracker.processed(msg.getTopicPartition(), msg.getOffset());
+                }
+            }
+        }
+
+        /**
+         * Repositions the consumer, in each partition, to the earliest message of a failed batch that was not handled,
+         * so that these messages are received again; otherwise offsets of subsequent batches would be committed past
+         * the failed messages. Messages handled one at a time in this thread are already committed (or marked processed),
+         * hence are not received again. With the pipeline, messages are written out of order and offsets are committed
+         * only once the whole batch completes, hence the consumer is repositioned to the first message of the batch.
+         *
+         * @param handledOffsets partition -> offset of the last message handled in this thread; empty with the pipeline
+         */
+        @VisibleForTesting
+        void seekToFirstUnhandledOffsets(List<AtlasKafkaMessage<HookNotification>> messages, Map<TopicPartition, Long> handledOffsets) {
+            Map<TopicPartition, Long> firstOffsets = new LinkedHashMap<>();
+
+            for (AtlasKafkaMessage<HookNotification> msg : messages) {
+                Long handledOffset = handledOffsets.get(msg.getTopicPartition());
+
+                if (handledOffset == null || msg.getOffset() > handledOffset) {
+                    firstOffsets.merge(msg.getTopicPartition(), msg.getOffset(), Math::min);
+                }
+            }
+
+            for (Map.Entry<TopicPartition, Long> entry : firstOffsets.entrySet()) {
+                LOG.warn("failed to handle messages of {} from offset {}. Will be received again", entry.getKey(), entry.getValue());
+
+                try {
+                    consumer.seek(entry.getKey(), entry.getValue());
+                } catch (Exception excp) { // for example, when the partition is no longer assigned to this consumer
+                    LOG.warn("failed to seek to offset {} of {}", entry.getValue(), entry.getKey(), excp);
+                }
+            }
+        }
+
+        /**
+         * Commits offsets of messages processed so far, once offsetCommitMaxMessages messages are processed or
+         * offsetCommitIntervalMs elapsed since the last commit. Offsets that failed to commit earlier are retried along
+         * with these. When isFinal is true, offsets are committed synchronously, as the consumer is about to be closed.
+         */
+        @VisibleForTesting
+        void commitOffsetsAsync(boolean isFinal) {
+            if (offsetCommitTracker == null) {
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+
+            if (!isFinal && offsetCommitTracker.getCommittableCount() < offsetCommitMaxMessages && (now - lastOffsetCommitTime) < offsetCommitIntervalMs) {
+                return;
+            }
+
+            lastOffsetCommitTime = now;
+
+            Map<TopicPartition, Long> offsets = failedCommitOffsetRecorder.addFailedOffsets(offsetCommitTracker.drainCommittableOffsets());
+
+            if (offsets.isEmpty()) {
+                return;
+            }
+
+            // messages before committable offsets are processed, hence won't be received again unless the partition is reassigned
+            for (Map.Entry<TopicPartition, Long> entry : offsets.entrySet()) {
+                NavigableSet<Long> partitionHandedOffOffsets = handedOffOffsets.get(entry.getKey());
+
+                if (partitionHandedOffOffsets != null) {
+                    partitionHandedOffOffsets.headSet(entry.getValue()).clear();
+
+                    if (partitionHandedOffOffsets.isEmpty()) {
+                        handedOffOffsets.remove(entry.getKey());
+                    }
+                }
+            }
+
+            if (isFinal) {
+                for (Map.Entry<TopicPartition, Long> entry : offsets.entrySet()) {
+                    try {
+                        consumer.commit(entry.getKey(), entry.getValue());
+                    } catch (Exception excp) {
+                        LOG.warn("failed to commit offset {} for {}", entry.getValue(), entry.getKey(), excp);
+                    }
+                }
+            } else {
+                consumer.commitAsync(offsets, failedCommitOffsetRecorder::recordIfFailed);
+            }
+        }
+
         boolean serverAvailable(Timer timer) {
             try {
                 while (serviceState.getState() != ServiceState.ServiceStateValue.ACTIVE) {
@@ -1314,8 +2058,198 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
         return ret;
     }
 
+    /**
+     * Returns number of entities in the message, including referred entities.
+     */
+    @VisibleForTesting
+    static int getEntityCount(HookNotification message) {
+        int ret = 1;
+
+        switch (message.getType()) {
+            case ENTITY_CREATE:
+            case ENTITY_FULL_UPDATE: {
+                List<Referenceable> entities = ((EntityCreateRequest) message).getEntities();
+
+                ret = entities != null ? entities.size() : 0;
+            }
+            break;
+
+            case ENTITY_CREATE_V2:
+            case ENTITY_FULL_UPDATE_V2: {
+                AtlasEntitiesWithExtInfo entities = message.getType() == HookNotificationType.ENTITY_CREATE_V2 ? ((EntityCreateRequestV2) message).getEntities() : ((EntityUpdateRequestV2) message).getEntities();
+
+                ret = 0;
+
+                if (entities != null) {
+                    ret += entities.getEntities() != null ? entities.getEntities().size() : 0;
+                    ret += entities.getReferredEntities() != null ? entities.getReferredEntities().size() : 0;
+                }
+            }
+            break;
+
+            case ENTITY_DELETE_V2: {
+                List<AtlasObjectId> entityIds = ((EntityDeleteRequestV2) message).getEntities();
+
+                ret = entityIds != null ? entityIds.size() : 0;
+            }
+            break;
+        }
+
+        return ret;
+    }
+
+    /**
+     * Returns qualifiedNames of all entities in the message, including referred entities; returns null if an entity in
+     * the message doesn't carry a qualifiedName.
+     */
+    private static Set<String> getEntityKeys(HookNotification message) {
+        MessageKeys keys = getMessageKeys(message);
+
+        return keys != null ? keys.getAll() : null;
+    }
+
+    /**
+     * Returns qualifiedNames of top-level and referred entities in the message; returns null if an entity in the
+     * message doesn't carry a qualifiedName. Entities of V1 messages are all top-level.
+     */
+    @VisibleForTesting
+    static MessageKeys getMessageKeys(HookNotification message) {
+        MessageKeys ret = new MessageKeys();
+
+        switch (message.getType()) {
+            case ENTITY_CREATE_V2:
+            case ENTITY_FULL_UPDATE_V2: {
+                AtlasEntitiesWithExtInfo entities = message.getType() == HookNotificationType.ENTITY_CREATE_V2 ? ((EntityCreateRequestV2) message).getEntities() : ((EntityUpdateRequestV2) message).getEntities();
+
+                if (entities != null) {
+                    if (!addEntityKeys(entities.getEntities(), ret.topLevel) || (entities.getReferredEntities() != null && !addEntityKeys(entities.getReferredEntities().values(), ret.referred))) {
+                        return null;
+                    }
+                }
+            }
+            break;
+
+            case ENTITY_PARTIAL_UPDATE_V2: {
+                EntityPartialUpdateRequestV2 partialUpdateRequest = (EntityPartialUpdateRequestV2) message;
+                AtlasEntityWithExtInfo       entity               = partialUpdateRequest.getEntity();
+
+                if (!addEntityKey(partialUpdateRequest.getEntityId(), ret.topLevel)) {
+                    return null;
+                }
+
+                if (entity != null && entity.getReferredEntities() != null && !addEntityKeys(entity.getReferredEntities().values(), ret.referred)) {
+                    return null;
+                }
+            }
+            break;
+
+            case ENTITY_DELETE_V2: {
+                List<AtlasObjectId> entityIds = ((EntityDeleteRequestV2) message).getEntities();
+
+                if (entityIds != null) {
+                    for (AtlasObjectId entityId : entityIds) {
+                        if (!addEntityKey(entityId, ret.topLevel)) {
+                            return null;
+                        }
+                    }
+                }
+            }
+            break;
+
+            case ENTITY_CREATE:
+            case ENTITY_FULL_UPDATE: {
+                List<Referenceable> entities = ((EntityCreateRequest) message).getEntities();
+
+                if (entities != null) {
+                    for (Referenceable entity : entities) {
+                        Object qualifiedName = entity != null ? entity.get(ATTRIBUTE_QUALIFIED_NAME) : null;
+
+                        if (qualifiedName == null) {
+                            return null;
+                        }
+
+                        ret.topLevel.add(qualifiedName.toString());
+                    }
+                }
+            }
+            break;
+
+            case ENTITY_PARTIAL_UPDATE: {
+                EntityPartialUpdateRequest partialUpdateRequest = (EntityPartialUpdateRequest) message;
+
+                if (!ATTRIBUTE_QUALIFIED_NAME.equals(partialUpdateRequest.getAttribute()) || partialUpdateRequest.getAttributeValue() == null) {
+                    return null;
+                }
+
+                ret.topLevel.add(partialUpdateRequest.getAttributeValue());
+            }
+            break;
+
+            case ENTITY_DELETE: {
+                EntityDeleteRequest deleteRequest = (EntityDeleteRequest) message;
+
+                if (!ATTRIBUTE_QUALIFIED_NAME.equals(deleteRequest.getAttribute()) || deleteRequest.getAttributeValue() == null) {
+                    return null;
+                }
+
+                ret.topLevel.add(deleteRequest.getAttributeValue());
+            }
+            break;
+
+            default:
+                return null;
+        }
+
+        ret.referred.removeAll(ret.topLevel);
+
+        return ret;
+    }
+
+    private static boolean addEntityKeys(Collection<AtlasEntity> entities, Set<String> keys) {
+        if (entities != null) {
+            for (AtlasEntity entity : entities) {
+                Object qualifiedName = entity != null ? entity.getAttribute(ATTRIBUTE_QUALIFIED_NAME) : null;
+
+                if (qualifiedName == null) {
+                    return false;
+                }
+
+                keys.add(qualifiedName.toString());
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean addEntityKey(AtlasObjectId entityId, Set<String> keys) {
+        Object qualifiedName = entityId != null && entityId.getUniqueAttributes() != null ? entityId.getUniqueAttributes().get(ATTRIBUTE_QUALIFIED_NAME) : null;
+
+        if (qualifiedName == null) {
+            return false;
+        }
+
+        keys.add(qualifiedName.toString());
+
+        return true;
+    }
+
+    static class PreparedMessage {
+        final AtlasKafkaMessage<HookNotification> kafkaMsg;
+        final PreprocessorContext                 context;
+        final long                                startTime;
+        final boolean                             isReplayed;
+
+        PreparedMessage(AtlasKafkaMessage<HookNotification> kafkaMsg, PreprocessorContext context, long startTime, boolean isReplayed) {
+            this.kafkaMsg   = kafkaMsg;
+            this.context    = context;
+            this.startTime  = startTime;
+            this.isReplayed = isReplayed;
+        }
+    }
+
     static class FailedCommitOffsetRecorder {
-        private Long currentOffset;
+        private       Long                      currentOffset;
+        private final Map<TopicPartition, Long> failedOffsets = new HashMap<>();
 
         public void recordIfFailed(boolean commitStatus, long offset) {
             if(commitStatus) {
@@ -1332,5 +2266,52 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
         public Long getCurrentOffset() {
             return currentOffset;
         }
+
+        /**
+         * Records outcome of an asynchronous commit. Offsets that failed to commit are retained, per partition, until a
+         * commit of the same or a later offset in the partition succeeds.
+         */
+        public synchronized void recordIfFailed(Map<TopicPartition, Long> offsets, Exception exception) {
+            if (exception != null) {
+                LOG.warn("failed to commit offsets {}. Will be retried with the next commit", offsets, exception);
+            }
+
+            for (Map.Entry<TopicPartition, Long> entry : offsets.entrySet()) {
+                TopicPartition partition    = entry.getKey();
+                long           offset       = entry.getValue();
+                Long           failedOffset = failedOffsets.get(partition);
+
+                if (exception == null) {
+                    if (failedOffset != null && failedOffset <= offset) {
+                        failedOffsets.remove(partition);
+                    }
+                } else if (failedOffset == null || failedOffset < offset) {
+                    failedOffsets.put(partition, offset);
+                }
+            }
+        }
+
+        /**
+         * @return given offsets merged with offsets that failed to commit earlier; the higher offset of each partition is retained
+         */
+        public synchronized Map<TopicPartition, Long> addFailedOffsets(Map<TopicPartition, Long> offsets) {
+            Map<TopicPartition, Long> ret = new HashMap<>(failedOffsets);
+
+            for (Map.Entry<TopicPartition, Long> entry : offsets.entrySet()) {
+                ret.merge(entry.getKey(), entry.getValue(), Math::max);
+            }
+
+            return ret;
+        }
+
+        /**
+         * A message is replayed when its offset is below a failed commit offset of the partition, as only offsets of
+         * processed messages are committed.
+         */
+        public synchronized boolean isMessageReplayed(TopicPartition partition, long offset) {
+            Long failedOffset = failedOffsets.get(partition);
+
+            return failedOffset != null && offset < failedOffset;
+        }
     }
 }
@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.notification;
+
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tracks offsets of received messages per partition, to find the offset up to which all messages have been processed.
+ * Only such offsets are handed out for commit, so that a message is never committed before it is processed, even
+ * when messages complete out of order.
+ */
+class OffsetCommitTracker {
+    private final Map<TopicPartition, TreeMap<Long, Boolean>> partitionOffsets   = new HashMap<>(); // offset -> isProcessed
+    private final Map<TopicPartition, Long>                   nextOffsets        = new HashMap<>(); // offset following the last message processed in order
+    private final Map<TopicPartition, Long>                   committableOffsets = new HashMap<>();
+    private       int                                         committableCount   = 0;
+
+    public synchronized void received(TopicPartition partition, long offset) {
+        TreeMap<Long, Boolean> offsets    = partitionOffsets.computeIfAbsent(partition, p -> new TreeMap<>());
+        Long                   nextOffset = nextOffsets.get(partition);
+
+        if (nextOffset != null && offset < nextOffset) { // consumer was repositioned, for example after a rebalance
+            offsets.clear();
+            nextOffsets.remove(partition);
+        }
+
+        offsets.putIfAbsent(offset, Boolean.FALSE);
+    }
+
+    public synchronized void processed(TopicPartition partition, long offset) {
+        TreeMap<Long, Boolean> offsets    = partitionOffsets.computeIfAbsent(partition, p -> new TreeMap<>());
+        Long                   maxOffset  = offsets.isEmpty() ? null : offsets.lastKey();
+        Long                   nextOffset = nextOffsets.get(partition);
+
+        if (nextOffset != null && offset < nextOffset) { // already processed
+            return;
+        }
+
+        if (!offsets.containsKey(offset) && maxOffset != null && offset < maxOffset) { // not tracked, nothing to do
+            return;
+        }
+
+        offsets.put(offset, Boolean.TRUE);
+
+        for (Iterator<Map.Entry<Long, Boolean>> iter = offsets.entrySet().iterator(); iter.hasNext(); ) {
+            Map.Entry<Long, Boolean> entry = iter.next();
+
+            if (!entry.getValue()) {
+                break;
+            }
+
+            iter.remove();
+
+            nextOffsets.put(partition, entry.getKey() + 1);
+            committableOffsets.put(partition, entry.getKey() + 1);
+
+            committableCount++;
+        }
+    }
+
+    /**
+     * @return offset of the earliest message in the partition that is yet to be processed; null if there is none
+     */
+    public synchronized Long getLowestPendingOffset(TopicPartition partition) {
+        TreeMap<Long, Boolean> offsets = partitionOffsets.get(partition);
+
+        return offsets == null || offsets.isEmpty() ? null : offsets.firstKey();
+    }
+
+    /**
+     * @return number of processed messages whose offsets are yet to be committed
+     */
+    public synchronized int getCommittableCount() {
+        return committableCount;
+    }
+
+    /**
+     * @return offsets to commit for each partition, i.e. offset following the last message processed in order. Offsets
+     * returned by this method are not returned again.
+     */
+    public synchronized Map<TopicPartition, Long> drainCommittableOffsets() {
+        Map<TopicPartition, Long> ret = new HashMap<>(committableOffsets);
+
+        committableOffsets.clear();
+
+        committableCount = 0;
+
+        return ret;
+    }
+}
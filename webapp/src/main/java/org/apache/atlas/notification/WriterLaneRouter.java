@@ -0,0 +1,146 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.notification;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Selects writer lanes of the consumer pipeline for messages, by qualifiedNames of the entities in the messages. A
+ * message is routed by its top-level entities, so that a typical hook message - for example a process along with its
+ * input/output tables as referred entities - doesn't span lanes. Keys of messages submitted to lanes are tracked until
+ * their writes complete; a message is held to the lane of an in-flight message when:
+ * <ul>
+ *   <li>one of its top-level entities is in the in-flight message, or</li>
+ *   <li>one of its referred entities is a top-level entity of the in-flight message</li>
+ * </ul>
+ * Hence updates to an entity are applied in the order received. Messages that only refer to the same entity - like
+ * tables of a database - are written in parallel, as are messages of different partitions read by other consumers; a
+ * conflicting concurrent update of such an entity fails its transaction and the message is retried.
+ */
+class WriterLaneRouter {
+    private final int                laneCount;
+    private final Map<String, int[]> topLevelKeys = new HashMap<>(); // qualifiedName -> count of in-flight messages per lane, having the entity as top-level
+    private final Map<String, int[]> referredKeys = new HashMap<>(); // qualifiedName -> count of in-flight messages per lane, having the entity as referred
+
+    WriterLaneRouter(int laneCount) {
+        this.laneCount = laneCount;
+    }
+
+    /**
+     * Selects the lane for the message and tracks its keys in the lane, until release().
+     *
+     * @return index of the lane; -1 if the message overlaps in-flight messages of more than one lane, or if its
+     *         entities are not known
+     */
+    public synchronized int acquireLane(MessageKeys keys) {
+        if (keys == null || keys.topLevel.isEmpty()) {
+            return -1;
+        }
+
+        Set<Integer> lanes = new HashSet<>();
+
+        for (String key : keys.topLevel) {
+            addLanes(topLevelKeys.get(key), lanes);
+            addLanes(referredKeys.get(key), lanes);
+        }
+
+        for (String key : keys.referred) {
+            addLanes(topLevelKeys.get(key), lanes);
+        }
+
+        final int ret;
+
+        if (lanes.isEmpty()) {
+            ret = Math.floorMod(keys.topLevel.iterator().next().hashCode(), laneCount);
+        } else if (lanes.size() == 1) {
+            ret = lanes.iterator().next();
+        } else {
+            return -1;
+        }
+
+        for (String key : keys.topLevel) {
+            topLevelKeys.computeIfAbsent(key, k -> new int[laneCount])[ret]++;
+        }
+
+        for (String key : keys.referred) {
+            referredKeys.computeIfAbsent(key, k -> new int[laneCount])[ret]++;
+        }
+
+        return ret;
+    }
+
+    public synchronized void release(MessageKeys keys, int lane) {
+        for (String key : keys.topLevel) {
+            releaseKey(topLevelKeys, key, lane);
+        }
+
+        for (String key : keys.referred) {
+            releaseKey(referredKeys, key, lane);
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return topLevelKeys.isEmpty() && referredKeys.isEmpty();
+    }
+
+    private static void addLanes(int[] laneCounts, Set<Integer> lanes) {
+        if (laneCounts != null) {
+            for (int i = 0; i < laneCounts.length; i++) {
+                if (laneCounts[i] > 0) {
+                    lanes.add(i);
+                }
+            }
+        }
+    }
+
+    private static void releaseKey(Map<String, int[]> keys, String key, int lane) {
+        int[] laneCounts = keys.get(key);
+
+        if (laneCounts != null) {
+            laneCounts[lane]--;
+
+            for (int laneCount : laneCounts) {
+                if (laneCount > 0) {
+                    return;
+                }
+            }
+
+            keys.remove(key);
+        }
+    }
+
+    /**
+     * qualifiedNames of entities in a message: top-level entities, and the referred entities that are not top-level.
+     */
+    static class MessageKeys {
+        final Set<String> topLevel = new LinkedHashSet<>();
+        final Set<String> referred = new HashSet<>();
+
+        Set<String> getAll() {
+            Set<String> ret = new HashSet<>(topLevel);
+
+            ret.addAll(referred);
+
+            return ret;
+        }
+    }
+}
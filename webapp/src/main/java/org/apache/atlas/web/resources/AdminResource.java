@@ -21,6 +21,7 @@ package org.apache.atlas.web.resources;
 import com.sun.jersey.multipart.FormDataParam;
 import org.apache.atlas.ApplicationProperties;
 import org.apache.atlas.AtlasClient;
+import org.apache.atlas.AtlasConfiguration;
 import org.apache.atlas.AtlasErrorCode;
 import org.apache.atlas.RequestContext;
 import org.apache.atlas.authorize.AtlasAdminAccessRequest;
@@ -47,6 +48,7 @@ import org.apache.atlas.model.instance.AtlasEntityHeader;
 import org.apache.atlas.model.instance.EntityMutationResponse;
 import org.apache.atlas.model.metrics.AtlasMetrics;
 import org.apache.atlas.model.patches.AtlasPatch.AtlasPatches;
+import org.apache.atlas.model.tasks.AtlasTask;
 import org.apache.atlas.repository.audit.AtlasAuditService;
 import org.apache.atlas.repository.audit.EntityAuditRepository;
 import org.apache.atlas.repository.impexp.AtlasServerService;
@@ -58,6 +60,7 @@ import org.apache.atlas.repository.impexp.ZipSink;
 import org.apache.atlas.repository.patches.AtlasPatchManager;
 import org.apache.atlas.repository.store.graph.AtlasEntityStore;
 import org.apache.atlas.services.MetricsService;
+import org.apache.atlas.tasks.TaskManagement;
 import org.apache.atlas.type.AtlasType;
 import org.apache.atlas.type.AtlasTypeRegistry;
 import org.apache.atlas.util.SearchTracker;
@@ -157,6 +160,7 @@ public class AdminResource {
     private final  AtlasAuditService        auditService;
     private final  String                   defaultUIVersion;
     private final  EntityAuditRepository    auditRepository;
+    private final  TaskManagement           taskManagement;
 
     static {
         try {
@@ -172,7 +176,8 @@ public class AdminResource {
                          MigrationProgressService migrationProgressService,
                          AtlasServerService serverService,
                          ExportImportAuditService exportImportAuditService, AtlasEntityStore entityStore,
-                         AtlasPatchManager patchManager, AtlasAuditService auditService, EntityAuditRepository auditRepository) {
+                         AtlasPatchManager patchManager, AtlasAuditService auditService, EntityAuditRepository auditRepository,
+                         TaskManagement taskManagement) {
         this.serviceState              = serviceState;
         this.metricsService            = metricsService;
         this.exportService             = exportService;
@@ -187,6 +192,7 @@ public class AdminResource {
         this.patchManager              = patchManager;
         this.auditService              = auditService;
         this.auditRepository           = auditRepository;
+        this.taskManagement            = taskManagement;
 
         if (atlasProperties != null) {
             defaultUIVersion = atlasProperties.getString(DEFAULT_UI_VERSION, UI_VERSION_V2);
@@ -700,6 +706,41 @@ public class AdminResource {
         return ret;
     }
 
+    @GET
+    @Path("tasks")
+    @Produces(Servlets.JSON_MEDIA_TYPE)
+    public List<AtlasTask> getTasks(@QueryParam("guid") String guid, @QueryParam("status") String status,
+                                    @QueryParam("offset") @DefaultValue("0") int offset,
+                                    @QueryParam("limit") @DefaultValue("100") int limit) throws AtlasBaseException {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("==> AdminResource.getTasks(guid={}, status={}, offset={}, limit={})", guid, status, offset, limit);
+        }
+
+        AtlasAuthorizationUtils.verifyAccess(new AtlasAdminAccessRequest(AtlasPrivilege.ADMIN_TASKS), "getTasks");
+
+        if (offset < 0 || limit < 0 || limit > AtlasConfiguration.SEARCH_MAX_LIMIT.getInt()) {
+            throw new AtlasBaseException(AtlasErrorCode.INVALID_PARAMETERS, "offset=" + offset + ", limit=" + limit);
+        }
+
+        AtlasTask.Status taskStatus = null;
+
+        if (StringUtils.isNotEmpty(status)) {
+            try {
+                taskStatus = AtlasTask.Status.valueOf(status.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new AtlasBaseException(AtlasErrorCode.INVALID_PARAMETERS, "status=" + status);
+            }
+        }
+
+        List<AtlasTask> ret = taskManagement.getTasks(guid, taskStatus, offset, limit);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("<== AdminResource.getTasks(guid={}, status={}): {} tasks", guid, status, ret.size());
+        }
+
+        return ret;
+    }
+
     private String getEditableEntityTypes(Configuration config) {
         String ret = DEFAULT_EDITABLE_ENTITY_TYPES;
 
@@ -17,8 +17,10 @@
  */
 package org.apache.atlas.web.rest;
 
+import com.google.common.collect.Lists;
 import com.sun.jersey.core.header.FormDataContentDisposition;
 import com.sun.jersey.multipart.FormDataParam;
+import org.apache.atlas.AtlasConfiguration;
 import org.apache.atlas.AtlasErrorCode;
 import org.apache.atlas.EntityAuditEvent;
 import org.apache.atlas.bulkimport.BulkImportResponse;
@@ -32,6 +34,7 @@ import org.apache.atlas.model.instance.AtlasEntity.AtlasEntityWithExtInfo;
 import org.apache.atlas.model.instance.AtlasEntityHeader;
 import org.apache.atlas.model.instance.AtlasEntityHeaders;
 import org.apache.atlas.model.instance.ClassificationAssociateRequest;
+import org.apache.atlas.model.instance.ClassificationAssociateResponse;
 import org.apache.atlas.model.instance.EntityMutationResponse;
 import org.apache.atlas.model.typedef.AtlasStructDef.AtlasAttributeDef;
 import org.apache.atlas.repository.audit.EntityAuditRepository;
@@ -39,9 +42,12 @@ import org.apache.atlas.repository.converters.AtlasInstanceConverter;
 import org.apache.atlas.repository.store.graph.AtlasEntityStore;
 import org.apache.atlas.repository.store.graph.v2.AtlasEntityStream;
 import org.apache.atlas.repository.store.graph.v2.ClassificationAssociator;
+import org.apache.atlas.repository.store.graph.v2.BulkClassificationAssociator;
+import org.apache.atlas.repository.store.graph.v2.EntityMutationGroupCommitter;
 import org.apache.atlas.repository.store.graph.v2.EntityStream;
 import org.apache.atlas.type.AtlasClassificationType;
 import org.apache.atlas.type.AtlasEntityType;
+import org.apache.atlas.type.AtlasType;
 import org.apache.atlas.type.AtlasTypeRegistry;
 import org.apache.atlas.util.FileUtils;
 import org.apache.atlas.utils.AtlasPerfTracer;
@@ -74,9 +80,11 @@ import javax.ws.rs.core.StreamingOutput;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -97,30 +105,40 @@ public class EntityREST {
     public static final String PREFIX_ATTR  = "attr:";
     public static final String PREFIX_ATTR_ = "attr_";
 
+    private static final int STREAM_CHUNK_SIZE = AtlasConfiguration.ENTITY_RETRIEVE_STREAM_CHUNK_SIZE.getInt();
 
-    private final AtlasTypeRegistry      typeRegistry;
-    private final AtlasEntityStore       entitiesStore;
-    private final EntityAuditRepository  auditRepository;
-    private final AtlasInstanceConverter instanceConverter;
+
+    private final AtlasTypeRegistry             typeRegistry;
+    private final AtlasEntityStore              entitiesStore;
+    private final EntityAuditRepository         auditRepository;
+    private final AtlasInstanceConverter        instanceConverter;
+    private final EntityMutationGroupCommitter  groupCommitter;
+    private final BulkClassificationAssociator  bulkClassificationAssociator;
 
     @Inject
     public EntityREST(AtlasTypeRegistry typeRegistry, AtlasEntityStore entitiesStore,
-                      EntityAuditRepository auditRepository, AtlasInstanceConverter instanceConverter) {
-        this.typeRegistry      = typeRegistry;
-        this.entitiesStore     = entitiesStore;
-        this.auditRepository   = auditRepository;
-        this.instanceConverter = instanceConverter;
+                      EntityAuditRepository auditRepository, AtlasInstanceConverter instanceConverter,
+                      EntityMutationGroupCommitter groupCommitter, BulkClassificationAssociator bulkClassificationAssociator) {
+        this.typeRegistry                 = typeRegistry;
+        this.entitiesStore                = entitiesStore;
+        this.auditRepository              = auditRepository;
+        this.instanceConverter            = instanceConverter;
+        this.groupCommitter               = groupCommitter;
+        this.bulkClassificationAssociator = bulkClassificationAssociator;
     }
 
     /**
      * Fetch complete definition of an entity given its GUID.
      * @param guid GUID for the entity
+     * @param attributes names of attributes to include; all attributes if not specified. Unique attributes are always included
+     * @param relationshipAttributes names of relationship attributes to include; all if not specified
      * @return AtlasEntity
      * @throws AtlasBaseException
      */
     @GET
     @Path("/guid/{guid}")
-    public AtlasEntityWithExtInfo getById(@PathParam("guid") String guid, @QueryParam("minExtInfo") @DefaultValue("false") boolean minExtInfo, @QueryParam("ignoreRelationships") @DefaultValue("false") boolean ignoreRelationships) throws AtlasBaseException {
+    public AtlasEntityWithExtInfo getById(@PathParam("guid") String guid, @QueryParam("minExtInfo") @DefaultValue("false") boolean minExtInfo, @QueryParam("ignoreRelationships") @DefaultValue("false") boolean ignoreRelationships,
+                                          @QueryParam("attributes") List<String> attributes, @QueryParam("relationshipAttributes") List<String> relationshipAttributes) throws AtlasBaseException {
         Servlets.validateQueryParamLength("guid", guid);
 
         AtlasPerfTracer perf = null;
@@ -130,7 +148,7 @@ public class EntityREST {
                 perf = AtlasPerfTracer.getPerfTracer(PERF_LOG, "EntityREST.getById(" + guid + ", " + minExtInfo + " )");
             }
 
-            return entitiesStore.getById(guid, minExtInfo, ignoreRelationships);
+            return entitiesStore.getById(guid, minExtInfo, ignoreRelationships, toAttributeNames("attributes", attributes), toAttributeNames("relationshipAttributes", relationshipAttributes));
         } finally {
             AtlasPerfTracer.log(perf);
         }
@@ -344,6 +362,10 @@ public class EntityREST {
                 perf = AtlasPerfTracer.getPerfTracer(PERF_LOG, "EntityREST.createOrUpdate()");
             }
 
+            if (groupCommitter.isEnabled()) {
+                return groupCommitter.createOrUpdate(new AtlasEntitiesWithExtInfo(entity), false);
+            }
+
             return entitiesStore.createOrUpdate(new AtlasEntityStream(entity), false);
         } finally {
             AtlasPerfTracer.log(perf);
@@ -689,10 +711,12 @@ public class EntityREST {
 
     /**
      * Bulk API to retrieve list of entities identified by its GUIDs.
+     * attributes and relationshipAttributes, when specified, limit the attributes included for the entities.
      */
     @GET
     @Path("/bulk")
-    public AtlasEntitiesWithExtInfo getByGuids(@QueryParam("guid") List<String> guids, @QueryParam("minExtInfo") @DefaultValue("false") boolean minExtInfo, @QueryParam("ignoreRelationships") @DefaultValue("false") boolean ignoreRelationships) throws AtlasBaseException {
+    public AtlasEntitiesWithExtInfo getByGuids(@QueryParam("guid") List<String> guids, @QueryParam("minExtInfo") @DefaultValue("false") boolean minExtInfo, @QueryParam("ignoreRelationships") @DefaultValue("false") boolean ignoreRelationships,
+                                               @QueryParam("attributes") List<String> attributes, @QueryParam("relationshipAttributes") List<String> relationshipAttributes) throws AtlasBaseException {
         if (CollectionUtils.isNotEmpty(guids)) {
             for (String guid : guids) {
                 Servlets.validateQueryParamLength("guid", guid);
@@ -710,7 +734,86 @@ public class EntityREST {
                 throw new AtlasBaseException(AtlasErrorCode.INSTANCE_GUID_NOT_FOUND, guids);
             }
 
-            return entitiesStore.getByIds(guids, minExtInfo, ignoreRelationships);
+            return entitiesStore.getByIds(guids, minExtInfo, ignoreRelationships, toAttributeNames("attributes", attributes), toAttributeNames("relationshipAttributes", relationshipAttributes));
+        } finally {
+            AtlasPerfTracer.log(perf);
+        }
+    }
+
+    /**
+     * Bulk API to retrieve list of entities identified by its GUIDs, streamed as newline-delimited JSON.
+     * Entities are read in chunks, each in its own transaction; each line is an AtlasEntitiesWithExtInfo with the entities
+     * of a chunk and the entities they refer to. Hence the memory used doesn't grow with the number of entities.
+     *
+     * @HTTP 200 On successful retrieval of the first chunk; failure to retrieve a later chunk ends the stream
+     * @HTTP 404 If an entity in the first chunk doesn't exist
+     */
+    @GET
+    @Path("/bulk/stream")
+    @Produces(Servlets.NDJSON_MEDIA_TYPE)
+    public Response getByGuidsAsStream(@QueryParam("guid") List<String> guids, @QueryParam("minExtInfo") @DefaultValue("false") boolean minExtInfo, @QueryParam("ignoreRelationships") @DefaultValue("false") boolean ignoreRelationships,
+                                       @QueryParam("attributes") List<String> attributes, @QueryParam("relationshipAttributes") List<String> relationshipAttributes) throws AtlasBaseException {
+        if (CollectionUtils.isNotEmpty(guids)) {
+            for (String guid : guids) {
+                Servlets.validateQueryParamLength("guid", guid);
+            }
+        }
+
+        AtlasPerfTracer perf = null;
+
+        try {
+            if (AtlasPerfTracer.isPerfTraceEnabled(PERF_LOG)) {
+                perf = AtlasPerfTracer.getPerfTracer(PERF_LOG, "EntityREST.getByGuidsAsStream(" + CollectionUtils.size(guids) + ")");
+            }
+
+            if (CollectionUtils.isEmpty(guids)) {
+                throw new AtlasBaseException(AtlasErrorCode.INSTANCE_GUID_NOT_FOUND, guids);
+            }
+
+            final Set<String> attributeNames             = toAttributeNames("attributes", attributes);
+            final Set<String> relationshipAttributeNames = toAttributeNames("relationshipAttributes", relationshipAttributes);
+
+            return toStreamingResponse(guids, chunk -> entitiesStore.getByIds(chunk, minExtInfo, ignoreRelationships, attributeNames, relationshipAttributeNames));
+        } finally {
+            AtlasPerfTracer.log(perf);
+        }
+    }
+
+    /**
+     * Bulk API to retrieve list of entities identified by their unique attributes, streamed as newline-delimited JSON;
+     * the request is as in getEntitiesByUniqueAttributes() and the response as in getByGuidsAsStream().
+     *
+     * @HTTP 400 If no unique attributes are specified
+     */
+    @GET
+    @Path("/bulk/uniqueAttribute/type/{typeName}/stream")
+    @Produces(Servlets.NDJSON_MEDIA_TYPE)
+    public Response getEntitiesByUniqueAttributesAsStream(@PathParam("typeName") String typeName,
+                                                          @QueryParam("minExtInfo") @DefaultValue("false") boolean minExtInfo,
+                                                          @QueryParam("ignoreRelationships") @DefaultValue("false") boolean ignoreRelationships,
+                                                          @Context HttpServletRequest servletRequest) throws AtlasBaseException {
+        Servlets.validateQueryParamLength("typeName", typeName);
+
+        AtlasPerfTracer perf = null;
+
+        try {
+            List<Map<String, Object>> uniqAttributesList = getAttributesList(servletRequest);
+
+            if (AtlasPerfTracer.isPerfTraceEnabled(PERF_LOG)) {
+                perf = AtlasPerfTracer.getPerfTracer(PERF_LOG, "EntityREST.getEntitiesByUniqueAttributesAsStream(" + typeName + "," + uniqAttributesList.size() + ")");
+            }
+
+            if (CollectionUtils.isEmpty(uniqAttributesList)) {
+                throw new AtlasBaseException(AtlasErrorCode.INVALID_PARAMETERS, "unique attributes not specified; use attr_N:<attrName>=<value>");
+            }
+
+            final AtlasEntityType entityType = ensureEntityType(typeName);
+
+            for (Map<String, Object> uniqAttributes : uniqAttributesList) {
+                validateUniqueAttribute(entityType, uniqAttributes);
+            }
+
+            return toStreamingResponse(uniqAttributesList, chunk -> entitiesStore.getEntitiesByUniqueAttributes(entityType, chunk, minExtInfo, ignoreRelationships));
         } finally {
             AtlasPerfTracer.log(perf);
         }
@@ -731,6 +834,10 @@ public class EntityREST {
                                                                        (CollectionUtils.isEmpty(entities.getEntities()) ? 0 : entities.getEntities().size()) + ")");
             }
 
+            if (groupCommitter.isEnabled()) {
+                return groupCommitter.createOrUpdate(entities, false);
+            }
+
             EntityStream entityStream = new AtlasEntityStream(entities);
 
             return entitiesStore.createOrUpdate(entityStream, false);
@@ -794,6 +901,38 @@ public class EntityREST {
         }
     }
 
+    /**
+     * Bulk API to associate a tag to a large number of entities. Entities are classified in chunks, each in its own
+     * transaction; failure of a chunk doesn't fail the other chunks.
+     * @return status of each chunk, with the entities of failed chunks
+     */
+    @POST
+    @Path("/bulk/classification/chunked")
+    public ClassificationAssociateResponse addClassificationInChunks(ClassificationAssociateRequest request) throws AtlasBaseException {
+        AtlasPerfTracer perf = null;
+
+        try {
+            if (AtlasPerfTracer.isPerfTraceEnabled(PERF_LOG)) {
+                perf = AtlasPerfTracer.getPerfTracer(PERF_LOG, "EntityREST.addClassificationInChunks(" + request  + ")");
+            }
+
+            AtlasClassification classification = request == null ? null : request.getClassification();
+            List<String>        entityGuids    = request == null ? null : request.getEntityGuids();
+
+            if (classification == null || StringUtils.isEmpty(classification.getTypeName())) {
+                throw new AtlasBaseException(AtlasErrorCode.INVALID_PARAMETERS, "no classification");
+            }
+
+            if (CollectionUtils.isEmpty(entityGuids)) {
+                throw new AtlasBaseException(AtlasErrorCode.INVALID_PARAMETERS, "empty guid list");
+            }
+
+            return bulkClassificationAssociator.addClassification(entityGuids, classification);
+        } finally {
+            AtlasPerfTracer.log(perf);
+        }
+    }
+
     @GET
     @Path("{guid}/audit")
     public List<EntityAuditEventV2> getAuditEvents(@PathParam("guid") String guid, @QueryParam("startKey") String startKey,
@@ -1095,6 +1234,25 @@ public class EntityREST {
         }
     }
 
+    // attribute names given in query parameter paramName; null, for all attributes, if none given
+    private Set<String> toAttributeNames(String paramName, List<String> attributeNames) throws AtlasBaseException {
+        Set<String> ret = null;
+
+        if (CollectionUtils.isNotEmpty(attributeNames)) {
+            ret = new HashSet<>();
+
+            for (String attributeName : attributeNames) {
+                Servlets.validateQueryParamLength(paramName, attributeName);
+
+                if (StringUtils.isNotBlank(attributeName)) {
+                    ret.add(attributeName.trim());
+                }
+            }
+        }
+
+        return ret;
+    }
+
     private AtlasEntityType ensureEntityType(String typeName) throws AtlasBaseException {
         AtlasEntityType ret = typeRegistry.getEntityTypeByName(typeName);
 
@@ -1135,6 +1293,44 @@ public class EntityREST {
         return attributes;
     }
 
+    /**
+     * The first chunk is read before the response is returned, so that errors like entity-not-found or access-denied are
+     * returned with the appropriate status; later chunks are read as the response is written.
+     */
+    private <T> Response toStreamingResponse(List<T> ids, EntityChunkReader<T> reader) throws AtlasBaseException {
+        final List<List<T>>            chunks     = Lists.partition(ids, Math.max(1, STREAM_CHUNK_SIZE));
+        final AtlasEntitiesWithExtInfo firstChunk = reader.read(chunks.get(0));
+
+        StreamingOutput stream = new StreamingOutput() {
+            @Override
+            public void write(OutputStream outputStream) throws IOException, WebApplicationException {
+                AtlasEntitiesWithExtInfo entities = firstChunk;
+
+                for (int i = 0; i < chunks.size(); i++) {
+                    if (i > 0) {
+                        try {
+                            entities = reader.read(chunks.get(i));
+                        } catch (AtlasBaseException e) {
+                            LOG.error("failed to read entities: chunk {} of {}", i + 1, chunks.size(), e);
+
+                            throw new WebApplicationException(e);
+                        }
+                    }
+
+                    outputStream.write(AtlasType.toJson(entities).getBytes(StandardCharsets.UTF_8));
+                    outputStream.write('\n');
+                    outputStream.flush();
+                }
+            }
+        };
+
+        return Response.ok(stream).build();
+    }
+
+    private interface EntityChunkReader<T> {
+        AtlasEntitiesWithExtInfo read(List<T> chunk) throws AtlasBaseException;
+    }
+
     // attr_1:qualifiedName=db1@cl1&attr_2:qualifiedName=db2@cl1 ==> [ { qualifiedName:db1@cl1 }, { qualifiedName:db2@cl1 } ]
     private List<Map<String, Object>> getAttributesList(HttpServletRequest request) {
         Map<String, Map<String, Object>> ret = new HashMap<>();
@@ -60,6 +60,7 @@ public final class Servlets {
 
     public static final String JSON_MEDIA_TYPE = MediaType.APPLICATION_JSON + "; charset=UTF-8";
     public static final String BINARY = MediaType.APPLICATION_OCTET_STREAM;
+    public static final String NDJSON_MEDIA_TYPE = "application/x-ndjson; charset=UTF-8";
 
     private static final int QUERY_PARAM_MAX_LENGTH = AtlasConfiguration.QUERY_PARAM_MAX_LENGTH.getInt();
 
@@ -0,0 +1,57 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.notification;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+public class ConsumerScalingPolicyTest {
+    private final ConsumerScalingPolicy policy = new ConsumerScalingPolicy(1, 4, 1000, 10, 500);
+
+    @Test
+    public void testScaleUpWhenLagIsHigh() {
+        assertEquals(policy.getTargetThreads(1, 5000, 100), 2);
+        assertEquals(policy.getTargetThreads(3, 5000, 100), 4);
+        assertEquals(policy.getTargetThreads(4, 5000, 100), 4); // at max
+    }
+
+    @Test
+    public void testScaleDownWhenLagIsLow() {
+        assertEquals(policy.getTargetThreads(3, 0, 100), 2);
+        assertEquals(policy.getTargetThreads(1, 0, 100), 1); // at min
+    }
+
+    @Test
+    public void testNoChangeWhenLagIsWithinBoundsOrUnknown() {
+        assertEquals(policy.getTargetThreads(2, 500, 100), 2);
+        assertEquals(policy.getTargetThreads(2, -1, 100), 2);
+    }
+
+    @Test
+    public void testScaleDownWhenProcessingIsSlow() {
+        assertEquals(policy.getTargetThreads(3, 5000, 800), 2);
+        assertEquals(policy.getTargetThreads(1, 5000, 800), 1);
+    }
+
+    @Test
+    public void testCountIsKeptWithinBounds() {
+        assertEquals(policy.getTargetThreads(6, 500, 100), 4);
+        assertEquals(policy.getTargetThreads(0, 500, 100), 1);
+    }
+}
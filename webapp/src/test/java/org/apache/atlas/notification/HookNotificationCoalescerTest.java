@@ -0,0 +1,190 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.notification;
+
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.kafka.AtlasKafkaMessage;
+import org.apache.atlas.kafka.KafkaNotification;
+import org.apache.atlas.model.instance.AtlasEntity;
+import org.apache.atlas.model.instance.AtlasEntity.AtlasEntitiesWithExtInfo;
+import org.apache.atlas.model.instance.AtlasEntity.AtlasEntityWithExtInfo;
+import org.apache.atlas.model.instance.AtlasObjectId;
+import org.apache.atlas.model.notification.HookNotification;
+import org.apache.atlas.model.notification.HookNotification.EntityCreateRequestV2;
+import org.apache.atlas.model.notification.HookNotification.EntityDeleteRequestV2;
+import org.apache.atlas.model.notification.HookNotification.EntityPartialUpdateRequestV2;
+import org.apache.atlas.model.notification.HookNotification.EntityUpdateRequestV2;
+import org.apache.atlas.model.notification.HookNotification.HookNotificationType;
+import org.apache.atlas.type.AtlasTypeRegistry;
+import org.apache.atlas.type.AtlasTypeRegistry.AtlasTransientTypeRegistry;
+import org.apache.atlas.type.AtlasTypeUtil;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class HookNotificationCoalescerTest {
+    private static final String TYPE_DB    = "test_db";
+    private static final String TYPE_TABLE = "test_table";
+
+    private HookNotificationCoalescer coalescer;
+
+    @BeforeClass
+    public void setup() throws AtlasBaseException {
+        AtlasTypeRegistry          typeRegistry = new AtlasTypeRegistry();
+        AtlasTransientTypeRegistry ttr          = typeRegistry.lockTypeRegistryForUpdate();
+
+        ttr.addTypes(Arrays.asList(AtlasTypeUtil.createClassTypeDef(TYPE_DB, Collections.emptySet(),
+                                                                    AtlasTypeUtil.createUniqueRequiredAttrDef("qualifiedName", "string")),
+                                   AtlasTypeUtil.createClassTypeDef(TYPE_TABLE, Collections.emptySet(),
+                                                                    AtlasTypeUtil.createUniqueRequiredAttrDef("qualifiedName", "string"),
+                                                                    AtlasTypeUtil.createOptionalAttrDef("comment", "string"),
+                                                                    AtlasTypeUtil.createOptionalAttrDef("owner", "string"),
+                                                                    AtlasTypeUtil.createOptionalAttrDef("db", TYPE_DB))));
+
+        typeRegistry.releaseTypeRegistryForUpdate(ttr, true);
+
+        coalescer = new HookNotificationCoalescer(typeRegistry);
+    }
+
+    @Test
+    public void mergesConsecutiveUpdatesOfSameEntity() {
+        AtlasEntity db1    = entity(TYPE_DB, "-1", "db1");
+        AtlasEntity table1 = entity(TYPE_TABLE, "-2", "db1.t1");
+        AtlasEntity db2    = entity(TYPE_DB, "-11", "db1");
+        AtlasEntity table2 = entity(TYPE_TABLE, "-12", "db1.t1");
+
+        table1.setAttribute("comment", "first");
+        table1.setAttribute("db", new AtlasObjectId("-1", TYPE_DB));
+        table2.setAttribute("owner", "admin");
+        table2.setAttribute("db", new AtlasObjectId("-11", TYPE_DB));
+
+        AtlasEntitiesWithExtInfo entities1 = new AtlasEntitiesWithExtInfo(table1);
+        AtlasEntitiesWithExtInfo entities2 = new AtlasEntitiesWithExtInfo(table2);
+
+        entities1.addReferredEntity(db1);
+        entities2.addReferredEntity(db2);
+
+        List<AtlasKafkaMessage<HookNotification>> messages = new ArrayList<>();
+
+        messages.add(message(new EntityCreateRequestV2("user", entities1), 10));
+        messages.add(message(new EntityUpdateRequestV2("user", entities2), 11));
+
+        List<AtlasKafkaMessage<HookNotification>> result = coalescer.coalesce(messages);
+
+        assertEquals(result.size(), 1);
+        assertEquals(result.get(0).getOffset(), 11);
+        assertEquals(result.get(0).getMessage().getType(), HookNotificationType.ENTITY_FULL_UPDATE_V2);
+
+        AtlasEntitiesWithExtInfo merged = ((EntityUpdateRequestV2) result.get(0).getMessage()).getEntities();
+
+        assertEquals(merged.getEntities().size(), 1);
+        assertEquals(merged.getReferredEntities().size(), 1);
+
+        AtlasEntity table = merged.getEntities().get(0);
+
+        assertEquals(table.getGuid(), "-2");
+        assertEquals(table.getAttribute("comment"), "first");
+        assertEquals(table.getAttribute("owner"), "admin");
+        assertEquals(((Map) table.getAttribute("db")).get("guid"), "-1"); // references are copied, as maps
+        assertEquals(merged.getReferredEntity("-1").getAttribute("qualifiedName"), "db1");
+
+        // notifications merged are retained unmodified, to be processed one by one if the merged notification fails
+        assertTrue(result.get(0) instanceof HookNotificationCoalescer.CoalescedMessage);
+        assertEquals(((HookNotificationCoalescer.CoalescedMessage) result.get(0)).getSourceMessages(), messages);
+        assertNull(table1.getAttribute("owner"));
+        assertEquals(((AtlasObjectId) table2.getAttribute("db")).getGuid(), "-11");
+    }
+
+    @Test
+    public void mergesPartialUpdateIntoPreviousNotification() {
+        AtlasEntity table   = entity(TYPE_TABLE, "-2", "db1.t2");
+        AtlasEntity partial = new AtlasEntity(TYPE_TABLE);
+
+        partial.setAttribute("owner", "etl");
+
+        List<AtlasKafkaMessage<HookNotification>> messages = new ArrayList<>();
+
+        messages.add(message(new EntityCreateRequestV2("user", new AtlasEntitiesWithExtInfo(table)), 20));
+        messages.add(message(new EntityPartialUpdateRequestV2("user", new AtlasObjectId(TYPE_TABLE, "qualifiedName", "db1.t2"), new AtlasEntityWithExtInfo(partial)), 21));
+
+        List<AtlasKafkaMessage<HookNotification>> result = coalescer.coalesce(messages);
+
+        assertEquals(result.size(), 1);
+        assertEquals(result.get(0).getOffset(), 21);
+        assertEquals(result.get(0).getMessage().getType(), HookNotificationType.ENTITY_CREATE_V2);
+
+        AtlasEntity merged = ((EntityCreateRequestV2) result.get(0).getMessage()).getEntities().getEntities().get(0);
+
+        assertEquals(merged.getAttribute("qualifiedName"), "db1.t2");
+        assertEquals(merged.getAttribute("owner"), "etl");
+    }
+
+    @Test
+    public void doesNotMergeAcrossOtherNotificationsOrUnrelatedEntities() {
+        List<AtlasKafkaMessage<HookNotification>> messages = new ArrayList<>();
+
+        messages.add(message(new EntityCreateRequestV2("user", new AtlasEntitiesWithExtInfo(entity(TYPE_TABLE, "-1", "db1.t3"))), 30));
+        messages.add(message(new EntityDeleteRequestV2("user", Collections.singletonList(new AtlasObjectId(TYPE_TABLE, "qualifiedName", "db1.t3"))), 31));
+        messages.add(message(new EntityCreateRequestV2("user", new AtlasEntitiesWithExtInfo(entity(TYPE_TABLE, "-2", "db1.t3"))), 32));
+        messages.add(message(new EntityCreateRequestV2("user", new AtlasEntitiesWithExtInfo(entity(TYPE_TABLE, "-3", "db1.t4"))), 33));
+        messages.add(message(new EntityCreateRequestV2("other", new AtlasEntitiesWithExtInfo(entity(TYPE_TABLE, "-4", "db1.t4"))), 34));
+
+        List<AtlasKafkaMessage<HookNotification>> result = coalescer.coalesce(messages);
+
+        assertEquals(result.size(), messages.size());
+
+        for (int i = 0; i < messages.size(); i++) {
+            assertSame(result.get(i), messages.get(i));
+        }
+    }
+
+    @Test
+    public void doesNotMergeAcrossNotificationNotInList() {
+        List<AtlasKafkaMessage<HookNotification>> messages = new ArrayList<>();
+
+        // offset 41, a delete of the entity, was handed off to the large-message lane
+        messages.add(message(new EntityCreateRequestV2("user", new AtlasEntitiesWithExtInfo(entity(TYPE_TABLE, "-1", "db1.t5"))), 40));
+        messages.add(message(new EntityCreateRequestV2("user", new AtlasEntitiesWithExtInfo(entity(TYPE_TABLE, "-2", "db1.t5"))), 42));
+
+        List<AtlasKafkaMessage<HookNotification>> result = coalescer.coalesce(messages);
+
+        assertEquals(result, messages);
+    }
+
+    private static AtlasEntity entity(String typeName, String guid, String qualifiedName) {
+        AtlasEntity ret = new AtlasEntity(typeName, "qualifiedName", qualifiedName);
+
+        ret.setGuid(guid);
+
+        return ret;
+    }
+
+    private static AtlasKafkaMessage<HookNotification> message(HookNotification notification, long offset) {
+        return new AtlasKafkaMessage<>(notification, offset, KafkaNotification.ATLAS_HOOK_TOPIC, 0);
+    }
+}
@@ -17,6 +17,7 @@
  */
 package org.apache.atlas.notification;
 
+import org.apache.atlas.ApplicationProperties;
 import org.apache.atlas.AtlasException;
 import org.apache.atlas.AtlasServiceException;
 import org.apache.atlas.exception.AtlasBaseException;
@@ -26,6 +27,9 @@ import org.apache.atlas.kafka.KafkaNotification;
 import org.apache.atlas.model.instance.AtlasEntity;
 import org.apache.atlas.model.instance.AtlasEntity.AtlasEntitiesWithExtInfo;
 import org.apache.atlas.model.instance.EntityMutationResponse;
+import org.apache.atlas.model.notification.HookNotification;
+import org.apache.atlas.model.notification.HookNotification.EntityCreateRequestV2;
+import org.apache.atlas.model.notification.HookNotification.EntityUpdateRequestV2;
 import org.apache.atlas.model.notification.HookNotification.HookNotificationType;
 import org.apache.atlas.notification.NotificationInterface.NotificationType;
 import org.apache.atlas.util.AtlasMetricsUtil;
@@ -49,11 +53,19 @@ import org.testng.annotations.Test;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.mockito.Mockito.*;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 public class NotificationHookConsumerTest {
@@ -157,6 +169,543 @@ public class NotificationHookConsumerTest {
         verifyZeroInteractions(consumer);
     }
 
+    @Test
+    public void testMessagesAreProcessedOneByOneWhenMergedMessageFails() throws Exception {
+        NotificationHookConsumer              notificationHookConsumer = new NotificationHookConsumer(notificationInterface, atlasEntityStore, serviceState, instanceConverter, typeRegistry, metricsUtil);
+        NotificationConsumer                  consumer                 = mock(NotificationConsumer.class);
+        NotificationHookConsumer.HookConsumer hookConsumer             = notificationHookConsumer.new HookConsumer(consumer);
+        AtlasKafkaMessage<HookNotification>   msg1                     = new AtlasKafkaMessage<>(new EntityCreateRequestV2("user", new AtlasEntitiesWithExtInfo(new AtlasEntity("hive_table", "qualifiedName", "db1.table1@cl1"))), 11, KafkaNotification.ATLAS_HOOK_TOPIC, 0);
+        AtlasKafkaMessage<HookNotification>   msg2                     = new AtlasKafkaMessage<>(new EntityUpdateRequestV2("user", new AtlasEntitiesWithExtInfo(new AtlasEntity("hive_table", "qualifiedName", "db1.table1@cl1"))), 12, KafkaNotification.ATLAS_HOOK_TOPIC, 0);
+        HookNotification                      merged                   = new EntityUpdateRequestV2("user", new AtlasEntitiesWithExtInfo(new AtlasEntity("hive_table", "qualifiedName", "db1.table1@cl1")));
+
+        when(atlasEntityStore.createOrUpdate(any(EntityStream.class), anyBoolean())).thenThrow(new RuntimeException("Simulating failure of merged message"))
+                                                                                  .thenReturn(mock(EntityMutationResponse.class));
+
+        hookConsumer.handleMessage(new HookNotificationCoalescer.CoalescedMessage(merged, msg2, Arrays.asList(msg1, msg2)));
+
+        verify(atlasEntityStore, times(3)).createOrUpdate(any(EntityStream.class), anyBoolean());
+        verify(consumer).commit(new TopicPartition(KafkaNotification.ATLAS_HOOK_TOPIC, 0), 13);
+    }
+
+    @Test
+    public void testPipelinedMessagesAreCommittedOncePerPartition() throws Exception {
+        ApplicationProperties.get().setProperty(NotificationHookConsumer.CONSUMER_PIPELINE_ENABLED, true);
+
+        try {
+            NotificationHookConsumer              notificationHookConsumer = new NotificationHookConsumer(notificationInterface, atlasEntityStore, serviceState, instanceConverter, typeRegistry, metricsUtil);
+            NotificationConsumer                  consumer                 = mock(NotificationConsumer.class);
+            NotificationHookConsumer.HookConsumer hookConsumer             = notificationHookConsumer.new HookConsumer(consumer);
+            List<AtlasKafkaMessage<HookNotification>> messages             = new ArrayList<>();
+
+            for (int i = 0; i < 6; i++) {
+                EntityCreateRequest message = new EntityCreateRequest("user", Collections.singletonList(mock(Referenceable.class)));
+
+                messages.add(new AtlasKafkaMessage(message, i, KafkaNotification.ATLAS_HOOK_TOPIC, i % 2));
+            }
+
+            notificationHookConsumer.startPipelineExecutors();
+
+            try {
+                hookConsumer.handleMessagesPipelined(messages);
+            } finally {
+                notificationHookConsumer.stopPipelineExecutors();
+            }
+
+            verify(atlasEntityStore, times(6)).createOrUpdate(any(EntityStream.class), anyBoolean());
+            verify(consumer).commit(new TopicPartition(KafkaNotification.ATLAS_HOOK_TOPIC, 0), 5);
+            verify(consumer).commit(new TopicPartition(KafkaNotification.ATLAS_HOOK_TOPIC, 1), 6);
+            verify(consumer, times(2)).commit(any(TopicPartition.class), anyLong());
+        } finally {
+            ApplicationProperties.get().clearProperty(NotificationHookConsumer.CONSUMER_PIPELINE_ENABLED);
+        }
+    }
+
+    @Test
+    public void testMessageKeysSeparateTopLevelAndReferredEntities() {
+        AtlasEntity              process  = newHiveEntity("hive_process", "db1.table1_to_table2@cl1");
+        AtlasEntitiesWithExtInfo entities = new AtlasEntitiesWithExtInfo(process);
+
+        entities.addReferredEntity(newHiveEntity("hive_table", "db1.table1@cl1"));
+        entities.addReferredEntity(newHiveEntity("hive_table", "db1.table2@cl1"));
+        entities.addReferredEntity(process);
+
+        WriterLaneRouter.MessageKeys keys = NotificationHookConsumer.getMessageKeys(new EntityCreateRequestV2("user", entities));
+
+        assertEquals(keys.topLevel, Collections.singleton("db1.table1_to_table2@cl1"));
+        assertEquals(keys.referred, new HashSet<>(Arrays.asList("db1.table1@cl1", "db1.table2@cl1")));
+
+        assertNull(NotificationHookConsumer.getMessageKeys(new EntityCreateRequestV2("user", new AtlasEntitiesWithExtInfo(new AtlasEntity("hive_table"))))); // entity without qualifiedName
+    }
+
+    @Test
+    public void testHiveLineageMessagesAreWrittenInParallel() throws Exception {
+        ApplicationProperties.get().setProperty(NotificationHookConsumer.CONSUMER_PIPELINE_ENABLED, true);
+        ApplicationProperties.get().setProperty(NotificationHookConsumer.CONSUMER_PIPELINE_WRITER_THREADS, 4);
+
+        try {
+            NotificationHookConsumer                  notificationHookConsumer = new NotificationHookConsumer(notificationInterface, atlasEntityStore, serviceState, instanceConverter, typeRegistry, metricsUtil);
+            NotificationHookConsumer.HookConsumer     hookConsumer             = notificationHookConsumer.new HookConsumer(mock(NotificationConsumer.class));
+            List<AtlasKafkaMessage<HookNotification>> messages                 = new ArrayList<>();
+            List<String>                              writes                   = Collections.synchronizedList(new ArrayList<>());
+            Set<String>                               writerThreads            = Collections.synchronizedSet(new HashSet<>());
+            int                                       tableCount               = 8;
+
+            // as sent by the Hive hook: tables refer to their database and columns; processes refer to their input/output tables
+            for (int i = 0; i < tableCount; i++) {
+                messages.add(new AtlasKafkaMessage<>(new EntityCreateRequestV2("user", newHiveTable("db1.table" + i + "@cl1")), messages.size(), KafkaNotification.ATLAS_HOOK_TOPIC, 0));
+            }
+
+            for (int i = 0; i + 1 < tableCount; i++) {
+                messages.add(new AtlasKafkaMessage<>(new EntityCreateRequestV2("user", newHiveProcess("db1.table" + i + "@cl1", "db1.table" + (i + 1) + "@cl1")), messages.size(), KafkaNotification.ATLAS_HOOK_TOPIC, 0));
+            }
+
+            for (int i = 0; i < tableCount; i++) {
+                messages.add(new AtlasKafkaMessage<>(new EntityUpdateRequestV2("user", newHiveTable("db1.table" + i + "@cl1")), messages.size(), KafkaNotification.ATLAS_HOOK_TOPIC, 0));
+            }
+
+            when(atlasEntityStore.createOrUpdate(any(EntityStream.class), anyBoolean())).thenAnswer(invocation -> {
+                EntityStream entityStream = (EntityStream) invocation.getArguments()[0];
+
+                writerThreads.add(Thread.currentThread().getName());
+
+                while (entityStream.hasNext()) {
+                    writes.add((String) entityStream.next().getAttribute("qualifiedName"));
+                }
+
+                Thread.sleep(10);
+
+                return null;
+            });
+
+            notificationHookConsumer.startPipelineExecutors();
+
+            try {
+                hookConsumer.handleMessagesPipelined(messages);
+            } finally {
+                notificationHookConsumer.stopPipelineExecutors();
+            }
+
+            verify(atlasEntityStore, times(messages.size())).createOrUpdate(any(EntityStream.class), anyBoolean());
+            assertTrue(writerThreads.size() > 1, "messages written in lanes " + writerThreads);
+            assertFalse(writerThreads.contains(Thread.currentThread().getName()));
+
+            // each table is created before processes that refer to it, which are written before the table is updated
+            for (int i = 0; i + 1 < tableCount; i++) {
+                String input   = "db1.table" + i + "@cl1";
+                String output  = "db1.table" + (i + 1) + "@cl1";
+                int    process = writes.indexOf(input + "->" + output);
+
+                assertTrue(process != -1);
+                assertTrue(writes.indexOf(input) < process);
+                assertTrue(writes.indexOf(output) < process);
+                assertTrue(writes.lastIndexOf(input) > process);
+                assertTrue(writes.lastIndexOf(output) > process);
+            }
+        } finally {
+            ApplicationProperties.get().clearProperty(NotificationHookConsumer.CONSUMER_PIPELINE_ENABLED);
+            ApplicationProperties.get().clearProperty(NotificationHookConsumer.CONSUMER_PIPELINE_WRITER_THREADS);
+        }
+    }
+
+    @Test
+    public void testFailedBatchIsReceivedAgain() throws Exception {
+        NotificationHookConsumer                  notificationHookConsumer = new NotificationHookConsumer(notificationInterface, atlasEntityStore, serviceState, instanceConverter, typeRegistry, metricsUtil);
+        NotificationConsumer                      consumer                 = mock(NotificationConsumer.class);
+        NotificationHookConsumer.HookConsumer     hookConsumer             = notificationHookConsumer.new HookConsumer(consumer);
+        TopicPartition                            partition                = new TopicPartition(KafkaNotification.ATLAS_HOOK_TOPIC, 0);
+        List<AtlasKafkaMessage<HookNotification>> batch                    = new ArrayList<>();
+        CountDownLatch                            batchesHandled           = new CountDownLatch(1);
+
+        for (int i = 0; i < 2; i++) {
+            batch.add(new AtlasKafkaMessage(new EntityCreateRequest("user", Collections.singletonList(mock(Referenceable.class))), 10 + i, KafkaNotification.ATLAS_HOOK_TOPIC, 0));
+        }
+
+        when(serviceState.getState()).thenReturn(ServiceState.ServiceStateValue.ACTIVE);
+        when(instanceConverter.toAtlasEntities(anyList())).thenThrow(new RuntimeException("Simulating failure to convert message"))
+                                                        .thenReturn(new AtlasEntitiesWithExtInfo(mock(AtlasEntity.class)));
+        when(consumer.receive()).thenReturn(batch).thenReturn(batch).thenAnswer(invocation -> {
+            batchesHandled.countDown(); // received after the batch is received again and handled
+
+            Thread.sleep(10);
+
+            return Collections.emptyList();
+        });
+
+        hookConsumer.start();
+
+        try {
+            assertTrue(batchesHandled.await(10, TimeUnit.SECONDS));
+        } finally {
+            hookConsumer.shutdown();
+        }
+
+        verify(consumer).commit(partition, 12);
+
+        verify(consumer).seek(partition, 10);
+        verify(atlasEntityStore, times(2)).createOrUpdate(any(EntityStream.class), anyBoolean());
+        verify(consumer, never()).commit(partition, 13);
+    }
+
+    @Test
+    public void testHandledMessagesOfFailedBatchAreNotReceivedAgain() throws Exception {
+        NotificationHookConsumer                  notificationHookConsumer = new NotificationHookConsumer(notificationInterface, atlasEntityStore, serviceState, instanceConverter, typeRegistry, metricsUtil);
+        NotificationConsumer                      consumer                 = mock(NotificationConsumer.class);
+        NotificationHookConsumer.HookConsumer     hookConsumer             = notificationHookConsumer.new HookConsumer(consumer);
+        TopicPartition                            partition                = new TopicPartition(KafkaNotification.ATLAS_HOOK_TOPIC, 0);
+        List<AtlasKafkaMessage<HookNotification>> batch                    = new ArrayList<>();
+        CountDownLatch                            batchesHandled           = new CountDownLatch(1);
+
+        for (int i = 0; i < 2; i++) {
+            batch.add(new AtlasKafkaMessage(new EntityCreateRequest("user", Collections.singletonList(mock(Referenceable.class))), 10 + i, KafkaNotification.ATLAS_HOOK_TOPIC, 0));
+        }
+
+        when(serviceState.getState()).thenReturn(ServiceState.ServiceStateValue.ACTIVE);
+        AtlasEntitiesWithExtInfo entities = new AtlasEntitiesWithExtInfo(mock(AtlasEntity.class));
+
+        when(instanceConverter.toAtlasEntities(anyList())).thenReturn(entities)
+                                                        .thenThrow(new RuntimeException("Simulating failure to convert message"))
+                                                        .thenReturn(entities);
+        when(consumer.receive()).thenReturn(batch).thenReturn(batch.subList(1, 2)).thenAnswer(invocation -> {
+            batchesHandled.countDown(); // received after the batch is received again and handled
+
+            Thread.sleep(10);
+
+            return Collections.emptyList();
+        });
+
+        hookConsumer.start();
+
+        try {
+            assertTrue(batchesHandled.await(10, TimeUnit.SECONDS));
+        } finally {
+            hookConsumer.shutdown();
+        }
+
+        verify(consumer).commit(partition, 12);
+
+        // 1st message was handled and committed before the 2nd failed, hence only the 2nd is received again
+        verify(consumer).seek(partition, 11);
+        verify(consumer, never()).seek(partition, 10);
+        verify(consumer).commit(partition, 11);
+        verify(atlasEntityStore, times(2)).createOrUpdate(any(EntityStream.class), anyBoolean());
+    }
+
+    @Test
+    public void testOffsetsAreCommittedAsynchronouslyInBatches() throws Exception {
+        ApplicationProperties.get().setProperty(NotificationHookConsumer.CONSUMER_OFFSET_COMMIT_ASYNC, true);
+        ApplicationProperties.get().setProperty(NotificationHookConsumer.CONSUMER_OFFSET_COMMIT_MAX_MESSAGES, 3);
+        ApplicationProperties.get().setProperty(NotificationHookConsumer.CONSUMER_OFFSET_COMMIT_INTERVAL_MS, 60 * 60 * 1000);
+
+        try {
+            NotificationHookConsumer              notificationHookConsumer = new NotificationHookConsumer(notificationInterface, atlasEntityStore, serviceState, instanceConverter, typeRegistry, metricsUtil);
+            NotificationConsumer                  consumer                 = mock(NotificationConsumer.class);
+            NotificationHookConsumer.HookConsumer hookConsumer             = notificationHookConsumer.new HookConsumer(consumer);
+            TopicPartition                        partition                = new TopicPartition(KafkaNotification.ATLAS_HOOK_TOPIC, 0);
+
+            for (int i = 0; i < 5; i++) {
+                EntityCreateRequest message = new EntityCreateRequest("user", Collections.singletonList(mock(Referenceable.class)));
+
+                hookConsumer.handleMessage(new AtlasKafkaMessage(message, i, KafkaNotification.ATLAS_HOOK_TOPIC, 0));
+            }
+
+            verify(consumer).commitAsync(eq(Collections.singletonMap(partition, 3L)), any(NotificationConsumer.CommitCallback.class));
+            verify(consumer, never()).commit(any(TopicPartition.class), anyLong());
+
+            hookConsumer.commitOffsetsAsync(true);
+
+            verify(consumer).commit(partition, 5L);
+        } finally {
+            ApplicationProperties.get().clearProperty(NotificationHookConsumer.CONSUMER_OFFSET_COMMIT_ASYNC);
+            ApplicationProperties.get().clearProperty(NotificationHookConsumer.CONSUMER_OFFSET_COMMIT_MAX_MESSAGES);
+            ApplicationProperties.get().clearProperty(NotificationHookConsumer.CONSUMER_OFFSET_COMMIT_INTERVAL_MS);
+        }
+    }
+
+    @Test
+    public void testConsumersAreScaledByLag() throws Exception {
+        ApplicationProperties.get().setProperty(NotificationHookConsumer.CONSUMER_AUTOSCALE_ENABLED, true);
+        ApplicationProperties.get().setProperty(NotificationHookConsumer.CONSUMER_AUTOSCALE_MAX_THREADS, 2);
+        ApplicationProperties.get().setProperty(NotificationHookConsumer.CONSUMER_AUTOSCALE_INTERVAL_MS, 60 * 60 * 1000); // scaleConsumers() is called explicitly
+        ApplicationProperties.get().setProperty(NotificationHookConsumer.CONSUMER_AUTOSCALE_LAG_HIGH, 100);
+        ApplicationProperties.get().setProperty(NotificationHookConsumer.CONSUMER_AUTOSCALE_LAG_LOW, 10);
+
+        try {
+            List<NotificationConsumer<Object>> consumers          = new ArrayList();
+            NotificationConsumer               additionalConsumer = mock(NotificationConsumer.class);
+
+            consumers.add(mock(NotificationConsumer.class));
+
+            when(configuration.getBoolean(HAConfiguration.ATLAS_SERVER_HA_ENABLED_KEY, false)).thenReturn(false);
+            when(notificationInterface.createConsumers(NotificationType.HOOK, 1)).thenReturn(consumers);
+            when(notificationInterface.createAdditionalConsumer(NotificationType.HOOK, 1)).thenReturn(additionalConsumer);
+
+            NotificationHookConsumer notificationHookConsumer = new NotificationHookConsumer(notificationInterface, atlasEntityStore, serviceState, instanceConverter, typeRegistry, metricsUtil);
+
+            notificationHookConsumer.startInternal(configuration, executorService);
+
+            notificationHookConsumer.consumers.get(0).lag = 1000;
+            notificationHookConsumer.scaleConsumers();
+
+            assertEquals(notificationHookConsumer.consumers.size(), 2);
+            verify(executorService, times(2)).submit(any(NotificationHookConsumer.HookConsumer.class));
+            verify(metricsUtil).onNotificationConsumerScaling(1000, 1, 2);
+
+            notificationHookConsumer.scaleConsumers(); // at max threads
+
+            assertEquals(notificationHookConsumer.consumers.size(), 2);
+            verify(notificationInterface, times(1)).createAdditionalConsumer(NotificationType.HOOK, 1);
+
+            notificationHookConsumer.consumers.get(0).lag = 0;
+            notificationHookConsumer.consumers.get(1).lag = 0;
+            notificationHookConsumer.scaleConsumers();
+
+            assertEquals(notificationHookConsumer.consumers.size(), 1);
+            verify(metricsUtil).onNotificationConsumerScaling(0, 2, 1);
+
+            notificationHookConsumer.scaleConsumers(); // consumer created at start is not removed
+
+            assertEquals(notificationHookConsumer.consumers.size(), 1);
+
+            notificationHookConsumer.stopAutoscaler();
+        } finally {
+            ApplicationProperties.get().clearProperty(NotificationHookConsumer.CONSUMER_AUTOSCALE_ENABLED);
+            ApplicationProperties.get().clearProperty(NotificationHookConsumer.CONSUMER_AUTOSCALE_MAX_THREADS);
+            ApplicationProperties.get().clearProperty(NotificationHookConsumer.CONSUMER_AUTOSCALE_INTERVAL_MS);
+            ApplicationProperties.get().clearProperty(NotificationHookConsumer.CONSUMER_AUTOSCALE_LAG_HIGH);
+            ApplicationProperties.get().clearProperty(NotificationHookConsumer.CONSUMER_AUTOSCALE_LAG_LOW);
+        }
+    }
+
+    @Test
+    public void testLargeMessagesDoNotBlockSmallMessages() throws Exception {
+        ApplicationProperties.get().setProperty(NotificationHookConsumer.CONSUMER_LARGE_MESSAGE_LANE_ENABLED, true);
+        ApplicationProperties.get().setProperty(NotificationHookConsumer.CONSUMER_LARGE_MESSAGE_ENTITY_COUNT_THRESHOLD, 2);
+
+        try {
+            NotificationHookConsumer              notificationHookConsumer = new NotificationHookConsumer(notificationInterface, atlasEntityStore, serviceState, instanceConverter, typeRegistry, metricsUtil);
+            NotificationHookConsumer.HookConsumer hookConsumer             = notificationHookConsumer.new HookConsumer(mock(NotificationConsumer.class));
+            TopicPartition                        partition                = new TopicPartition(KafkaNotification.ATLAS_HOOK_TOPIC, 0);
+            List<Referenceable>                   largeEntities            = Arrays.asList(mock(Referenceable.class), mock(Referenceable.class), mock(Referenceable.class));
+            AtlasKafkaMessage<HookNotification>   largeMsg                 = new AtlasKafkaMessage(new EntityCreateRequest("user", largeEntities), 0, KafkaNotification.ATLAS_HOOK_TOPIC, 0);
+            AtlasKafkaMessage<HookNotification>   smallMsg                 = new AtlasKafkaMessage(new EntityCreateRequest("user", Collections.singletonList(newTable("db1.table1@cl1"))), 1, KafkaNotification.ATLAS_HOOK_TOPIC, 0);
+            CountDownLatch                        largeMsgLatch            = new CountDownLatch(1);
+            AtlasEntitiesWithExtInfo              entities                 = new AtlasEntitiesWithExtInfo(mock(AtlasEntity.class));
+
+            when(instanceConverter.toAtlasEntities(largeEntities)).thenAnswer(invocation -> {
+                largeMsgLatch.await();
+
+                return entities;
+            });
+
+            hookConsumer.offsetCommitTracker.received(partition, 0);
+            hookConsumer.offsetCommitTracker.received(partition, 1);
+
+            List<AtlasKafkaMessage<HookNotification>> toProcess = hookConsumer.routeLargeMessages(Arrays.asList(largeMsg, smallMsg));
+
+            assertEquals(toProcess, Collections.singletonList(smallMsg));
+
+            hookConsumer.handleMessage(smallMsg);
+
+            // the large message is yet to be processed, hence offset of the small message is not committed
+            assertEquals(hookConsumer.offsetCommitTracker.getLowestPendingOffset(partition), Long.valueOf(0));
+            assertTrue(hookConsumer.offsetCommitTracker.drainCommittableOffsets().isEmpty());
+
+            largeMsgLatch.countDown();
+
+            for (int i = 0; i < 50 && hookConsumer.offsetCommitTracker.getLowestPendingOffset(partition) != null; i++) {
+                Thread.sleep(100);
+            }
+
+            assertEquals(hookConsumer.offsetCommitTracker.drainCommittableOffsets(), Collections.singletonMap(partition, 2L));
+        } finally {
+            ApplicationProperties.get().clearProperty(NotificationHookConsumer.CONSUMER_LARGE_MESSAGE_LANE_ENABLED);
+            ApplicationProperties.get().clearProperty(NotificationHookConsumer.CONSUMER_LARGE_MESSAGE_ENTITY_COUNT_THRESHOLD);
+        }
+    }
+
+    @Test
+    public void testLargeMessageIsNotHandedOffAgainWhenReceivedAgain() throws Exception {
+        ApplicationProperties.get().setProperty(NotificationHookConsumer.CONSUMER_LARGE_MESSAGE_LANE_ENABLED, true);
+        ApplicationProperties.get().setProperty(NotificationHookConsumer.CONSUMER_LARGE_MESSAGE_ENTITY_COUNT_THRESHOLD, 2);
+
+        try {
+            NotificationHookConsumer              notificationHookConsumer = new NotificationHookConsumer(notificationInterface, atlasEntityStore, serviceState, instanceConverter, typeRegistry, metricsUtil);
+            NotificationHookConsumer.HookConsumer hookConsumer             = notificationHookConsumer.new HookConsumer(mock(NotificationConsumer.class));
+            TopicPartition                        partition                = new TopicPartition(KafkaNotification.ATLAS_HOOK_TOPIC, 0);
+            List<Referenceable>                   largeEntities            = Arrays.asList(newTable("db1.table1@cl1"), newTable("db1.table2@cl1"), newTable("db1.table3@cl1"));
+            AtlasKafkaMessage<HookNotification>   smallMsg                 = new AtlasKafkaMessage(new EntityCreateRequest("user", Collections.singletonList(newTable("db1.table4@cl1"))), 5, KafkaNotification.ATLAS_HOOK_TOPIC, 0);
+            AtlasKafkaMessage<HookNotification>   largeMsg                 = new AtlasKafkaMessage(new EntityCreateRequest("user", largeEntities), 6, KafkaNotification.ATLAS_HOOK_TOPIC, 0);
+            CountDownLatch                        largeMsgLatch            = new CountDownLatch(1);
+            AtomicInteger                         largeMsgConversions      = new AtomicInteger();
+            AtlasEntitiesWithExtInfo              entities                 = new AtlasEntitiesWithExtInfo(mock(AtlasEntity.class));
+
+            when(instanceConverter.toAtlasEntities(largeEntities)).thenAnswer(invocation -> {
+                largeMsgLatch.await();
+
+                largeMsgConversions.incrementAndGet();
+
+                return entities;
+            });
+
+            hookConsumer.offsetCommitTracker.received(partition, 5);
+            hookConsumer.offsetCommitTracker.received(partition, 6);
+
+            assertEquals(hookConsumer.routeLargeMessages(Arrays.asList(smallMsg, largeMsg)), Collections.singletonList(smallMsg));
+
+            // handling of the small message failed, hence the consumer is repositioned and both messages are received again
+            hookConsumer.offsetCommitTracker.received(partition, 5);
+            hookConsumer.offsetCommitTracker.received(partition, 6);
+
+            assertEquals(hookConsumer.routeLargeMessages(Arrays.asList(smallMsg, largeMsg)), Collections.singletonList(smallMsg));
+
+            hookConsumer.handleMessage(smallMsg);
+
+            largeMsgLatch.countDown();
+
+            for (int i = 0; i < 50 && hookConsumer.offsetCommitTracker.getLowestPendingOffset(partition) != null; i++) {
+                Thread.sleep(100);
+            }
+
+            assertEquals(largeMsgConversions.get(), 1);
+
+            hookConsumer.commitOffsetsAsync(true);
+
+            // once committed, the message is received again only after reassignment of the partition, hence is handed off again
+            assertTrue(hookConsumer.routeLargeMessages(Collections.singletonList(largeMsg)).isEmpty());
+
+            for (int i = 0; i < 50 && largeMsgConversions.get() < 2; i++) {
+                Thread.sleep(100);
+            }
+
+            assertEquals(largeMsgConversions.get(), 2);
+        } finally {
+            ApplicationProperties.get().clearProperty(NotificationHookConsumer.CONSUMER_LARGE_MESSAGE_LANE_ENABLED);
+            ApplicationProperties.get().clearProperty(NotificationHookConsumer.CONSUMER_LARGE_MESSAGE_ENTITY_COUNT_THRESHOLD);
+        }
+    }
+
+    @Test
+    public void testLargeMessageLaneBlocksCallerWhenFull() throws Exception {
+        ApplicationProperties.get().setProperty(NotificationHookConsumer.CONSUMER_LARGE_MESSAGE_LANE_ENABLED, true);
+        ApplicationProperties.get().setProperty(NotificationHookConsumer.CONSUMER_LARGE_MESSAGE_LANE_QUEUE_SIZE, 1);
+        ApplicationProperties.get().setProperty(NotificationHookConsumer.CONSUMER_LARGE_MESSAGE_ENTITY_COUNT_THRESHOLD, 0);
+
+        try {
+            NotificationHookConsumer              notificationHookConsumer = new NotificationHookConsumer(notificationInterface, atlasEntityStore, serviceState, instanceConverter, typeRegistry, metricsUtil);
+            NotificationHookConsumer.HookConsumer hookConsumer             = notificationHookConsumer.new HookConsumer(mock(NotificationConsumer.class));
+            List<AtlasKafkaMessage<HookNotification>> messages             = new ArrayList<>();
+            List<String>                          processed                = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch                        firstMsgLatch            = new CountDownLatch(1);
+
+            for (int i = 0; i < 3; i++) {
+                messages.add(new AtlasKafkaMessage(new EntityCreateRequest("user", Collections.singletonList(newTable("db1.table" + i + "@cl1"))), i, KafkaNotification.ATLAS_HOOK_TOPIC, 0));
+            }
+
+            when(instanceConverter.toAtlasEntities(anyList())).thenAnswer(invocation -> {
+                Referenceable entity = (Referenceable) ((List) invocation.getArguments()[0]).get(0);
+
+                if (processed.isEmpty()) {
+                    firstMsgLatch.await();
+                }
+
+                processed.add((String) entity.get("qualifiedName"));
+
+                return new AtlasEntitiesWithExtInfo(mock(AtlasEntity.class));
+            });
+
+            // 1st message is being processed and 2nd is queued, hence routing of 3rd message waits for room in the lane
+            Thread caller = new Thread(() -> hookConsumer.routeLargeMessages(messages));
+
+            caller.start();
+            caller.join(500);
+
+            assertTrue(caller.isAlive());
+            assertTrue(processed.isEmpty());
+
+            firstMsgLatch.countDown();
+            caller.join(5000);
+
+            assertFalse(caller.isAlive());
+
+            for (int i = 0; i < 50 && processed.size() < 3; i++) {
+                Thread.sleep(100);
+            }
+
+            assertEquals(processed, Arrays.asList("db1.table0@cl1", "db1.table1@cl1", "db1.table2@cl1"));
+        } finally {
+            ApplicationProperties.get().clearProperty(NotificationHookConsumer.CONSUMER_LARGE_MESSAGE_LANE_ENABLED);
+            ApplicationProperties.get().clearProperty(NotificationHookConsumer.CONSUMER_LARGE_MESSAGE_LANE_QUEUE_SIZE);
+            ApplicationProperties.get().clearProperty(NotificationHookConsumer.CONSUMER_LARGE_MESSAGE_ENTITY_COUNT_THRESHOLD);
+        }
+    }
+
+    @Test
+    public void testOffsetsAreNotCommittedPastUnprocessedLargeMessageOnStop() throws Exception {
+        ApplicationProperties.get().setProperty(NotificationHookConsumer.CONSUMER_LARGE_MESSAGE_LANE_ENABLED, true);
+        ApplicationProperties.get().setProperty(NotificationHookConsumer.CONSUMER_LARGE_MESSAGE_ENTITY_COUNT_THRESHOLD, 2);
+
+        try {
+            NotificationHookConsumer              notificationHookConsumer = new NotificationHookConsumer(notificationInterface, atlasEntityStore, serviceState, instanceConverter, typeRegistry, metricsUtil);
+            NotificationConsumer                  consumer                 = mock(NotificationConsumer.class);
+            NotificationHookConsumer.HookConsumer hookConsumer             = notificationHookConsumer.new HookConsumer(consumer);
+            List<Referenceable>                   largeEntities            = Arrays.asList(newTable("db1.table1@cl1"), newTable("db1.table2@cl1"), newTable("db1.table3@cl1"));
+            AtlasKafkaMessage<HookNotification>   largeMsg                 = new AtlasKafkaMessage(new EntityCreateRequest("user", largeEntities), 5, KafkaNotification.ATLAS_HOOK_TOPIC, 0);
+            AtlasKafkaMessage<HookNotification>   smallMsg                 = new AtlasKafkaMessage(new EntityCreateRequest("user", Collections.singletonList(newTable("db1.table4@cl1"))), 6, KafkaNotification.ATLAS_HOOK_TOPIC, 0);
+            CountDownLatch                        largeMsgStarted          = new CountDownLatch(1);
+
+            when(serviceState.getState()).thenReturn(ServiceState.ServiceStateValue.ACTIVE);
+            when(instanceConverter.toAtlasEntities(largeEntities)).thenAnswer(invocation -> {
+                largeMsgStarted.countDown();
+
+                Thread.sleep(60 * 1000); // interrupted on stop
+
+                return new AtlasEntitiesWithExtInfo(mock(AtlasEntity.class));
+            });
+            when(consumer.receive()).thenReturn(Arrays.asList(largeMsg, smallMsg)).thenAnswer(invocation -> {
+                Thread.sleep(10);
+
+                return Collections.emptyList();
+            });
+
+            hookConsumer.start();
+
+            assertTrue(largeMsgStarted.await(10, TimeUnit.SECONDS));
+
+            verify(atlasEntityStore, timeout(10000)).createOrUpdate(any(EntityStream.class), anyBoolean()); // small message
+
+            hookConsumer.shutdown();
+
+            verify(consumer, never()).commit(any(TopicPartition.class), anyLong());
+            verify(consumer, never()).commitAsync(anyMap(), any(NotificationConsumer.CommitCallback.class));
+        } finally {
+            ApplicationProperties.get().clearProperty(NotificationHookConsumer.CONSUMER_LARGE_MESSAGE_LANE_ENABLED);
+            ApplicationProperties.get().clearProperty(NotificationHookConsumer.CONSUMER_LARGE_MESSAGE_ENTITY_COUNT_THRESHOLD);
+        }
+    }
+
+    @Test
+    public void testFailedAsyncCommitOffsetsAreRetried() {
+        NotificationHookConsumer.FailedCommitOffsetRecorder recorder   = new NotificationHookConsumer.FailedCommitOffsetRecorder();
+        TopicPartition                                      partition0 = new TopicPartition(KafkaNotification.ATLAS_HOOK_TOPIC, 0);
+        TopicPartition                                      partition1 = new TopicPartition(KafkaNotification.ATLAS_HOOK_TOPIC, 1);
+
+        recorder.recordIfFailed(Collections.singletonMap(partition0, 10L), new RuntimeException("simulated commit failure"));
+
+        assertTrue(recorder.isMessageReplayed(partition0, 9));
+        assertFalse(recorder.isMessageReplayed(partition0, 10));
+        assertFalse(recorder.isMessageReplayed(partition1, 9));
+
+        Map<TopicPartition, Long> offsets = recorder.addFailedOffsets(Collections.singletonMap(partition1, 4L));
+
+        assertEquals(offsets.get(partition0), Long.valueOf(10));
+        assertEquals(offsets.get(partition1), Long.valueOf(4));
+
+        recorder.recordIfFailed(offsets, null);
+
+        assertFalse(recorder.isMessageReplayed(partition0, 9));
+        assertTrue(recorder.addFailedOffsets(Collections.emptyMap()).isEmpty());
+    }
+
     @Test
     public void testConsumerProceedsWithFalseIfInterrupted() throws Exception {
         NotificationHookConsumer              notificationHookConsumer = new NotificationHookConsumer(notificationInterface, atlasEntityStore, serviceState, instanceConverter, typeRegistry, metricsUtil);
@@ -334,4 +883,39 @@ public class NotificationHookConsumerTest {
         when(notificationInterface.createConsumers(NotificationType.HOOK, 1)).thenReturn(consumers);
         return new NotificationHookConsumer(notificationInterface, atlasEntityStore, serviceState, instanceConverter, typeRegistry, metricsUtil);
     }
+
+    private static AtlasEntity newHiveEntity(String typeName, String qualifiedName) {
+        AtlasEntity ret = new AtlasEntity(typeName, "qualifiedName", qualifiedName);
+
+        ret.setGuid("-" + Math.abs(qualifiedName.hashCode()) + typeName.length());
+
+        return ret;
+    }
+
+    private static AtlasEntitiesWithExtInfo newHiveTable(String qualifiedName) {
+        AtlasEntity              table = newHiveEntity("hive_table", qualifiedName);
+        AtlasEntitiesWithExtInfo ret   = new AtlasEntitiesWithExtInfo(table);
+
+        ret.addReferredEntity(newHiveEntity("hive_db", "db1@cl1"));
+        ret.addReferredEntity(newHiveEntity("hive_column", qualifiedName.replace("@", ".id@")));
+        ret.addReferredEntity(newHiveEntity("hive_column", qualifiedName.replace("@", ".name@")));
+
+        return ret;
+    }
+
+    private static AtlasEntitiesWithExtInfo newHiveProcess(String input, String output) {
+        AtlasEntitiesWithExtInfo ret = new AtlasEntitiesWithExtInfo();
+
+        ret.addEntity(newHiveEntity("hive_process", input + "->" + output));
+        ret.addEntity(newHiveEntity("hive_process_execution", input + "->" + output + ":1"));
+        ret.addReferredEntity(newHiveEntity("hive_db", "db1@cl1"));
+        ret.addReferredEntity(newHiveEntity("hive_table", input));
+        ret.addReferredEntity(newHiveEntity("hive_table", output));
+
+        return ret;
+    }
+
+    private static Referenceable newTable(String qualifiedName) {
+        return new Referenceable("hive_table", Collections.<String, Object>singletonMap("qualifiedName", qualifiedName));
+    }
 }
@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.notification;
+
+import org.apache.kafka.common.TopicPartition;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class OffsetCommitTrackerTest {
+    private final TopicPartition partition0 = new TopicPartition("ATLAS_HOOK", 0);
+    private final TopicPartition partition1 = new TopicPartition("ATLAS_HOOK", 1);
+
+    @Test
+    public void commitsOnlyContiguousProcessedOffsets() {
+        OffsetCommitTracker tracker = new OffsetCommitTracker();
+
+        for (long offset = 10; offset < 15; offset++) {
+            tracker.received(partition0, offset);
+        }
+
+        tracker.processed(partition0, 12);
+        tracker.processed(partition0, 13);
+
+        assertTrue(tracker.drainCommittableOffsets().isEmpty());
+        assertEquals(tracker.getLowestPendingOffset(partition0), Long.valueOf(10));
+
+        tracker.processed(partition0, 10);
+        tracker.processed(partition0, 11);
+
+        assertEquals(tracker.getCommittableCount(), 4);
+
+        Map<TopicPartition, Long> offsets = tracker.drainCommittableOffsets();
+
+        assertEquals(offsets.get(partition0), Long.valueOf(14));
+        assertEquals(tracker.getCommittableCount(), 0);
+        assertEquals(tracker.getLowestPendingOffset(partition0), Long.valueOf(14));
+
+        tracker.processed(partition0, 14);
+
+        assertEquals(tracker.drainCommittableOffsets().get(partition0), Long.valueOf(15));
+        assertNull(tracker.getLowestPendingOffset(partition0));
+    }
+
+    @Test
+    public void tracksPartitionsIndependently() {
+        OffsetCommitTracker tracker = new OffsetCommitTracker();
+
+        tracker.received(partition0, 1);
+        tracker.received(partition1, 1);
+        tracker.received(partition1, 2);
+
+        tracker.processed(partition1, 1);
+        tracker.processed(partition1, 2);
+
+        Map<TopicPartition, Long> offsets = tracker.drainCommittableOffsets();
+
+        assertEquals(offsets.size(), 1);
+        assertEquals(offsets.get(partition1), Long.valueOf(3));
+    }
+
+    @Test
+    public void ignoresRepeatedProcessedCalls() {
+        OffsetCommitTracker tracker = new OffsetCommitTracker();
+
+        tracker.received(partition0, 5);
+        tracker.processed(partition0, 5);
+        tracker.drainCommittableOffsets();
+
+        tracker.processed(partition0, 5);
+
+        assertTrue(tracker.drainCommittableOffsets().isEmpty());
+    }
+
+    @Test
+    public void resetsWhenConsumerIsRepositioned() {
+        OffsetCommitTracker tracker = new OffsetCommitTracker();
+
+        tracker.received(partition0, 5);
+        tracker.received(partition0, 6);
+        tracker.processed(partition0, 5);
+        tracker.processed(partition0, 6);
+        tracker.drainCommittableOffsets();
+
+        tracker.received(partition0, 3);
+        tracker.processed(partition0, 3);
+
+        assertEquals(tracker.drainCommittableOffsets().get(partition0), Long.valueOf(4));
+    }
+}
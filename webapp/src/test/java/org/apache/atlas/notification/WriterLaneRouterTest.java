@@ -0,0 +1,117 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.notification;
+
+import org.apache.atlas.notification.WriterLaneRouter.MessageKeys;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+public class WriterLaneRouterTest {
+    private static final int LANE_COUNT = 4;
+
+    @Test
+    public void routesByTopLevelEntities() {
+        WriterLaneRouter router = new WriterLaneRouter(LANE_COUNT);
+        MessageKeys      table1 = keys("db1.table1@cl1", "db1@cl1");
+        MessageKeys      table2 = keys(tableInOtherLane("db1.table1@cl1"), "db1@cl1");
+
+        int lane1 = router.acquireLane(table1);
+        int lane2 = router.acquireLane(table2);
+
+        // tables refer to the same database, which isn't being written as top-level entity; hence written in parallel
+        assertEquals(lane1, laneOf("db1.table1@cl1"));
+        assertNotEquals(lane1, lane2);
+
+        router.release(table1, lane1);
+        router.release(table2, lane2);
+
+        assertTrue(router.isEmpty());
+    }
+
+    @Test
+    public void holdsMessageToLaneOfInFlightEntity() {
+        WriterLaneRouter router    = new WriterLaneRouter(LANE_COUNT);
+        String           tableName = "db1.table1@cl1";
+        String           otherName = tableInOtherLane(tableName);
+        MessageKeys      table     = keys(tableName, "db1@cl1");
+        MessageKeys      process   = keys(processInOtherLane(tableName), tableName, "db1@cl1");
+
+        int tableLane = router.acquireLane(table);
+
+        // process refers to the table being written, hence is written after the table
+        assertEquals(router.acquireLane(process), tableLane);
+
+        // table referred by the in-flight process is updated after the process
+        MessageKeys otherTable = keys(otherName);
+
+        router.release(table, tableLane);
+
+        assertEquals(router.acquireLane(keys(tableName)), tableLane);
+        assertEquals(router.acquireLane(otherTable), laneOf(otherName));
+    }
+
+    @Test
+    public void serializesMessageOverlappingMoreThanOneLane() {
+        WriterLaneRouter router     = new WriterLaneRouter(LANE_COUNT);
+        String           inputName  = "db1.table1@cl1";
+        String           outputName = tableInOtherLane(inputName);
+
+        router.acquireLane(keys(inputName));
+        router.acquireLane(keys(outputName));
+
+        assertEquals(router.acquireLane(keys("db1.process1@cl1", inputName, outputName)), -1);
+        assertEquals(router.acquireLane(null), -1); // entities not known
+        assertEquals(router.acquireLane(new MessageKeys()), -1);
+    }
+
+    private static MessageKeys keys(String topLevel, String... referred) {
+        MessageKeys ret = new MessageKeys();
+
+        ret.topLevel.add(topLevel);
+        ret.referred.addAll(Arrays.asList(referred));
+
+        return ret;
+    }
+
+    private static int laneOf(String qualifiedName) {
+        return Math.floorMod(qualifiedName.hashCode(), LANE_COUNT);
+    }
+
+    private static String tableInOtherLane(String qualifiedName) {
+        return nameInOtherLane("db1.table", qualifiedName);
+    }
+
+    private static String processInOtherLane(String qualifiedName) {
+        return nameInOtherLane("db1.process", qualifiedName);
+    }
+
+    private static String nameInOtherLane(String prefix, String qualifiedName) {
+        for (int i = 2; ; i++) {
+            String ret = prefix + i + "@cl1";
+
+            if (laneOf(ret) != laneOf(qualifiedName)) {
+                return ret;
+            }
+        }
+    }
+}
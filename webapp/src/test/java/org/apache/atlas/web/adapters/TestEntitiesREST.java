@@ -34,6 +34,7 @@ import static org.apache.atlas.repository.Constants.TYPE_NAME_PROPERTY_KEY;
 import static org.apache.atlas.utils.TestLoadModelUtils.createTypesAsNeeded;
 
 import org.apache.atlas.AtlasClient;
+import org.apache.atlas.AtlasErrorCode;
 import org.apache.atlas.RequestContext;
 import org.apache.atlas.TestModules;
 import org.apache.atlas.TestUtilsV2;
@@ -64,6 +65,7 @@ import org.apache.atlas.type.AtlasTypeUtil;
 import org.apache.atlas.web.rest.DiscoveryREST;
 import org.apache.atlas.web.rest.EntityREST;
 import org.apache.commons.io.FileUtils;
+import org.mockito.Mockito;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
@@ -73,16 +75,23 @@ import org.testng.annotations.Guice;
 import org.testng.annotations.Test;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Guice(modules = {TestModules.TestOnlyModule.class})
 public class TestEntitiesREST {
@@ -146,7 +155,7 @@ public class TestEntitiesREST {
     @Test
     public void testGetEntities() throws Exception {
 
-        final AtlasEntitiesWithExtInfo response = entityREST.getByGuids(createdGuids.get(DATABASE_TYPE), false, false);
+        final AtlasEntitiesWithExtInfo response = entityREST.getByGuids(createdGuids.get(DATABASE_TYPE), false, false, null, null);
         final List<AtlasEntity> entities = response.getEntities();
 
         Assert.assertNotNull(entities);
@@ -154,6 +163,76 @@ public class TestEntitiesREST {
         verifyAttributes(entities);
     }
 
+    @Test
+    public void testGetEntitiesAsStream() throws Exception {
+        List<String> guids = new ArrayList<>();
+
+        for (List<String> typeGuids : createdGuids.values()) {
+            guids.addAll(typeGuids);
+        }
+
+        Response              response = entityREST.getByGuidsAsStream(guids, false, false, null, null);
+        ByteArrayOutputStream out      = new ByteArrayOutputStream();
+
+        ((StreamingOutput) response.getEntity()).write(out);
+
+        List<String> streamedGuids = new ArrayList<>();
+
+        for (String line : new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n")) {
+            AtlasEntitiesWithExtInfo entities = AtlasType.fromJson(line, AtlasEntitiesWithExtInfo.class);
+
+            for (AtlasEntity entity : entities.getEntities()) {
+                streamedGuids.add(entity.getGuid());
+            }
+        }
+
+        Assert.assertEquals(streamedGuids, guids);
+    }
+
+    @Test
+    public void testGetEntitiesByUniqueAttributesAsStream() throws Exception {
+        Map<String, String[]> paramMap = new HashMap<>();
+
+        paramMap.put("attr_1:name", new String[] { (String) tableEntity.getAttribute("name") });
+        paramMap.put("attr_2:name", new String[] { (String) tableEntity2.getAttribute("name") });
+
+        HttpServletRequest mockRequest = Mockito.mock(HttpServletRequest.class);
+
+        Mockito.when(mockRequest.getParameterMap()).thenReturn(paramMap);
+
+        Response              response = entityREST.getEntitiesByUniqueAttributesAsStream(TABLE_TYPE, false, false, mockRequest);
+        ByteArrayOutputStream out      = new ByteArrayOutputStream();
+
+        ((StreamingOutput) response.getEntity()).write(out);
+
+        Set<String> streamedNames = new HashSet<>();
+
+        for (String line : new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n")) {
+            AtlasEntitiesWithExtInfo entities = AtlasType.fromJson(line, AtlasEntitiesWithExtInfo.class);
+
+            for (AtlasEntity entity : entities.getEntities()) {
+                streamedNames.add((String) entity.getAttribute("name"));
+            }
+        }
+
+        Assert.assertEquals(streamedNames, new HashSet<>(Arrays.asList((String) tableEntity.getAttribute("name"), (String) tableEntity2.getAttribute("name"))));
+    }
+
+    @Test
+    public void testGetEntitiesByUniqueAttributesAsStreamWithoutAttributes() throws Exception {
+        HttpServletRequest mockRequest = Mockito.mock(HttpServletRequest.class);
+
+        Mockito.when(mockRequest.getParameterMap()).thenReturn(new HashMap<>());
+
+        try {
+            entityREST.getEntitiesByUniqueAttributesAsStream(TABLE_TYPE, false, false, mockRequest);
+
+            Assert.fail("expected failure with no unique attributes");
+        } catch (AtlasBaseException excp) {
+            Assert.assertEquals(excp.getAtlasErrorCode(), AtlasErrorCode.INVALID_PARAMETERS);
+        }
+    }
+
     @Test
     public void testCustomAttributesSearch() throws Exception {
         AtlasEntity dbWithCustomAttr = new AtlasEntity(dbEntity);
@@ -103,7 +103,7 @@ public class TestEntityREST {
     @Test
     public void testGetEntityById() throws Exception {
         createTestEntity();
-        AtlasEntityWithExtInfo response = entityREST.getById(dbEntity.getGuid(), false, false);
+        AtlasEntityWithExtInfo response = entityREST.getById(dbEntity.getGuid(), false, false, null, null);
 
         Assert.assertNotNull(response);
         Assert.assertNotNull(response.getEntity());
@@ -266,7 +266,7 @@ public class TestEntityREST {
     @Test(dependsOnMethods = "testAddAndGetClassification")
     public void testGetEntityWithAssociations() throws Exception {
 
-        AtlasEntityWithExtInfo entity = entityREST.getById(dbEntity.getGuid(), false, false);
+        AtlasEntityWithExtInfo entity = entityREST.getById(dbEntity.getGuid(), false, false, null, null);
         final List<AtlasClassification> retrievedClassifications = entity.getEntity().getClassifications();
 
         Assert.assertNotNull(retrievedClassifications);
@@ -559,7 +559,7 @@ public class TestEntityREST {
         bmAttrMapReq = populateMultivaluedBusinessMetadataAttributeMap(bmAttrMapReq);
         entityREST.addOrUpdateBusinessAttributes(dbEntity.getGuid(), false, bmAttrMapReq);
 
-        AtlasEntityWithExtInfo entityWithExtInfo = entityREST.getById(dbEntity.getGuid(), false, false);
+        AtlasEntityWithExtInfo entityWithExtInfo = entityREST.getById(dbEntity.getGuid(), false, false, null, null);
         AtlasEntity atlasEntity = entityWithExtInfo.getEntity();
         Map<String, Map<String, Object>> bmAttrMapRes = atlasEntity.getBusinessAttributes();
 
@@ -576,7 +576,7 @@ public class TestEntityREST {
         bmAttrMapReq = populateMultivaluedBusinessMetadataAttributeMap(null);
         entityREST.addOrUpdateBusinessAttributes(dbEntity.getGuid(), true, bmAttrMapReq);
 
-        AtlasEntityWithExtInfo entityWithExtInfo = entityREST.getById(dbEntity.getGuid(), false, false);
+        AtlasEntityWithExtInfo entityWithExtInfo = entityREST.getById(dbEntity.getGuid(), false, false, null, null);
         AtlasEntity atlasEntity = entityWithExtInfo.getEntity();
         Map<String, Map<String, Object>> bmAttrMapRes = atlasEntity.getBusinessAttributes();
 
@@ -591,7 +591,7 @@ public class TestEntityREST {
         Map<String, Map<String, Object>> bmAttrMapReq = populateBusinessMetadataAttributeMap(null);
         entityREST.addOrUpdateBusinessAttributes(dbEntity.getGuid(), false, bmAttrMapReq);
 
-        AtlasEntityWithExtInfo entityWithExtInfo = entityREST.getById(dbEntity.getGuid(), false, false);
+        AtlasEntityWithExtInfo entityWithExtInfo = entityREST.getById(dbEntity.getGuid(), false, false, null, null);
         AtlasEntity atlasEntity = entityWithExtInfo.getEntity();
         Map<String, Map<String, Object>> bmAttrMapRes = atlasEntity.getBusinessAttributes();
 
@@ -603,7 +603,7 @@ public class TestEntityREST {
         bmAttrMapReq.put("bmWithAllTypes", attrValueMapReq);
         entityREST.addOrUpdateBusinessAttributes(dbEntity.getGuid(), true, bmAttrMapReq);
 
-        entityWithExtInfo = entityREST.getById(dbEntity.getGuid(), false, false);
+        entityWithExtInfo = entityREST.getById(dbEntity.getGuid(), false, false, null, null);
         atlasEntity = entityWithExtInfo.getEntity();
         bmAttrMapRes = atlasEntity.getBusinessAttributes();
 
@@ -626,7 +626,7 @@ public class TestEntityREST {
         Map<String, Map<String, Object>> bmAttrMapReq = populateBusinessMetadataAttributeMap(null);
         entityREST.addOrUpdateBusinessAttributes(dbEntity.getGuid(), false, bmAttrMapReq);
 
-        AtlasEntityWithExtInfo entityWithExtInfo = entityREST.getById(dbEntity.getGuid(), false, false);
+        AtlasEntityWithExtInfo entityWithExtInfo = entityREST.getById(dbEntity.getGuid(), false, false, null, null);
         AtlasEntity atlasEntity = entityWithExtInfo.getEntity();
         Map<String, Map<String, Object>> bmAttrMapRes = atlasEntity.getBusinessAttributes();
 
@@ -638,7 +638,7 @@ public class TestEntityREST {
         bmAttrMapReq_2.put("bmWithAllTypes", attrValueMapReq_2);
         entityREST.addOrUpdateBusinessAttributes(dbEntity.getGuid(), false, bmAttrMapReq_2);
 
-        entityWithExtInfo = entityREST.getById(dbEntity.getGuid(), false, false);
+        entityWithExtInfo = entityREST.getById(dbEntity.getGuid(), false, false, null, null);
         atlasEntity = entityWithExtInfo.getEntity();
         Map<String, Map<String, Object>> bmAttrMapRes_2 = atlasEntity.getBusinessAttributes();
 